@@ -0,0 +1,226 @@
+package org.jlab.io.clara;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.io.HipoReader;
+
+/**
+ * Ordered stream of events from a list of HIPO files, read as one logical
+ * input with a global event numbering.
+ *
+ * With reading threads, the events are read ahead in blocks of consecutive
+ * events: each thread has its own reader, so the records of different
+ * blocks are decompressed in parallel, and the blocks are kept in a bounded
+ * ring until the events are requested in order. An event requested out of
+ * order moves the ring to its block, and reading ahead continues from there.
+ * Without reading threads, all events are read directly.
+ *
+ * At most one file is open per reader, and the event counts are taken when
+ * the stream is created, with each file opened once.
+ */
+public class HipoEventStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 200;
+
+    private final List<String> files;
+    private final int[] firstEvent;
+    private final FileReader directReader = new FileReader();
+
+    private final int blockSize;
+    private final int ringSize;
+    private final Block[] ring;
+    private final List<Thread> threads = new ArrayList<>();
+    private int nextBlock = 0;
+    private int nextEvent = 0;
+    private int consumedBlocks = 0;
+    private int generation = 0;
+    private boolean closed = false;
+    private RuntimeException error = null;
+
+    private static class Block {
+        final int index;
+        final Event[] events;
+        Block(int index, Event[] events) {
+            this.index = index;
+            this.events = events;
+        }
+    }
+
+    /**
+     * Reader keeping only the file of the last event read open.
+     */
+    private class FileReader {
+        private HipoReader reader = null;
+        private int file = -1;
+
+        Event read(int eventNumber) {
+            int i = getFileIndex(eventNumber);
+            if (i != file) {
+                this.close();
+                reader = new HipoReader();
+                reader.open(files.get(i));
+                file = i;
+            }
+            return reader.getEvent(new Event(), eventNumber-firstEvent[i]);
+        }
+
+        void close() {
+            if (reader != null) reader.close();
+            reader = null;
+            file = -1;
+        }
+    }
+
+    /**
+     * @param files list of HIPO files
+     * @param nthreads number of reading threads, 0 to read on the calling thread
+     * @param blockSize number of consecutive events read by a thread at once
+     */
+    public HipoEventStream(List<String> files, int nthreads, int blockSize) {
+        this.files = new ArrayList<>(files);
+        this.firstEvent = new int[files.size()+1];
+        for (int i=0; i<files.size(); i++) {
+            HipoReader reader = new HipoReader();
+            reader.open(files.get(i));
+            firstEvent[i+1] = firstEvent[i] + reader.getEventCount();
+            reader.close();
+        }
+        this.blockSize = Math.max(1, blockSize);
+        this.ringSize = 2*Math.max(1, nthreads);
+        this.ring = new Block[ringSize];
+        for (int i=0; i<nthreads; i++) {
+            Thread t = new Thread(this::read, "HipoEventStream-"+i);
+            t.setDaemon(true);
+            threads.add(t);
+        }
+        for (Thread t : threads) t.start();
+    }
+
+    public int getEventCount() {
+        return firstEvent[files.size()];
+    }
+
+    /**
+     * @param eventNumber global event number
+     * @return index of the file containing the event
+     */
+    private int getFileIndex(int eventNumber) {
+        int i = Arrays.binarySearch(firstEvent, eventNumber);
+        if (i < 0) return -i-2;
+        // skip empty files:
+        while (i < files.size()-1 && firstEvent[i+1] == eventNumber) i++;
+        return i;
+    }
+
+    /**
+     * Moves the ring to the block of the given event: the blocks read ahead
+     * are dropped, and so are the blocks being read, when they are done.
+     */
+    private void seek(int eventNumber) {
+        Arrays.fill(ring, null);
+        generation++;
+        nextEvent = eventNumber;
+        nextBlock = eventNumber / blockSize;
+        consumedBlocks = nextBlock;
+        this.notifyAll();
+    }
+
+    /**
+     * Returns the event with the given global number.
+     * @param eventNumber global event number
+     * @return the event
+     */
+    public Event getEvent(int eventNumber) {
+        if (eventNumber < 0 || eventNumber >= this.getEventCount())
+            throw new IndexOutOfBoundsException("event "+eventNumber+" of "+this.getEventCount());
+        if (threads.isEmpty()) {
+            synchronized (this) {
+                return directReader.read(eventNumber);
+            }
+        }
+        synchronized (this) {
+            if (eventNumber != nextEvent) this.seek(eventNumber);
+            int index = eventNumber / blockSize;
+            Block block;
+            try {
+                while ((block = ring[index % ringSize]) == null || block.index != index) {
+                    if (error != null) throw error;
+                    this.wait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted waiting for events", ex);
+            }
+            int i = eventNumber % blockSize;
+            Event event = block.events[i];
+            block.events[i] = null;
+            nextEvent++;
+            if (i == block.events.length-1) {
+                ring[index % ringSize] = null;
+                consumedBlocks++;
+                this.notifyAll();
+            }
+            return event;
+        }
+    }
+
+    private void read() {
+        FileReader reader = new FileReader();
+        try {
+            while (true) {
+                int index, readGeneration;
+                synchronized (this) {
+                    // wait for a block to read, with a free slot in the ring:
+                    while (!closed && (nextBlock*blockSize >= this.getEventCount()
+                            || nextBlock >= consumedBlocks + ringSize)) this.wait();
+                    if (closed) break;
+                    index = nextBlock++;
+                    readGeneration = generation;
+                }
+                int first = index*blockSize;
+                Event[] events = new Event[Math.min(blockSize, this.getEventCount()-first)];
+                for (int i=0; i<events.length; i++) {
+                    events[i] = reader.read(first+i);
+                }
+                synchronized (this) {
+                    // a block read before a seek isn't needed anymore:
+                    if (readGeneration == generation) {
+                        ring[index % ringSize] = new Block(index, events);
+                        this.notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            synchronized (this) {
+                error = ex;
+                this.notifyAll();
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Stops the reading threads and closes all files.
+     */
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            this.notifyAll();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            directReader.close();
+        }
+    }
+}
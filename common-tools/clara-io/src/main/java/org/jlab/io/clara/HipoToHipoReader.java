@@ -1,28 +1,48 @@
 package org.jlab.io.clara;
 
 import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.jlab.clara.engine.EngineDataType;
 import org.jlab.clara.std.services.AbstractEventReaderService;
 import org.jlab.clara.std.services.EventReaderException;
-import org.jlab.jnp.hipo4.data.Event;
-import org.jlab.jnp.hipo4.io.HipoReader;
 import org.json.JSONObject;
 
 /**
  * Service that converts HIPO persistent data to HIPO transient data
  * (i.e. reads HIPO events from an input file)
+ *
+ * An input file with the ".list" extension is read as a list of HIPO files,
+ * one per line, streamed as one input. With the "read_threads" option, events
+ * are read ahead on that many threads, in blocks of "read_block" events.
  */
-public class HipoToHipoReader extends AbstractEventReaderService<HipoReader> {
+public class HipoToHipoReader extends AbstractEventReaderService<HipoEventStream> {
+
+    private static final String CONF_READ_THREADS = "read_threads";
+    private static final String CONF_READ_BLOCK = "read_block";
 
     @Override
-    protected HipoReader createReader(Path file, JSONObject opts)
+    protected HipoEventStream createReader(Path file, JSONObject opts)
             throws EventReaderException {
         try {
-            HipoReader reader = new HipoReader();
-            reader.open(file.toString());
-            return reader;
+            List<String> files = new ArrayList<>();
+            if (file.toString().endsWith(".list")) {
+                for (String line : Files.readAllLines(file)) {
+                    if (!line.trim().isEmpty()) files.add(line.trim());
+                }
+            }
+            else {
+                files.add(file.toString());
+            }
+            int threads = opts.optInt(CONF_READ_THREADS, 0);
+            int block = opts.optInt(CONF_READ_BLOCK, HipoEventStream.DEFAULT_BLOCK_SIZE);
+            if (threads > 0) {
+                System.out.printf("%s service: read threads = %d, block = %d%n", getName(), threads, block);
+            }
+            return new HipoEventStream(files, threads, block);
         } catch (Exception e) {
             throw new EventReaderException(e);
         }
@@ -46,8 +66,7 @@ public class HipoToHipoReader extends AbstractEventReaderService<HipoReader> {
     @Override
     public Object readEvent(int eventNumber) throws EventReaderException {
         try {
-            Event event = new Event();
-            return reader.getEvent(event,eventNumber);
+            return reader.getEvent(eventNumber);
         } catch (Exception e) {
             throw new EventReaderException(e);
         }
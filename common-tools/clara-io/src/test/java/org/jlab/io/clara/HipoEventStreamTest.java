@@ -0,0 +1,87 @@
+package org.jlab.io.clara;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.jlab.jnp.hipo4.data.Bank;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.Schema;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class HipoEventStreamTest {
+
+    private static final int[] NEVENTS = {37, 55, 20};
+    private static final int TOTAL = 37+55+20;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Schema schema = null;
+
+    /**
+     * Writes files with events numbered globally in RUN::config.
+     */
+    private List<String> write() {
+        List<String> files = new ArrayList<>();
+        int n = 0;
+        for (int f=0; f<NEVENTS.length; f++) {
+            String file = new File(folder.getRoot(), "events"+f+".hipo").getAbsolutePath();
+            HipoWriterSorted writer = new HipoWriterSorted();
+            writer.getSchemaFactory().initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+            schema = writer.getSchemaFactory().getSchema("RUN::config");
+            writer.open(file);
+            for (int i=0; i<NEVENTS[f]; i++) {
+                Bank bank = new Bank(schema, 1);
+                bank.putInt("event", 0, n++);
+                Event event = new Event();
+                event.write(bank);
+                writer.addEvent(event);
+            }
+            writer.close();
+            files.add(file);
+        }
+        return files;
+    }
+
+    /**
+     * Reads the given events, returning their numbers.
+     */
+    private List<Integer> read(List<String> files, int nthreads, int[] sequence) {
+        HipoEventStream stream = new HipoEventStream(files, nthreads, 10);
+        assertEquals(TOTAL, stream.getEventCount());
+        List<Integer> numbers = new ArrayList<>();
+        Bank bank = new Bank(schema);
+        for (int eventNumber : sequence) {
+            stream.getEvent(eventNumber).read(bank);
+            numbers.add(bank.getInt("event", 0));
+        }
+        stream.close();
+        return numbers;
+    }
+
+    @Test(timeout = 30000)
+    public void testSequential() {
+        List<String> files = this.write();
+        int[] sequence = new int[TOTAL];
+        for (int i=0; i<TOTAL; i++) sequence[i] = i;
+        for (int nthreads : new int[]{0, 1, 3}) {
+            List<Integer> numbers = this.read(files, nthreads, sequence);
+            for (int i=0; i<TOTAL; i++) assertEquals(i, (int) numbers.get(i));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSeek() {
+        List<String> files = this.write();
+        // jumps within a block, across blocks and files, back and forth:
+        int[] sequence = {0, 1, 2, 5, 6, 7, 36, 37, 38, 100, 101, 3, 4, 50, 49, 48, 111, 0, 95, 96, 97};
+        for (int nthreads : new int[]{0, 1, 3}) {
+            List<Integer> numbers = this.read(files, nthreads, sequence);
+            for (int i=0; i<sequence.length; i++) assertEquals(sequence[i], (int) numbers.get(i));
+        }
+    }
+}
@@ -168,32 +168,25 @@ public class ADCTDCMerger {
             // get background hits using multiple events dependending on detector
             int bgSize = constants.getInt(detector, EventMergerEnum.MERGE_SIZE);
             if(!event.hasBank(TDCString)) bgSize = 1;
-            // collect bg hits
-            List<DGTZ> bgTDCs = new ArrayList<>();
+            // physics event hits first, then bg hits corrected for jitter
+            // and shifted in time, in columns
+            TDCHits hits = new TDCHits(detector);
+            hits.read(event.getBank(TDCString), 0, false);
+            int nsignal = hits.size;
             for(int i=0; i<Math.min(bgSize, bgEvents.size()); i++) {
                 DataEvent bg = bgEvents.get(i);
                 if(bg.hasBank(TDCString)) {
-                    // get TDCs, correct them for jitter and shift them in time
                     int jitter = this.getTDCJitter(detector, bg);
-                    for(DGTZ dgtz : readTDCs(detector, bg.getBank(TDCString))) {
-                        TDC tdc = (TDC) dgtz;
-                        int layer  = tdc.getLayer();
-                        int comp   = tdc.getComponent();
-                        int offset = constants.getInt(run, detector, EventMergerEnum.READOUT_WINDOW, 0, layer, comp);
-                        tdc.shift(jitter-i*offset);
-                        bgTDCs.add(tdc);
-                    } 
+                    hits.read(bg.getBank(TDCString), i, true);
+                    hits.shift(jitter, i);
                 }
             }
-            
-            // get physics event hits hits
-            List<DGTZ> TDCs = readTDCs(detector, event.getBank(TDCString));
 
             // merge physics and bg hit
-            List<DGTZ> mergedTDCs = this.merge(TDCs, bgTDCs);
-            
+            hits.merge(nsignal);
+
             // create output bank
-            return this.writeToBank(event, TDCString, mergedTDCs);
+            return hits.write(event, TDCString);
         }
     }    
 
@@ -274,7 +267,7 @@ public class ADCTDCMerger {
         return bank;
     }
 
-    private int getTDCJitter(DetectorType detector, DataEvent bg) {
+    int getTDCJitter(DetectorType detector, DataEvent bg) {
         int offset = getJitterCorrection(event, detector)
                    - getJitterCorrection(bg, detector);
         return offset;
@@ -295,7 +288,180 @@ public class ADCTDCMerger {
         return tdcjitter;
     }
 
-    
+
+    /**
+     * TDC hits of one detector from the signal and background banks, stored
+     * in columns, to merge large banks (e.g. DC) without creating one object
+     * per hit. The merging logic is the same as for the {@link TDC} objects.
+     */
+    private class TDCHits {
+
+        private final DetectorType detector;
+        private final double tdcconv;
+
+        private int size = 0;
+        private int shifted = 0;
+        private byte[]    sector    = new byte[256];
+        private byte[]    layer     = new byte[256];
+        private short[]   component = new short[256];
+        private byte[]    order     = new byte[256];
+        private int[]     tdc       = new int[256];
+        private boolean[] background = new boolean[256];
+        private boolean[] removed   = new boolean[256];
+        private long[]    key       = null;
+        private int[]     sorted    = null;
+
+        TDCHits(DetectorType detector) {
+            this.detector = detector;
+            this.tdcconv  = constants.getDouble(detector, EventMergerEnum.TDC_CONV);
+        }
+
+        private void ensureCapacity(int n) {
+            if(n <= tdc.length) return;
+            int capacity = Math.max(n, 2*tdc.length);
+            sector     = Arrays.copyOf(sector, capacity);
+            layer      = Arrays.copyOf(layer, capacity);
+            component  = Arrays.copyOf(component, capacity);
+            order      = Arrays.copyOf(order, capacity);
+            tdc        = Arrays.copyOf(tdc, capacity);
+            background = Arrays.copyOf(background, capacity);
+            removed    = Arrays.copyOf(removed, capacity);
+        }
+
+        void read(DataBank bank, int index, boolean isBackground) {
+            if(bank==null) return;
+            int rows = bank.rows();
+            this.ensureCapacity(size+rows);
+            shifted = size;
+            for(int row = 0; row < rows; row++) {
+                sector[size]     = bank.getByte("sector", row);
+                layer[size]      = bank.getByte("layer", row);
+                component[size]  = bank.getShort("component", row);
+                order[size]      = bank.getByte("order", row);
+                // same range as DetectorDescriptor.setOrder on the object path:
+                if(order[size]<0 || order[size]>3) {
+                    System.err.println("----> error : detector descriptor order must be [1..4]");
+                    order[size] = 0;
+                }
+                tdc[size]        = bank.getInt("TDC", row);
+                background[size] = isBackground;
+                removed[size]    = tdc[size]<=0;
+                size++;
+            }
+        }
+
+        /**
+         * Shift the hits read last, from the index-th background event
+         */
+        void shift(int jitter, int index) {
+            for(int i = shifted; i < size; i++) {
+                int offset = constants.getInt(run, detector, EventMergerEnum.READOUT_WINDOW, 0, layer[i], component[i]);
+                tdc[i] += jitter-index*offset;
+            }
+        }
+
+        private int compare(int a, int b) {
+            if(key[a]!=key[b]) return key[a]<key[b] ? -1 : 1;
+            return Integer.compare(tdc[a], tdc[b]);
+        }
+
+        /**
+         * stable merge sort of the hit indices by sector/layer/component/order and TDC
+         */
+        private void sort() {
+            key = new long[size];
+            for(int i = 0; i < size; i++) {
+                key[i] = ((long) (sector[i]+128) << 32) | ((long) (layer[i]+128) << 24)
+                       | ((long) (component[i]+32768) << 8) | (order[i]+128);
+            }
+            sorted = new int[size];
+            int[] buffer = new int[size];
+            for(int i = 0; i < size; i++) sorted[i] = i;
+            for(int width = 1; width < size; width *= 2) {
+                for(int lo = 0; lo < size; lo += 2*width) {
+                    int mid = Math.min(lo+width, size);
+                    int hi  = Math.min(lo+2*width, size);
+                    int i = lo, j = mid, k = lo;
+                    while(i<mid && j<hi) buffer[k++] = this.compare(sorted[j], sorted[i])<0 ? sorted[j++] : sorted[i++];
+                    while(i<mid) buffer[k++] = sorted[i++];
+                    while(j<hi)  buffer[k++] = sorted[j++];
+                }
+                int[] tmp = sorted;
+                sorted = buffer;
+                buffer = tmp;
+            }
+        }
+
+        private boolean pilesUp(int i, int o) {
+            if(key[i]!=key[o]) return false;
+            double delta = constants.getInt(run, detector, EventMergerEnum.READOUT_HOLDOFF, 0, layer[i], component[i])
+                         / tdcconv;
+            if(delta==0) delta = Double.MAX_VALUE;
+            return tdc[i]-tdc[o]<delta;
+        }
+
+        /**
+         * Mark the hits piling up on an earlier one as removed
+         * @param nsignal number of signal hits
+         */
+        void merge(int nsignal) {
+            this.sort();
+            int last = -1;
+            for(int j = 0; j < size; j++) {
+                int i = sorted[j];
+                if(removed[i]) continue;
+                if(last<0 || !this.pilesUp(i, last) || !suppressDoubleHits) last = i;
+                else removed[i] = true;
+            }
+            if(preserveHitOrder || nsignal==0) {
+                for(int i = 0; i < size; i++) sorted[i] = i;
+            }
+        }
+
+        private OrderType getOrderType(int i) {
+            if(background[i])   return OrderType.BGADDED_NOMINAL;
+            else if(removed[i]) return OrderType.BGREMOVED;
+            else                return OrderType.NOMINAL;
+        }
+
+        private boolean status(int i) {
+            double window = constants.getInt(run, detector, EventMergerEnum.READOUT_WINDOW, 0, layer[i], component[i]);
+            if(window!=0 && !(tdc[i]>0 && tdc[i]<window))
+                return false;
+            else if(background[i] && removed[i])
+                return false;
+            else {
+                OrderType type = this.getOrderType(i);
+                for(OrderType o : selectedOrders) {
+                    if(type==o) return true;
+                }
+            }
+            return false;
+        }
+
+        DataBank write(DataEvent event, String name) {
+            boolean[] keep = new boolean[size];
+            int rows = 0;
+            for(int j = 0; j < size; j++) {
+                keep[j] = this.status(sorted[j]);
+                if(keep[j]) rows++;
+            }
+            DataBank bank = event.createBank(name, rows);
+            int row = 0;
+            for(int j = 0; j < size; j++) {
+                if(!keep[j]) continue;
+                int i = sorted[j];
+                bank.setByte("sector",     row, sector[i]);
+                bank.setByte("layer",      row, layer[i]);
+                bank.setShort("component", row, component[i]);
+                bank.setByte("order",      row, (byte) (order[i]+this.getOrderType(i).getTypeId()));
+                bank.setInt("TDC",         row, tdc[i]);
+                row++;
+            }
+            return bank;
+        }
+    }
+
     public class ADC extends DGTZ {
  
         private int adc;
@@ -1,13 +1,19 @@
 package org.jlab.analysis.postprocess;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jlab.logging.DefaultLogger;
 
@@ -15,9 +21,12 @@ import org.jlab.jnp.hipo4.data.Bank;
 import org.jlab.jnp.hipo4.data.Event;
 import org.jlab.jnp.hipo4.data.SchemaFactory;
 import org.jlab.jnp.hipo4.io.HipoReader;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
+import org.jlab.jnp.utils.json.JsonObject;
 import org.jlab.io.base.DataBank;
 import org.jlab.io.base.DataEvent;
 import org.jlab.io.hipo.HipoDataBank;
+import org.jlab.utils.JsonUtils;
 
 import org.jlab.detector.calib.utils.ConstantsManager;
 import org.jlab.detector.scalers.DaqScalers;
@@ -36,6 +45,7 @@ public class Processor {
     public static final String CCDB_TABLES[] = {"/runcontrol/fcup","/runcontrol/slm",
         "/runcontrol/helicity","/daq/config/scalers/dsc1","/runcontrol/hwp"};
     public static final String DEF_PRELOAD_GLOB = "*.{hipo,h5}";
+    public static final String CACHE_BANK = "COAT::config";
 
     private final String outputPrefix = "tmp_";
 
@@ -46,18 +56,54 @@ public class Processor {
     private HelicitySequenceDelayed helicitySequence = null;
 
     public Processor(File file, boolean restream) {
-        configure(restream, Arrays.asList(file.getAbsolutePath()));
+        this(file, restream, null);
+    }
+
+    /**
+     * @param file preload file
+     * @param restream whether to reconstruct the helicity sequence from HEL::adc
+     * @param cache name of the sequence cache file, or null
+     */
+    public Processor(File file, boolean restream, String cache) {
+        configure(restream, Arrays.asList(file.getAbsolutePath()), cache);
     }
     
     public Processor(String dir, boolean restream) {
-        configure(restream, findPreloadFiles(dir,DEF_PRELOAD_GLOB));
+        this(dir, DEF_PRELOAD_GLOB, restream);
     }
 
     public Processor(String dir, String glob, boolean restream) {
-        configure(restream, findPreloadFiles(dir,glob));
+        this(dir, glob, restream, null);
+    }
+
+    /**
+     * @param dir preload directory
+     * @param glob preload file glob
+     * @param restream whether to reconstruct the helicity sequence from HEL::adc
+     * @param cache name of the sequence cache file, or null
+     */
+    public Processor(String dir, String glob, boolean restream, String cache) {
+        configure(restream, findPreloadFiles(dir,glob), cache);
     }
 
-    private void configure(boolean restream, List<String> preloadFiles) {
+    /**
+     * If the cache file exists and was built from the same preload files,
+     * the helicity and charge sequences are read from it, else they are read
+     * from the preload files and then written to the cache file, if one is
+     * given.
+     * @param restream
+     * @param preloadFiles
+     * @param cache name of the sequence cache file, or null
+     */
+    private void configure(boolean restream, List<String> preloadFiles, String cache) {
+        final String inputs = cache == null || preloadFiles.isEmpty() ? null : getInputsHash(restream, preloadFiles);
+        final int run = inputs == null ? 0 : Util.getRunNumber(preloadFiles);
+        final boolean cached = inputs != null && isValidCache(cache, run, inputs);
+        if (cached) {
+            logger.log(Level.INFO, "Reading helicity/charge sequences from cache:  {0}", cache);
+            preloadFiles = Arrays.asList(cache);
+            restream = false;
+        }
         if (preloadFiles.isEmpty()) {
             logger.warning("<<<< No preload files found, postprocessing disabled.");
             initialized = false;
@@ -71,6 +117,114 @@ public class Processor {
             chargeSequence = DaqScalersSequence.readSequence(preloadFiles);
             r.close();
             initialized = true;
+            if (inputs != null && !cached) writeCache(cache, run, inputs);
+        }
+    }
+
+    /**
+     * Get a hash of the preload inputs: the names, sizes and modification
+     * times of the preload files, and whether the helicity is restreamed.
+     * @param restream
+     * @param preloadFiles
+     * @return hexadecimal hash
+     */
+    static String getInputsHash(boolean restream, List<String> preloadFiles) {
+        List<String> files = new ArrayList<>();
+        for (String f : preloadFiles) files.add(new File(f).getAbsolutePath());
+        files.sort(null);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(Boolean.toString(restream).getBytes());
+            for (String f : files) {
+                File file = new File(f);
+                md.update(String.format("\n%s:%d:%d", f, file.length(), file.lastModified()).getBytes());
+            }
+            StringBuilder hash = new StringBuilder();
+            for (byte b : md.digest()) hash.append(String.format("%02x", b));
+            return hash.toString();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Check that the cache file exists and was built for the given run and
+     * preload inputs.
+     * @param cache name of the cache file
+     * @param run run number of the preload files
+     * @param inputs hash of the preload inputs
+     * @return whether the cache can be used
+     */
+    static boolean isValidCache(String cache, int run, String inputs) {
+        if (!new File(cache).isFile()) return false;
+        HipoReader r = new HipoReader();
+        r.setTags(1);
+        r.open(cache);
+        try {
+            if (!r.getSchemaFactory().hasSchema(CACHE_BANK) || !r.hasNext()) return false;
+            Bank runConfig = r.getBank("RUN::config");
+            Bank cacheConfig = r.getBank(CACHE_BANK);
+            Event event = new Event();
+            r.nextEvent(event);
+            event.read(runConfig);
+            event.read(cacheConfig);
+            if (runConfig.getRows() < 1 || cacheConfig.getRows() < 1) return false;
+            JsonObject json = JsonUtils.read(cacheConfig, "json");
+            if (runConfig.getInt("run", 0) != run || json.get("inputs") == null
+                    || !inputs.equals(json.get("inputs").asString())) {
+                logger.log(Level.WARNING, "Sequence cache is for another run or other preload files, rebuilding:  {0}", cache);
+                return false;
+            }
+            return true;
+        }
+        finally {
+            r.close();
+        }
+    }
+
+    /**
+     * Write the helicity and charge sequences to tag-1 events in a small HIPO
+     * file, so they can be preloaded without rescanning all preload files.
+     * The first event stores the run number in RUN::config and the hash of
+     * the preload inputs in COAT::config, to check the cache is up to date.
+     * @param cache name of the cache file
+     * @param run run number
+     * @param inputs hash of the preload inputs
+     */
+    private void writeCache(String cache, int run, String inputs) {
+        if (!schemaFactory.hasSchema(CACHE_BANK)) {
+            logger.log(Level.WARNING, "No {0} schema in preload files, not writing sequence cache", CACHE_BANK);
+            return;
+        }
+        File file = new File(cache);
+        File tmp = new File(file.getAbsoluteFile().getParentFile(), outputPrefix+file.getName());
+        try (HipoWriterSorted w = new HipoWriterSorted()) {
+            w.getSchemaFactory().copy(schemaFactory);
+            w.open(tmp.getPath());
+            Bank runConfig = new Bank(w.getSchemaFactory().getSchema("RUN::config"),1);
+            runConfig.putInt("run", 0, run);
+            JsonObject json = new JsonObject();
+            json.add("run", run);
+            json.add("inputs", inputs);
+            String jsonString = json.toString();
+            Bank cacheConfig = new Bank(w.getSchemaFactory().getSchema(CACHE_BANK), jsonString.length());
+            for (int i=0; i<jsonString.length(); i++) {
+                cacheConfig.putByte("json", i, (byte)jsonString.charAt(i));
+            }
+            Event event = new Event();
+            event.write(runConfig);
+            event.write(cacheConfig);
+            w.addEvent(event, 1);
+            if (helicitySequence != null) helicitySequence.writeFlips(w, 1);
+            chargeSequence.writeScalers(w, 1, run);
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            logger.log(Level.INFO, "Wrote helicity/charge sequence cache:  {0}", cache);
+        }
+        catch (IOException e) {
+            logger.log(Level.WARNING, "Error writing sequence cache:  "+cache, e);
         }
     }
 
@@ -0,0 +1,63 @@
+package org.jlab.analysis.roads;
+
+import java.io.IOException;
+import org.jlab.analysis.roads.Dictionary.TestMode;
+import org.jlab.logging.DefaultLogger;
+import org.jlab.utils.options.OptionParser;
+
+/**
+ * Converts a text road dictionary into the binary format read by RoadTable
+ */
+public class DictionaryConverter {
+
+    public static void main(String[] args) {
+        
+        DefaultLogger.debug();
+
+        OptionParser parser = new OptionParser("dict-converter");
+        parser.setRequiresInputList(false);
+        parser.addRequired("-i"      , "input text dictionary file");
+        parser.addRequired("-o"      , "output binary dictionary file (" + RoadTable.EXTENSION + ")");
+        parser.addOption("-wire"     , "1", "dc wire bin size in road finding");
+        parser.addOption("-strip"    , "1", "pcal strip bin size in road finding");
+        parser.addOption("-sector"   , "0", "sector dependent roads, 0=false, 1=true)");
+        parser.addOption("-mode"     , "0", "select test mode, " + TestMode.getOptionsString());
+        parser.addOption("-r"        ,"-1", "maximum number of roads to convert");
+        parser.parse(args);
+        
+        String inputFileName  = parser.getOption("-i").stringValue();
+        String outputFileName = parser.getOption("-o").stringValue();
+        if(!outputFileName.endsWith(RoadTable.EXTENSION)) {
+            System.out.println("\terror: binary dictionary file name should end with " + RoadTable.EXTENSION);
+            System.exit(1);
+        }
+        int wireBin  = parser.getOption("-wire").intValue();
+        if(wireBin<0) {
+            System.out.println("\terror: invalid dc wire binning, value should be >0");
+            System.exit(1);
+        }
+        int stripBin  = parser.getOption("-strip").intValue();
+        if(stripBin<0) {
+            System.out.println("\terror: invalid pcal strip binning, value should be >0");
+            System.exit(1);
+        }
+        int sector     = parser.getOption("-sector").intValue();
+        if(sector<0 || sector>1) {
+            System.out.println("\terror: invalid sector-dependence option, allowed values are 0=false or 1=true");
+            System.exit(1);
+        }
+        TestMode mode  = TestMode.getTestMode(parser.getOption("-mode").intValue());
+        if(mode == TestMode.UDF) {
+            System.out.println("\terror: invalid test mode, " + TestMode.getOptionsString());
+            System.exit(1);
+        }
+        int maxRoads   = parser.getOption("-r").intValue();
+        
+        try {
+            RoadTable.convert(inputFileName, outputFileName, mode, wireBin, stripBin, sector, maxRoads);
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
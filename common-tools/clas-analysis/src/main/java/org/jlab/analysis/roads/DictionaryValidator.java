@@ -2,6 +2,7 @@ package org.jlab.analysis.roads;
 
 import java.awt.Dimension;
 import java.awt.Toolkit;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -24,6 +25,7 @@ import org.jlab.utils.options.OptionParser;
 public class DictionaryValidator {
 
     private Dictionary             dictionary = null;
+    private RoadTable              roadTable  = null;
     private Map<String, DataGroup> dataGroups = new LinkedHashMap<>();
     private EmbeddedCanvasTabbed   canvas     = null;
             
@@ -184,8 +186,26 @@ public class DictionaryValidator {
     }
 
     public void init(String filename, TestMode mode, int wireBin, int stripBin, int sectorDependence, int maxRoads) {
-        this.dictionary = new Dictionary();
-        this.dictionary.readDictionary(filename, mode, wireBin, stripBin, sectorDependence, maxRoads);
+        if(filename.endsWith(RoadTable.EXTENSION)) {
+            try {
+                this.roadTable = RoadTable.open(filename);
+            } catch (IOException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+            if(!roadTable.matches(mode, wireBin, stripBin, sectorDependence)) {
+                System.out.println("\terror: binary dictionary was created with mode " + roadTable.getMode()
+                                 + ", wire binning " + roadTable.getWireBinning()
+                                 + ", strip binning " + roadTable.getStripBinning()
+                                 + ", sector dependence " + roadTable.getSectorDependence());
+                System.exit(1);
+            }
+            if(maxRoads>=0) System.out.println("WARNING: maximum number of roads is ignored for binary dictionaries");
+        }
+        else {
+            this.dictionary = new Dictionary();
+            this.dictionary.readDictionary(filename, mode, wireBin, stripBin, sectorDependence, maxRoads);
+        }
         this.createHistos(mode, wireBin, stripBin, sectorDependence);
         this.plotRoads();
     }
@@ -230,6 +250,15 @@ public class DictionaryValidator {
     }
     
     public void plotRoads() {
+        if(this.roadTable!=null) {
+            for(long i=0; i<this.roadTable.size(); i++) {
+                Road road = this.roadTable.getRoad(i);
+                int icharge = 0;
+                if(road.getParticle().charge()>0) icharge = 1;
+                this.fillHistos("Dictionary", charges[icharge], road);
+            }
+            return;
+        }
         for(ArrayList<Byte> key : this.dictionary.keySet()) {
             Road road = this.dictionary.getRoad(key);
             int icharge = 0;
@@ -238,6 +267,11 @@ public class DictionaryValidator {
         }
     }
     
+    private Road getRoad(ArrayList<Byte> key) {
+        if(this.roadTable!=null) return this.roadTable.getRoad(key);
+        else                     return this.dictionary.getRoad(key);
+    }
+    
     /**
      * Test selected dictionary on input event file
      * @param fileName: input event hipo file
@@ -279,10 +313,8 @@ public class DictionaryValidator {
                 int ichPart   = (part.getParticle().charge()+1)/2;
                 Road road = null;
                 for(ArrayList<Byte> key : part.getKeys(mode, smearing)) {
-                    if(this.dictionary.containsKey(key)) {
-                        road = this.dictionary.getRoad(key);
-                        break;
-                    }
+                    road = this.getRoad(key);
+                    if(road != null) break;
                 }
                 if(road != null) {
                     int ichRoad = (road.getParticle().charge()+1)/2;
@@ -308,7 +340,7 @@ public class DictionaryValidator {
 
         OptionParser parser = new OptionParser("dict-validator");
         parser.setRequiresInputList(false);
-        parser.addRequired("-dict"   , "dictionary file name");
+        parser.addRequired("-dict"   , "dictionary file name (text or binary " + RoadTable.EXTENSION + " file)");
         parser.addRequired("-i"      , "event file for dictionary test");
         parser.addOption("-pid"      , "0", "select particle PID for new dictionary, 0: no selection,");
         parser.addOption("-charge"   , "0", "select particle charge for new dictionary, 0: no selection");
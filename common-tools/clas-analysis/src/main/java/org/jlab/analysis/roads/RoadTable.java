@@ -0,0 +1,350 @@
+package org.jlab.analysis.roads;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.jlab.analysis.roads.Dictionary.TestMode;
+import org.jlab.clas.physics.Particle;
+import org.jlab.utils.benchmark.ProgressPrintout;
+
+/**
+ * Read-only road dictionary in binary format, memory-mapped and queried
+ * without building Java objects for the roads.
+ *
+ * The file contains a header with the test mode and binning used to build
+ * the road keys, an index of the first record for each value of the first
+ * key byte, and fixed-size records sorted by key:
+ * - 13 bytes road key, as returned by Road.getKey(mode),
+ * - particle charge (byte),
+ * - momentum, theta, phi (deg), vz and the 3 ECAL energies (float).
+ *
+ * Binary dictionaries are created from the text format with
+ * {@link #convert} or with the dict-converter tool.
+ */
+public class RoadTable {
+
+    public static final String EXTENSION = ".roads";
+
+    private static final int MAGIC       = 0x524f4144; // "ROAD"
+    private static final int VERSION     = 1;
+    private static final int KEY_SIZE    = 13;
+    private static final int RECORD_SIZE = KEY_SIZE + 1 + 7*4;
+    private static final int INDEX_SIZE  = 257;
+    private static final int HEADER_SIZE = 6*4 + 8 + INDEX_SIZE*8;
+
+    private static final long CHUNK_RECORDS = Integer.MAX_VALUE/RECORD_SIZE;
+
+    private TestMode     mode;
+    private int          wireBinning;
+    private int          stripBinning;
+    private int          sectorDependence;
+    private long         nRoads;
+    private final long[] index = new long[INDEX_SIZE];
+    private ByteBuffer[] chunks;
+
+    private RoadTable() {
+    }
+
+    /**
+     * Memory-maps a binary road dictionary
+     * @param fileName binary dictionary file
+     * @return the road table
+     * @throws IOException
+     */
+    public static RoadTable open(String fileName) throws IOException {
+        RoadTable table = new RoadTable();
+        try (RandomAccessFile file = new RandomAccessFile(fileName, "r");
+             FileChannel channel = file.getChannel()) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if(header.getInt()!=MAGIC || header.getInt()!=VERSION)
+                throw new IOException("invalid binary road dictionary: " + fileName);
+            table.mode             = TestMode.getTestMode(header.getInt());
+            table.wireBinning      = header.getInt();
+            table.stripBinning     = header.getInt();
+            table.sectorDependence = header.getInt();
+            table.nRoads           = header.getLong();
+            for(int i=0; i<INDEX_SIZE; i++) table.index[i] = header.getLong();
+            if(channel.size() < HEADER_SIZE + table.nRoads*RECORD_SIZE)
+                throw new IOException("truncated binary road dictionary: " + fileName);
+            int nChunks = (int) ((table.nRoads + CHUNK_RECORDS - 1)/CHUNK_RECORDS);
+            table.chunks = new ByteBuffer[nChunks];
+            for(int i=0; i<nChunks; i++) {
+                long first = i*CHUNK_RECORDS;
+                long size  = Math.min(CHUNK_RECORDS, table.nRoads-first)*RECORD_SIZE;
+                table.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE + first*RECORD_SIZE, size);
+            }
+        }
+        System.out.println("\nMapped binary dictionary " + fileName + " with " + table.nRoads + " roads");
+        return table;
+    }
+
+    public TestMode getMode() {
+        return mode;
+    }
+
+    public int getWireBinning() {
+        return wireBinning;
+    }
+
+    public int getStripBinning() {
+        return stripBinning;
+    }
+
+    public int getSectorDependence() {
+        return sectorDependence;
+    }
+
+    public long size() {
+        return nRoads;
+    }
+
+    /**
+     * Checks if the road keys were built with the given mode and binning
+     * @param mode test mode
+     * @param wireBinning dc wire binning
+     * @param stripBinning pcal strip binning
+     * @param sectorDependence sector-dependence mode (0=false, 1=true)
+     * @return true if the dictionary can be queried with keys built with these settings
+     */
+    public boolean matches(TestMode mode, int wireBinning, int stripBinning, int sectorDependence) {
+        return this.mode==mode && this.wireBinning==wireBinning &&
+               this.stripBinning==stripBinning && this.sectorDependence==sectorDependence;
+    }
+
+    /**
+     * Finds the record matching the given key
+     * @param key road key
+     * @return the record index or -1 if the key is not in the dictionary
+     */
+    public long find(ArrayList<Byte> key) {
+        if(key.size()!=KEY_SIZE) return -1;
+        byte[] k = new byte[KEY_SIZE];
+        for(int i=0; i<KEY_SIZE; i++) k[i] = key.get(i);
+        return this.find(k);
+    }
+
+    /**
+     * Finds the record matching the given key
+     * @param key road key
+     * @return the record index or -1 if the key is not in the dictionary
+     */
+    public long find(byte[] key) {
+        int first = Byte.toUnsignedInt(key[0]);
+        long lo = index[first];
+        long hi = index[first+1]-1;
+        while(lo<=hi) {
+            long mid = (lo+hi) >>> 1;
+            int cmp = this.compare(mid, key);
+            if(cmp<0)      lo = mid+1;
+            else if(cmp>0) hi = mid-1;
+            else return mid;
+        }
+        return -1;
+    }
+
+    public boolean containsKey(ArrayList<Byte> key) {
+        return this.find(key)>=0;
+    }
+
+    /**
+     * Returns the road for the given key
+     * @param key road key
+     * @return the road or null if the key is not in the dictionary
+     */
+    public Road getRoad(ArrayList<Byte> key) {
+        long record = this.find(key);
+        if(record<0) return null;
+        return new Road(key, this.getParticle(record));
+    }
+
+    /**
+     * Returns the road stored in the given record
+     * @param record record index
+     * @return the road
+     */
+    public Road getRoad(long record) {
+        ByteBuffer buffer = this.getBuffer(record);
+        int offset = this.getOffset(record);
+        ArrayList<Byte> key = new ArrayList<>();
+        for(int i=0; i<KEY_SIZE; i++) key.add(buffer.get(offset+i));
+        return new Road(key, this.getParticle(record));
+    }
+
+    /**
+     * Returns the particle associated with the given record
+     * @param record record index
+     * @return the particle
+     */
+    public Particle getParticle(long record) {
+        ByteBuffer buffer = this.getBuffer(record);
+        int offset = this.getOffset(record) + KEY_SIZE;
+        int charge   = buffer.get(offset);
+        double p     = buffer.getFloat(offset+1);
+        double theta = Math.toRadians(buffer.getFloat(offset+5));
+        double phi   = Math.toRadians(buffer.getFloat(offset+9));
+        double vz    = buffer.getFloat(offset+13);
+        Particle particle = new Particle(211*charge,
+                                         p*Math.sin(theta)*Math.cos(phi),
+                                         p*Math.sin(theta)*Math.sin(phi),
+                                         p*Math.cos(theta),
+                                         0, 0, vz);
+        for(int i=0; i<3; i++) particle.setProperty("ECALe"+(i*3+1), buffer.getFloat(offset+17+i*4));
+        return particle;
+    }
+
+    private ByteBuffer getBuffer(long record) {
+        return chunks[(int) (record/CHUNK_RECORDS)];
+    }
+
+    private int getOffset(long record) {
+        return (int) (record%CHUNK_RECORDS)*RECORD_SIZE;
+    }
+
+    private int compare(long record, byte[] key) {
+        ByteBuffer buffer = this.getBuffer(record);
+        int offset = this.getOffset(record);
+        for(int i=0; i<KEY_SIZE; i++) {
+            int cmp = Integer.compare(Byte.toUnsignedInt(buffer.get(offset+i)), Byte.toUnsignedInt(key[i]));
+            if(cmp!=0) return cmp;
+        }
+        return 0;
+    }
+
+    /**
+     * Converts a text dictionary into the binary format, removing duplicate
+     * roads; road keys are built according to the selected mode and binning
+     * @param inputFileName text dictionary
+     * @param outputFileName binary dictionary
+     * @param mode test mode used to build the road keys
+     * @param wireBinning dc wire binning
+     * @param stripBinning pcal strip binning
+     * @param sectorDependence sector-dependence mode (0=false, 1=true)
+     * @param maxRoads maximum number of roads to read, -1 for all
+     * @return number of roads written
+     * @throws IOException
+     */
+    public static long convert(String inputFileName, String outputFileName, TestMode mode,
+                               int wireBinning, int stripBinning, int sectorDependence, int maxRoads) throws IOException {
+
+        System.out.println("\nConverting dictionary " + inputFileName + " to binary file " + outputFileName);
+        if(maxRoads<0) maxRoads = Integer.MAX_VALUE;
+
+        RoadBuffer roads = new RoadBuffer();
+        ProgressPrintout progress = new ProgressPrintout();
+        try (BufferedReader txtreader = new BufferedReader(new FileReader(inputFileName))) {
+            String line;
+            while ((line = txtreader.readLine()) != null && roads.size<maxRoads) {
+                Road road = new Road(line);
+                road.setBinning(wireBinning, stripBinning, sectorDependence);
+                roads.add(road, mode);
+                progress.setAsInteger("roads", roads.size);
+                progress.updateStatus();
+            }
+        }
+        progress.showStatus();
+
+        int[] order = roads.sort();
+
+        // remove duplicates, keeping the first occurrence in the text file
+        int nGood = 0;
+        for(int i=0; i<order.length; i++) {
+            if(i==0 || roads.compare(order[i-1], order[i])!=0) order[nGood++] = order[i];
+        }
+        System.out.println("Found " + (order.length-nGood) + " duplicate roads");
+
+        long[] index = new long[INDEX_SIZE];
+        for(int i=0; i<nGood; i++) index[Byte.toUnsignedInt(roads.keys[order[i]*KEY_SIZE])+1]++;
+        for(int i=1; i<INDEX_SIZE; i++) index[i] += index[i-1];
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outputFileName), 1<<20))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(mode.getMode());
+            out.writeInt(wireBinning);
+            out.writeInt(stripBinning);
+            out.writeInt(sectorDependence);
+            out.writeLong(nGood);
+            for(int i=0; i<INDEX_SIZE; i++) out.writeLong(index[i]);
+            for(int i=0; i<nGood; i++) {
+                int road = order[i];
+                out.write(roads.keys, road*KEY_SIZE, KEY_SIZE);
+                out.writeByte(roads.charges[road]);
+                for(int j=0; j<7; j++) out.writeFloat(roads.values[road*7+j]);
+            }
+        }
+        System.out.println("Saved " + nGood + " roads to " + outputFileName);
+        return nGood;
+    }
+
+
+    /**
+     * Growable primitive storage used during the conversion
+     */
+    private static class RoadBuffer {
+
+        int     size    = 0;
+        byte[]  keys    = new byte[KEY_SIZE*1024];
+        byte[]  charges = new byte[1024];
+        float[] values  = new float[7*1024];
+
+        void add(Road road, TestMode mode) {
+            if(size==charges.length) {
+                int capacity = (int) Math.min(Integer.MAX_VALUE/(KEY_SIZE+1), 2L*size);
+                if(capacity<=size) throw new IllegalStateException("too many roads for conversion");
+                keys    = Arrays.copyOf(keys, capacity*KEY_SIZE);
+                charges = Arrays.copyOf(charges, capacity);
+                values  = Arrays.copyOf(values, capacity*7);
+            }
+            ArrayList<Byte> key = road.getKey(mode);
+            for(int i=0; i<KEY_SIZE; i++) keys[size*KEY_SIZE+i] = key.get(i);
+            Particle particle = road.getParticle();
+            charges[size] = (byte) particle.charge();
+            values[size*7]   = (float) particle.p();
+            values[size*7+1] = (float) Math.toDegrees(particle.theta());
+            values[size*7+2] = (float) Math.toDegrees(particle.phi());
+            values[size*7+3] = (float) particle.vz();
+            for(int i=0; i<3; i++) values[size*7+4+i] = (float) particle.getProperty("ECALe"+(i*3+1));
+            size++;
+        }
+
+        int compare(int road1, int road2) {
+            for(int i=0; i<KEY_SIZE; i++) {
+                int cmp = Integer.compare(Byte.toUnsignedInt(keys[road1*KEY_SIZE+i]), Byte.toUnsignedInt(keys[road2*KEY_SIZE+i]));
+                if(cmp!=0) return cmp;
+            }
+            return 0;
+        }
+
+        /**
+         * @return road indices sorted by key, with equal keys in input order
+         */
+        int[] sort() {
+            int[] order = new int[size];
+            for(int i=0; i<size; i++) order[i] = i;
+            int[] work = new int[size];
+            // bottom-up merge sort: stable and without recursion
+            for(int width=1; width<size; width*=2) {
+                for(int lo=0; lo<size; lo+=2*width) {
+                    int mid = Math.min(lo+width, size);
+                    int hi  = Math.min(lo+2*width, size);
+                    int i = lo, j = mid, k = lo;
+                    while(i<mid && j<hi) work[k++] = this.compare(order[j], order[i])<0 ? order[j++] : order[i++];
+                    while(i<mid) work[k++] = order[i++];
+                    while(j<hi)  work[k++] = order[j++];
+                }
+                int[] tmp = order;
+                order = work;
+                work  = tmp;
+            }
+            return order;
+        }
+    }
+}
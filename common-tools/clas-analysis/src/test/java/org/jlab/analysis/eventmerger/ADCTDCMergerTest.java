@@ -0,0 +1,155 @@
+package org.jlab.analysis.eventmerger;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jlab.analysis.eventmerger.ADCTDCMerger.DGTZ;
+import org.jlab.analysis.eventmerger.ADCTDCMerger.TDC;
+import org.jlab.detector.banks.RawBank.OrderType;
+import org.jlab.detector.base.DetectorType;
+import org.jlab.io.base.DataBank;
+import org.jlab.io.base.DataEvent;
+import org.jlab.io.hipo.HipoDataEvent;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ADCTDCMergerTest {
+
+    private static final int RUN = 5038;
+
+    private static final OrderType[][] ORDERS = {
+        {OrderType.NOMINAL, OrderType.BGADDED_NOMINAL, OrderType.BGREMOVED},
+        {OrderType.NOMINAL, OrderType.BGADDED_NOMINAL},
+        {OrderType.BGREMOVED}
+    };
+
+    private static SchemaFactory schema;
+    private static EventMergerConstants constants;
+
+    @BeforeClass
+    public static void load() {
+        schema = new SchemaFactory();
+        schema.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        constants = new EventMergerConstants();
+    }
+
+    /**
+     * Event with random TDC banks on few components, for hits of the signal
+     * and background events on the same components, some within the holdoff
+     * time of each other, some out of the readout window, with TDC=0 or with
+     * an invalid order.
+     */
+    private static DataEvent event(Random random, boolean withTDCs) {
+        DataEvent event = new HipoDataEvent(new Event(), schema);
+        DataBank config = event.createBank("RUN::config", 1);
+        config.setInt("run", 0, RUN);
+        config.setLong("timestamp", 0, random.nextLong() & 0xFFFFFFFFFFL);
+        event.appendBank(config);
+        if (!withTDCs) return event;
+        for (DetectorType type : new DetectorType[]{DetectorType.DC, DetectorType.FTOF}) {
+            if (random.nextInt(10) == 0) continue;
+            DataBank bank = event.createBank(type.getName() + "::tdc", random.nextInt(40));
+            for (int row = 0; row < bank.rows(); row++) {
+                bank.setByte("sector", row, (byte) (1 + random.nextInt(2)));
+                bank.setByte("layer", row, (byte) (1 + random.nextInt(type == DetectorType.DC ? 36 : 3)));
+                bank.setShort("component", row, (short) (1 + random.nextInt(3)));
+                int order = type == DetectorType.DC ? 0 : 2 + random.nextInt(2);
+                // invalid orders, read as 0:
+                if (random.nextInt(100) == 0) order = 4 + random.nextInt(3);
+                bank.setByte("order", row, (byte) order);
+                int tdc = type == DetectorType.DC ? random.nextInt(2500) : random.nextInt(100000);
+                if (random.nextInt(20) == 0) tdc = -random.nextInt(10);
+                bank.setInt("TDC", row, tdc);
+            }
+            event.appendBank(bank);
+        }
+        return event;
+    }
+
+    /**
+     * The merging used before, with one TDC object per hit.
+     */
+    private static DataBank reference(ADCTDCMerger merger, DetectorType detector, DataEvent event, DataEvent... bgs) {
+        String name = detector + "::tdc";
+        if (!bgs[0].hasBank(name)) return event.getBank(name);
+        int run = bgs[0].getBank("RUN::config").getInt("run", 0);
+        int bgSize = constants.getInt(detector, EventMergerEnum.MERGE_SIZE);
+        if (!event.hasBank(name)) bgSize = 1;
+        List<DGTZ> bgTDCs = new ArrayList<>();
+        for (int i = 0; i < Math.min(bgSize, bgs.length); i++) {
+            if (bgs[i].hasBank(name)) {
+                int jitter = merger.getTDCJitter(detector, bgs[i]);
+                for (DGTZ dgtz : merger.readTDCs(detector, bgs[i].getBank(name))) {
+                    TDC tdc = (TDC) dgtz;
+                    int offset = constants.getInt(run, detector, EventMergerEnum.READOUT_WINDOW, 0, tdc.getLayer(), tdc.getComponent());
+                    tdc.shift(jitter - i*offset);
+                    bgTDCs.add(tdc);
+                }
+            }
+        }
+        List<DGTZ> tdcs = merger.readTDCs(detector, event.getBank(name));
+        return merger.writeToBank(event, name, merger.merge(tdcs, bgTDCs));
+    }
+
+    private static String dump(DataBank bank) {
+        if (bank == null) return "null";
+        StringBuilder str = new StringBuilder();
+        for (int row = 0; row < bank.rows(); row++) {
+            str.append(String.format("%d/%d/%d %d %d\n", bank.getByte("sector", row), bank.getByte("layer", row),
+                    bank.getShort("component", row), bank.getByte("order", row), bank.getInt("TDC", row)));
+        }
+        return str.toString();
+    }
+
+    private static ADCTDCMerger merger(DataEvent event, DataEvent[] bgs, boolean suppress, boolean preserve, OrderType[] orders) {
+        ADCTDCMerger merger = new ADCTDCMerger(constants, event, bgs);
+        merger.setSuppressDoubleHits(suppress);
+        merger.setPreserveHitOrder(preserve);
+        merger.setSelectedOrders(orders);
+        return merger;
+    }
+
+    @Test
+    public void testMergeTDCs() {
+        Random random = new Random(23);
+        int[] decades = new int[3];
+        int nsorted = 0;
+        int nsuppressed = 0;
+        for (int k = 0; k < 300; k++) {
+            DataEvent event = event(random, random.nextInt(10) != 0);
+            DataEvent[] bgs = {event(random, true), event(random, true)};
+            for (DetectorType detector : new DetectorType[]{DetectorType.DC, DetectorType.FTOF}) {
+                String name = detector + "::tdc";
+                for (boolean suppress : new boolean[]{true, false}) {
+                    for (boolean preserve : new boolean[]{true, false}) {
+                        for (OrderType[] orders : ORDERS) {
+                            String expected = dump(reference(merger(event, bgs, suppress, preserve, orders), detector, event, bgs));
+                            DataBank merged = merger(event, bgs, suppress, preserve, orders).mergeTDCs(detector);
+                            assertEquals(expected, dump(merged));
+                            if (merged == null || !bgs[0].hasBank(name)) continue;
+                            for (int row = 0; row < merged.rows(); row++) {
+                                decades[merged.getByte("order", row)/10]++;
+                            }
+                            if (!preserve && event.hasBank(name) && merged.rows() > 1) nsorted++;
+                        }
+                    }
+                }
+                if (!bgs[0].hasBank(name) || !event.hasBank(name)) continue;
+                // hits removed as double hits:
+                DataBank all = merger(event, bgs, false, true, ORDERS[0]).mergeTDCs(detector);
+                DataBank first = merger(event, bgs, true, true, ORDERS[0]).mergeTDCs(detector);
+                if (all.rows() > first.rows()) nsuppressed++;
+            }
+        }
+        // all the order types, sorted outputs and double hits are tested:
+        for (int decade : decades) assertTrue(decade > 1000);
+        assertTrue(nsorted > 500);
+        assertTrue(nsuppressed > 100);
+        // the second DC background event is shifted by the readout window:
+        assertTrue(constants.getInt(RUN, DetectorType.DC, EventMergerEnum.READOUT_WINDOW, 0, 1, 1) > 0);
+    }
+}
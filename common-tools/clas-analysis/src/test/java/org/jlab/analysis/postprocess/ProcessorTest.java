@@ -0,0 +1,211 @@
+package org.jlab.analysis.postprocess;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.jlab.jnp.hipo4.data.Bank;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.jlab.jnp.hipo4.io.HipoReader;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
+import org.jlab.detector.calib.utils.ConstantsManager;
+import org.jlab.detector.helicity.HelicitySequence;
+import org.jlab.utils.groups.IndexedTable;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class ProcessorTest {
+
+    private static final int RUN = 5038;
+    private static final int OTHER_RUN = 5039;
+    private static final long T0 = 1000000000L;
+    private static final long OLD = 1000000000000L;
+
+    private static SchemaFactory schema;
+    // timestamp ticks between helicity states
+    private static long window;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadSchema() {
+        System.setProperty("CLAS12DIR", "../../");
+        schema = new SchemaFactory();
+        schema.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        ConstantsManager conman = new ConstantsManager();
+        conman.init("/runcontrol/helicity");
+        IndexedTable helicity = conman.getConstants(RUN, "/runcontrol/helicity");
+        assertNotEquals(0, helicity.getIntValue("delay", 0, 0, 0));
+        window = (long) (HelicitySequence.TIMESTAMP_CLOCK/helicity.getDoubleValue("frequency", 0, 0, 0));
+    }
+
+    private static Bank runConfig(int run, long timestamp) {
+        Bank bank = new Bank(schema.getSchema("RUN::config"), 1);
+        bank.putInt("run", 0, run);
+        bank.putLong("timestamp", 0, timestamp);
+        return bank;
+    }
+
+    /**
+     * Writes a preload file with the helicity flips of a quartet sequence and
+     * scaler readouts in tag-1 events, and physics events in between.
+     * @return the timestamp after the last state
+     */
+    private static long writePreload(File file, Random random, int run, long t0, int nstates) {
+        HipoWriterSorted writer = new HipoWriterSorted();
+        writer.getSchemaFactory().copy(schema);
+        writer.open(file.getPath());
+        Event event = new Event();
+        long timestamp = t0;
+        double charge = 0;
+        byte first = 1;
+        for (int i = 0; i < nstates; i++) {
+            timestamp += window + random.nextInt(1000);
+            if (i%4 == 0) first = (byte) (random.nextBoolean() ? 1 : -1);
+            byte helicity = (byte) (i%4==0 || i%4==3 ? first : -first);
+            Bank flip = new Bank(schema.getSchema("HEL::flip"), 1);
+            flip.putInt("run", 0, run);
+            flip.putInt("event", 0, i*100);
+            flip.putLong("timestamp", 0, timestamp);
+            flip.putByte("status", 0, (byte) 0);
+            flip.putByte("helicity", 0, helicity);
+            flip.putByte("helicityRaw", 0, (byte) -helicity);
+            flip.putByte("pair", 0, (byte) (i%2==0 ? 1 : -1));
+            flip.putByte("pattern", 0, (byte) (i%4==0 ? -1 : 1));
+            event.reset();
+            event.write(flip);
+            event.write(runConfig(run, timestamp));
+            writer.addEvent(event, 1);
+            if (i%20 == 0) {
+                charge += 10*random.nextDouble();
+                Bank scaler = new Bank(schema.getSchema("RUN::scaler"), 1);
+                scaler.putFloat("fcup", 0, (float) charge);
+                scaler.putFloat("fcupgated", 0, (float) (0.9*charge));
+                scaler.putFloat("livetime", 0, (float) (0.8 + 0.2*random.nextDouble()));
+                event.reset();
+                event.write(scaler);
+                event.write(runConfig(run, timestamp + 10));
+                writer.addEvent(event, 1);
+            }
+            Bank recEvent = new Bank(schema.getSchema("REC::Event"), 1);
+            event.reset();
+            event.write(runConfig(run, timestamp + 100));
+            event.write(recEvent);
+            writer.addEvent(event, 0);
+        }
+        writer.close();
+        return timestamp;
+    }
+
+    private static File writePreloads(File dir, Random random, int run, int nstates) {
+        dir.mkdirs();
+        long t = writePreload(new File(dir, "preload_0.hipo"), random, run, T0, nstates);
+        writePreload(new File(dir, "preload_1.hipo"), random, run, t, nstates);
+        return dir;
+    }
+
+    /**
+     * The helicity, beam charge and livetime given by the processor to the
+     * events at regular times over the preload sequences.
+     */
+    private static String dump(Processor processor, int run, int nstates) {
+        StringBuilder str = new StringBuilder();
+        int ndefined = 0;
+        for (long t = T0; t < T0 + 2*nstates*window; t += window/7) {
+            Event event = new Event();
+            event.write(runConfig(run, t));
+            event.write(new Bank(schema.getSchema("REC::Event"), 1));
+            processor.processEvent(event);
+            Bank recEvent = new Bank(schema.getSchema("REC::Event"));
+            event.read(recEvent);
+            if (recEvent.getByte("helicity", 0) != 0) ndefined++;
+            str.append(String.format("%d %d %d %.3f %.4f\n", t,
+                    recEvent.getByte("helicity", 0), recEvent.getByte("helicityRaw", 0),
+                    recEvent.getFloat("beamCharge", 0), recEvent.getDouble("liveTime", 0)));
+        }
+        // the sequences are used:
+        assertTrue(ndefined > nstates);
+        return str.toString();
+    }
+
+    private static int cacheRun(File cache) {
+        HipoReader reader = new HipoReader();
+        reader.setTags(1);
+        reader.open(cache.getPath());
+        Bank bank = reader.getBank("RUN::config");
+        Event event = new Event();
+        reader.nextEvent(event);
+        event.read(bank);
+        reader.close();
+        return bank.getInt("run", 0);
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        File dir = writePreloads(folder.newFolder("preload"), new Random(61), RUN, 500);
+        File cache = new File(folder.newFolder("cache"), "sequences.hipo");
+        String expected = dump(new Processor(dir.getPath(), "*.hipo", false), RUN, 500);
+
+        // built from the preload files, then written to the cache:
+        Processor first = new Processor(dir.getPath(), "*.hipo", false, cache.getPath());
+        assertTrue(cache.isFile());
+        assertEquals(RUN, cacheRun(cache));
+        assertEquals(expected, dump(first, RUN, 500));
+
+        // read from the cache, which is not rewritten:
+        assertTrue(cache.setLastModified(OLD));
+        Processor cached = new Processor(dir.getPath(), "*.hipo", false, cache.getPath());
+        assertEquals(OLD, cache.lastModified());
+        assertEquals(expected, dump(cached, RUN, 500));
+
+        // only for the same run, restreaming option and preload files:
+        List<String> files = Arrays.asList(new File(dir, "preload_1.hipo").getPath(), new File(dir, "preload_0.hipo").getPath());
+        String inputs = Processor.getInputsHash(false, files);
+        assertTrue(Processor.isValidCache(cache.getPath(), RUN, inputs));
+        assertFalse(Processor.isValidCache(cache.getPath(), OTHER_RUN, inputs));
+        assertFalse(Processor.isValidCache(cache.getPath(), RUN, Processor.getInputsHash(true, files)));
+        assertFalse(Processor.isValidCache(cache.getPath(), RUN, Processor.getInputsHash(false, files.subList(0, 1))));
+        assertTrue(new File(dir, "preload_0.hipo").setLastModified(OLD));
+        assertFalse(Processor.isValidCache(cache.getPath(), RUN, Processor.getInputsHash(false, files)));
+    }
+
+    @Test
+    public void testChangedPreload() throws IOException {
+        File dir = writePreloads(folder.newFolder("preload"), new Random(67), RUN, 500);
+        File cache = new File(folder.newFolder("cache"), "sequences.hipo");
+        String before = dump(new Processor(dir.getPath(), "*.hipo", false, cache.getPath()), RUN, 500);
+        assertTrue(cache.setLastModified(OLD));
+
+        // other sequences in the first file, with another modification time
+        // even if rewritten within the same millisecond:
+        File preload = new File(dir, "preload_0.hipo");
+        writePreload(preload, new Random(71), RUN, T0, 500);
+        assertTrue(preload.setLastModified(OLD));
+        String expected = dump(new Processor(dir.getPath(), "*.hipo", false), RUN, 500);
+        assertNotEquals(before, expected);
+        Processor processor = new Processor(dir.getPath(), "*.hipo", false, cache.getPath());
+        assertNotEquals(OLD, cache.lastModified());
+        assertEquals(expected, dump(processor, RUN, 500));
+    }
+
+    @Test
+    public void testOtherRun() throws IOException {
+        File dir = writePreloads(folder.newFolder("preload"), new Random(73), RUN, 500);
+        File otherDir = writePreloads(folder.newFolder("other"), new Random(79), OTHER_RUN, 500);
+        File cache = new File(folder.newFolder("cache"), "sequences.hipo");
+        new Processor(dir.getPath(), "*.hipo", false, cache.getPath());
+        assertTrue(cache.setLastModified(OLD));
+
+        String expected = dump(new Processor(otherDir.getPath(), "*.hipo", false), OTHER_RUN, 500);
+        Processor processor = new Processor(otherDir.getPath(), "*.hipo", false, cache.getPath());
+        assertNotEquals(OLD, cache.lastModified());
+        assertEquals(OTHER_RUN, cacheRun(cache));
+        assertEquals(expected, dump(processor, OTHER_RUN, 500));
+    }
+}
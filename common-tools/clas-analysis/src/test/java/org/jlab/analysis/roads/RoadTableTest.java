@@ -0,0 +1,217 @@
+package org.jlab.analysis.roads;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.jlab.analysis.roads.Dictionary.TestMode;
+import org.jlab.clas.physics.Particle;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class RoadTableTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Road in the text format, with the wires, paddles and strips picked
+     * around the ones of the given template so that different lines often
+     * share the same key.
+     */
+    private static String line(Random random, int[] template) {
+        StringBuilder str = new StringBuilder();
+        str.append(String.format("%d ", random.nextBoolean() ? 1 : -1));
+        str.append(String.format("%7.2f ", 1 + 9*random.nextDouble()));
+        str.append(String.format("%7.2f ", 5 + 35*random.nextDouble()));
+        str.append(String.format("%7.2f ", 360*random.nextDouble() - 180));
+        for(int i=0; i<36; i++) {
+            int wire = template[i/6] + random.nextInt(3);
+            if(i%6!=0 && random.nextInt(5)==0) wire = 0;
+            str.append(String.format("%3d ", wire));
+        }
+        str.append(String.format("%3d ", template[6] + random.nextInt(2)));
+        str.append(String.format("%7.2f ", 10*random.nextGaussian()));
+        str.append(String.format("%3d ", random.nextInt(6)));
+        for(int i=0; i<3; i++) str.append(String.format("%3d ", template[7+i] + random.nextInt(3)));
+        str.append(String.format("%3d ", template[10]));
+        str.append(String.format("%3d ", 1 + random.nextInt(6)));
+        for(int i=0; i<3; i++) str.append(String.format("%7.1f ", 100*random.nextDouble()));
+        return str.toString();
+    }
+
+    private File writeDictionary(Random random, int nroads) throws IOException {
+        List<int[]> templates = new ArrayList<>();
+        for(int t=0; t<40; t++) {
+            int[] template = new int[11];
+            for(int i=0; i<6; i++) template[i] = 1 + random.nextInt(110);
+            template[6] = 1 + random.nextInt(60);
+            for(int i=7; i<10; i++) template[i] = 1 + random.nextInt(60);
+            // signed byte masks, for keys not ordered as signed bytes
+            template[10] = random.nextInt(256) - 128;
+            templates.add(template);
+        }
+        File file = folder.newFile();
+        List<String> lines = new ArrayList<>();
+        try (FileWriter writer = new FileWriter(file)) {
+            for(int i=0; i<nroads; i++) {
+                String line;
+                if(!lines.isEmpty() && random.nextInt(10)==0) {
+                    // exact duplicate
+                    line = lines.get(random.nextInt(lines.size()));
+                }
+                else {
+                    line = line(random, templates.get(random.nextInt(templates.size())));
+                }
+                lines.add(line);
+                writer.write(line + "\n");
+            }
+        }
+        return file;
+    }
+
+    private static void assertParticle(Particle expected, Particle particle) {
+        assertEquals(expected.charge(), particle.charge());
+        assertEquals(expected.p(), particle.p(), 1E-3);
+        assertEquals(expected.theta(), particle.theta(), 1E-5);
+        assertEquals(expected.phi(), particle.phi(), 1E-5);
+        assertEquals(expected.vz(), particle.vz(), 1E-3);
+        for(int i=0; i<3; i++) {
+            assertEquals(expected.getProperty("ECALe"+(i*3+1)), particle.getProperty("ECALe"+(i*3+1)), 1E-3);
+        }
+    }
+
+    private static int compare(ArrayList<Byte> key1, ArrayList<Byte> key2) {
+        for(int i=0; i<key1.size(); i++) {
+            int cmp = Integer.compare(Byte.toUnsignedInt(key1.get(i)), Byte.toUnsignedInt(key2.get(i)));
+            if(cmp!=0) return cmp;
+        }
+        return 0;
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        Random random = new Random(41);
+        File text = this.writeDictionary(random, 3000);
+        int nmissing = 0;
+        for(int imode=0; imode<=4; imode++) {
+            TestMode mode = TestMode.getTestMode(imode);
+            for(int wireBin : new int[]{1, 2}) {
+                for(int stripBin : new int[]{1, 4}) {
+                    for(int sector=0; sector<=1; sector++) {
+                        Dictionary dictionary = new Dictionary();
+                        dictionary.readDictionary(text.getPath(), mode, wireBin, stripBin, sector);
+                        File binary = folder.newFile("dict" + RoadTable.EXTENSION);
+                        long n = RoadTable.convert(text.getPath(), binary.getPath(), mode, wireBin, stripBin, sector, -1);
+                        // duplicates are removed
+                        assertTrue(dictionary.size() < 3000);
+                        assertEquals(dictionary.size(), n);
+
+                        RoadTable table = RoadTable.open(binary.getPath());
+                        assertEquals(n, table.size());
+                        assertEquals(mode, table.getMode());
+                        assertTrue(table.matches(mode, wireBin, stripBin, sector));
+                        assertFalse(table.matches(TestMode.getTestMode((imode+1)%5), wireBin, stripBin, sector));
+                        assertFalse(table.matches(mode, wireBin+1, stripBin, sector));
+                        assertFalse(table.matches(mode, wireBin, stripBin+1, sector));
+                        assertFalse(table.matches(mode, wireBin, stripBin, 1-sector));
+
+                        // same particle as the first occurrence of each road
+                        for(Map.Entry<ArrayList<Byte>, Particle> entry : dictionary.entrySet()) {
+                            assertTrue(table.containsKey(entry.getKey()));
+                            Road road = table.getRoad(entry.getKey());
+                            assertEquals(entry.getKey(), road.getKey(mode));
+                            assertParticle(entry.getValue(), road.getParticle());
+                        }
+
+                        // records sorted by key, all in the dictionary
+                        ArrayList<Byte> previous = null;
+                        for(long i=0; i<table.size(); i++) {
+                            ArrayList<Byte> key = table.getRoad(i).getKey(mode);
+                            assertTrue(dictionary.containsKey(key));
+                            if(previous!=null) assertTrue(compare(previous, key) < 0);
+                            previous = key;
+                        }
+
+                        // missing keys, close to existing ones
+                        for(ArrayList<Byte> key : dictionary.keySet()) {
+                            for(int i=0; i<13; i++) {
+                                ArrayList<Byte> other = new ArrayList<>(key);
+                                other.set(i, (byte) (key.get(i) + 1 + random.nextInt(3)));
+                                if(dictionary.containsKey(other)) continue;
+                                assertEquals(-1, table.find(other));
+                                assertNull(table.getRoad(other));
+                                nmissing++;
+                            }
+                        }
+                        ArrayList<Byte> shortKey = new ArrayList<>(dictionary.keySet().iterator().next());
+                        shortKey.remove(12);
+                        assertEquals(-1, table.find(shortKey));
+                        binary.delete();
+                    }
+                }
+            }
+        }
+        assertTrue(nmissing > 1000);
+    }
+
+    @Test
+    public void testSectorDependence() throws IOException {
+        File text = this.writeDictionary(new Random(43), 2000);
+        File binary0 = folder.newFile("dict0" + RoadTable.EXTENSION);
+        File binary1 = folder.newFile("dict1" + RoadTable.EXTENSION);
+        RoadTable.convert(text.getPath(), binary0.getPath(), TestMode.DC, 1, 1, 0, -1);
+        RoadTable.convert(text.getPath(), binary1.getPath(), TestMode.DC, 1, 1, 1, -1);
+        RoadTable table0 = RoadTable.open(binary0.getPath());
+        RoadTable table1 = RoadTable.open(binary1.getPath());
+        assertTrue(table1.size() > table0.size());
+        for(long i=0; i<table0.size(); i++) {
+            assertEquals(0, (int) table0.getRoad(i).getKey(TestMode.DC).get(12));
+        }
+        int nsectors = 0;
+        for(long i=0; i<table1.size(); i++) {
+            if(table1.getRoad(i).getKey(TestMode.DC).get(12)>0) nsectors++;
+        }
+        assertTrue(nsectors > 0);
+    }
+
+    @Test
+    public void testMaxRoads() throws IOException {
+        File text = this.writeDictionary(new Random(47), 2000);
+        Dictionary dictionary = new Dictionary();
+        dictionary.readDictionary(text.getPath(), TestMode.DCFTOFPCALU, 1, 1, 1, 500);
+        File binary = folder.newFile("dict" + RoadTable.EXTENSION);
+        long n = RoadTable.convert(text.getPath(), binary.getPath(), TestMode.DCFTOFPCALU, 1, 1, 1, 500);
+        assertEquals(dictionary.size(), n);
+        RoadTable table = RoadTable.open(binary.getPath());
+        for(ArrayList<Byte> key : dictionary.keySet()) assertTrue(table.containsKey(key));
+    }
+
+    @Test
+    public void testInvalidFiles() throws IOException {
+        File text = this.writeDictionary(new Random(53), 100);
+        try {
+            RoadTable.open(text.getPath());
+            fail("text dictionary opened as binary");
+        }
+        catch(IOException e) {
+        }
+        File binary = folder.newFile("dict" + RoadTable.EXTENSION);
+        RoadTable.convert(text.getPath(), binary.getPath(), TestMode.DC, 1, 1, 0, -1);
+        try (RandomAccessFile file = new RandomAccessFile(binary, "rw")) {
+            file.setLength(file.length()-1);
+        }
+        try {
+            RoadTable.open(binary.getPath());
+            fail("truncated dictionary opened");
+        }
+        catch(IOException e) {
+        }
+    }
+}
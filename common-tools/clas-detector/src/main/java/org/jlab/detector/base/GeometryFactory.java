@@ -5,6 +5,10 @@
  */
 package org.jlab.detector.base;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import org.jlab.detector.calib.utils.DatabaseConstantProvider;
 import org.jlab.geom.base.ConstantProvider;
 import org.jlab.geom.base.Detector;
@@ -24,7 +28,7 @@ public class GeometryFactory {
     public static int SYSTEM_TILTED = 2;
     public static int SYSTEM_CLAS   = 3;
     
-    //private volatile 
+    private static final Map<String,Detector> detectors = new HashMap<>();
     
     public GeometryFactory(){
         
@@ -39,90 +43,113 @@ public class GeometryFactory {
      * @return 
      */
     public static ConstantProvider getConstants(DetectorType type, int run, String variation){
+        List<String> tables = GeometryFactory.getTables(type);
+        String snapshotDir = GeometrySnapshot.getDirectory();
+        if(snapshotDir!=null){
+            GeometrySnapshot snapshot = GeometrySnapshot.load(snapshotDir, type, run, variation, tables);
+            if(snapshot!=null) return snapshot;
+        }
         DatabaseConstantProvider  provider = new DatabaseConstantProvider(run,variation);
+        for(String table : tables){
+            provider.loadTable(table);
+        }
+        provider.disconnect();
+        if(snapshotDir!=null){
+            GeometrySnapshot.save(snapshotDir, type, run, variation, tables, provider);
+        }
+        return provider;
+    }
+    
+    /**
+     * Returns the list of geometry tables read from the database for the given
+     * detector, in loading order
+     * @param type detector type
+     * @return list of ccdb table names
+     */
+    public static List<String> getTables(DetectorType type){
+        List<String> tables = new ArrayList<>();
         if(type==DetectorType.DC){
-            provider.loadTable("/geometry/dc/dc");
-            provider.loadTable("/geometry/dc/region");
-            provider.loadTable("/geometry/dc/superlayer");
-            provider.loadTable("/geometry/dc/layer");
-            provider.loadTable("/geometry/dc/alignment");
-            provider.loadTable("/geometry/dc/ministagger");
-	    provider.loadTable("/geometry/dc/endplatesbow");
-	    provider.loadTable("/geometry/dc/feedthroughs");
+            tables.add("/geometry/dc/dc");
+            tables.add("/geometry/dc/region");
+            tables.add("/geometry/dc/superlayer");
+            tables.add("/geometry/dc/layer");
+            tables.add("/geometry/dc/alignment");
+            tables.add("/geometry/dc/ministagger");
+	    tables.add("/geometry/dc/endplatesbow");
+	    tables.add("/geometry/dc/feedthroughs");
         }
         
         if(type==DetectorType.ECAL){
-            provider.loadTable("/geometry/pcal/pcal");
-            provider.loadTable("/geometry/pcal/Uview");
-            provider.loadTable("/geometry/pcal/Vview");
-            provider.loadTable("/geometry/pcal/Wview");
-            provider.loadTable("/geometry/pcal/alignment");
-            provider.loadTable("/geometry/ec/ec");
-            provider.loadTable("/geometry/ec/uview");
-            provider.loadTable("/geometry/ec/vview");
-            provider.loadTable("/geometry/ec/wview");
-            provider.loadTable("/geometry/ec/alignment");
+            tables.add("/geometry/pcal/pcal");
+            tables.add("/geometry/pcal/Uview");
+            tables.add("/geometry/pcal/Vview");
+            tables.add("/geometry/pcal/Wview");
+            tables.add("/geometry/pcal/alignment");
+            tables.add("/geometry/ec/ec");
+            tables.add("/geometry/ec/uview");
+            tables.add("/geometry/ec/vview");
+            tables.add("/geometry/ec/wview");
+            tables.add("/geometry/ec/alignment");
         }
         
         if(type==DetectorType.FTOF){
-            provider.loadTable("/geometry/ftof/panel1a/paddles");        
-            provider.loadTable("/geometry/ftof/panel1a/panel");
-            provider.loadTable("/geometry/ftof/panel1b/paddles");
-            provider.loadTable("/geometry/ftof/panel1b/panel");
-            provider.loadTable("/geometry/ftof/panel2/paddles");
-            provider.loadTable("/geometry/ftof/panel2/panel");
-            provider.loadTable("/geometry/ftof/alignment");
+            tables.add("/geometry/ftof/panel1a/paddles");        
+            tables.add("/geometry/ftof/panel1a/panel");
+            tables.add("/geometry/ftof/panel1b/paddles");
+            tables.add("/geometry/ftof/panel1b/panel");
+            tables.add("/geometry/ftof/panel2/paddles");
+            tables.add("/geometry/ftof/panel2/panel");
+            tables.add("/geometry/ftof/alignment");
         }
         
         if(type==DetectorType.BST){
-            provider.loadTable("/geometry/bst/region");
-            provider.loadTable("/geometry/bst/sector");
-            provider.loadTable("/geometry/bst/bst");
+            tables.add("/geometry/bst/region");
+            tables.add("/geometry/bst/sector");
+            tables.add("/geometry/bst/bst");
         }
         
         if(type==DetectorType.CND){
-//            provider.loadTable("/geometry/cnd/cnd");
-//            provider.loadTable("/geometry/cnd/layer");
-            provider.loadTable("/geometry/cnd/cndgeom");
+//            tables.add("/geometry/cnd/cnd");
+//            tables.add("/geometry/cnd/layer");
+            tables.add("/geometry/cnd/cndgeom");
         }
         
         if(type==DetectorType.CTOF){
-            provider.loadTable("/geometry/ctof/ctof");
-            provider.loadTable("/geometry/ctof/cad");
-            provider.loadTable("/geometry/shifts/solenoid");
+            tables.add("/geometry/ctof/ctof");
+            tables.add("/geometry/ctof/cad");
+            tables.add("/geometry/shifts/solenoid");
         }
         
         if(type==DetectorType.FTCAL){
-            provider.loadTable("/geometry/ft/ftcal");
+            tables.add("/geometry/ft/ftcal");
         }
         
         if(type==DetectorType.BST){
-            provider.loadTable("/geometry/cvt/svt/svt");
-            provider.loadTable("/geometry/cvt/svt/region");
-            provider.loadTable("/geometry/cvt/svt/support");
-            provider.loadTable("/geometry/cvt/svt/fiducial");
-            provider.loadTable("/geometry/cvt/svt/material/box");
-            provider.loadTable("/geometry/cvt/svt/material/tube");
-            provider.loadTable("/geometry/cvt/svt/alignment");
+            tables.add("/geometry/cvt/svt/svt");
+            tables.add("/geometry/cvt/svt/region");
+            tables.add("/geometry/cvt/svt/support");
+            tables.add("/geometry/cvt/svt/fiducial");
+            tables.add("/geometry/cvt/svt/material/box");
+            tables.add("/geometry/cvt/svt/material/tube");
+            tables.add("/geometry/cvt/svt/alignment");
         }
 
         if(type==DetectorType.TARGET){
-            provider.loadTable("/geometry/shifts/target");
-            provider.loadTable("/geometry/materials/target");
+            tables.add("/geometry/shifts/target");
+            tables.add("/geometry/materials/target");
         }
 
         if(type==DetectorType.MAGNETS){
-            provider.loadTable("/geometry/shifts/solenoid");
+            tables.add("/geometry/shifts/solenoid");
         }
 
         if(type==DetectorType.FMT){
-            provider.loadTable("/geometry/fmt/fmt_global");
-            provider.loadTable("/geometry/fmt/fmt_layer_noshim");
-            provider.loadTable("/geometry/fmt/alignment");
+            tables.add("/geometry/fmt/fmt_global");
+            tables.add("/geometry/fmt/fmt_layer_noshim");
+            tables.add("/geometry/fmt/alignment");
         }
         
-        provider.disconnect();
-        return provider;
+        return tables;
     }
     /**
      * Load constants for given detector, for default RUN=10 and VARIATION=default
@@ -142,13 +169,31 @@ public class GeometryFactory {
         return GeometryFactory.getDetector(type, 10, "default");
     }
     /**
-     * Load a detector in CLAS coordinate system, for given RUN and VARIATION
+     * Load a detector in CLAS coordinate system, for given RUN and VARIATION.
+     * When geometry snapshots are enabled, the detector is built once per
+     * process for each run and variation and the same instance is returned
+     * to all callers, which must not modify it.
      * @param type detector type
      * @param run run number
      * @param variation ccdb variation
      * @return 
      */
     public static Detector getDetector(DetectorType type, int run, String variation){
+        if(GeometrySnapshot.getDirectory()==null){
+            return GeometryFactory.createDetector(type, run, variation);
+        }
+        String key = type.getName() + "/" + run + "/" + variation;
+        synchronized(detectors){
+            Detector detector = detectors.get(key);
+            if(detector==null){
+                detector = GeometryFactory.createDetector(type, run, variation);
+                if(detector!=null) detectors.put(key, detector);
+            }
+            return detector;
+        }
+    }
+    
+    private static Detector createDetector(DetectorType type, int run, String variation){
         ConstantProvider  provider = GeometryFactory.getConstants(type, run, variation);
         if(type==DetectorType.DC){
             DCFactory factory = new DCFactory();
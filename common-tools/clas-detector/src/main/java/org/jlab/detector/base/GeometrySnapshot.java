@@ -0,0 +1,326 @@
+package org.jlab.detector.base;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import org.jlab.detector.calib.utils.DatabaseConstantProvider;
+import org.jlab.geom.base.ConstantProvider;
+
+/**
+ * Binary snapshot of the geometry constants of one detector for a given
+ * run and variation.
+ *
+ * The snapshot is written once after the tables are read from CCDB and is
+ * loaded with a single sequential read on later startups, without opening
+ * a database connection. A snapshot is trusted for the database address,
+ * run, variation, time stamp and table list it was built from, all stored
+ * in its header together with a CRC32 of its content: it is rejected if the
+ * content is corrupted or if any of these differ from the request. When the
+ * constants are read for the current date (no time stamp), new constants
+ * may have been added to the database since the snapshot was written, so
+ * such snapshots expire after GEOMETRY_SNAPSHOT_MAXAGE hours (24 by
+ * default, negative to never expire) and are then read again from CCDB.
+ *
+ * Snapshots are enabled by setting the GEOMETRY_SNAPSHOT_DIR environment
+ * variable or system property to a writable directory.
+ */
+public class GeometrySnapshot implements ConstantProvider {
+
+    static final Logger LOGGER = Logger.getLogger(GeometrySnapshot.class.getName());
+
+    public static final String SNAPSHOT_DIR    = "GEOMETRY_SNAPSHOT_DIR";
+    public static final String SNAPSHOT_MAXAGE = "GEOMETRY_SNAPSHOT_MAXAGE";
+
+    private static final int MAGIC   = 0x47454F53; // "GEOS"
+    private static final int VERSION = 3;
+    private static final double DEFAULT_MAXAGE = 24; // hours
+
+    private final Map<String,String[]> constantContainer = new HashMap<>();
+    private final DetectorType type;
+    private final int          run;
+    private final String       variation;
+
+    private GeometrySnapshot(DetectorType type, int run, String variation) {
+        this.type      = type;
+        this.run       = run;
+        this.variation = variation;
+    }
+
+    /**
+     * Returns the snapshot directory from the GEOMETRY_SNAPSHOT_DIR
+     * environment variable or system property, or null if snapshots
+     * are disabled
+     * @return directory name or null
+     */
+    public static String getDirectory() {
+        String dir = System.getenv(SNAPSHOT_DIR);
+        if(dir==null) dir = System.getProperty(SNAPSHOT_DIR);
+        return dir;
+    }
+
+    /**
+     * Returns the time after which a snapshot read for the current date
+     * expires, from the GEOMETRY_SNAPSHOT_MAXAGE environment variable or
+     * system property, in hours
+     * @return maximum age in milliseconds, negative if snapshots never expire
+     */
+    public static long getMaxAge() {
+        String age = System.getenv(SNAPSHOT_MAXAGE);
+        if(age==null) age = System.getProperty(SNAPSHOT_MAXAGE);
+        double hours = DEFAULT_MAXAGE;
+        if(age!=null) {
+            try {
+                hours = Double.parseDouble(age);
+            }
+            catch(NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  invalid {0} : {1}", new Object[]{SNAPSHOT_MAXAGE, age});
+            }
+        }
+        return (long) (hours*3600*1000);
+    }
+
+    /**
+     * Returns the snapshot file for the given detector, run and variation
+     * @param dir snapshot directory
+     * @param type detector type
+     * @param run run number
+     * @param variation ccdb variation
+     * @return snapshot file
+     */
+    public static File getFile(String dir, DetectorType type, int run, String variation) {
+        String name = String.format("%s_%d_%s.geo", type.getName(), run, variation.replaceAll("[^A-Za-z0-9_.-]", "_"));
+        return new File(dir, name);
+    }
+
+    /**
+     * Loads the snapshot for the given detector, run and variation, read
+     * for the current date from the database the DatabaseConstantProvider
+     * would connect to, without connecting to it
+     * @param dir snapshot directory
+     * @param type detector type
+     * @param run run number
+     * @param variation ccdb variation
+     * @param tables list of tables expected in the snapshot
+     * @return the snapshot, or null if it doesn't exist, is invalid or expired
+     */
+    public static GeometrySnapshot load(String dir, DetectorType type, int run, String variation, List<String> tables) {
+        return GeometrySnapshot.load(GeometrySnapshot.getFile(dir, type, run, variation), type, run, variation,
+                DatabaseConstantProvider.getDefaultAddress(), null, tables,
+                GeometrySnapshot.getMaxAge(), System.currentTimeMillis());
+    }
+
+    /**
+     * Loads a snapshot file
+     * @param file snapshot file
+     * @param type detector type
+     * @param run run number
+     * @param variation ccdb variation
+     * @param address database address
+     * @param timestamp database time stamp, null for the current date
+     * @param tables list of tables expected in the snapshot
+     * @param maxAge maximum age of a snapshot without time stamp, in
+     * milliseconds, negative for no limit
+     * @param now current time in milliseconds
+     * @return the snapshot, or null if it doesn't exist, is invalid or expired
+     */
+    static GeometrySnapshot load(File file, DetectorType type, int run, String variation,
+            String address, String timestamp, List<String> tables, long maxAge, long now) {
+        if(!file.isFile()) return null;
+        try {
+            byte[] data = Files.readAllBytes(file.toPath());
+            if(data.length < 8) return null;
+            int length = data.length - 8;
+            CRC32 crc = new CRC32();
+            crc.update(data, 0, length);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+            in.skipBytes(length);
+            if(in.readLong()!=crc.getValue()) {
+                LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  checksum mismatch, ignoring snapshot : {0}", file);
+                return null;
+            }
+            in = new DataInputStream(new BufferedInputStream(new ByteArrayInputStream(data, 0, length)));
+            if(in.readInt()!=MAGIC || in.readInt()!=VERSION) {
+                LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  unknown format, ignoring snapshot : {0}", file);
+                return null;
+            }
+            if(!type.getName().equals(in.readUTF()) || in.readInt()!=run || !variation.equals(in.readUTF())) {
+                return null;
+            }
+            if(!String.valueOf(address).equals(in.readUTF()) || !String.valueOf(timestamp).equals(in.readUTF())) {
+                LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  database or time stamp changed, ignoring snapshot : {0}", file);
+                return null;
+            }
+            long created = in.readLong();
+            if(timestamp==null && maxAge>=0 && now-created>maxAge) {
+                LOGGER.log(Level.INFO, "[GeometrySnapshot] --->  expired snapshot : {0}", file);
+                return null;
+            }
+            int ntables = in.readInt();
+            List<String> stored = new ArrayList<>();
+            for(int i = 0; i < ntables; i++) stored.add(in.readUTF());
+            if(!stored.equals(tables)) {
+                LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  table list changed, ignoring snapshot : {0}", file);
+                return null;
+            }
+            GeometrySnapshot snapshot = new GeometrySnapshot(type, run, variation);
+            int nentries = in.readInt();
+            for(int i = 0; i < nentries; i++) {
+                String key = in.readUTF();
+                String[] values = new String[in.readInt()];
+                for(int j = 0; j < values.length; j++) values[j] = in.readUTF();
+                snapshot.constantContainer.put(key, values);
+            }
+            LOGGER.log(Level.INFO, "[GeometrySnapshot] --->  loaded snapshot : {0}", file);
+            return snapshot;
+        }
+        catch(IOException e) {
+            LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  error reading snapshot : " + file, e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the constants loaded by the provider to a snapshot file; nothing
+     * is written if some of the tables failed to load
+     * @param dir snapshot directory
+     * @param type detector type
+     * @param run run number
+     * @param variation ccdb variation
+     * @param tables list of tables loaded in the provider
+     * @param provider the database provider
+     * @return true if the snapshot was written
+     */
+    public static boolean save(String dir, DetectorType type, int run, String variation, List<String> tables, DatabaseConstantProvider provider) {
+        if(provider.getLoadErrors()>0) return false;
+        Map<String,String[]> constants = new HashMap<>();
+        for(String key : provider.getEntrySet()) {
+            String[] values = new String[provider.length(key)];
+            for(int i = 0; i < values.length; i++) values[i] = provider.getString(key, i);
+            constants.put(key, values);
+        }
+        return GeometrySnapshot.save(GeometrySnapshot.getFile(dir, type, run, variation), type, run, variation,
+                provider.getAddress(), provider.getTimeStamp(), tables, constants, System.currentTimeMillis());
+    }
+
+    /**
+     * Writes a snapshot file
+     * @param file snapshot file
+     * @param type detector type
+     * @param run run number
+     * @param variation ccdb variation
+     * @param address database address
+     * @param timestamp database time stamp, null for the current date
+     * @param tables list of tables
+     * @param constants the constants, by table/column name
+     * @param created time the constants were read, in milliseconds
+     * @return true if the snapshot was written
+     */
+    static boolean save(File file, DetectorType type, int run, String variation, String address, String timestamp,
+            List<String> tables, Map<String,String[]> constants, long created) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(type.getName());
+            out.writeInt(run);
+            out.writeUTF(variation);
+            out.writeUTF(String.valueOf(address));
+            out.writeUTF(String.valueOf(timestamp));
+            out.writeLong(created);
+            out.writeInt(tables.size());
+            for(String table : tables) out.writeUTF(table);
+            List<String> keys = new ArrayList<>(constants.keySet());
+            keys.sort(null);
+            out.writeInt(keys.size());
+            for(String key : keys) {
+                String[] values = constants.get(key);
+                out.writeUTF(key);
+                out.writeInt(values.length);
+                for(String value : values) out.writeUTF(value);
+            }
+            out.flush();
+            byte[] data = buffer.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(data);
+
+            // write to a temporary file first, so that concurrent jobs never
+            // see a partially written snapshot
+            File dir = file.getAbsoluteFile().getParentFile();
+            dir.mkdirs();
+            File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+            try (DataOutputStream fout = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                fout.write(data);
+                fout.writeLong(crc.getValue());
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.log(Level.INFO, "[GeometrySnapshot] --->  saved snapshot : {0}", file);
+            return true;
+        }
+        catch(IOException e) {
+            LOGGER.log(Level.WARNING, "[GeometrySnapshot] --->  error writing snapshot : " + file, e);
+            return false;
+        }
+    }
+
+    public DetectorType getType() {
+        return type;
+    }
+
+    public int getRun() {
+        return run;
+    }
+
+    public String getVariation() {
+        return variation;
+    }
+
+    @Override
+    public boolean hasConstant(String name) {
+        return constantContainer.containsKey(name);
+    }
+
+    @Override
+    public int length(String name) {
+        if(this.hasConstant(name)) return constantContainer.get(name).length;
+        return 0;
+    }
+
+    @Override
+    public double getDouble(String name, int row) {
+        if(this.hasConstant(name) && row < this.length(name)) {
+            return Double.parseDouble(constantContainer.get(name)[row]);
+        }
+        return 0.0;
+    }
+
+    @Override
+    public int getInteger(String name, int row) {
+        if(this.hasConstant(name) && row < this.length(name)) {
+            return Integer.parseInt(constantContainer.get(name)[row]);
+        }
+        return 0;
+    }
+
+    public String getString(String name, int row) {
+        if(this.hasConstant(name) && row < this.length(name)) {
+            return constantContainer.get(name)[row];
+        }
+        return "";
+    }
+}
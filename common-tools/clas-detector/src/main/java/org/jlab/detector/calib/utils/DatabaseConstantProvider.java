@@ -37,6 +37,8 @@ public class DatabaseConstantProvider implements ConstantProvider {
     private Integer runNumber = 10;
     private Integer loadTimeErrors = 0;
     private Date    databaseDate   = new Date();
+    private String  databaseAddress = null;
+    private String  timeStamp       = null;
     
     public static final int DEFAULT_INDICES = 3;
     public static final String DEFAULT_ADDRESS = "mysql://clas12reader@clasdb.jlab.org/clas12";
@@ -93,7 +95,19 @@ public class DatabaseConstantProvider implements ConstantProvider {
         return entries;
     }
     
-    private String getEnvironment(){
+    /**
+     * returns the address of the database the constructors without an
+     * address connect to, from CCDB_CONNECTION or from CCDB_DATABASE and
+     * CLAS12DIR, without opening a connection.
+     * @return connection address
+     */
+    public static String getDefaultAddress(){
+        String envAddress = DatabaseConstantProvider.getEnvironment();
+        if(envAddress!=null) return envAddress;
+        return DEFAULT_ADDRESS;
+    }
+    
+    private static String getEnvironment(){
         
         String envCCDB   = System.getenv("CCDB_DATABASE");
         String envCLAS12 = System.getenv("CLAS12DIR");
@@ -140,6 +154,7 @@ public class DatabaseConstantProvider implements ConstantProvider {
         // choose /tmp directory:
         FileSystemExecScan.scan();
 
+        databaseAddress = address;
         provider = CCDB.createProvider(address);
 
         LOGGER.log(Level.INFO, "[DB] --->  open connection with : {0}", address);
@@ -168,6 +183,7 @@ public class DatabaseConstantProvider implements ConstantProvider {
         SimpleDateFormat format = new SimpleDateFormat(pattern);
         try {
             databaseDate = format.parse(timestamp);
+            timeStamp    = timestamp;
         } catch (ParseException ex) {
             LOGGER.log(Level.SEVERE, "\n\n ***** TIMESTAMP ERROR ***** error parsing timestamp : {0}", timestamp);
             databaseDate = new Date();
@@ -406,6 +422,32 @@ public class DatabaseConstantProvider implements ConstantProvider {
         return this.constantContainer.size();
     }
     
+    /**
+     * returns the number of tables that failed to load since the provider
+     * was created.
+     * @return number of load errors
+     */
+    public int getLoadErrors(){
+        return this.loadTimeErrors;
+    }
+    
+    /**
+     * returns the address of the database connection.
+     * @return connection address
+     */
+    public String getAddress(){
+        return this.databaseAddress;
+    }
+    
+    /**
+     * returns the time stamp set for the database, or null if the 
+     * constants are read for the current date.
+     * @return time stamp
+     */
+    public String getTimeStamp(){
+        return this.timeStamp;
+    }
+    
     public int getSize(String name){
         if(this.hasConstant(name)==true){
             String[] array = this.constantContainer.get(name);
@@ -21,6 +21,7 @@ import org.jlab.io.base.DataEvent;
 import org.jlab.io.evio.EvioDataEvent;
 import org.jlab.io.evio.EvioSource;
 import org.jlab.io.hipo.HipoDataEvent;
+import org.jlab.io.hipo.HipoAsyncWriter;
 import org.jlab.io.hipo.HipoDataSync;
 
 import org.jlab.jnp.hipo4.data.Bank;
@@ -844,6 +845,7 @@ public class CLASDecoder4 {
         parser.addOption("-s", "0.5", "solenoid current in the header bank");
         parser.addOption("-x", null, "CCDB timestamp (MM/DD/YYYY-HH:MM:SS)");
         parser.addOption("-l", "-1", "Decide only events with certain trgbit set. trgBit = 100*ID + bit in the ID-th word");
+        parser.addOption("-W", "0", "output queue size for asynchronous writing (0 means synchronous)");
 
         parser.parse(args);
 
@@ -890,7 +892,8 @@ public class CLASDecoder4 {
         double torus = parser.getOption("-t").doubleValue();
         double solenoid = parser.getOption("-s").doubleValue();
 
-        writer.open(outputFile);
+        HipoAsyncWriter output = new HipoAsyncWriter(writer, parser.getOption("-W").intValue());
+        output.open(outputFile);
         ProgressPrintout progress = new ProgressPrintout();
         System.out.println("INPUT LIST SIZE = " + inputList.size());
         int nevents = parser.getOption("-n").intValue();
@@ -998,7 +1001,7 @@ public class CLASDecoder4 {
                         scalerEvent.write(helicityFlip);
                     }
 
-                    writer.addEvent(scalerEvent, 1);
+                    output.addEvent(scalerEvent, 1);
                 }
 
                 if (TrgSkim) {
@@ -1006,12 +1009,12 @@ public class CLASDecoder4 {
                     for (int row = 0; row < trigger.getRows(); row++) {
                         if (trigger.getInt("id", row) == trg_id) {
                             if ((trigger.getInt("trigger", row) & trg_bitWord) != 0) {
-                                writer.addEvent(decodedEvent, 0);
+                                output.addEvent(decodedEvent, 0);
                             }
                         }
                     }
                 } else {
-                    writer.addEvent(decodedEvent, 0);
+                    output.addEvent(decodedEvent, 0);
                 }
 
                 counter++;
@@ -1026,7 +1029,7 @@ public class CLASDecoder4 {
                 }
             }
         }
-        writer.close();
+        output.close();
 
     }
 }
@@ -51,6 +51,8 @@ public class CodaEventDecoder {
      */
     private final byte HodoSlotOffset = 20;
 
+    private static final String MODE1_FORMAT = "c,i,l,N(c,Ns)";
+
     public CodaEventDecoder() {
 
     }
@@ -583,35 +585,33 @@ public class CodaEventDecoder {
         List<FADCData> entries = new ArrayList<>();
         if (node.getTag() == 57638) {
             ByteBuffer compBuffer = node.getByteData(true);
-            List<DataType> cdatatypes = new ArrayList<>();
-            List<Object> cdataitems = new ArrayList<>();
-            this.decodeComposite(compBuffer, 24, cdatatypes, cdataitems);
-
-            int position = 0;
-
-            while (position < cdatatypes.size() - 3) {
-                Short slot = (Short) cdataitems.get(position + 0);
-                Short nchannels = (Short) cdataitems.get(position + 1);
-
-                position += 2;
-                int counter = 0;
-                while (counter < nchannels) {
-                    Short channel = (Short) cdataitems.get(position);
-                    Short length = (Short) cdataitems.get(position + 1);
-                    position += 2;
-                    short[] shortbuffer = new short[length];
-                    for (int loop = 0; loop < length; loop++) {
-                        Short sample = (Short) cdataitems.get(position + loop);
-                        shortbuffer[loop] = sample;
-                    }
-                    position += length;
-                    counter++;
-                    FADCData data = new FADCData(crate, slot, channel);
-                    data.setBuffer(shortbuffer);
-                    if (length > 18) {
-                        entries.add(data);
+            int length = compBuffer.capacity();
+            // all channels' samples are copied into one buffer for the whole
+            // bank, and each FADCData is a view on its own section of it:
+            short[] samples = new short[Math.max(0, (length - 24) / 2)];
+            int nsamples = 0;
+            int position = 24;
+            try {
+                while (position < (length - 3)) {
+                    int slot = 0x00FF & compBuffer.get(position++);
+                    int nchannels = 0x00FF & compBuffer.get(position++);
+                    for (int counter = 0; counter < nchannels; counter++) {
+                        int channel = 0x00FF & compBuffer.get(position++);
+                        int ndata = 0x00FF & compBuffer.get(position++);
+                        int first = nsamples;
+                        for (int loop = 0; loop < ndata; loop++) {
+                            samples[nsamples++] = compBuffer.getShort(position);
+                            position += 2;
+                        }
+                        if (ndata > 18) {
+                            FADCData data = new FADCData(crate, slot, channel);
+                            data.setBuffer(samples, first, ndata);
+                            entries.add(data);
+                        }
                     }
                 }
+            } catch (Exception e) {
+                System.out.println("Exception : Length = " + length + "  position = " + position);
             }
         }
         return entries;
@@ -627,64 +627,158 @@ public class CodaEventDecoder {
      */
     public List<DetectorDataDgtz> getDataEntries_57601(Integer crate, EvioNode node, EvioDataEvent event) {
 
-        ArrayList<DetectorDataDgtz> entries = new ArrayList<>();
-
         if (node.getTag() == 57601) {
-            try {
+            ByteBuffer compBuffer = node.getByteData(true);
+            compBuffer.order(event.getByteOrder());
+            return this.getDataEntries_57601(crate, compBuffer);
+        }
+        return new ArrayList<>();
+    }
 
-                ByteBuffer compBuffer = node.getByteData(true);
-                CompositeData compData = new CompositeData(compBuffer.array(), event.getByteOrder());
+    /**
+     * decoding the payload of a Mode 1 composite bank, in place. The samples
+     * of all the channels are copied into one array for the bank, that the
+     * pulses are sections of.
+     *
+     * @param crate
+     * @param compBuffer composite bank payload, with the byte order of the event
+     * @return
+     */
+    List<DetectorDataDgtz> getDataEntries_57601(Integer crate, ByteBuffer compBuffer) {
 
-                List<DataType> cdatatypes = compData.getTypes();
-                List<Object> cdataitems = compData.getItems();
+        ArrayList<DetectorDataDgtz> entries = new ArrayList<>();
 
-                if (cdatatypes.get(3) != DataType.NVALUE) {
-                    System.err.println("[EvioRawDataSource] ** error ** corrupted "
-                            + " bank. tag = " + node.getTag() + " num = " + node.getNum());
-                    return null;
+        int position = this.getCompositeDataOffset(compBuffer, MODE1_FORMAT);
+        if (position < 0) {
+            return this.getDataEntries_57601_composite(crate, compBuffer);
+        }
+
+        // walk the "c,i,l,N(c,Ns)" data in place, up to the end of the
+        // data bank minus its padding:
+        int pad = (compBuffer.getInt(position - 4) >> 14) & 0x3;
+        int length = Math.min(compBuffer.limit(), position - 4 + 4 * compBuffer.getInt(position - 8) - pad);
+        try {
+            short[] samples = new short[Math.max(0, (length - position) / 2)];
+            int nsamplesTotal = 0;
+            while (position + 17 <= length) {
+                int slot = compBuffer.get(position);
+                //int trig = compBuffer.getInt(position+1);
+                long time = compBuffer.getLong(position + 5);
+                int nchannels = compBuffer.getInt(position + 13);
+                position += 17;
+                for (int counter = 0; counter < nchannels; counter++) {
+                    int channel = compBuffer.get(position);
+                    int nsamples = compBuffer.getInt(position + 1);
+                    position += 5;
+                    // a corrupted count fails for this bank only, before
+                    // anything is read:
+                    if (nsamples < 0 || nsamples > (length - position) / 2) {
+                        throw new IndexOutOfBoundsException("number of samples " + nsamples
+                                + " exceeds the bank length at position " + position);
+                    }
+                    DetectorDataDgtz bank = new DetectorDataDgtz(crate, slot, channel);
+                    for (int i = 0; i < nsamples; i++) {
+                        samples[nsamplesTotal + i] = compBuffer.getShort(position + 2 * i);
+                    }
+                    position += 2 * nsamples;
+                    bank.addPulse(samples, nsamplesTotal, nsamples);
+                    bank.setTimeStamp(time);
+                    entries.add(bank);
+                    nsamplesTotal += nsamples;
                 }
+            }
+            return entries;
+
+        } catch (RuntimeException ex) {
+            System.out.println("Exception in CRATE = " + crate + "  RUN = " + this.runNumber
+                    + "  EVENT = " + this.eventNumber + " LENGTH = " + compBuffer.capacity());
+            this.printByteBuffer(compBuffer, 120, 20);
+            // as with the composite decoding, nothing is kept from a corrupted bank:
+            entries.clear();
+        }
+        return entries;
+    }
 
-                int position = 0;
+    /**
+     * decoding bank in Mode 1 with jevio's CompositeData, for banks whose
+     * format string is not the expected one.
+     */
+    List<DetectorDataDgtz> getDataEntries_57601_composite(Integer crate, ByteBuffer compBuffer) {
 
-                while (position < cdatatypes.size() - 4) {
-                    Byte slot = (Byte) cdataitems.get(position + 0);
-                    //Integer trig = (Integer)  cdataitems.get(position+1);
-                    Long time = (Long) cdataitems.get(position + 2);
+        ArrayList<DetectorDataDgtz> entries = new ArrayList<>();
 
-                    Integer nchannels = (Integer) cdataitems.get(position + 3);
-                    position += 4;
-                    int counter = 0;
-                    while (counter < nchannels) {
-                        Byte channel = (Byte) cdataitems.get(position);
-                        Integer length = (Integer) cdataitems.get(position + 1);
-                        DetectorDataDgtz bank = new DetectorDataDgtz(crate, slot.intValue(), channel.intValue());
+        try {
 
-                        short[] shortbuffer = new short[length];
-                        for (int loop = 0; loop < length; loop++) {
-                            Short sample = (Short) cdataitems.get(position + 2 + loop);
-                            shortbuffer[loop] = sample;
-                        }
+            CompositeData compData = new CompositeData(compBuffer.array(), compBuffer.order());
 
-                        bank.addPulse(shortbuffer);
-                        bank.setTimeStamp(time);
-                        entries.add(bank);
-                        position += 2 + length;
-                        counter++;
+            List<DataType> cdatatypes = compData.getTypes();
+            List<Object> cdataitems = compData.getItems();
+
+            if (cdatatypes.get(3) != DataType.NVALUE) {
+                System.err.println("[EvioRawDataSource] ** error ** corrupted "
+                        + " bank. tag = 57601 crate = " + crate);
+                return null;
+            }
+
+            int position = 0;
+
+            while (position < cdatatypes.size() - 4) {
+                Byte slot = (Byte) cdataitems.get(position + 0);
+                //Integer trig = (Integer)  cdataitems.get(position+1);
+                Long time = (Long) cdataitems.get(position + 2);
+
+                Integer nchannels = (Integer) cdataitems.get(position + 3);
+                position += 4;
+                int counter = 0;
+                while (counter < nchannels) {
+                    Byte channel = (Byte) cdataitems.get(position);
+                    Integer length = (Integer) cdataitems.get(position + 1);
+                    DetectorDataDgtz bank = new DetectorDataDgtz(crate, slot.intValue(), channel.intValue());
+
+                    short[] shortbuffer = new short[length];
+                    for (int loop = 0; loop < length; loop++) {
+                        Short sample = (Short) cdataitems.get(position + 2 + loop);
+                        shortbuffer[loop] = sample;
                     }
+
+                    bank.addPulse(shortbuffer);
+                    bank.setTimeStamp(time);
+                    entries.add(bank);
+                    position += 2 + length;
+                    counter++;
                 }
-                return entries;
+            }
+            return entries;
 
-            } catch (EvioException ex) {
-                ByteBuffer compBuffer = node.getByteData(true);
-                System.out.println("Exception in CRATE = " + crate + "  RUN = " + this.runNumber
-                        + "  EVENT = " + this.eventNumber + " LENGTH = " + compBuffer.array().length);
-                this.printByteBuffer(compBuffer, 120, 20);
+        } catch (EvioException ex) {
+            System.out.println("Exception in CRATE = " + crate + "  RUN = " + this.runNumber
+                    + "  EVENT = " + this.eventNumber + " LENGTH = " + compBuffer.array().length);
+            this.printByteBuffer(compBuffer, 120, 20);
 //                Logger.getLogger(CodaEventDecoder.class.getName()).log(Level.SEVERE, null, ex);
-            }
         }
         return entries;
     }
 
+    /**
+     * Checks the format string of a composite bank and returns the position
+     * of its data, skipping the format tagsegment and the data bank header.
+     *
+     * @param buffer composite bank payload
+     * @param format expected format string
+     * @return position of the first data byte, or -1 if the format doesn't match
+     */
+    private int getCompositeDataOffset(ByteBuffer buffer, String format) {
+        if (buffer.limit() < 12) return -1;
+        int formatWords = buffer.getInt(0) & 0xFFFF;
+        int dataPosition = 4 + 4 * formatWords + 8;
+        if (dataPosition > buffer.limit() || format.length() > 4 * formatWords) return -1;
+        for (int i = 0; i < format.length(); i++) {
+            if (buffer.get(4 + i) != format.charAt(i)) return -1;
+        }
+        if (format.length() < 4 * formatWords && buffer.get(4 + format.length()) != 0) return -1;
+        return dataPosition;
+    }
+
     public List<DetectorDataDgtz> getDataEntries_57627(Integer crate, EvioNode node, EvioDataEvent event) {
 
         ArrayList<DetectorDataDgtz> entries = new ArrayList<>();
@@ -1,6 +1,7 @@
 package org.jlab.detector.decode;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.jlab.detector.base.DetectorDescriptor;
 import org.jlab.detector.base.DetectorType;
@@ -34,6 +35,19 @@ public class DetectorDataDgtz implements Comparable<DetectorDataDgtz> {
         this.adcStore.add(new ADCData(data));
         return this;
     }
+
+    /**
+     * adds a pulse whose samples are a section of a buffer shared with
+     * other channels
+     * @param data samples buffer
+     * @param offset index of the first sample in the buffer
+     * @param length number of samples
+     * @return 
+     */
+    public DetectorDataDgtz addPulse(short[] data, int offset, int length){
+        this.adcStore.add(new ADCData().setPulse(data, offset, length));
+        return this;
+    }
     
     public DetectorDataDgtz addADC(ADCData adc){
         this.adcStore.add(adc);
@@ -179,6 +193,8 @@ public class DetectorDataDgtz implements Comparable<DetectorDataDgtz> {
 
         
         private List<short[]>   adcPulse = new ArrayList<>();
+        private int             adcPulseOffset = 0;
+        private int             adcPulseLength = 0;
         
         public ADCData(){
             
@@ -189,8 +205,21 @@ public class DetectorDataDgtz implements Comparable<DetectorDataDgtz> {
         }
         
         public final ADCData setPulse(short[] pulse){
+            return this.setPulse(pulse, 0, pulse.length);
+        }
+        /**
+         * sets the pulse to a section of a samples buffer, which is not
+         * copied until {@link #getPulseArray()} is called
+         * @param samples samples buffer
+         * @param offset index of the first sample in the buffer
+         * @param length number of samples
+         * @return 
+         */
+        public final ADCData setPulse(short[] samples, int offset, int length){
             adcPulse.clear();
-            adcPulse.add(pulse);
+            adcPulse.add(samples);
+            adcPulseOffset = offset;
+            adcPulseLength = length;
             return this;
         }
         /**
@@ -199,15 +228,32 @@ public class DetectorDataDgtz implements Comparable<DetectorDataDgtz> {
          */
         public int  getPulseSize(){
             if(adcPulse.isEmpty()==true) return 0;
-            return adcPulse.get(0).length;
+            return adcPulseLength;
         }
         /**
-         * returns array of the ADC pulse
+         * returns array of the ADC pulse, copied from the samples buffer
+         * the first time if the pulse is a section of a shared buffer
          * @return 
          */
         public short[] getPulseArray(){
+            short[] pulse = this.adcPulse.get(0);
+            if(adcPulseOffset!=0 || adcPulseLength!=pulse.length){
+                this.setPulse(Arrays.copyOfRange(pulse, adcPulseOffset, adcPulseOffset+adcPulseLength));
+            }
+            return this.adcPulse.get(0);
+        }
+        /**
+         * returns the buffer holding the pulse samples, starting at
+         * {@link #getPulseOffset()}, without copying them
+         * @return 
+         */
+        public short[] getPulseBuffer(){
             return this.adcPulse.get(0);
         }
+        
+        public int getPulseOffset(){
+            return adcPulseOffset;
+        }
         /**
          * returns adc value from the pulse
          * @param bin pulse bin
@@ -218,12 +264,12 @@ public class DetectorDataDgtz implements Comparable<DetectorDataDgtz> {
                 System.out.println("[ADCData] error --> does not contain a pulse");
                 return (short) 0;
             }
-            if(bin<0||bin>=adcPulse.get(0).length){
+            if(bin<0||bin>=adcPulseLength){
                 System.out.println("[ADCData] error --> index out of bounds "
-                + " index = " + bin + "  pulse size = " + adcPulse.get(0).length);
+                + " index = " + bin + "  pulse size = " + adcPulseLength);
                 return 0;
             }
-            return adcPulse.get(0)[bin];
+            return adcPulse.get(0)[adcPulseOffset+bin];
         }
         /**
          * returns fitted integral of the pulse either set by pulse
@@ -304,12 +350,12 @@ public class DetectorDataDgtz implements Comparable<DetectorDataDgtz> {
         @Override
         public String toString(){
             int nsamples = 0;
-            if(this.adcPulse.isEmpty()==false) nsamples = adcPulse.get(0).length;
+            if(this.adcPulse.isEmpty()==false) nsamples = adcPulseLength;
             StringBuilder str = new StringBuilder();
             if(nsamples>0){
                 str.append("PULSE : ");
                 for(int i = 0; i < nsamples; i++){
-                    str.append(String.format("%5d ", adcPulse.get(0)[i]));
+                    str.append(String.format("%5d ", adcPulse.get(0)[adcPulseOffset+i]));
                 }
             } else {
             str.append(String.format("ADC (%d) (L=%6d) : %5d %5d %5d  time = %5d  %9.4f  max = %5d",
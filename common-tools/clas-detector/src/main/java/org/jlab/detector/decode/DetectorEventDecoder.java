@@ -1,7 +1,10 @@
 package org.jlab.detector.decode;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.jlab.detector.base.DetectorType;
 import org.jlab.detector.calib.utils.ConstantsManager;
 import org.jlab.detector.decode.DetectorDataDgtz.ADCData;
@@ -24,7 +27,12 @@ public class DetectorEventDecoder {
 
     private int runNumber = 10;
 
-    private ExtendedFADCFitter extendedFitter = new ExtendedFADCFitter();
+    private FADCBatchFitter    batchFitter    = new FADCBatchFitter();
+    private final List<ADCData> batchADCs     = new ArrayList<>();
+    private final List<Integer> batchIndex    = new ArrayList<>();
+    private final List<int[]>   batchPars     = new ArrayList<>();
+    private final Map<String,IndexedTable>      fitterTables = new HashMap<>();
+    private final Map<String,Map<Long,int[]>>   fitterCache  = new HashMap<>();
     private MVTFitter mvtFitter = new MVTFitter();
 
     public DetectorEventDecoder(boolean development){
@@ -51,6 +59,15 @@ public class DetectorEventDecoder {
         this.runNumber = run;
     }
 
+    /**
+     * Fit the FADC pulses in parallel for events with at least this many
+     * pulses, a negative value disables it
+     * @param threshold
+     */
+    public void setFitterParallelThreshold(int threshold) {
+        batchFitter.setParallelThreshold(threshold);
+    }
+
     public int getRunNumber() {
         return this.runNumber;
     }
@@ -141,8 +158,44 @@ public class DetectorEventDecoder {
         }
     }
 
+    /**
+     * Returns the FADC fit parameters of one channel, read from the table
+     * once and cached until the table changes, e.g. for a new run
+     * @param table fitter table name
+     * @param crate
+     * @param slot
+     * @param channel
+     * @return {nsa, nsb, tet, pedestal}, or null if the channel is not in the table
+     */
+    private int[] getFitterParameters(String table, int crate, int slot, int channel) {
+        IndexedTable daq = fitterManager.getConstants(runNumber, table);
+        if(fitterTables.get(table)!=daq){
+            fitterTables.put(table, daq);
+            fitterCache.put(table, new HashMap<>());
+        }
+        Map<Long,int[]> cache = fitterCache.get(table);
+        long key = ((long) crate << 32) | ((long) slot << 16) | channel;
+        if(cache.containsKey(key)) return cache.get(key);
+        int[] pars = null;
+        if(daq.hasEntry(crate,slot,channel)==true){
+            int nsa = daq.getIntValue("nsa", crate,slot,channel);
+            int nsb = daq.getIntValue("nsb", crate,slot,channel);
+            int tet = daq.getIntValue("tet", crate,slot,channel);
+            int ped = 0;
+            if(table.equals("RF")) ped = daq.getIntValue("pedestal", crate,slot,channel);
+            pars = new int[]{nsa, nsb, tet, ped};
+        }
+        cache.put(key, pars);
+        return pars;
+    }
+
     public void fitPulses(List<DetectorDataDgtz>  detectorData){
-        
+
+        batchFitter.reset();
+        batchADCs.clear();
+        batchIndex.clear();
+        batchPars.clear();
+
         for(DetectorDataDgtz data : detectorData){
             int crate    = data.getDescriptor().getCrate();
             int slot     = data.getDescriptor().getSlot();
@@ -177,46 +230,41 @@ public class DetectorEventDecoder {
 //                    continue;
 //                }
                 else {
-                    IndexedTable  daq = fitterManager.getConstants(runNumber, table);
-                    DetectorType  type = DetectorType.getType(table);
-                    if(daq.hasEntry(crate,slot,channel)==true){
-                        int nsa = daq.getIntValue("nsa", crate,slot,channel);
-                        int nsb = daq.getIntValue("nsb", crate,slot,channel);
-                        int tet = daq.getIntValue("tet", crate,slot,channel);
-                        int ped = 0;
-                        
-                        //System.out.println("nsa = " + nsa + "    nsb = " + nsb + "     tet = " + tet  );
-                        
-                        if(table.equals("RF")&&data.getDescriptor().getType().getName().equals("RF")) ped = daq.getIntValue("pedestal", crate,slot,channel);
-                        if(data.getADCSize()>0){
-                            for(int i = 0; i < data.getADCSize(); i++){
-                                ADCData adc = data.getADCData(i);
-                                if(adc.getPulseSize()>0){
-                                    try {
-                                        extendedFitter.fit(nsa, nsb, tet, ped, adc.getPulseArray());
-                                    } catch (Exception e) {
-                                        System.out.println(">>>> error : fitting pulse "
-                                                            +  crate + " / " + slot + " / " + channel);
-                                    }
-                                    int adc_corrected = extendedFitter.adc + extendedFitter.ped*(nsa+nsb);
-                                    //System.out.println("ADC Corrected = " + adc_corrected);
-                                    adc.setHeight((short) this.extendedFitter.pulsePeakValue);
-                                    adc.setIntegral(adc_corrected);
-                                    adc.setTimeWord(this.extendedFitter.t0);
-                                    adc.setPedestal((short) this.extendedFitter.ped);
-                                }
-                            }
-                        }
-                        if(data.getADCSize()>0){
-                            for(int i = 0; i < data.getADCSize(); i++){
-                                    data.getADCData(i).setADC(nsa, nsb);
+                    int[] pars = this.getFitterParameters(table, crate, slot, channel);
+                    if(pars!=null){
+                        // the fixed pedestal is only used for the RF channels:
+                        int ped = data.getDescriptor().getType().getName().equals("RF") ? pars[3] : 0;
+                        for(int i = 0; i < data.getADCSize(); i++){
+                            ADCData adc = data.getADCData(i);
+                            int index = -1;
+                            if(adc.getPulseSize()>0){
+                                index = batchFitter.add(adc.getPulseBuffer(), adc.getPulseOffset(), adc.getPulseSize(), pars[0], pars[1], pars[2], ped);
                             }
+                            batchADCs.add(adc);
+                            batchIndex.add(index);
+                            batchPars.add(pars);
                         }
                     }
                 }
             }
             
         }
+
+        // fit all FADC pulses of the event at once, then copy the results
+        // back in the same order as they were collected:
+        batchFitter.fit();
+        for(int j = 0; j < batchADCs.size(); j++){
+            ADCData adc = batchADCs.get(j);
+            int index = batchIndex.get(j);
+            int[] pars = batchPars.get(j);
+            if(index>=0){
+                adc.setHeight((short) batchFitter.getPeakValue(index));
+                adc.setIntegral(batchFitter.getIntegral(index));
+                adc.setTimeWord(batchFitter.getTimeWord(index));
+                adc.setPedestal((short) batchFitter.getPedestal(index));
+            }
+            adc.setADC(pars[0], pars[1]);
+        }
         
     }
 }
\ No newline at end of file
@@ -0,0 +1,236 @@
+package org.jlab.detector.decode;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Fits all FADC pulses of an event in one pass.
+ *
+ * Pulses are copied into one flat sample array, with their offsets, lengths
+ * and fit parameters in parallel primitive arrays, and the results are
+ * written to primitive output arrays indexed the same way. The fit is the
+ * same as {@link ExtendedFADCFitter#fit(int, int, int, int, short[])}. The
+ * buffers are reused from one event to the next: call {@link #reset()}
+ * before adding the pulses of a new event.
+ */
+public class FADCBatchFitter {
+
+    private static final int P1 = 1;
+    private static final int P2 = 15;
+    private static final int PEDESTAL_MAX_BIN = 5;
+
+    private int     nPulses  = 0;
+    private int     nSamples = 0;
+    private int     parallelThreshold = -1;
+
+    private short[] samples = new short[4096];
+    private int[]   offset  = new int[64];
+    private int[]   length  = new int[64];
+    private int[]   nsa     = new int[64];
+    private int[]   nsb     = new int[64];
+    private int[]   tet     = new int[64];
+    private int[]   pedr    = new int[64];
+
+    private int[]   ped     = new int[64];
+    private int[]   adc     = new int[64];
+    private int[]   t0      = new int[64];
+    private int[]   peak    = new int[64];
+
+    public FADCBatchFitter() {
+
+    }
+
+    /**
+     * Pulses are fitted in parallel when there are at least this many in the
+     * event, a negative value (the default) disables parallel fitting.
+     * @param threshold
+     */
+    public void setParallelThreshold(int threshold) {
+        this.parallelThreshold = threshold;
+    }
+
+    public void reset() {
+        nPulses  = 0;
+        nSamples = 0;
+    }
+
+    public int getSize() {
+        return nPulses;
+    }
+
+    /**
+     * Adds a pulse to be fitted
+     * @param pulse ADC samples
+     * @param nsa number of samples after threshold crossing
+     * @param nsb number of samples before threshold crossing
+     * @param tet threshold above pedestal
+     * @param pedr fixed pedestal, or 0 to compute it from the pulse
+     * @return index of the pulse
+     */
+    public int add(short[] pulse, int nsa, int nsb, int tet, int pedr) {
+        return this.add(pulse, 0, pulse.length, nsa, nsb, tet, pedr);
+    }
+
+    /**
+     * Adds a pulse to be fitted, from a section of a samples buffer
+     * @param buffer ADC samples buffer
+     * @param from index of the first sample of the pulse in the buffer
+     * @param size number of samples of the pulse
+     * @param nsa number of samples after threshold crossing
+     * @param nsb number of samples before threshold crossing
+     * @param tet threshold above pedestal
+     * @param pedr fixed pedestal, or 0 to compute it from the pulse
+     * @return index of the pulse
+     */
+    public int add(short[] buffer, int from, int size, int nsa, int nsb, int tet, int pedr) {
+        if (nPulses == offset.length) this.grow(2 * nPulses);
+        if (nSamples + size > samples.length) {
+            samples = Arrays.copyOf(samples, Math.max(2 * samples.length, nSamples + size));
+        }
+        System.arraycopy(buffer, from, samples, nSamples, size);
+        offset[nPulses] = nSamples;
+        length[nPulses] = size;
+        this.nsa[nPulses]  = nsa;
+        this.nsb[nPulses]  = nsb;
+        this.tet[nPulses]  = tet;
+        this.pedr[nPulses] = pedr;
+        nSamples += size;
+        return nPulses++;
+    }
+
+    private void grow(int size) {
+        offset = Arrays.copyOf(offset, size);
+        length = Arrays.copyOf(length, size);
+        nsa    = Arrays.copyOf(nsa, size);
+        nsb    = Arrays.copyOf(nsb, size);
+        tet    = Arrays.copyOf(tet, size);
+        pedr   = Arrays.copyOf(pedr, size);
+        ped    = Arrays.copyOf(ped, size);
+        adc    = Arrays.copyOf(adc, size);
+        t0     = Arrays.copyOf(t0, size);
+        peak   = Arrays.copyOf(peak, size);
+    }
+
+    /**
+     * Fits all pulses added since the last reset
+     */
+    public void fit() {
+        if (parallelThreshold >= 0 && nPulses >= parallelThreshold) {
+            IntStream.range(0, nPulses).parallel().forEach(this::fit);
+        }
+        else {
+            for (int i = 0; i < nPulses; i++) this.fit(i);
+        }
+    }
+
+    private void fit(int i) {
+        final int start = offset[i];
+        final int size  = length[i];
+        final int nsa   = this.nsa[i];
+        final int nsb   = this.nsb[i];
+        final int tet   = this.tet[i];
+        final int pedr  = this.pedr[i];
+        int    pedestal = 0;
+        int    pedsum   = 0;
+        int    integral = 0;
+        int    time     = 0;
+        int    pmax     = 0;
+        int    ppos     = 0;
+        int    tcross   = 0;
+        int    tstart   = PEDESTAL_MAX_BIN+1;
+        double baseline = 0;
+        try {
+            if (pedr!=0) pedestal = pedr;
+            if (size<P2+1 && pedr==0) {
+                for (int bin = 0; bin < size; bin++) pedsum += samples[start+bin];
+                pedestal = pedsum/size;
+                return;
+            }
+            if (pedr==0) {
+                tstart = P2+1;
+                for (int bin = P1+1; bin < P2+1; bin++) pedsum += samples[start+bin];
+                baseline = ((double) pedsum) / (P2 - P1);
+                pedestal = pedsum/(P2-P1);
+            }
+            // find threshold crossing
+            for (int bin=tstart; bin<size; bin++) {
+                if (samples[start+bin]>pedestal+tet) {
+                    tcross = bin;
+                    break;
+                }
+            }
+            if (tcross>0) {
+                // integral and maximum, with the same +1 as ExtendedFADCFitter
+                final int last = Math.min(size, tcross+nsa+1);
+                for (int bin=Math.max(0,tcross-nsb); bin<last; bin++) {
+                    final int value = samples[start+bin];
+                    integral += value-pedestal;
+                    if (bin>=tcross && value>pmax) {
+                        pmax = value;
+                        ppos = bin;
+                    }
+                }
+                // mode 7 pulse time, from the 50% crossing
+                final double halfMax = (pmax+baseline)/2;
+                final int end = Math.min(size-1, ppos+1);
+                for (int bin=tcross-1; bin<end; bin++) {
+                    final int a0 = samples[start+bin];
+                    final int a1 = samples[start+bin+1];
+                    if (a0<=halfMax && a1>halfMax) {
+                        time = (bin << 6) + ((int) ((halfMax - a0)/(a1-a0) * 64));
+                        break;
+                    }
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            System.out.println(">>>> error : fitting pulse " + i);
+        }
+        finally {
+            ped[i]  = pedestal;
+            adc[i]  = integral;
+            t0[i]   = time;
+            peak[i] = pmax;
+        }
+    }
+
+    /**
+     * @param i pulse index
+     * @return pedestal
+     */
+    public int getPedestal(int i) {
+        return ped[i];
+    }
+
+    /**
+     * @param i pulse index
+     * @return pedestal-subtracted integral
+     */
+    public int getADC(int i) {
+        return adc[i];
+    }
+
+    /**
+     * @param i pulse index
+     * @return integral including the pedestal, over nsa+nsb samples
+     */
+    public int getIntegral(int i) {
+        return adc[i] + ped[i]*(nsa[i]+nsb[i]);
+    }
+
+    /**
+     * @param i pulse index
+     * @return time word, with 6 bits of fine time
+     */
+    public int getTimeWord(int i) {
+        return t0[i];
+    }
+
+    /**
+     * @param i pulse index
+     * @return maximum sample after threshold crossing
+     */
+    public int getPeakValue(int i) {
+        return peak[i];
+    }
+}
@@ -3,6 +3,7 @@ package org.jlab.detector.decode;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import org.jlab.detector.base.DetectorDescriptor;
 
@@ -14,24 +15,50 @@ public class FADCData {
 
     private final DetectorDescriptor desc = new DetectorDescriptor();
     private short[] adcBuffer  = null;
+    private int     adcOffset  = 0;
+    private int     adcLength  = 0;
 
     public FADCData(int crate, int slot, int channel){
         desc.setCrateSlotChannel(crate, slot, channel);
     }
 
     public void setBuffer(short[] buffer){
+        this.setBuffer(buffer, 0, buffer==null ? 0 : buffer.length);
+    }
+
+    /**
+     * Sets the packed samples as a view on a section of a buffer shared
+     * with the other channels of the same bank, without copying them.
+     * @param buffer buffer holding the samples
+     * @param offset index of the first sample of this channel
+     * @param length number of samples of this channel
+     */
+    public void setBuffer(short[] buffer, int offset, int length){
         adcBuffer = buffer;
+        adcOffset = offset;
+        adcLength = length;
+    }
+
+    /**
+     * Returns a sample of this channel, checking that it is within its own
+     * section of the buffer.
+     * @param index index of the sample in this channel
+     * @return the packed sample
+     */
+    private short getSample(int index){
+        if(index<0 || index>=adcLength) throw new ArrayIndexOutOfBoundsException(index);
+        return adcBuffer[adcOffset+index];
     }
 
     public int getSize(){
         if (adcBuffer==null) return 0;
-        return adcBuffer.length;
+        return adcLength;
     }
 
     public String getPulseString(){
         StringBuilder str = new StringBuilder();
-        for(int i = 0; i < adcBuffer.length; i++){
-            str.append(String.format("%6d", adcBuffer[i]));
+        for(int i = 0; i < adcLength; i++){
+            str.append(String.format("%6d", adcBuffer[adcOffset+i]));
             if((i+1)%16==0) str.append("\n");
         }
         return str.toString();
@@ -40,11 +67,7 @@ public class FADCData {
     public DetectorDescriptor getDescriptor(){ return desc;}
 
     public DetectorDataDgtz getDetectorData(){
-       List<Short>  decodedList = getDecoded();
-       short[]  pulse = new short[decodedList.size()];
-       for(int i = 0; i < pulse.length; i++){
-           pulse[i] = decodedList.get(i);
-       }
+       short[]  pulse = getDecodedArray();
 
        DetectorDataDgtz dgtz = new DetectorDataDgtz();
        dgtz.getDescriptor().setCrateSlotChannel(
@@ -64,8 +87,22 @@ public class FADCData {
     }
 
     public List<Short> getDecoded(){
+        short[] decoded = getDecodedArray();
+        List<Short> result = new ArrayList<>(decoded.length);
+        for(int k = 0; k < decoded.length; k++){
+            result.add(decoded[k]);
+        }
+        return result;
+    }
 
-        List<Short> result = new ArrayList<>();
+    /**
+     * Unpacks the compressed samples.
+     * @return unpacked samples, 16 for each compressed word
+     */
+    public short[] getDecodedArray(){
+
+        short[]  result = new short[16*(adcLength/6)];
+        int      nresult = 0;
 
         short[]  bucket = new short[16];
 
@@ -75,20 +112,13 @@ public class FADCData {
         int headerWord;
         int pedestal;
         int compressedWord;
-        byte[] array = new byte[4];
 
-        ByteBuffer buffer = ByteBuffer.wrap(array);
-        buffer.order(ByteOrder.LITTLE_ENDIAN);
-
-        while(position<this.adcBuffer.length){
+        while(position<adcLength){
 
-            short dataH = adcBuffer[position];
-            short dataL = adcBuffer[position+1];
-
-            buffer.putShort(0, dataH);
-            buffer.putShort(2, dataL);
+            short dataH = getSample(position);
+            short dataL = getSample(position+1);
 
-            headerWord = buffer.getInt(0);
+            headerWord = (dataH&0xFFFF) | ((dataL&0xFFFF)<<16);
             nwords   = (headerWord&0x07);
             nskip    = (dataH>>4) &0x0F;
             pedestal = (headerWord>>8)&0x0FFF;
@@ -99,13 +129,13 @@ public class FADCData {
 
                 short value;
                 for(int i = 0; i < 4; i++){
-                    value = (short) (adcBuffer[position+i]&0x000F);                    
+                    value = (short) (getSample(position+i)&0x000F);                    
                     bucket[i*4] = (short) (value+pedestal);                                        
-                    value = (short) ((adcBuffer[position+i] >> 4)&0x000F);                    
+                    value = (short) ((getSample(position+i) >> 4)&0x000F);                    
                     bucket[i*4+1] = (short) (value+pedestal);                    
-                    value = (short) ((adcBuffer[position+i] >> 8)&0x000F);
+                    value = (short) ((getSample(position+i) >> 8)&0x000F);
                     bucket[i*4+2] = (short) (value+pedestal);
-                    value = (short) ((adcBuffer[position+i] >> 12)&0x000F);
+                    value = (short) ((getSample(position+i) >> 12)&0x000F);
                     bucket[i*4+3] = (short) (value+pedestal);
                 }
 
@@ -114,20 +144,22 @@ public class FADCData {
                 if(nwords>0){
 
                     for(int i = 0; i < nwords*2; i++){
-                        short  first = (short)  ( (adcBuffer[i+position]&0x00FF) << 4);
-                        short second = (short) ( ((adcBuffer[i+position] >>8)&0x00FF)<<4);
+                        short  first = (short)  ( (getSample(i+position)&0x00FF) << 4);
+                        short second = (short) ( ((getSample(i+position) >>8)&0x00FF)<<4);
                         if( (nskip+i*2)<=15  ) bucket[nskip+i*2]   +=  first;
                         if( (nskip+i*2+1)<=15) bucket[nskip+i*2+1] +=  second;
                     }                    
                     position += nwords*2;
                 }
 
-                for(int k = 0 ; k < bucket.length; k++){
-                    result.add(bucket[k]);
+                if(nresult+bucket.length>result.length){
+                    result = Arrays.copyOf(result, Math.max(2*result.length, nresult+bucket.length));
                 }
+                System.arraycopy(bucket, 0, result, nresult, bucket.length);
+                nresult += bucket.length;
             }
         }
-        return result;
+        return nresult==result.length ? result : Arrays.copyOf(result, nresult);
     }
 
     public void decode(){
@@ -148,9 +180,9 @@ public class FADCData {
 
         System.out.println(desc.toString());
         System.out.println("------------------------------------------------------");
-        for(int i = 0 ; i < adcBuffer.length/2; i++){
-            System.out.print(String.format("%04X ", adcBuffer[i*2+1]));
-            System.out.print(String.format("%04X ", adcBuffer[i*2]));
+        for(int i = 0 ; i < adcLength/2; i++){
+            System.out.print(String.format("%04X ", adcBuffer[adcOffset+i*2+1]));
+            System.out.print(String.format("%04X ", adcBuffer[adcOffset+i*2]));
             if((i+1)%8==0) System.out.println();
         }
         System.out.println();
@@ -158,10 +190,10 @@ public class FADCData {
         ByteBuffer buffer = ByteBuffer.wrap(array);
         buffer.order(ByteOrder.LITTLE_ENDIAN);
 
-        while(position<this.adcBuffer.length){
+        while(position<adcLength){
 
-            short dataH = adcBuffer[position];
-            short dataL = adcBuffer[position+1];
+            short dataH = getSample(position);
+            short dataL = getSample(position+1);
 
             buffer.putShort(0, dataH);
             buffer.putShort(2, dataL);
@@ -181,21 +213,21 @@ public class FADCData {
                 short value;
                 result.clear();
                 for(int i = 0; i < 4; i++){
-                    value = (short) (adcBuffer[position+i]&0x000F);
+                    value = (short) (getSample(position+i)&0x000F);
 
                     bucket[i*4] = (short) (value+pedestal);                    
                     result.add( (short) (value+pedestal));
 
-                    value = (short) ((adcBuffer[position+i] >> 4)&0x000F);
+                    value = (short) ((getSample(position+i) >> 4)&0x000F);
 
                     bucket[i*4+1] = (short) (value+pedestal);
                     result.add( (short) (value+pedestal));
 
-                    value = (short) ((adcBuffer[position+i] >> 8)&0x000F);
+                    value = (short) ((getSample(position+i) >> 8)&0x000F);
                     bucket[i*4+2] = (short) (value+pedestal);
                     result.add( (short) (value+pedestal));
 
-                    value = (short) ((adcBuffer[position+i] >> 12)&0x000F);
+                    value = (short) ((getSample(position+i) >> 12)&0x000F);
                     bucket[i*4+3] = (short) (value+pedestal);
                     result.add( (short) (value+pedestal));
                 }
@@ -205,8 +237,8 @@ public class FADCData {
                 if(nwords>0){
 
                     for(int i = 0; i < nwords*2; i++){
-                        short  first = (short)  ( (adcBuffer[i+position]&0x00FF) << 4);
-                        short second = (short) ( ((adcBuffer[i+position] >>8)&0x00FF)<<4);
+                        short  first = (short)  ( (getSample(i+position)&0x00FF) << 4);
+                        short second = (short) ( ((getSample(i+position) >>8)&0x00FF)<<4);
                         if( (nskip+i*2)<=15)
                             bucket[nskip+i*2]   +=  first;
                         if( (nskip+i*2+1)<=15)
@@ -229,7 +261,7 @@ public class FADCData {
 
     public void show(){
         int length = 0;
-        if(adcBuffer!=null) length = adcBuffer.length;
+        if(adcBuffer!=null) length = adcLength;
         System.out.println( desc.toString() + " ADC LENGTH = " + length);
     }
 }
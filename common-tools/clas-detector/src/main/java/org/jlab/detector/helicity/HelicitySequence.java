@@ -9,6 +9,7 @@ import java.util.Map;
 import java.util.TreeSet;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 import org.jlab.detector.calib.utils.ConstantsManager;
 
 import org.jlab.jnp.hipo4.data.Bank;
@@ -88,12 +89,11 @@ public class HelicitySequence {
         
         LOGGER.log(Level.FINE, "HelicitySequence:  adding state:  {0}", state);
 
-        // ignore states from other run numbers:
-        for (HelicityState hs : this.states) {
-            if (hs.getRun() != state.getRun()) {
-                LOGGER.log(Level.WARNING, "HelicitySequence:  run number mismatch (OLD/NEW = {0},{1}), ignoring state", new Object[]{hs.getRun(), state.getRun()});
-                return false;
-            }
+        // ignore states from other run numbers (all existing states share
+        // the same run number, so comparing with the first one is enough):
+        if (!this.states.isEmpty() && this.states.get(0).getRun() != state.getRun()) {
+            LOGGER.log(Level.WARNING, "HelicitySequence:  run number mismatch (OLD/NEW = {0},{1}), ignoring state", new Object[]{this.states.get(0).getRun(), state.getRun()});
+            return false;
         }
 
         // mark that we'll need to redo the analysis:
@@ -468,24 +468,46 @@ public class HelicitySequence {
     }
 
     public void initialize(HipoReader reader) {
+        for (HelicityState state : readFlips(reader)) {
+            this.addState(state);
+        }
+    }
+
+    /**
+     * Initialize from the HEL::flip banks in tag=1 events, scanning the files
+     * in parallel and merging their states in timestamp order.
+     * @param filenames list of names of HIPO files to read
+     */
+    public void initialize(List<String> filenames) {
+        List<List<HelicityState>> flips = filenames.parallelStream()
+                .map(filename -> {
+                    HipoReader reader = new HipoReader();
+                    reader.setTags(1);
+                    reader.open(filename);
+                    List<HelicityState> list = readFlips(reader);
+                    reader.close();
+                    return list;
+                })
+                .collect(Collectors.toList());
+        for (List<HelicityState> list : flips) {
+            for (HelicityState state : list) {
+                this.addState(state);
+            }
+        }
+    }
+
+    private static List<HelicityState> readFlips(HipoReader reader) {
+        List<HelicityState> flips = new ArrayList<>();
         SchemaFactory schema = reader.getSchemaFactory();
+        Event event=new Event();
+        Bank flipBank=new Bank(schema.getSchema("HEL::flip"));
         while (reader.hasNext()) {
-            Event event=new Event();
-            Bank flipBank=new Bank(schema.getSchema("HEL::flip"));
             reader.nextEvent(event);
             event.read(flipBank);
             if (flipBank.getRows()<1) continue;
-            this.addState(HelicityState.createFromFlipBank(flipBank));
-        }
-    }
-
-    public void initialize(List<String> filenames) {
-        for (String filename : filenames) {
-            HipoReader reader = new HipoReader();
-            reader.setTags(1);
-            reader.open(filename);
-            initialize(reader);
+            flips.add(HelicityState.createFromFlipBank(flipBank));
         }
+        return flips;
     }
 
     public void initialize(String... filenames) {
@@ -526,23 +548,39 @@ public class HelicitySequence {
         this.integrityCheck();
     }
 
+    /**
+     * Detect and add state changes from the HEL::adc banks of all events in
+     * the files, scanning the files in parallel and merging their streams in
+     * timestamp order.
+     * @param schema
+     * @param conman
+     * @param filenames list of names of HIPO files to read
+     */
     public void addStream(SchemaFactory schema, ConstantsManager conman, List<String> filenames) {
+        TreeSet<HelicityState> stream = new TreeSet<>();
+        List<TreeSet<HelicityState>> streams = filenames.parallelStream()
+                .map(filename -> readStream(schema, conman, filename))
+                .collect(Collectors.toList());
+        for (TreeSet<HelicityState> s : streams) stream.addAll(s);
+        this.addStream(stream);
+    }
+
+    private static TreeSet<HelicityState> readStream(SchemaFactory schema, ConstantsManager conman, String filename) {
         Bank runConfigBank = new Bank(schema.getSchema("RUN::config"));
         Bank helAdcBank = new Bank(schema.getSchema("HEL::adc"));
         TreeSet<HelicityState> stream = new TreeSet<>();
         Event e = new Event();
-        for (String filename : filenames) {
-            HipoReader r = new HipoReader();
-            r.open(filename);
-            while (r.hasNext()) {
-                r.nextEvent(e);
-                e.read(helAdcBank);
-                e.read(runConfigBank);
-                stream.add(HelicityState.createFromFadcBank(
-                        helAdcBank, runConfigBank,conman));
-            }
+        HipoReader r = new HipoReader();
+        r.open(filename);
+        while (r.hasNext()) {
+            r.nextEvent(e);
+            e.read(helAdcBank);
+            e.read(runConfigBank);
+            stream.add(HelicityState.createFromFadcBank(
+                    helAdcBank, runConfigBank,conman));
         }
-        this.addStream(stream);
+        r.close();
+        return stream;
     }
 
     /**
@@ -5,8 +5,10 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.stream.Collectors;
 
 import org.jlab.jnp.hipo4.io.HipoReader;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
 import org.jlab.jnp.hipo4.data.Event;
 import org.jlab.jnp.hipo4.data.Bank;
 import org.jlab.jnp.hipo4.data.SchemaFactory;
@@ -183,6 +185,8 @@ public class DaqScalersSequence implements Comparator<DaqScalers> {
      * a {@link DaqScalersSequence} that can be used to access the most recent scaler
      * readout for any given event.
      * 
+     * Files are scanned in parallel and their readouts merged in timestamp order.
+     * 
      * @param filenames list of names of HIPO files to read
      * @return  sequence
      */
@@ -190,45 +194,90 @@ public class DaqScalersSequence implements Comparator<DaqScalers> {
        
         DaqScalersSequence seq=new DaqScalersSequence();
 
-        for (String filename : filenames) {
+        List<List<DaqScalers>> readouts = filenames.parallelStream()
+                .map(DaqScalersSequence::readScalers)
+                .collect(Collectors.toList());
 
+        for (List<DaqScalers> list : readouts) {
+            for (DaqScalers ds : list) seq.add(ds);
+        }
+
+        if (!filenames.isEmpty()) {
             HipoReader reader = new HipoReader();
             reader.setTags(1);
-            reader.open(filename);
-
-            if (seq.rcfgBank==null) {
-                seq.rcfgBank = new Bank(reader.getSchemaFactory().getSchema("RUN::config"));
-            }
-        
-            SchemaFactory schema = reader.getSchemaFactory();
-        
-            while (reader.hasNext()) {
-            
-                Event event=new Event();
-                Bank scalerBank=new Bank(schema.getSchema("RUN::scaler"));
-                Bank configBank=new Bank(schema.getSchema("RUN::config"));
-            
-                reader.nextEvent(event);
-                event.read(scalerBank);
-                event.read(configBank);
-         
-                long timestamp=0;
-                
-                if (scalerBank.getRows()<1) continue;
-                if (configBank.getRows()>0) {
-                    timestamp=configBank.getLong("timestamp",0);
-                }
-        
-                DaqScalers ds=DaqScalers.create(scalerBank);
-                ds.setTimestamp(timestamp);
-                seq.add(ds);
-            }
-
+            reader.open(filenames.get(0));
+            seq.rcfgBank = new Bank(reader.getSchemaFactory().getSchema("RUN::config"));
             reader.close();
         }
         
         return seq;
     }
+
+    /**
+     * Reads all scaler readouts from the tag=1 events of one file
+     * @param filename name of the HIPO file to read
+     * @return list of readouts
+     */
+    private static List<DaqScalers> readScalers(String filename) {
+
+        List<DaqScalers> readouts = new ArrayList<>();
+
+        HipoReader reader = new HipoReader();
+        reader.setTags(1);
+        reader.open(filename);
+
+        SchemaFactory schema = reader.getSchemaFactory();
+        Event event=new Event();
+        Bank scalerBank=new Bank(schema.getSchema("RUN::scaler"));
+        Bank configBank=new Bank(schema.getSchema("RUN::config"));
+
+        while (reader.hasNext()) {
+
+            reader.nextEvent(event);
+            event.read(scalerBank);
+            event.read(configBank);
+
+            long timestamp=0;
+
+            if (scalerBank.getRows()<1) continue;
+            if (configBank.getRows()>0) {
+                timestamp=configBank.getLong("timestamp",0);
+            }
+
+            DaqScalers ds=DaqScalers.create(scalerBank);
+            ds.setTimestamp(timestamp);
+            readouts.add(ds);
+        }
+
+        reader.close();
+
+        return readouts;
+    }
+
+    /**
+     * Write all readouts from this sequence into new RUN::scaler and RUN::config
+     * banks in new, tagged events, readable by {@link #readSequence}
+     * @param writer
+     * @param tag
+     * @param run run number to store in RUN::config
+     */
+    public void writeScalers(HipoWriterSorted writer, int tag, int run) {
+        SchemaFactory schema = writer.getSchemaFactory();
+        Event event = new Event();
+        for (DaqScalers ds : this.scalers) {
+            Bank scalerBank = new Bank(schema.getSchema("RUN::scaler"),1);
+            scalerBank.putFloat("fcup",0,(float)ds.dsc2.getBeamCharge());
+            scalerBank.putFloat("fcupgated",0,(float)ds.dsc2.getBeamChargeGated());
+            scalerBank.putFloat("livetime",0,(float)ds.dsc2.getLivetime());
+            Bank configBank = new Bank(schema.getSchema("RUN::config"),1);
+            configBank.putInt("run",0,run);
+            configBank.putLong("timestamp",0,ds.getTimestamp());
+            event.reset();
+            event.write(scalerBank);
+            event.write(configBank);
+            writer.addEvent(event, tag);
+        }
+    }
     
     public static void main(String[] args) {
         
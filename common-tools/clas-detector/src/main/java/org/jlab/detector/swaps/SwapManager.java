@@ -6,10 +6,12 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.jlab.detector.calib.utils.ConstantsManager;
 import org.jlab.io.base.DataBank;
 import org.jlab.io.base.DataEvent;
 import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.jlab.utils.CLASResources;
 import org.jlab.utils.groups.IndexedTable;
 
 /**
@@ -46,7 +48,7 @@ public class SwapManager {
         "RTPC"
     };
 
-    private volatile HashMap<Integer,HashMap<String,SwapTable>> swaps = new HashMap<>();
+    private final Map<Integer,HashMap<String,SwapTable>> swaps = new ConcurrentHashMap<>();
 
     private final Map<String,String> banksToTables = new HashMap<>();
     private final Map<String,List<String>> detsToBanks = new HashMap<>();
@@ -128,18 +130,25 @@ public class SwapManager {
      * @return array of new table indices (sector/layer/component/order)
      */
     public int[] get(int run, String tableName, int... slco) {
+        final SwapTable table = this.getSwapTable(run, tableName);
+        return table == null ? slco : table.get(slco);
+    }
+
+    /**
+     * @param run run number
+     * @param tableName CCDB translation table name, e.g. "/daq/tt/ecal"
+     * @return the swaps of the table, or null if none
+     */
+    private SwapTable getSwapTable(int run, String tableName) {
         if (this.currConman == null || this.prevConman == null) {
-            return slco;
+            return null;
         }
-        if (!this.swaps.containsKey(run)) {
+        HashMap<String,SwapTable> tables = this.swaps.get(run);
+        if (tables == null) {
             this.add(run);
+            tables = this.swaps.get(run);
         }
-        if (this.swaps.get(run).containsKey(tableName)) {
-            return this.swaps.get(run).get(tableName).get(slco);
-        }
-        else {
-            return slco;
-        }
+        return tables.get(tableName);
     }
 
     /**
@@ -170,6 +179,34 @@ public class SwapManager {
         return this.get(run,banksToTables.get(bank.getDescriptor().getName()),sector,layer,comp,order);
     }
 
+    /**
+     * Replace the sector/layer/component/order of all swapped rows of an
+     * ADC/TDC bank, keeping the decade of the order.
+     * @param run run number
+     * @param bank ADC/TDC bank
+     */
+    public void update(int run, DataBank bank) {
+        final SwapTable table = this.getSwapTable(run, banksToTables.get(bank.getDescriptor().getName()));
+        if (table == null || table.isEmpty()) {
+            return;
+        }
+        final byte[] sector = bank.getByte("sector");
+        final byte[] layer = bank.getByte("layer");
+        final short[] comp = bank.getShort("component");
+        final byte[] order = bank.getByte("order");
+        for (int row=0; row<sector.length; row++) {
+            // see get(run,bank,row) for the modulus:
+            final int entry = table.find(sector[row], layer[row], comp[row], order[row] % 10);
+            if (entry < 0) {
+                continue;
+            }
+            bank.setByte("sector", row, (byte) table.get(entry,0));
+            bank.setByte("layer", row, (byte) table.get(entry,1));
+            bank.setShort("component", row, (short) table.get(entry,2));
+            bank.setByte("order", row, (byte) (10*(order[row]/10) + table.get(entry,3)));
+        }
+    }
+
     /**
      * @param event the HIPO event
      * @param bankName name of ADC/TDC bank
@@ -239,7 +276,7 @@ public class SwapManager {
        
         // set their bank/table names:
         SchemaFactory schema = new SchemaFactory();
-        schema.initFromDirectory(System.getenv("CLAS12DIR")+"/etc/bankdefs/hipo4");
+        schema.initFromDirectory(CLASResources.getResourcePath("etc/bankdefs/hipo4"));
         for (String detName : thisDets) {
             // some detectors broke the bank/table naming convention:
             String tableName = detName.equals("BST") ? "/daq/tt/svt" : "/daq/tt/"+detName.toLowerCase();
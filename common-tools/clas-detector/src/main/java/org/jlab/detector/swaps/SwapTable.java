@@ -1,14 +1,19 @@
 package org.jlab.detector.swaps;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import org.jlab.utils.groups.IndexedTable;
 
 /**
  *
  * Interpret the sector/layer/component/order mapping between two CCDB "/daq/tt"
  * translation tables, based on their shared crate/slot/channel/order, and store
- * it in a new IndexedTable for access.
+ * the swapped channels in a lookup array indexed by the old sector/layer/
+ * component/order.
  *
  * @author baltzell
  */
@@ -22,7 +27,23 @@ public class SwapTable {
         put(VAR_NAMES[3],3);
     }};
 
-    private IndexedTable table = null;
+    // maximum number of entries of a dense lookup array:
+    private static final int MAX_DENSE_SIZE = 1<<20;
+
+    // old and new sector/layer/component/order of the swapped channels,
+    // four per entry:
+    private int[] previous = new int[0];
+    private int[] current = new int[0];
+
+    // bounding box of the old sector/layer/component/order of the entries:
+    private final int[] low = new int[VAR_NAMES.length];
+    private final int[] span = new int[VAR_NAMES.length];
+
+    // packed old sector/layer/component/order to entry, dense if the
+    // bounding box is small enough, else sorted keys:
+    private int[] dense = null;
+    private long[] keys = null;
+    private int[] keyEntries = null;
 
     /**
      * @param varName name of new variable to retrieve (sector/layer/component/order)
@@ -30,12 +51,9 @@ public class SwapTable {
      * @return new value of the requested variable
      */
     public int get(String varName,int... slco) {
-        if (this.table.hasEntry(slco)) {
-            return this.table.getIntValue(varName,slco);
-        }
-        else {
-            return slco[getVariableIndex(varName)];
-        }
+        final int ivar = getVariableIndex(varName);
+        final int entry = this.find(slco[0],slco[1],slco[2],slco[3]);
+        return entry < 0 ? slco[ivar] : this.get(entry,ivar);
     }
 
     /**
@@ -44,12 +62,99 @@ public class SwapTable {
      */
     public int[] get(int... slco) {
         int[] ret = new int[4];
+        final int entry = this.find(slco[0],slco[1],slco[2],slco[3]);
         for (int ivar=0; ivar<VAR_NAMES.length; ivar++) {
-            ret[ivar] = this.get(VAR_NAMES[ivar],slco);
+            ret[ivar] = entry < 0 ? slco[ivar] : this.get(entry,ivar);
         }
         return ret;
     }
 
+    /**
+     * @param entry swapped channel, from {@link #find}
+     * @param ivar index of the variable in sector/layer/component/order
+     * @return new value of the variable
+     */
+    public int get(int entry, int ivar) {
+        return this.current[VAR_NAMES.length*entry+ivar];
+    }
+
+    /**
+     * @return whether no channel is swapped
+     */
+    public boolean isEmpty() {
+        return this.current.length == 0;
+    }
+
+    /**
+     * @param sector old sector
+     * @param layer old layer
+     * @param component old component
+     * @param order old order
+     * @return index of the swapped channel, or -1 if the channel is not swapped
+     */
+    public int find(int sector, int layer, int component, int order) {
+        final long key = this.pack(sector,layer,component,order);
+        if (key < 0) return -1;
+        if (this.dense != null) return this.dense[(int)key];
+        final int i = Arrays.binarySearch(this.keys,key);
+        return i < 0 ? -1 : this.keyEntries[i];
+    }
+
+    /**
+     * @return position of the channel in the bounding box of the entries,
+     * or -1 if outside
+     */
+    private long pack(int sector, int layer, int component, int order) {
+        final int s = sector - this.low[0];
+        final int l = layer - this.low[1];
+        final int c = component - this.low[2];
+        final int o = order - this.low[3];
+        if (s<0 || s>=this.span[0] || l<0 || l>=this.span[1]) return -1;
+        if (c<0 || c>=this.span[2] || o<0 || o>=this.span[3]) return -1;
+        return (((long)s*this.span[1] + l)*this.span[2] + c)*this.span[3] + o;
+    }
+
+    /**
+     * Build the lookup of the entries.
+     */
+    private void compile() {
+        final int n = this.previous.length/VAR_NAMES.length;
+        if (n == 0) return;
+        long size = 1;
+        for (int ivar=0; ivar<VAR_NAMES.length; ivar++) {
+            int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+            for (int entry=0; entry<n; entry++) {
+                min = Math.min(min, this.previous[VAR_NAMES.length*entry+ivar]);
+                max = Math.max(max, this.previous[VAR_NAMES.length*entry+ivar]);
+            }
+            this.low[ivar] = min;
+            this.span[ivar] = max - min + 1;
+            size *= this.span[ivar];
+        }
+        // the last entry of a channel wins, as for the IndexedTable:
+        Map<Long,Integer> entries = new TreeMap<>();
+        for (int entry=0; entry<n; entry++) {
+            final int k = VAR_NAMES.length*entry;
+            entries.put(this.pack(this.previous[k],this.previous[k+1],this.previous[k+2],this.previous[k+3]),entry);
+        }
+        if (size <= MAX_DENSE_SIZE) {
+            this.dense = new int[(int)size];
+            Arrays.fill(this.dense,-1);
+            for (Map.Entry<Long,Integer> e : entries.entrySet()) {
+                this.dense[e.getKey().intValue()] = e.getValue();
+            }
+        }
+        else {
+            this.keys = new long[entries.size()];
+            this.keyEntries = new int[entries.size()];
+            int i = 0;
+            for (Map.Entry<Long,Integer> e : entries.entrySet()) {
+                this.keys[i] = e.getKey();
+                this.keyEntries[i++] = e.getValue();
+            }
+        }
+    }
+
     /**
      * @param varName name of variable's index in s/l/c/o to retrieve
      * @return index
@@ -68,7 +173,8 @@ public class SwapTable {
             VAR_INDEX_MAP.put(VAR_NAMES[ivar],ivar);
         }
         
-        this.table = new IndexedTable(VAR_NAMES.length,String.join(":",VAR_NAMES));
+        List<Integer> prevs = new ArrayList<>();
+        List<Integer> currs = new ArrayList<>();
 
         for (int row=0; row<fromTrans.getRowCount(); row++) {
 
@@ -89,34 +195,26 @@ public class SwapTable {
                 }
             }
             
-            // fill the new table if different:
+            // keep the entry if different:
             if (diff) {
-                String[] cvals = new String[VAR_NAMES.length*2];
-                for (int ii=0; ii<VAR_NAMES.length; ii++) {
-                    cvals[ii] = String.format("%d",previous[ii]);
-                }
                 for (int ii=0; ii<VAR_NAMES.length; ii++) {
-                    cvals[ii+VAR_NAMES.length] = String.format("%d",current[ii]);
+                    prevs.add(previous[ii]);
+                    currs.add(current[ii]);
                 }
-                this.table.addEntryFromString(cvals);
             }
         }
+
+        this.previous = prevs.stream().mapToInt(Integer::intValue).toArray();
+        this.current = currs.stream().mapToInt(Integer::intValue).toArray();
+        this.compile();
     }
 
     public String toString() {
         String ret = "";
-        int[] prev = new int[VAR_NAMES.length];
-        int[] curr = new int[VAR_NAMES.length];
-        for (int row=0; row<this.table.getRowCount(); row++) {
-            for (int ivar=0; ivar<VAR_NAMES.length; ivar++) {
-                prev[ivar] = Integer.valueOf((String)this.table.getValueAt(row,ivar));
-            }
-            for (int ivar=0; ivar<VAR_NAMES.length; ivar++) {
-                curr[ivar] = this.table.getIntValue(VAR_NAMES[ivar],prev);
-            }
+        for (int k=0; k<this.previous.length; k+=VAR_NAMES.length) {
             ret += String.format("%d/%d/%d/%d --> %d/%d/%d/%d\n",
-                    prev[0],prev[1],prev[2],prev[3],
-                    curr[0],curr[1],curr[2],curr[3]);
+                    previous[k],previous[k+1],previous[k+2],previous[k+3],
+                    current[k],current[k+1],current[k+2],current[k+3]);
         }
         return ret;
     }
@@ -0,0 +1,83 @@
+package org.jlab.detector.base;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class GeometrySnapshotTest {
+
+    private static final String ADDRESS = "sqlite:///ccdb.sqlite";
+
+    private final List<String> tables = Arrays.asList("/geometry/a", "/geometry/b");
+    private static final long CREATED = 1700000000000L;
+    private static final long MAXAGE  = 24*3600*1000L;
+    private final Map<String,String[]> constants = new HashMap<>();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File write() throws IOException {
+        constants.put("/geometry/a/x", new String[]{"1.5", "2.5"});
+        constants.put("/geometry/b/n", new String[]{"3"});
+        File file = new File(folder.getRoot(), "snapshot.geo");
+        assertTrue(GeometrySnapshot.save(file, DetectorType.DC, 11, "default", ADDRESS, null, tables, constants, CREATED));
+        return file;
+    }
+
+    private GeometrySnapshot load(File file, String address, String timestamp, List<String> tables) {
+        return GeometrySnapshot.load(file, DetectorType.DC, 11, "default", address, timestamp, tables, MAXAGE, CREATED+1000);
+    }
+
+    @Test
+    public void testLoad() throws IOException {
+        File file = this.write();
+        GeometrySnapshot snapshot = this.load(file, ADDRESS, null, tables);
+        assertNotNull(snapshot);
+        assertEquals(2, snapshot.length("/geometry/a/x"));
+        assertEquals(2.5, snapshot.getDouble("/geometry/a/x", 1), 0);
+        assertEquals(3, snapshot.getInteger("/geometry/b/n", 0));
+    }
+
+    @Test
+    public void testChangedInputs() throws IOException {
+        File file = this.write();
+        assertNull(GeometrySnapshot.load(file, DetectorType.DC, 12, "default", ADDRESS, null, tables, MAXAGE, CREATED));
+        assertNull(GeometrySnapshot.load(file, DetectorType.DC, 11, "rga_fall2018", ADDRESS, null, tables, MAXAGE, CREATED));
+        assertNull(this.load(file, "mysql://clas12reader@clasdb.jlab.org/clas12", null, tables));
+        assertNull(this.load(file, ADDRESS, "01/01/2024", tables));
+        assertNull(this.load(file, ADDRESS, null, Arrays.asList("/geometry/a")));
+    }
+
+    @Test
+    public void testExpired() throws IOException {
+        File file = this.write();
+        assertNotNull(GeometrySnapshot.load(file, DetectorType.DC, 11, "default", ADDRESS, null, tables, MAXAGE, CREATED+MAXAGE));
+        assertNull(GeometrySnapshot.load(file, DetectorType.DC, 11, "default", ADDRESS, null, tables, MAXAGE, CREATED+MAXAGE+1));
+        assertNotNull(GeometrySnapshot.load(file, DetectorType.DC, 11, "default", ADDRESS, null, tables, -1, CREATED+100*MAXAGE));
+
+        // constants read at a fixed time stamp don't change
+        File fixed = new File(folder.getRoot(), "fixed.geo");
+        assertTrue(GeometrySnapshot.save(fixed, DetectorType.DC, 11, "default", ADDRESS, "01/01/2024", tables, constants, CREATED));
+        assertNotNull(GeometrySnapshot.load(fixed, DetectorType.DC, 11, "default", ADDRESS, "01/01/2024", tables, MAXAGE, CREATED+100*MAXAGE));
+    }
+
+    @Test
+    public void testCorrupted() throws IOException {
+        File file = this.write();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length()/2);
+            int b = raf.read();
+            raf.seek(raf.length()/2);
+            raf.write(b ^ 0xFF);
+        }
+        assertNull(this.load(file, ADDRESS, null, tables));
+    }
+}
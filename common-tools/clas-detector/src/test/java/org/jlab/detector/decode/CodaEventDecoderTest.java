@@ -0,0 +1,99 @@
+package org.jlab.detector.decode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.Random;
+import org.jlab.coda.jevio.CompositeData;
+import org.jlab.coda.jevio.EvioException;
+import org.jlab.detector.decode.DetectorDataDgtz.ADCData;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CodaEventDecoderTest {
+
+    private static final String MODE1_FORMAT = "c,i,l,N(c,Ns)";
+
+    /**
+     * Mode 1 composite bank payload, as written by jevio, with random slots,
+     * channels and pulses, including empty ones and odd numbers of samples
+     * for padded data.
+     */
+    private static byte[] mode1(Random random, ByteOrder order) throws EvioException {
+        CompositeData.Data data = new CompositeData.Data();
+        int nslots = 1 + random.nextInt(4);
+        for (int s = 0; s < nslots; s++) {
+            data.addChar((byte) (3 + random.nextInt(18)));
+            data.addInt(random.nextInt());
+            data.addLong(random.nextLong() & 0xFFFFFFFFFFFFL);
+            int nchannels = random.nextInt(16);
+            data.addN(nchannels);
+            for (int c = 0; c < nchannels; c++) {
+                data.addChar((byte) random.nextInt(16));
+                short[] samples = new short[random.nextInt(10) == 0 ? 0 : 1 + random.nextInt(100)];
+                for (int i = 0; i < samples.length; i++) samples[i] = (short) random.nextInt(0x10000);
+                data.addN(samples.length);
+                if (samples.length > 0) data.addShort(samples);
+            }
+        }
+        return new CompositeData(MODE1_FORMAT, 1, data, 2, 3, order).getRawBytes();
+    }
+
+    private static String dump(List<DetectorDataDgtz> entries) {
+        StringBuilder str = new StringBuilder();
+        for (DetectorDataDgtz entry : entries) {
+            str.append(String.format("%d/%d/%d %d :", entry.getDescriptor().getCrate(),
+                    entry.getDescriptor().getSlot(), entry.getDescriptor().getChannel(), entry.getTimeStamp()));
+            assertEquals(1, entry.getADCSize());
+            ADCData adc = entry.getADCData(0);
+            for (int i = 0; i < adc.getPulseSize(); i++) {
+                str.append(' ').append(adc.getPulseValue(i));
+            }
+            str.append('\n');
+        }
+        return str.toString();
+    }
+
+    @Test
+    public void testMode1() throws EvioException {
+        Random random = new Random(13);
+        CodaEventDecoder decoder = new CodaEventDecoder();
+        int nentries = 0;
+        for (int k = 0; k < 400; k++) {
+            ByteOrder order = k%2 == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+            byte[] raw = mode1(random, order);
+
+            List<DetectorDataDgtz> expected = decoder.getDataEntries_57601_composite(7, ByteBuffer.wrap(raw).order(order));
+            List<DetectorDataDgtz> entries = decoder.getDataEntries_57601(7, ByteBuffer.wrap(raw).order(order));
+            assertEquals(dump(expected), dump(entries));
+
+            // the pulses of a bank share one samples array, and are copied
+            // out of it when asked for as arrays:
+            for (DetectorDataDgtz entry : entries) {
+                assertSame(entries.get(0).getADCData(0).getPulseBuffer(), entry.getADCData(0).getPulseBuffer());
+            }
+            for (int i = 0; i < entries.size(); i++) {
+                ADCData adc = entries.get(i).getADCData(0);
+                assertArrayEquals(expected.get(i).getADCData(0).getPulseArray(), adc.getPulseArray());
+                assertEquals(adc.getPulseSize(), adc.getPulseArray().length);
+            }
+            nentries += entries.size();
+        }
+        assertTrue(nentries > 2000);
+    }
+
+    @Test
+    public void testCorruptedMode1() throws EvioException {
+        Random random = new Random(17);
+        CodaEventDecoder decoder = new CodaEventDecoder();
+        byte[] raw = mode1(random, ByteOrder.BIG_ENDIAN);
+        // number of samples of the first channel, if any, past the bank end:
+        ByteBuffer buffer = ByteBuffer.wrap(raw);
+        int position = 4 + 4*(buffer.getInt(0) & 0xFFFF) + 8;
+        if (buffer.getInt(position + 13) == 0) {
+            buffer.putInt(position + 13, 1);
+        }
+        buffer.putInt(position + 17 + 1, raw.length);
+        assertTrue(decoder.getDataEntries_57601(7, buffer).isEmpty());
+    }
+}
@@ -0,0 +1,121 @@
+package org.jlab.detector.decode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FADCBatchFitterTest {
+
+    private static final int TSTART = 6;
+
+    private int ncrossings = 0;
+    private int nnocrossings = 0;
+    private int nfirstcrossings = 0;
+    private int npastend = 0;
+    private int nfixedpedestals = 0;
+
+    /**
+     * Random pulse: noise only, or a pulse anywhere in the window, including
+     * from the first sample and close to the end, on a noisy baseline. Some
+     * are shorter than the pedestal window.
+     */
+    private static short[] pulse(Random random) {
+        int size = random.nextInt(10) == 0 ? 1 + random.nextInt(20) : 50 + random.nextInt(150);
+        short[] pulse = new short[size];
+        int baseline = 100 + random.nextInt(300);
+        int kind = random.nextInt(4);
+        int start = kind == 1 ? 0 : random.nextInt(size);
+        double amplitude = 50 + 3000*random.nextDouble();
+        double width = 1 + 5*random.nextDouble();
+        for (int i = 0; i < size; i++) {
+            double value = baseline + 3*random.nextGaussian();
+            if (kind > 0 && i >= start) {
+                double x = (i - start)/width;
+                value += amplitude*x*Math.exp(1 - x);
+            }
+            pulse[i] = (short) Math.min(4095, Math.round(value));
+        }
+        return pulse;
+    }
+
+    private String expected(int nsa, int nsb, int tet, int pedr, short[] pulse) {
+        ExtendedFADCFitter fitter = new ExtendedFADCFitter();
+        fitter.fit(nsa, nsb, tet, pedr, pulse);
+        int tstart = pedr == 0 ? 16 : TSTART;
+        int tcross = 0;
+        if (pulse.length >= 16 || pedr != 0) {
+            for (int bin = tstart; bin < pulse.length; bin++) {
+                if (pulse[bin] > fitter.ped + tet) {
+                    tcross = bin;
+                    break;
+                }
+            }
+        }
+        if (tcross > 0) ncrossings++;
+        else nnocrossings++;
+        if (tcross > 0 && tcross == tstart) nfirstcrossings++;
+        if (tcross > 0 && tcross + nsa + 1 > pulse.length) npastend++;
+        if (pedr != 0) nfixedpedestals++;
+        return String.format("%d %d %d %d", fitter.ped, fitter.adc + fitter.ped*(nsa+nsb),
+                fitter.pulsePeakValue, fitter.t0);
+    }
+
+    private static String result(FADCBatchFitter fitter, int index) {
+        return String.format("%d %d %d %d", fitter.getPedestal(index), fitter.getIntegral(index),
+                fitter.getPeakValue(index), fitter.getTimeWord(index));
+    }
+
+    @Test
+    public void testFit() {
+        Random random = new Random(19);
+        FADCBatchFitter fitter = new FADCBatchFitter();
+        FADCBatchFitter parallel = new FADCBatchFitter();
+        parallel.setParallelThreshold(0);
+        int npulses = 0;
+        for (int k = 0; k < 500; k++) {
+            fitter.reset();
+            parallel.reset();
+            List<String> expected = new ArrayList<>();
+            // pulses given alone, or as sections of a buffer shared by the
+            // channels of a bank:
+            short[] shared = new short[20000];
+            int nshared = 0;
+            int n = random.nextInt(100);
+            for (int i = 0; i < n; i++) {
+                short[] pulse = pulse(random);
+                int nsa = random.nextInt(40);
+                int nsb = random.nextInt(20);
+                int tet = 1 + random.nextInt(100);
+                // fixed pedestal, as for the RF:
+                int pedr = random.nextInt(5) == 0 ? 100 + random.nextInt(300) : 0;
+                expected.add(this.expected(nsa, nsb, tet, pedr, pulse));
+                if (random.nextBoolean() && nshared + pulse.length <= shared.length) {
+                    System.arraycopy(pulse, 0, shared, nshared, pulse.length);
+                    assertEquals(i, fitter.add(shared, nshared, pulse.length, nsa, nsb, tet, pedr));
+                    nshared += pulse.length;
+                }
+                else {
+                    assertEquals(i, fitter.add(pulse, nsa, nsb, tet, pedr));
+                }
+                parallel.add(pulse, nsa, nsb, tet, pedr);
+            }
+            fitter.fit();
+            parallel.fit();
+            assertEquals(n, fitter.getSize());
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected.get(i), result(fitter, i));
+                assertEquals(expected.get(i), result(parallel, i));
+            }
+            npulses += n;
+        }
+        assertTrue(npulses > 20000);
+        // all the cases are tested:
+        assertTrue(ncrossings > 1000);
+        assertTrue(nnocrossings > 1000);
+        assertTrue(nfirstcrossings > 100);
+        assertTrue(npastend > 100);
+        assertTrue(nfixedpedestals > 1000);
+    }
+}
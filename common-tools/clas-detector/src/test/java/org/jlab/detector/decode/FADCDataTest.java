@@ -0,0 +1,59 @@
+package org.jlab.detector.decode;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FADCDataTest {
+
+    /**
+     * Packs random compressed words: a header with the pedestal, the 4 words
+     * of 4-bit samples and nwords pairs of 8-bit corrections.
+     */
+    private static short[] pack(Random random, int nblocks) {
+        short[] data = new short[nblocks*20];
+        int n = 0;
+        for(int b = 0; b < nblocks; b++) {
+            int nwords = random.nextInt(8);
+            int header = (5<<27) | (random.nextInt(0x1000)<<8) | (random.nextInt(16)<<4) | nwords;
+            data[n++] = (short) header;
+            data[n++] = (short) (header>>16);
+            for(int i = 0; i < 4+2*nwords; i++) data[n++] = (short) random.nextInt(0x10000);
+        }
+        return Arrays.copyOf(data, n);
+    }
+
+    @Test
+    public void testSharedBuffer() {
+        Random random = new Random(7);
+        for(int k = 0; k < 100; k++) {
+            short[] data = pack(random, 1+random.nextInt(10));
+            FADCData alone = new FADCData(1, 2, 3);
+            alone.setBuffer(data);
+
+            // the same samples in the middle of a buffer shared with other channels:
+            short[] shared = new short[data.length + 40];
+            for(int i = 0; i < shared.length; i++) shared[i] = (short) random.nextInt(0x10000);
+            System.arraycopy(data, 0, shared, 20, data.length);
+            FADCData view = new FADCData(1, 2, 3);
+            view.setBuffer(shared, 20, data.length);
+
+            assertEquals(data.length, view.getSize());
+            assertArrayEquals(alone.getDecodedArray(), view.getDecodedArray());
+            assertEquals(alone.getDecoded(), view.getDecoded());
+        }
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void testTruncatedSection() {
+        Random random = new Random(11);
+        short[] data = pack(random, 3);
+        short[] shared = Arrays.copyOf(data, data.length + 40);
+        FADCData view = new FADCData(1, 2, 3);
+        // the last compressed word is cut, and must not be read from the
+        // samples of the next channel:
+        view.setBuffer(shared, 0, data.length - 1);
+        view.getDecodedArray();
+    }
+}
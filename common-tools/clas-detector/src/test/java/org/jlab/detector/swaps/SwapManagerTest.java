@@ -0,0 +1,107 @@
+package org.jlab.detector.swaps;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.jlab.detector.calib.utils.ConstantsManager;
+import org.jlab.io.base.DataBank;
+import org.jlab.io.hipo.HipoDataEvent;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.jlab.utils.groups.IndexedTable;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SwapManagerTest {
+
+    private static final int NRUNS = 5;
+
+    private static SchemaFactory schema;
+
+    @BeforeClass
+    public static void loadSchema() {
+        System.setProperty("CLAS12DIR", "../../");
+        schema = new SchemaFactory();
+        schema.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+    }
+
+    /**
+     * Translation tables given for each run, instead of read from CCDB.
+     */
+    private static ConstantsManager constants(Map<Integer, IndexedTable> tables) {
+        return new ConstantsManager() {
+            @Override
+            public IndexedTable getConstants(int run, String table) {
+                return tables.get(run);
+            }
+        };
+    }
+
+    /**
+     * ADC bank with channels of the translation table, and others, with
+     * orders in all the decades.
+     */
+    private static DataBank bank(Random random, IndexedTable trans) {
+        DataBank bank = new HipoDataEvent(new Event(), schema).createBank("ECAL::adc", random.nextInt(200));
+        for (int row = 0; row < bank.rows(); row++) {
+            int[] slco = new int[]{1 + random.nextInt(8), 1 + random.nextInt(4), 1 + random.nextInt(60), random.nextInt(3)};
+            if (random.nextBoolean()) {
+                int entry = random.nextInt(trans.getRowCount());
+                for (int ivar = 0; ivar < 4; ivar++) {
+                    slco[ivar] = Integer.valueOf((String) trans.getValueAt(entry, ivar+3));
+                }
+            }
+            bank.setByte("sector", row, (byte) slco[0]);
+            bank.setByte("layer", row, (byte) slco[1]);
+            bank.setShort("component", row, (short) slco[2]);
+            bank.setByte("order", row, (byte) (10*random.nextInt(7) + slco[3]));
+            bank.setInt("ADC", row, random.nextInt(10000));
+        }
+        return bank;
+    }
+
+    private static String dump(DataBank bank, int row) {
+        return String.format("%d/%d/%d/%d %d", bank.getByte("sector", row), bank.getByte("layer", row),
+                bank.getShort("component", row), bank.getByte("order", row), bank.getInt("ADC", row));
+    }
+
+    @Test
+    public void testUpdate() {
+        Random random = new Random(23);
+        Map<Integer, IndexedTable> previous = new HashMap<>();
+        Map<Integer, IndexedTable> current = new HashMap<>();
+        for (int run = 1; run <= NRUNS; run++) {
+            IndexedTable[] trans = SwapTableTest.translations(random, 500, 50);
+            previous.put(run, trans[0]);
+            // no swaps for the last run:
+            current.put(run, run == NRUNS ? trans[0] : trans[1]);
+        }
+        SwapManager manager = new SwapManager(Arrays.asList("ECAL"), constants(previous), constants(current));
+        int nswapped = 0;
+        int ndecades = 0;
+        for (int k = 0; k < 200; k++) {
+            int run = 1 + random.nextInt(NRUNS);
+            DataBank bank = bank(random, previous.get(run));
+            String[] expected = new String[bank.rows()];
+            for (int row = 0; row < bank.rows(); row++) {
+                int[] slco = manager.get(run, bank, row);
+                // the decade of the order is kept:
+                int order = 10*(bank.getByte("order", row)/10) + slco[3];
+                expected[row] = String.format("%d/%d/%d/%d %d", slco[0], slco[1], slco[2], order, bank.getInt("ADC", row));
+                if (!expected[row].equals(dump(bank, row))) {
+                    nswapped++;
+                    if (order >= 10) ndecades++;
+                }
+            }
+            manager.update(run, bank);
+            for (int row = 0; row < bank.rows(); row++) {
+                assertEquals(expected[row], dump(bank, row));
+            }
+        }
+        assertTrue(nswapped > 1000);
+        assertTrue(ndecades > 500);
+    }
+}
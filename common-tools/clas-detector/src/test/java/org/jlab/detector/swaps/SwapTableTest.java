@@ -0,0 +1,133 @@
+package org.jlab.detector.swaps;
+
+import java.util.Random;
+import org.jlab.utils.groups.IndexedTable;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SwapTableTest {
+
+    private static final String FORMAT = "sector/I:layer/I:component/I:order/I:type/I";
+
+    /**
+     * Random translation tables, where a fraction of the channels are moved
+     * to a new sector/layer/component/order.
+     * @param ncomponents range of the component, a large one exceeds the
+     * dense lookup arrays
+     */
+    static IndexedTable[] translations(Random random, int nchannels, int ncomponents) {
+        IndexedTable previous = new IndexedTable(3, FORMAT);
+        IndexedTable current = new IndexedTable(3, FORMAT);
+        for (int i = 0; i < nchannels; i++) {
+            String crate = Integer.toString(1 + i/256);
+            String slot = Integer.toString(3 + (i/16)%16);
+            String channel = Integer.toString(i%16);
+            // a small range, for different channels to share the same sector/layer/component/order:
+            String[] slco = new String[]{
+                Integer.toString(1 + random.nextInt(6)),
+                Integer.toString(1 + random.nextInt(3)),
+                Integer.toString(1 + random.nextInt(ncomponents)),
+                Integer.toString(random.nextInt(2))};
+            previous.addEntryFromString(new String[]{crate, slot, channel, slco[0], slco[1], slco[2], slco[3], "1"});
+            if (random.nextInt(4) == 0) {
+                int ivar = random.nextInt(4);
+                slco[ivar] = Integer.toString(Integer.parseInt(slco[ivar]) + 1 + random.nextInt(3));
+            }
+            current.addEntryFromString(new String[]{crate, slot, channel, slco[0], slco[1], slco[2], slco[3], "1"});
+        }
+        return new IndexedTable[]{previous, current};
+    }
+
+    /**
+     * The IndexedTable of the swapped channels used before.
+     */
+    private static IndexedTable reference(IndexedTable fromTrans, IndexedTable toTrans) {
+        IndexedTable table = new IndexedTable(4, String.join(":", SwapTable.VAR_NAMES));
+        for (int row = 0; row < fromTrans.getRowCount(); row++) {
+            final int crate = Integer.valueOf((String) fromTrans.getValueAt(row, 0));
+            final int slot = Integer.valueOf((String) fromTrans.getValueAt(row, 1));
+            final int channel = Integer.valueOf((String) fromTrans.getValueAt(row, 2));
+            boolean diff = false;
+            String[] cvals = new String[8];
+            for (int ivar = 0; ivar < 4; ivar++) {
+                int previous = fromTrans.getIntValue(SwapTable.VAR_NAMES[ivar], crate, slot, channel);
+                int current = toTrans.getIntValue(SwapTable.VAR_NAMES[ivar], crate, slot, channel);
+                cvals[ivar] = Integer.toString(previous);
+                cvals[ivar+4] = Integer.toString(current);
+                if (previous != current) diff = true;
+            }
+            if (diff) table.addEntryFromString(cvals);
+        }
+        return table;
+    }
+
+    /**
+     * @return whether the channel is swapped
+     */
+    private static boolean check(IndexedTable expected, SwapTable swaps, int[] slco) {
+        int[] ret = swaps.get(slco);
+        int entry = swaps.find(slco[0], slco[1], slco[2], slco[3]);
+        assertEquals(expected.hasEntry(slco), entry >= 0);
+        for (int ivar = 0; ivar < 4; ivar++) {
+            String var = SwapTable.VAR_NAMES[ivar];
+            int value = expected.hasEntry(slco) ? expected.getIntValue(var, slco) : slco[ivar];
+            assertEquals(value, ret[ivar]);
+            assertEquals(value, swaps.get(var, slco));
+            if (entry >= 0) assertEquals(value, swaps.get(entry, ivar));
+        }
+        return entry >= 0;
+    }
+
+    private static void compare(Random random, int nchannels, int ncomponents) {
+        IndexedTable[] trans = translations(random, nchannels, ncomponents);
+        IndexedTable expected = reference(trans[0], trans[1]);
+        SwapTable swaps = new SwapTable(trans[0], trans[1]);
+        assertEquals(expected.getRowCount() == 0, swaps.isEmpty());
+        int nswapped = 0;
+        // all the channels of the table, and a scan around them:
+        for (int row = 0; row < trans[0].getRowCount(); row++) {
+            int[] slco = new int[4];
+            for (int ivar = 0; ivar < 4; ivar++) {
+                slco[ivar] = Integer.valueOf((String) trans[0].getValueAt(row, ivar+3));
+            }
+            if (check(expected, swaps, slco)) nswapped++;
+        }
+        for (int sector = 0; sector <= 10; sector++) {
+            for (int layer = 0; layer <= 6; layer++) {
+                for (int component = 0; component <= ncomponents+4; component += 1+random.nextInt(ncomponents/10)) {
+                    for (int order = 0; order <= 4; order++) {
+                        check(expected, swaps, new int[]{sector, layer, component, order});
+                    }
+                }
+            }
+        }
+        assertTrue(nswapped > 0);
+    }
+
+    @Test
+    public void testDenseLookup() {
+        Random random = new Random(13);
+        for (int k = 0; k < 20; k++) {
+            compare(random, 500, 50);
+        }
+    }
+
+    @Test
+    public void testSortedLookup() {
+        Random random = new Random(17);
+        for (int k = 0; k < 5; k++) {
+            // the bounding box of the swapped channels is above 1M entries:
+            compare(random, 3000, 60000);
+        }
+    }
+
+    @Test
+    public void testNoSwaps() {
+        Random random = new Random(19);
+        IndexedTable[] trans = translations(random, 100, 50);
+        SwapTable swaps = new SwapTable(trans[0], trans[0]);
+        assertTrue(swaps.isEmpty());
+        assertEquals(-1, swaps.find(1, 1, 1, 0));
+        assertArrayEquals(new int[]{1, 2, 3, 0}, swaps.get(1, 2, 3, 0));
+    }
+}
@@ -0,0 +1,151 @@
+package org.jlab.io.hipo;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
+
+/**
+ * Asynchronous front-end for a HipoWriterSorted.
+ *
+ * Events are copied into a bounded queue on the calling thread and handed
+ * to the writer on a background thread, so filling and compressing the
+ * records doesn't stall the processing thread. Events are written in the
+ * order they were added, with their tags. When the queue is full, addEvent
+ * blocks until the writer catches up. With a queue size of 0, events are
+ * written directly on the calling thread. If writing fails on the background
+ * thread, the failure is rethrown by the next call to addEvent or close.
+ */
+public class HipoAsyncWriter implements AutoCloseable {
+
+    public static final Logger LOGGER = Logger.getLogger(HipoAsyncWriter.class.getName());
+
+    public static final int DEFAULT_QUEUE_SIZE = 1000;
+
+    private static class Entry {
+        final Event event;
+        final int   tag;
+        Entry(Event event, int tag) {
+            this.event = event;
+            this.tag   = tag;
+        }
+    }
+
+    private static final Entry END = new Entry(null, -1);
+
+    private final HipoWriterSorted     writer;
+    private final BlockingQueue<Entry> queue;
+    private Thread                     thread = null;
+    private volatile Throwable         error  = null;
+
+    public HipoAsyncWriter(HipoWriterSorted writer) {
+        this(writer, DEFAULT_QUEUE_SIZE);
+    }
+
+    /**
+     * @param writer the writer records are compressed and written with
+     * @param queueSize maximum number of events waiting to be written,
+     * 0 to write synchronously
+     */
+    public HipoAsyncWriter(HipoWriterSorted writer, int queueSize) {
+        this.writer = writer;
+        this.queue  = queueSize > 0 ? new ArrayBlockingQueue<>(queueSize) : null;
+    }
+
+    public HipoWriterSorted getWriter() {
+        return writer;
+    }
+
+    /**
+     * Opens the output file and starts the writing thread.
+     * @param file output file name
+     */
+    public void open(String file) {
+        writer.open(file);
+        if(queue==null) return;
+        thread = new Thread(this::run, "HipoAsyncWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues a copy of the event for writing, blocking if the queue is full.
+     * @param event the event, which can be reused by the caller on return
+     * @param tag event tag
+     */
+    public void addEvent(Event event, int tag) {
+        if(queue==null) {
+            writer.addEvent(event, tag);
+            return;
+        }
+        this.checkError();
+        int size = event.getEventBufferSize();
+        Event copy = new Event(size);
+        copy.initFrom(Arrays.copyOf(event.getEventBuffer().array(), size));
+        this.put(new Entry(copy, tag));
+    }
+
+    /**
+     * Writes all queued events, stops the writing thread and closes the file.
+     */
+    @Override
+    public void close() {
+        try {
+            if(thread!=null) {
+                this.put(END);
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            thread = null;
+            writer.close();
+        }
+        this.checkError();
+    }
+
+    private void put(Entry entry) {
+        try {
+            this.checkThread();
+            while(!queue.offer(entry, 1, TimeUnit.SECONDS)) {
+                // keep waiting, unless the writing thread died:
+                this.checkThread();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("interrupted while queueing event for writing", ex);
+        }
+    }
+
+    private void checkError() {
+        if(error instanceof RuntimeException) throw (RuntimeException) error;
+        if(error!=null) throw new RuntimeException("error writing events", error);
+    }
+
+    private void checkThread() {
+        this.checkError();
+        if(!thread.isAlive()) throw new IllegalStateException("the writing thread stopped");
+    }
+
+    private void run() {
+        try {
+            while(true) {
+                Entry entry = queue.take();
+                if(entry==END) break;
+                writer.addEvent(entry.event, entry.tag);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            error = ex;
+            queue.clear();
+        } catch (Throwable ex) {
+            LOGGER.log(Level.SEVERE, "[HipoAsyncWriter] ---> error writing event", ex);
+            error = ex;
+            queue.clear();
+        }
+    }
+}
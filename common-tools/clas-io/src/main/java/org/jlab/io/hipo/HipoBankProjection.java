@@ -0,0 +1,381 @@
+package org.jlab.io.hipo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.jnp.hipo4.data.Bank;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.Schema;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+
+/**
+ * Rewrites banks of an event with a subset of their columns and rows,
+ * before the event is written.
+ *
+ * A bank is projected when the kept schema with its name has fewer (or
+ * reordered) columns than the schema it is read with, and the output file
+ * has to be written with the kept schemas, see {@link #updateSchemas}.
+ *
+ * With a particle filter, only the rows of the particle bank with one of
+ * the given PIDs are kept, as well as the rows of the other banks of its
+ * namespace that reference them through their pindex column, which is
+ * renumbered accordingly. Banks referencing the rows of such a bank (e.g.
+ * REC::VertDoca with REC::Track) keep the rows whose referenced rows are
+ * all kept, with the references renumbered, and banks whose rows are
+ * aligned with a filtered bank (e.g. REC::ScintExtras with
+ * REC::Scintillator) are filtered with it. Each namespace is filtered on
+ * its own particle bank, and references to the banks of another namespace,
+ * e.g. the hbindex of REC::Track, are not renumbered. Instances are not
+ * thread safe.
+ */
+public class HipoBankProjection {
+
+    public static final Logger LOGGER = Logger.getLogger(HipoBankProjection.class.getName());
+
+    public static final String PINDEX = "pindex";
+
+    /**
+     * Particle banks of the namespaces written by the event builder.
+     */
+    public static final String[] PARTICLE_BANKS = {
+        "REC::Particle", "RECHB::Particle", "RECAI::Particle", "RECHBAI::Particle"
+    };
+
+    /**
+     * Banks with rows aligned with another bank of the same namespace.
+     */
+    private static final Map<String,String> ALIGNED = new HashMap<>();
+    static {
+        ALIGNED.put("ScintExtras", "Scintillator");
+        ALIGNED.put("CaloExtras", "Calorimeter");
+    }
+
+    /**
+     * Banks with columns holding row numbers of another bank of the same
+     * namespace: the referenced bank, followed by the columns.
+     */
+    private static final Map<String,String[]> REFERENCES = new HashMap<>();
+    static {
+        REFERENCES.put("VertDoca", new String[]{"Track", "index1", "index2"});
+    }
+
+    private static class Projection {
+        final Schema source;
+        final Schema target;
+        final int[]  columns;
+        final Bank   input;
+        final Bank   output;
+        Projection(Schema source, Schema target, int[] columns) {
+            this.source  = source;
+            this.target  = target;
+            this.columns = columns;
+            this.input   = new Bank(source);
+            this.output  = new Bank(target);
+        }
+    }
+
+    /**
+     * Filter of the banks of one namespace on the PIDs of its particles.
+     */
+    private class ParticleFilter {
+        final String bankName;
+        final Bank   particles;
+        final Set<Integer> pids;
+        final Map<String,Projection> filtered   = new LinkedHashMap<>();
+        final Map<String,String>     parents    = new HashMap<>();
+        final Map<String,String[]>   references = new HashMap<>();
+
+        ParticleFilter(SchemaFactory source, String bankName, Set<Integer> pids) {
+            this.bankName  = bankName;
+            this.pids      = pids;
+            this.particles = new Bank(source.getSchema(bankName));
+            final String space = bankName.substring(0, bankName.indexOf("::"));
+            for (Schema schema : source.getSchemaList()) {
+                final String name = schema.getName();
+                if (!name.startsWith(space + "::") || name.equals(bankName)) continue;
+                String base = name.substring(space.length()+2);
+                if (schema.hasEntry(PINDEX)) {
+                    parents.put(name, bankName);
+                }
+                else if (REFERENCES.containsKey(base) && source.hasSchema(space + "::" + REFERENCES.get(base)[0])) {
+                    String[] columns = REFERENCES.get(base);
+                    parents.put(name, space + "::" + columns[0]);
+                    references.put(name, Arrays.copyOfRange(columns, 1, columns.length));
+                }
+                else if (ALIGNED.containsKey(base) && source.hasSchema(space + "::" + ALIGNED.get(base))) {
+                    parents.put(name, space + "::" + ALIGNED.get(base));
+                }
+                else continue;
+                filtered.put(name, getProjection(source, name));
+            }
+            // the FT particle bank is aligned with the particle bank:
+            String ft = space + "FT::" + bankName.substring(bankName.indexOf("::")+2);
+            if (source.hasSchema(ft)) {
+                parents.put(ft, bankName);
+                filtered.put(ft, getProjection(source, ft));
+            }
+            filtered.put(bankName, getProjection(source, bankName));
+        }
+
+        /**
+         * Rewrites the filtered banks of the event in place.
+         * @return whether particles were filtered out
+         */
+        boolean apply(Event event) {
+            if (event.scan(particles.getSchema().getGroup(), particles.getSchema().getItem()) <= 0) return false;
+            event.read(particles);
+            boolean[] keep = new boolean[particles.getRows()];
+            int n = 0;
+            for (int i = 0; i < keep.length; i++) {
+                keep[i] = pids.contains(particles.getInt("pid", i));
+                if (keep[i]) n++;
+            }
+            if (n == keep.length) return false;
+            Map<String,boolean[]> masks = new HashMap<>();
+            masks.put(bankName, keep);
+            // banks referencing particles before the banks depending on them:
+            for (Projection p : filtered.values()) {
+                if (p.source.hasEntry(PINDEX)) this.rewrite(event, p, masks);
+            }
+            for (Projection p : filtered.values()) {
+                if (!p.source.hasEntry(PINDEX)) this.rewrite(event, p, masks);
+            }
+            return true;
+        }
+
+        private void rewrite(Event event, Projection p, Map<String,boolean[]> masks) {
+            if (event.scan(p.source.getGroup(), p.source.getItem()) <= 0) return;
+            final Bank input = p.input;
+            event.read(input);
+            final int rows = input.getRows();
+            final String name = p.source.getName();
+            final boolean[] parent = masks.get(parents.getOrDefault(name, name));
+            boolean[] keep = null;
+            if (p.source.hasEntry(PINDEX)) {
+                keep = new boolean[rows];
+                for (int i = 0; i < rows; i++) keep[i] = isKept(parent, input.getShort(PINDEX, i));
+                masks.put(name, keep);
+            }
+            else if (references.containsKey(name)) {
+                // without the referenced bank, the references can't be checked:
+                if (parent != null) {
+                    keep = new boolean[rows];
+                    for (int i = 0; i < rows; i++) {
+                        keep[i] = true;
+                        for (String column : references.get(name)) keep[i] &= isKept(parent, input.getShort(column, i));
+                    }
+                }
+            }
+            else {
+                keep = parent;
+                if (keep != null && keep.length != rows) {
+                    LOGGER.log(Level.WARNING, "[HipoBankProjection] ---> rows of {0} not aligned, not filtered", name);
+                    keep = null;
+                }
+            }
+            final Bank output = HipoBankProjection.this.write(p, keep);
+            if (keep != null && p.source.hasEntry(PINDEX) && p.target.hasEntry(PINDEX)) {
+                renumber(output, PINDEX, parent);
+            }
+            else if (keep != null && references.containsKey(name)) {
+                for (String column : references.get(name)) {
+                    if (p.target.hasEntry(column)) renumber(output, column, parent);
+                }
+            }
+            event.remove(p.source);
+            event.write(output);
+        }
+    }
+
+    private final Map<String,Projection> projections = new LinkedHashMap<>();
+
+    private final List<ParticleFilter> filters = new ArrayList<>();
+    private final Set<String> rewritten = new HashSet<>();
+
+    /**
+     * @param source schemas the events are read with
+     * @param keep schemas of the banks to write, with only the columns to write
+     */
+    public HipoBankProjection(SchemaFactory source, SchemaFactory keep) {
+        for (String name : keep.getSchemaKeys()) {
+            if (!source.hasSchema(name)) continue;
+            Schema from = source.getSchema(name);
+            Schema to   = keep.getSchema(name);
+            int[] columns = getColumns(from, to);
+            if (columns == null) continue;
+            boolean identity = columns.length == from.getElements();
+            for (int j = 0; identity && j < columns.length; j++) identity = columns[j] == j;
+            if (!identity) {
+                projections.put(name, new Projection(from, to, columns));
+                LOGGER.log(Level.INFO, "[HipoBankProjection] ---> writing {0} of {1} columns of {2}",
+                        new Object[]{columns.length, from.getElements(), name});
+            }
+        }
+    }
+
+    /**
+     * @return for each column of the target schema, its index in the source
+     * schema, or null if the target schema is not a projection of the source
+     */
+    private static int[] getColumns(Schema source, Schema target) {
+        if (source.getGroup() != target.getGroup() || source.getItem() != target.getItem()) {
+            LOGGER.log(Level.WARNING, "[HipoBankProjection] ---> different ids for {0}, not projected", target.getName());
+            return null;
+        }
+        Map<String,Integer> index = new HashMap<>();
+        for (int j = 0; j < source.getElements(); j++) index.put(source.getElementName(j), j);
+        int[] columns = new int[target.getElements()];
+        for (int j = 0; j < columns.length; j++) {
+            Integer i = index.get(target.getElementName(j));
+            if (i == null || source.getType(i) != target.getType(j)) {
+                LOGGER.log(Level.WARNING, "[HipoBankProjection] ---> column {0} of {1} not found in input, not projected",
+                        new Object[]{target.getElementName(j), target.getName()});
+                return null;
+            }
+            columns[j] = i;
+        }
+        return columns;
+    }
+
+    /**
+     * Keeps only the particles with the given PIDs, and the rows of the
+     * banks referencing them, in each namespace of {@link #PARTICLE_BANKS}
+     * found in the source schemas.
+     * @param source schemas the events are read with
+     * @param pids PIDs of the particles to keep
+     */
+    public void setParticleFilter(SchemaFactory source, Set<Integer> pids) {
+        for (String bankName : PARTICLE_BANKS) {
+            if (source.hasSchema(bankName)) this.setParticleFilter(source, bankName, pids);
+        }
+    }
+
+    /**
+     * Keeps only the particles with the given PIDs, and the rows of the
+     * banks referencing them.
+     * @param source schemas the events are read with
+     * @param bankName particle bank name, e.g. REC::Particle
+     * @param pids PIDs of the particles to keep
+     */
+    public void setParticleFilter(SchemaFactory source, String bankName, Set<Integer> pids) {
+        if (!source.hasSchema(bankName)) {
+            LOGGER.log(Level.WARNING, "[HipoBankProjection] ---> no schema for {0}, particles not filtered", bankName);
+            return;
+        }
+        filters.add(new ParticleFilter(source, bankName, pids));
+    }
+
+    private Projection getProjection(SchemaFactory source, String name) {
+        if (projections.containsKey(name)) return projections.get(name);
+        Schema schema = source.getSchema(name);
+        int[] columns = new int[schema.getElements()];
+        for (int j = 0; j < columns.length; j++) columns[j] = j;
+        return new Projection(schema, schema, columns);
+    }
+
+    /**
+     * Replaces the schemas of the projected banks, must be called before the
+     * output file is opened.
+     * @param output schemas of the output file
+     */
+    public void updateSchemas(SchemaFactory output) {
+        for (Projection p : projections.values()) {
+            output.remove(p.target.getName());
+            output.addSchema(p.target);
+        }
+    }
+
+    public boolean isEmpty() {
+        return projections.isEmpty() && filters.isEmpty();
+    }
+
+    /**
+     * Rewrites the projected and filtered banks of the event in place.
+     * @param event
+     */
+    public void apply(Event event) {
+        rewritten.clear();
+        for (ParticleFilter filter : filters) {
+            if (filter.apply(event)) rewritten.addAll(filter.filtered.keySet());
+        }
+        for (Projection p : projections.values()) {
+            if (!rewritten.contains(p.source.getName()) && event.scan(p.source.getGroup(), p.source.getItem()) > 0) {
+                event.read(p.input);
+                this.write(p, null);
+                event.remove(p.source);
+                event.write(p.output);
+            }
+        }
+    }
+
+    private static boolean isKept(boolean[] keep, int row) {
+        return row >= 0 && row < keep.length && keep[row];
+    }
+
+    /**
+     * Replaces the row numbers of a column with their numbers among the
+     * kept rows of the referenced bank.
+     */
+    private static void renumber(Bank bank, String column, boolean[] keep) {
+        int[] rows = new int[keep.length];
+        int n = 0;
+        for (int i = 0; i < keep.length; i++) rows[i] = keep[i] ? n++ : -1;
+        for (int i = 0; i < bank.getRows(); i++) {
+            bank.putShort(column, i, (short) rows[bank.getShort(column, i)]);
+        }
+    }
+
+    /**
+     * Copies the columns of the projection, for the rows to keep, from its
+     * input bank to its output bank.
+     * @return the output bank
+     */
+    private Bank write(Projection p, boolean[] keep) {
+        final int rows = p.input.getRows();
+        int n = rows;
+        if (keep != null) {
+            n = 0;
+            for (boolean k : keep) if (k) n++;
+        }
+        p.output.setRows(n);
+        for (int j = 0; j < p.columns.length; j++) {
+            this.copy(p.input, p.columns[j], p.output, j, keep);
+        }
+        return p.output;
+    }
+
+    /**
+     * Copies a column, for the rows to keep.
+     */
+    private void copy(Bank input, int from, Bank output, int to, boolean[] keep) {
+        final int rows = input.getRows();
+        int k = 0;
+        switch (input.getSchema().getType(from)) {
+            case 1:
+                for (int i = 0; i < rows; i++) if (keep == null || keep[i]) output.putByte(to, k++, input.getByte(from, i));
+                break;
+            case 2:
+                for (int i = 0; i < rows; i++) if (keep == null || keep[i]) output.putShort(to, k++, input.getShort(from, i));
+                break;
+            case 3:
+                for (int i = 0; i < rows; i++) if (keep == null || keep[i]) output.putInt(to, k++, input.getInt(from, i));
+                break;
+            case 4:
+                for (int i = 0; i < rows; i++) if (keep == null || keep[i]) output.putFloat(to, k++, input.getFloat(from, i));
+                break;
+            case 5:
+                for (int i = 0; i < rows; i++) if (keep == null || keep[i]) output.putDouble(to, k++, input.getDouble(from, i));
+                break;
+            case 8:
+                for (int i = 0; i < rows; i++) if (keep == null || keep[i]) output.putLong(to, k++, input.getLong(from, i));
+                break;
+        }
+    }
+}
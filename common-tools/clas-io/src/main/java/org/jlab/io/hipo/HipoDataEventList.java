@@ -0,0 +1,28 @@
+package org.jlab.io.hipo;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jlab.io.base.DataEvent;
+import org.jlab.io.base.DataEventList;
+
+/**
+ * List of events read in one batch from a HipoDataSource.
+ */
+public class HipoDataEventList implements DataEventList {
+
+    private final List<DataEvent> events = new ArrayList<>();
+
+    public void add(DataEvent event) {
+        events.add(event);
+    }
+
+    @Override
+    public int getSize() {
+        return events.size();
+    }
+
+    @Override
+    public DataEvent getEvent(int i) {
+        return events.get(i);
+    }
+}
@@ -2,6 +2,8 @@ package org.jlab.io.hipo;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -25,12 +27,33 @@ public class HipoDataSource implements DataSource {
     HipoReader reader = null;
     int currentEventNumber = 0;
     
+    // read-ahead mode:
+    private static final Event END_OF_FILE = new Event();
+    private int prefetchSize = 0;
+    private BlockingQueue<Event> prefetchQueue = null;
+    private BlockingQueue<Event> freeEvents = null;
+    private Thread prefetchThread = null;
+    private Event  nextEvent = null;
+    private volatile RuntimeException prefetchError = null;
+    private volatile boolean prefetchStop = false;
+    
     public HipoDataSource(){
         this.reader = new HipoReader();
     }
     
+    /**
+     * Enables read-ahead mode: upcoming events are read and decompressed on
+     * a background thread, up to the given number of events ahead of the
+     * caller. Must be called before open.
+     * @param nevents number of events to read ahead, 0 to read synchronously
+     */
+    public void setPrefetch(int nevents) {
+        this.prefetchSize = nevents;
+    }
+    
     @Override
     public boolean hasEvent() {
+        if(prefetchQueue!=null) return this.peekPrefetched()!=END_OF_FILE;
         return reader.hasNext();
     }
 
@@ -53,9 +76,71 @@ public class HipoDataSource implements DataSource {
     
     @Override
     public void open(String filename) {
+        this.close();
         this.currentEventNumber = 0;
         this.reader.open(filename);
         LOGGER.log(Level.INFO,"[DataSourceDump] --> opened file with events # " );
+        if(prefetchSize>0) this.startPrefetch();
+    }
+
+    private void startPrefetch() {
+        if(prefetchQueue==null) {
+            prefetchQueue = new ArrayBlockingQueue<>(prefetchSize+1);
+            freeEvents    = new ArrayBlockingQueue<>(prefetchSize);
+        }
+        prefetchError = null;
+        prefetchStop  = false;
+        nextEvent     = null;
+        prefetchThread = new Thread(() -> {
+            try {
+                while(true) {
+                    Event event;
+                    synchronized(reader) {
+                        if(prefetchStop) return;
+                        if(!reader.hasNext()) break;
+                        event = freeEvents.poll();
+                        if(event==null) event = new Event();
+                        reader.nextEvent(event);
+                    }
+                    prefetchQueue.put(event);
+                }
+                prefetchQueue.put(END_OF_FILE);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "[HipoDataSource] --> error reading ahead", ex);
+                prefetchError = ex;
+                prefetchQueue.clear();
+                prefetchQueue.offer(END_OF_FILE);
+            }
+        }, "HipoDataSource-prefetch");
+        prefetchThread.setDaemon(true);
+        prefetchThread.start();
+    }
+
+    private Event peekPrefetched() {
+        if(nextEvent==null) {
+            try {
+                nextEvent = prefetchQueue.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("interrupted while waiting for the next event", ex);
+            }
+            if(nextEvent==END_OF_FILE && prefetchError!=null) throw prefetchError;
+        }
+        return nextEvent;
+    }
+    
+    /**
+     * Returns an event obtained from this source for reuse in read-ahead
+     * mode, avoiding the allocation of a new event buffer. The event must
+     * not be used by the caller afterwards.
+     * @param event the event to recycle
+     */
+    public void releaseEvent(DataEvent event) {
+        if(freeEvents!=null && event instanceof HipoDataEvent) {
+            freeEvents.offer(((HipoDataEvent) event).getHipoEvent());
+        }
     }
 
     public void open(ByteBuffer buff) {
@@ -63,7 +148,30 @@ public class HipoDataSource implements DataSource {
     }
 
     public void close() {
-        
+        if(prefetchThread!=null) {
+            this.stopPrefetch();
+            prefetchQueue  = null;
+            freeEvents     = null;
+        }
+    }
+
+    /**
+     * Stops the read-ahead thread and drops the events it read, leaving
+     * the reader at the position of the last event read ahead.
+     */
+    private void stopPrefetch() {
+        prefetchStop = true;
+        // the thread reads at most one more event, and is unblocked if it
+        // was waiting for room in the queue:
+        prefetchQueue.clear();
+        try {
+            prefetchThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        prefetchQueue.clear();
+        prefetchThread = null;
+        nextEvent      = null;
     }
 
     public  HipoReader getReader(){ return reader;}
@@ -77,17 +185,34 @@ public class HipoDataSource implements DataSource {
         throw new UnsupportedOperationException("Not supported yet.");
     }
 
+    /**
+     * Reads the next events in one batch.
+     * @param nrecords maximum number of events to read
+     * @return list of events, shorter than requested at the end of the file
+     */
     @Override
     public DataEventList getEventList(int nrecords) {
-        throw new UnsupportedOperationException("Not supported yet.");
+        HipoDataEventList list = new HipoDataEventList();
+        while(list.getSize()<nrecords && this.hasEvent()) {
+            list.add(this.getNextEvent());
+        }
+        return list;
     }
 
     @Override
     public DataEvent getNextEvent() {
-        Event event = new Event();
-        reader.nextEvent(event);
+        Event event;
+        if(prefetchQueue!=null) {
+            event = this.peekPrefetched();
+            if(event==END_OF_FILE) event = new Event();
+            else nextEvent = null;
+        }
+        else {
+            event = new Event();
+            reader.nextEvent(event);
+        }
         HipoDataEvent  hipoEvent = new HipoDataEvent(event,reader.getSchemaFactory());
-        if(reader.hasNext()==true){
+        if(this.hasEvent()==true){
             hipoEvent.setType(DataEventType.EVENT_ACCUMULATE);
         } else {
             hipoEvent.setType(DataEventType.EVENT_STOP);
@@ -101,12 +226,20 @@ public class HipoDataSource implements DataSource {
         return null;
     }
 
+    /**
+     * Reads the event with the given index; in read-ahead mode, the events
+     * read ahead are dropped and reading ahead resumes after this event.
+     * @param index event index in the file
+     * @return the event
+     */
     @Override
     public DataEvent gotoEvent(int index) {
+        if(prefetchThread!=null) this.stopPrefetch();
         Event event = new Event();
         reader.getEvent(event, index);
+        if(prefetchQueue!=null) this.startPrefetch();
         HipoDataEvent  hipoEvent = new HipoDataEvent(event,reader.getSchemaFactory());
-        if(reader.hasNext()==true){
+        if(this.hasEvent()==true){
             hipoEvent.setType(DataEventType.EVENT_ACCUMULATE);
         } else {
             hipoEvent.setType(DataEventType.EVENT_STOP);
@@ -25,6 +25,8 @@ public class HipoDataSync implements DataSync {
     public static Logger LOGGER = Logger.getLogger(HipoDataSync.class.getName());
     
     HipoWriterSorted writer = null;
+    HipoAsyncWriter  output = null;
+    int              queueSize = 0;
     
     public HipoDataSync(){
         this.writer = new HipoWriterSorted();
@@ -54,7 +56,17 @@ public class HipoDataSync implements DataSync {
             String descString = dict.getDescriptor(desc).toString();
             this.writer.addHeader(descString);
         }*/
-        this.writer.open(file);
+        this.output = new HipoAsyncWriter(this.writer, queueSize);
+        this.output.open(file);
+    }
+
+    /**
+     * Enables asynchronous writing, where events are queued and compressed
+     * and written on a background thread. Must be called before open.
+     * @param queueSize maximum number of queued events, 0 to write synchronously
+     */
+    public void setAsync(int queueSize){
+        this.queueSize = queueSize;
     }
 
     public void addSchema(Schema schema){
@@ -71,13 +83,14 @@ public class HipoDataSync implements DataSync {
         if(event instanceof HipoDataEvent) {
             HipoDataEvent hipoEvent = (HipoDataEvent) event;
             
-            this.writer.addEvent(hipoEvent.getHipoEvent(),hipoEvent.getHipoEvent().getEventTag());
+            this.output.addEvent(hipoEvent.getHipoEvent(),hipoEvent.getHipoEvent().getEventTag());
         }
     }
     public HipoWriterSorted getWriter(){ return writer;}
     
     public void close() {
-        this.writer.close();
+        if(this.output!=null) this.output.close();
+        else this.writer.close();
     }
     
     public void setCompressionType(int type){
@@ -4,135 +4,509 @@ import org.jlab.jnp.hipo4.io.HipoReader;
 import org.jlab.jnp.hipo4.data.Bank;
 import org.jlab.jnp.hipo4.data.Event;
 import org.jlab.jnp.hipo4.data.Schema;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 import org.jlab.utils.options.OptionParser;
 
+/**
+ * Compares banks between pairs of HIPO files, event by event.
+ *
+ * The events of each pair are split in blocks compared in parallel, each
+ * thread with its own readers and its own counters, which are merged at the
+ * end into a per-bank and per-column summary of the differences. Columns
+ * are compared by index, with one loop over the rows per column type.
+ *
+ * The counters are kept per bank definition, so pairs of files with
+ * different definitions of a bank are summarized separately. The
+ * differences found in each block are printed once all previous blocks are
+ * printed, so the printout is in event order, and by row and column within
+ * an event.
+ */
 public class HipoDiff {
 
-    public static void main(String args[]) {
+    public static final int BLOCK_SIZE = 1000;
 
-        OptionParser op = new OptionParser("hipo-diff");
-        op.addOption("-t", "0.00001", "absolute tolerance for comparisons");
-        op.addOption("-n", "-1", "number of events");
-        op.addRequired("-b", "name of bank to diff");
-        op.setRequiresInputList(true);
-        op.parse(args);
-        if (op.getInputList().size() != 2) {
-            System.out.println(op.getUsageString());
-            System.out.println("ERROR:  Exactly 2 input files are required.");
-            System.exit(1);
+    /**
+     * Differences found for one bank.
+     */
+    static class BankDiff {
+        final String name;
+        final String[] columns;
+        final int bank;
+        int firstPair;
+        long events = 0;
+        long badEvents = 0;
+        long rows = 0;
+        long badRows = 0;
+        final long[] badEntries;
+        final double[] maxDiff;
+
+        BankDiff(Schema schema, int bank, int pair) {
+            this.bank = bank;
+            this.firstPair = pair;
+            this.name = schema.getName();
+            this.columns = new String[schema.getElements()];
+            for (int j = 0; j < columns.length; j++) {
+                columns[j] = schema.getElementName(j);
+            }
+            this.badEntries = new long[columns.length];
+            this.maxDiff = new double[columns.length];
         }
 
-        final String bankName = op.getOption("-b").stringValue();
-        final double tolerance = op.getOption("-t").doubleValue();
-        final int nmax = op.getOption("-n").intValue();
+        void add(BankDiff other) {
+            firstPair = Math.min(firstPair, other.firstPair);
+            events += other.events;
+            badEvents += other.badEvents;
+            rows += other.rows;
+            badRows += other.badRows;
+            for (int j = 0; j < columns.length; j++) {
+                badEntries[j] += other.badEntries[j];
+                maxDiff[j] = Math.max(maxDiff[j], other.maxDiff[j]);
+            }
+        }
 
-        HipoReader readerA = new HipoReader();
-        HipoReader readerB = new HipoReader();
-        readerA.open(op.getInputList().get(0));
-        readerB.open(op.getInputList().get(1));
+        void show() {
+            long nbad = 0;
+            for (long n : badEntries) nbad += n;
+            System.out.println(String.format("\n%s : %d events, %d with different number of rows",
+                    name, events, badEvents));
+            System.out.println(String.format("%s : %d/%d mismatched rows, %d/%d mismatched entries",
+                    name, badRows, rows, nbad, rows*columns.length));
+            for (int j = 0; j < columns.length; j++) {
+                if (badEntries[j] > 0) {
+                    System.out.println(String.format("   %-24s %12d   max diff %g",
+                            columns[j], badEntries[j], maxDiff[j]));
+                }
+            }
+        }
+    }
 
-        Schema schema = readerA.getSchemaFactory().getSchema(bankName);
-        Bank bankA = new Bank(schema);
-        Bank bankB = new Bank(schema);
+    /**
+     * Block of consecutive events of one pair of files.
+     */
+    static class Task {
+        final int id;
+        final int pair;
+        final int first;
+        final int last;
+        Task(int id, int pair, int first, int last) {
+            this.id = id;
+            this.pair = pair;
+            this.first = first;
+            this.last = last;
+        }
+    }
 
-        Bank runConfigBank = new Bank(readerA.getSchemaFactory().getSchema("RUN::config"));
-        Event event = new Event();
+    private final List<String[]> pairs;
+    private final String[] bankNames;
+    private final double tolerance;
+    private final long maxPrintout;
+    private final AtomicLong analyzed = new AtomicLong();
+    private final ConcurrentLinkedQueue<Task> tasks = new ConcurrentLinkedQueue<>();
+    private final Map<String,BankDiff> summary = new HashMap<>();
+    private RuntimeException error = null;
 
-        int nevent = -1;
-        int nrow = 0;
-        int nentry = 0;
-        int nbadevent = 0;
-        int nbadrow = 0;
-        int nbadentry = 0;
-        HashMap<String, Integer> badEntries = new HashMap<>();
+    // printout of the blocks done, waiting for the previous blocks:
+    private final Map<Integer,List<String>> pendingPrintout = new HashMap<>();
+    private int nextPrintout = 0;
+    private long printouts = 0;
+    private volatile boolean printoutFull = false;
 
-        while (readerA.hasNext() && readerB.hasNext() && (nmax<1 || nevent<nmax)) {
+    /**
+     * @param pairs pairs of files to compare
+     * @param bankNames names of the banks to compare
+     * @param tolerance absolute tolerance for floating point columns
+     * @param maxPrintout maximum number of differences printed, negative for all
+     */
+    public HipoDiff(List<String[]> pairs, String[] bankNames, double tolerance, long maxPrintout) {
+        this.pairs = pairs;
+        this.bankNames = bankNames;
+        this.tolerance = tolerance;
+        this.maxPrintout = maxPrintout;
+    }
 
-            if (++nevent % 10000 == 0) {
-                System.out.println("Analyzed " + nevent + " events");
+    /**
+     * Compares all pairs of files.
+     * @param nthreads number of threads
+     * @param nmax maximum number of events per pair, non-positive for all
+     * @return the summary for each bank definition, in the order of the
+     * bank names and then of the pairs where the definition is first found
+     */
+    public List<BankDiff> run(int nthreads, int nmax) {
+        for (int p = 0; p < pairs.size(); p++) {
+            final int na = countEvents(pairs.get(p)[0]);
+            final int nb = countEvents(pairs.get(p)[1]);
+            if (na != nb) {
+                System.out.println(String.format("WARNING:  Different number of events, %d/%d, in %s and %s",
+                        na, nb, pairs.get(p)[0], pairs.get(p)[1]));
+            }
+            int nevents = Math.min(na, nb);
+            if (nmax > 0) nevents = Math.min(nevents, nmax);
+            for (int first = 0; first < nevents; first += BLOCK_SIZE) {
+                tasks.add(new Task(tasks.size(), p, first, Math.min(nevents, first+BLOCK_SIZE)));
+            }
+        }
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < Math.max(1, nthreads); i++) {
+            Thread t = new Thread(this::compare, "HipoDiff-"+i);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            try {
+                t.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
             }
+        }
+        if (error != null) throw error;
+        List<BankDiff> diffs = new ArrayList<>(summary.values());
+        diffs.sort(Comparator.comparingInt((BankDiff d) -> d.bank).thenComparingInt(d -> d.firstPair));
+        return diffs;
+    }
+
+    private int countEvents(String file) {
+        HipoReader reader = new HipoReader();
+        reader.open(file);
+        int n = reader.getEventCount();
+        reader.close();
+        return n;
+    }
 
-            readerA.nextEvent(event);
-            event.read(bankA);
-            readerB.nextEvent(event);
-            event.read(bankB);
+    private synchronized void addSummary(Map<String,BankDiff> diffs) {
+        for (Map.Entry<String,BankDiff> entry : diffs.entrySet()) {
+            BankDiff diff = summary.get(entry.getKey());
+            if (diff == null) summary.put(entry.getKey(), entry.getValue());
+            else diff.add(entry.getValue());
+        }
+    }
 
-            event.read(runConfigBank);
+    /**
+     * @return the bank name with the names and types of its columns
+     */
+    private static String getDefinition(Schema schema) {
+        StringBuilder definition = new StringBuilder(schema.getName());
+        for (int j = 0; j < schema.getElements(); j++) {
+            definition.append(',').append(schema.getElementName(j)).append('/').append(schema.getType(j));
+        }
+        return definition.toString();
+    }
 
-            if (bankA.getRows() != bankB.getRows()) {
-                System.out.println("========================= Different number of rows:");
-                runConfigBank.show();
-                bankA.show();
-                bankB.show();
-                nbadevent++;
-                System.out.println("=========================");
+    /**
+     * Prints the differences of the given block, and of the following blocks
+     * already done, once all previous blocks are printed.
+     */
+    private synchronized void print(int task, List<String> printout) {
+        pendingPrintout.put(task, printout);
+        List<String> next;
+        while ((next = pendingPrintout.remove(nextPrintout)) != null) {
+            for (String difference : next) {
+                if (maxPrintout >= 0 && printouts >= maxPrintout) break;
+                System.out.println(difference);
+                printouts++;
             }
+            nextPrintout++;
+        }
+        if (maxPrintout >= 0 && printouts >= maxPrintout) printoutFull = true;
+    }
+
+    private boolean print(List<String> printout) {
+        return !printoutFull && (maxPrintout < 0 || printout.size() < maxPrintout);
+    }
 
-            else {
-                for (int i = 0; i < bankA.getRows(); i++) {
-                    boolean mismatch = false;
-                    nrow++;
-                    for (int j = 0; j < schema.getElements(); j++) {
-                        final int type = schema.getType(j);
-                        final String name = schema.getElementName(j);
-                        int element = -1;
-                        String values = "";
-                        nentry++;
-                        switch (type) {
-                            case 1:
-                                if (bankA.getByte(name, i) != bankB.getByte(name, i)) {
-                                    element = j;
-                                    values += bankA.getByte(name, i) + "/" + bankB.getByte(name, i);
-                                }
-                                break;
-                            case 2:
-                                if (bankA.getShort(name, i) != bankB.getShort(name, i)) {
-                                    element = j;
-                                    values += bankA.getShort(name, i) + "/" + bankB.getShort(name, i);
-                                }
-                                break;
-                            case 3:
-                                if (bankA.getInt(name, i) != bankB.getInt(name, i)) {
-                                    element = j;
-                                    values += bankA.getInt(name, i) + "/" + bankB.getInt(name, i);
-                                }
-                                break;
-                            case 4:
-                                if ((!Double.isNaN(bankA.getFloat(name, i)) || !Double.isNaN(bankB.getFloat(name, i)))
-                                        && (!Double.isInfinite(bankA.getFloat(name, i)) || !Double.isInfinite(bankB.getFloat(name, i)))
-                                        && Math.abs(bankA.getFloat(name, i) - bankB.getFloat(name, i)) > tolerance) {
-                                    element = j;
-                                    values += bankA.getFloat(name, i) + "/" + bankB.getFloat(name, i);
-                                }
-                                break;
+    private synchronized void setError(RuntimeException ex) {
+        if (error == null) error = ex;
+        tasks.clear();
+    }
+
+    private void compare() {
+        HipoReader readerA = null;
+        HipoReader readerB = null;
+        int pair = -1;
+        Bank[] banksA = null;
+        Bank[] banksB = null;
+        Bank runConfigBank = null;
+        BankDiff[] diffs = null;
+        Map<String,BankDiff> diffsByDefinition = new HashMap<>();
+        Event eventA = new Event();
+        Event eventB = new Event();
+        try {
+            Task task;
+            while ((task = tasks.poll()) != null) {
+                if (task.pair != pair) {
+                    if (readerA != null) readerA.close();
+                    if (readerB != null) readerB.close();
+                    pair = task.pair;
+                    readerA = new HipoReader();
+                    readerB = new HipoReader();
+                    readerA.open(pairs.get(pair)[0]);
+                    readerB.open(pairs.get(pair)[1]);
+                    banksA = new Bank[bankNames.length];
+                    banksB = new Bank[bankNames.length];
+                    diffs = new BankDiff[bankNames.length];
+                    for (int b = 0; b < bankNames.length; b++) {
+                        Schema schemaA = readerA.getSchemaFactory().getSchema(bankNames[b]);
+                        Schema schemaB = readerB.getSchemaFactory().getSchema(bankNames[b]);
+                        if (schemaA == null || schemaB == null) {
+                            throw new RuntimeException("bank " + bankNames[b] + " not found in "
+                                    + pairs.get(pair)[schemaA == null ? 0 : 1]);
+                        }
+                        // columns are compared by index:
+                        String definition = getDefinition(schemaA);
+                        if (!definition.equals(getDefinition(schemaB))) {
+                            throw new RuntimeException("bank " + bankNames[b] + " has different definitions in "
+                                    + pairs.get(pair)[0] + " and " + pairs.get(pair)[1]);
                         }
-                        if (element >= 0) {
-                            System.out.println("mismatch at event " + runConfigBank.getInt("event", 0)
-                                    + " in row " + i 
-                                    + " for variable " + name 
-                                    + " with values "  + values);
-                            mismatch = true;
-                            nbadentry++;
-                            if (badEntries.containsKey(schema.getElementName(element))) {
-                                int nbad = badEntries.get(schema.getElementName(element)) + 1;
-                                badEntries.replace(schema.getElementName(element), nbad);
-                            } else {
-                                badEntries.put(schema.getElementName(element), 1);
-                            }
+                        banksA[b] = new Bank(schemaA);
+                        banksB[b] = new Bank(schemaB);
+                        diffs[b] = diffsByDefinition.get(definition);
+                        if (diffs[b] == null) {
+                            diffs[b] = new BankDiff(schemaA, b, pair);
+                            diffsByDefinition.put(definition, diffs[b]);
                         }
+                        diffs[b].firstPair = Math.min(diffs[b].firstPair, pair);
                     }
-                    if (mismatch) {
-                        nbadrow++;
+                    runConfigBank = new Bank(readerA.getSchemaFactory().getSchema("RUN::config"));
+                }
+                List<String> printout = new ArrayList<>();
+                for (int n = task.first; n < task.last; n++) {
+                    readerA.getEvent(eventA, n);
+                    readerB.getEvent(eventB, n);
+                    eventB.read(runConfigBank);
+                    for (int b = 0; b < bankNames.length; b++) {
+                        eventA.read(banksA[b]);
+                        eventB.read(banksB[b]);
+                        this.compare(banksA[b], banksB[b], runConfigBank, diffs[b], printout);
+                    }
+                    if (analyzed.incrementAndGet() % 10000 == 0) {
+                        System.out.println("Analyzed " + analyzed.get() + " events");
                     }
                 }
+                this.print(task.id, printout);
             }
+            this.addSummary(diffsByDefinition);
+        } catch (RuntimeException ex) {
+            this.setError(ex);
+        } finally {
+            if (readerA != null) readerA.close();
+            if (readerB != null) readerB.close();
         }
-        System.out.println("\n Analyzed " + nevent + " with " + nbadevent + " bad banks");
-        System.out.println(nbadrow + "/" + nrow + " mismatched rows");
-        System.out.println(nbadentry + "/" + nentry + " mismatched entry");
-        for (String name : badEntries.keySet()) {
-            System.out.println(name + " " + badEntries.get(name));
+    }
+
+    private void compare(Bank bankA, Bank bankB, Bank runConfigBank, BankDiff diff, List<String> printout) {
+        diff.events++;
+        if (bankA.getRows() != bankB.getRows()) {
+            diff.badEvents++;
+            if (this.print(printout)) {
+                printout.add("========================= Different number of rows:\n"
+                        + toString(runConfigBank) + toString(bankA) + toString(bankB)
+                        + "=========================");
+            }
+            return;
         }
+        final int nrows = bankA.getRows();
+        if (nrows == 0) return;
+        final Schema schema = bankA.getSchema();
+        boolean[] badRow = new boolean[nrows];
+        // mismatches to print, by row and column:
+        TreeMap<Integer,String> mismatches = this.print(printout) ? new TreeMap<>() : null;
+        for (int j = 0; j < schema.getElements(); j++) {
+            long nbad = 0;
+            switch (schema.getType(j)) {
+                case 1:
+                    for (int i = 0; i < nrows; i++) {
+                        final byte a = bankA.getByte(j, i);
+                        final byte b = bankB.getByte(j, i);
+                        if (a != b) {
+                            nbad++;
+                            badRow[i] = true;
+                            diff.maxDiff[j] = Math.max(diff.maxDiff[j], Math.abs(a-b));
+                            if (mismatches != null) mismatches.put(i*schema.getElements()+j, a + "/" + b);
+                        }
+                    }
+                    break;
+                case 2:
+                    for (int i = 0; i < nrows; i++) {
+                        final short a = bankA.getShort(j, i);
+                        final short b = bankB.getShort(j, i);
+                        if (a != b) {
+                            nbad++;
+                            badRow[i] = true;
+                            diff.maxDiff[j] = Math.max(diff.maxDiff[j], Math.abs(a-b));
+                            if (mismatches != null) mismatches.put(i*schema.getElements()+j, a + "/" + b);
+                        }
+                    }
+                    break;
+                case 3:
+                    for (int i = 0; i < nrows; i++) {
+                        final int a = bankA.getInt(j, i);
+                        final int b = bankB.getInt(j, i);
+                        if (a != b) {
+                            nbad++;
+                            badRow[i] = true;
+                            diff.maxDiff[j] = Math.max(diff.maxDiff[j], Math.abs((double) a - b));
+                            if (mismatches != null) mismatches.put(i*schema.getElements()+j, a + "/" + b);
+                        }
+                    }
+                    break;
+                case 4:
+                    for (int i = 0; i < nrows; i++) {
+                        final float a = bankA.getFloat(j, i);
+                        final float b = bankB.getFloat(j, i);
+                        if (this.differ(a, b)) {
+                            nbad++;
+                            badRow[i] = true;
+                            diff.maxDiff[j] = Math.max(diff.maxDiff[j], Math.abs(a-b));
+                            if (mismatches != null) mismatches.put(i*schema.getElements()+j, a + "/" + b);
+                        }
+                    }
+                    break;
+                case 5:
+                    for (int i = 0; i < nrows; i++) {
+                        final double a = bankA.getDouble(j, i);
+                        final double b = bankB.getDouble(j, i);
+                        if (this.differ(a, b)) {
+                            nbad++;
+                            badRow[i] = true;
+                            diff.maxDiff[j] = Math.max(diff.maxDiff[j], Math.abs(a-b));
+                            if (mismatches != null) mismatches.put(i*schema.getElements()+j, a + "/" + b);
+                        }
+                    }
+                    break;
+                case 8:
+                    for (int i = 0; i < nrows; i++) {
+                        final long a = bankA.getLong(j, i);
+                        final long b = bankB.getLong(j, i);
+                        if (a != b) {
+                            nbad++;
+                            badRow[i] = true;
+                            diff.maxDiff[j] = Math.max(diff.maxDiff[j], Math.abs((double) a - b));
+                            if (mismatches != null) mismatches.put(i*schema.getElements()+j, a + "/" + b);
+                        }
+                    }
+                    break;
+            }
+            diff.badEntries[j] += nbad;
+        }
+        diff.rows += nrows;
+        for (int i = 0; i < nrows; i++) {
+            if (badRow[i]) diff.badRows++;
+        }
+        if (mismatches != null) {
+            for (Map.Entry<Integer,String> mismatch : mismatches.entrySet()) {
+                if (!this.print(printout)) break;
+                printout.add("mismatch at event " + runConfigBank.getInt("event", 0)
+                        + " in row " + mismatch.getKey() / schema.getElements()
+                        + " for variable " + diff.columns[mismatch.getKey() % schema.getElements()]
+                        + " with values "  + mismatch.getValue());
+            }
+        }
+    }
+
+    /**
+     * Floating point values differ if they are further apart than the
+     * tolerance, where NaN and infinite values on both sides are equal.
+     */
+    private boolean differ(double a, double b) {
+        return (!Double.isNaN(a) || !Double.isNaN(b))
+                && (!Double.isInfinite(a) || !Double.isInfinite(b))
+                && Math.abs(a - b) > tolerance;
+    }
+
+    /**
+     * @return the bank name and the values of each column, one line per column
+     */
+    private static String toString(Bank bank) {
+        final Schema schema = bank.getSchema();
+        StringBuilder str = new StringBuilder();
+        str.append(String.format("%s : %d rows%n", schema.getName(), bank.getRows()));
+        for (int j = 0; j < schema.getElements(); j++) {
+            str.append(String.format("%14s :", schema.getElementName(j)));
+            for (int i = 0; i < bank.getRows(); i++) {
+                switch (schema.getType(j)) {
+                    case 1: str.append(' ').append(bank.getByte(j, i));   break;
+                    case 2: str.append(' ').append(bank.getShort(j, i));  break;
+                    case 3: str.append(' ').append(bank.getInt(j, i));    break;
+                    case 4: str.append(' ').append(bank.getFloat(j, i));  break;
+                    case 5: str.append(' ').append(bank.getDouble(j, i)); break;
+                    case 8: str.append(' ').append(bank.getLong(j, i));   break;
+                }
+            }
+            str.append(String.format("%n"));
+        }
+        return str.toString();
+    }
+
+    /**
+     * @param file text file with two file names per line
+     * @return pairs of files
+     */
+    private static List<String[]> readPairs(String file) {
+        List<String[]> pairs = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(file))) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] columns = line.split("\\s+");
+                if (columns.length != 2) {
+                    System.out.println("ERROR:  Invalid line in " + file + ":  " + line);
+                    System.exit(1);
+                }
+                pairs.add(columns);
+            }
+        } catch (IOException ex) {
+            System.out.println("ERROR:  Cannot read " + file);
+            System.exit(1);
+        }
+        return pairs;
+    }
+
+    public static void main(String args[]) {
+
+        OptionParser op = new OptionParser("hipo-diff");
+        op.addOption("-t", "0.00001", "absolute tolerance for comparisons");
+        op.addOption("-n", "-1", "number of events per pair of files");
+        op.addOption("-j", "0", "number of threads [0 - number of processors]");
+        op.addOption("-l", null, "text file with a pair of files to compare per line");
+        op.addOption("-m", "-1", "maximum number of differences printed [-1 - all]");
+        op.addRequired("-b", "comma-separated names of banks to diff");
+        op.setRequiresInputList(false);
+        op.parse(args);
+
+        List<String[]> pairs;
+        if (op.getOption("-l").stringValue() != null) {
+            pairs = readPairs(op.getOption("-l").stringValue());
+        }
+        else if (op.getInputList().size() == 2) {
+            pairs = new ArrayList<>();
+            pairs.add(new String[]{op.getInputList().get(0), op.getInputList().get(1)});
+        }
+        else {
+            pairs = new ArrayList<>();
+            System.out.println(op.getUsageString());
+            System.out.println("ERROR:  Exactly 2 input files, or a list of pairs with -l, are required.");
+            System.exit(1);
+        }
+
+        final String[] bankNames = op.getOption("-b").stringValue().split(",");
+        final double tolerance = op.getOption("-t").doubleValue();
+        final int nmax = op.getOption("-n").intValue();
+        int nthreads = op.getOption("-j").intValue();
+        if (nthreads <= 0) nthreads = Runtime.getRuntime().availableProcessors();
+
+        HipoDiff diff = new HipoDiff(pairs, bankNames, tolerance, op.getOption("-m").longValue());
+        List<BankDiff> summary = diff.run(nthreads, nmax);
+
+        System.out.println("\n Analyzed " + diff.analyzed.get() + " events in " + pairs.size() + " pairs of files");
+        for (BankDiff bank : summary) bank.show();
     }
 }
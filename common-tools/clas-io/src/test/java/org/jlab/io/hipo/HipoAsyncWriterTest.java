@@ -0,0 +1,74 @@
+package org.jlab.io.hipo;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HipoAsyncWriterTest {
+
+    /**
+     * Writer recording the tags of the events, failing with the given error
+     * on the event with the given tag.
+     */
+    private static class TestWriter extends HipoWriterSorted {
+        final List<Integer> tags = new ArrayList<>();
+        final int failTag;
+        final Error failure;
+        boolean closed = false;
+        TestWriter(int failTag, Error failure) {
+            this.failTag = failTag;
+            this.failure = failure;
+        }
+        @Override
+        public void open(String filename) {}
+        @Override
+        public void addEvent(Event event, int tag) {
+            if(tag==failTag) throw failure;
+            tags.add(tag);
+        }
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testOrder() {
+        TestWriter writer = new TestWriter(-1, null);
+        HipoAsyncWriter async = new HipoAsyncWriter(writer, 4);
+        async.open("test.hipo");
+        for(int tag = 0; tag < 100; tag++) async.addEvent(new Event(), tag);
+        async.close();
+        assertTrue(writer.closed);
+        assertEquals(100, writer.tags.size());
+        for(int tag = 0; tag < 100; tag++) assertEquals(tag, (int) writer.tags.get(tag));
+    }
+
+    @Test(timeout = 10000)
+    public void testFailure() {
+        OutOfMemoryError failure = new OutOfMemoryError("test");
+        TestWriter writer = new TestWriter(3, failure);
+        HipoAsyncWriter async = new HipoAsyncWriter(writer, 2);
+        async.open("test.hipo");
+        try {
+            // more events than the queue holds, so that this would block
+            // forever if the failure wasn't seen:
+            for(int tag = 0; tag < 100; tag++) async.addEvent(new Event(), tag);
+            fail("the writing failure was not rethrown by addEvent");
+        }
+        catch(RuntimeException ex) {
+            assertSame(failure, ex.getCause());
+        }
+        try {
+            async.close();
+            fail("the writing failure was not rethrown by close");
+        }
+        catch(RuntimeException ex) {
+            assertSame(failure, ex.getCause());
+        }
+        assertTrue(writer.closed);
+    }
+}
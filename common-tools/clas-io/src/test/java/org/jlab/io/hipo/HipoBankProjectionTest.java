@@ -0,0 +1,90 @@
+package org.jlab.io.hipo;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import org.jlab.jnp.hipo4.data.Bank;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HipoBankProjectionTest {
+
+    private static SchemaFactory getSchemas() {
+        SchemaFactory factory = new SchemaFactory();
+        factory.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        return factory;
+    }
+
+    /**
+     * pid is the only int column used here, the other ones are shorts.
+     */
+    private static boolean isInt(String column) {
+        return column.equals("pid");
+    }
+
+    private static Bank createBank(SchemaFactory factory, String name, String column, int... values) {
+        Bank bank = new Bank(factory.getSchema(name), values.length);
+        for (int i = 0; i < values.length; i++) {
+            if (isInt(column)) bank.putInt(column, i, values[i]);
+            else bank.putShort(column, i, (short) values[i]);
+        }
+        return bank;
+    }
+
+    private static int[] read(SchemaFactory factory, Event event, String name, String column) {
+        Bank bank = new Bank(factory.getSchema(name));
+        event.read(bank);
+        int[] values = new int[bank.getRows()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = isInt(column) ? bank.getInt(column, i) : bank.getShort(column, i);
+        }
+        return values;
+    }
+
+    @Test
+    public void testParticleFilter() {
+        SchemaFactory factory = getSchemas();
+        HipoBankProjection projection = new HipoBankProjection(factory, new SchemaFactory());
+        projection.setParticleFilter(factory, new HashSet<>(Arrays.asList(11, 2212)));
+
+        Event event = new Event();
+        // particles 0 and 2 are kept:
+        event.write(createBank(factory, "REC::Particle", "pid", 11, 22, 2212, -211));
+        // tracks of particles 0, 3, 2 and 1:
+        event.write(createBank(factory, "REC::Track", "pindex", 0, 3, 2, 1));
+        Bank doca = createBank(factory, "REC::VertDoca", "index1", 0, 0, 1, 2);
+        for (int i = 0; i < 4; i++) doca.putShort("index2", i, (short) new int[]{2, 1, 3, 0}[i]);
+        event.write(doca);
+        event.write(createBank(factory, "REC::Scintillator", "pindex", 2, 1, 0));
+        event.write(createBank(factory, "REC::ScintExtras", "size", 1, 2, 3));
+        // the other namespaces are filtered on their own particles:
+        event.write(createBank(factory, "RECHB::Particle", "pid", 22, 11));
+        event.write(createBank(factory, "RECHB::Track", "pindex", 1, 0));
+        projection.apply(event);
+
+        assertArrayEquals(new int[]{11, 2212}, read(factory, event, "REC::Particle", "pid"));
+        assertArrayEquals(new int[]{0, 1}, read(factory, event, "REC::Track", "pindex"));
+        // the track pairs with both tracks kept, renumbered:
+        assertArrayEquals(new int[]{0, 1}, read(factory, event, "REC::VertDoca", "index1"));
+        assertArrayEquals(new int[]{1, 0}, read(factory, event, "REC::VertDoca", "index2"));
+        assertArrayEquals(new int[]{1, 0}, read(factory, event, "REC::Scintillator", "pindex"));
+        assertArrayEquals(new int[]{1, 3}, read(factory, event, "REC::ScintExtras", "size"));
+        assertArrayEquals(new int[]{11}, read(factory, event, "RECHB::Particle", "pid"));
+        assertArrayEquals(new int[]{0}, read(factory, event, "RECHB::Track", "pindex"));
+    }
+
+    @Test
+    public void testNoParticleRemoved() {
+        SchemaFactory factory = getSchemas();
+        HipoBankProjection projection = new HipoBankProjection(factory, new SchemaFactory());
+        projection.setParticleFilter(factory, new HashSet<>(Arrays.asList(11)));
+        Event event = new Event();
+        event.write(createBank(factory, "REC::Particle", "pid", 11, 11));
+        event.write(createBank(factory, "REC::Track", "pindex", 1, 0));
+        for (int n = 0; n < 3; n++) projection.apply(event);
+        assertArrayEquals(new int[]{11, 11}, read(factory, event, "REC::Particle", "pid"));
+        assertArrayEquals(new int[]{1, 0}, read(factory, event, "REC::Track", "pindex"));
+    }
+}
@@ -0,0 +1,95 @@
+package org.jlab.io.hipo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.jlab.io.base.DataBank;
+import org.jlab.io.base.DataEvent;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class HipoDataSourceTest {
+
+    private static final int NEVENTS = 50;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Writes a file with events numbered from 0 in RUN::config.
+     */
+    private String write() {
+        SchemaFactory factory = new SchemaFactory();
+        factory.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        String file = new File(folder.getRoot(), "events.hipo").getAbsolutePath();
+        HipoDataSync writer = new HipoDataSync(factory);
+        writer.open(file);
+        for(int i = 0; i < NEVENTS; i++) {
+            DataEvent event = writer.createEvent();
+            DataBank bank = event.createBank("RUN::config", 1);
+            bank.setInt("event", 0, i);
+            event.appendBank(bank);
+            writer.writeEvent(event);
+        }
+        writer.close();
+        return file;
+    }
+
+    private static int number(DataEvent event) {
+        return event.getBank("RUN::config").getInt("event", 0);
+    }
+
+    /**
+     * Reads events sequentially and with jumps, returning their numbers.
+     */
+    private static List<Integer> read(String file, int prefetch) {
+        HipoDataSource source = new HipoDataSource();
+        source.setPrefetch(prefetch);
+        source.open(file);
+        List<Integer> numbers = new ArrayList<>();
+        for(int i = 0; i < 5; i++) numbers.add(number(source.getNextEvent()));
+        numbers.add(number(source.gotoEvent(30)));
+        for(int i = 0; i < 5; i++) numbers.add(number(source.getNextEvent()));
+        numbers.add(number(source.gotoEvent(2)));
+        numbers.add(number(source.getNextEvent()));
+        numbers.add(number(source.gotoEvent(NEVENTS-1)));
+        numbers.add(source.hasEvent() ? 1 : 0);
+        source.close();
+        return numbers;
+    }
+
+    @Test(timeout = 30000)
+    public void testGotoEvent() {
+        String file = this.write();
+        List<Integer> direct = read(file, 0);
+        assertEquals(0, (int) direct.get(0));
+        assertEquals(4, (int) direct.get(4));
+        assertEquals(30, (int) direct.get(5));
+        assertEquals(2, (int) direct.get(11));
+        assertEquals(NEVENTS-1, (int) direct.get(13));
+        assertEquals(0, (int) direct.get(14));
+        // reading ahead must not change which events are returned:
+        for(int prefetch : new int[]{1, 4, 100}) {
+            assertEquals(direct, read(file, prefetch));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testSequential() {
+        String file = this.write();
+        HipoDataSource source = new HipoDataSource();
+        source.setPrefetch(4);
+        source.open(file);
+        int n = 0;
+        while(source.hasEvent()) {
+            DataEvent event = source.getNextEvent();
+            assertEquals(n++, number(event));
+            source.releaseEvent(event);
+        }
+        assertEquals(NEVENTS, n);
+        source.close();
+    }
+}
@@ -5,14 +5,20 @@
  */
 package org.jlab.detector.geant4.v2;
 
+import eu.mihosoft.vrl.v3d.Polygon;
 import eu.mihosoft.vrl.v3d.Vector3d;
+import eu.mihosoft.vrl.v3d.Vertex;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import static org.jlab.detector.hits.DetId.CTOFID;
 import org.jlab.detector.units.SystemOfUnits.Length;
+import org.jlab.detector.hits.DetHit;
 import org.jlab.detector.volume.G4Stl;
 import org.jlab.detector.volume.G4World;
 import org.jlab.detector.volume.Geant4Basic;
 import org.jlab.geometry.prim.Line3d;
+import org.jlab.geometry.prim.Straight;
 import org.jlab.geom.base.ConstantProvider;
 import org.jlab.detector.base.DetectorType;
 import org.jlab.detector.base.GeometryFactory;
@@ -28,6 +34,13 @@ public final class CTOFGeant4Factory extends Geant4Factory {
     private final String caddbpath  = "/geometry/ctof/cad/";
     private final String tgdbpath   = "/geometry/shifts/solenoid/";
     private double globalOffset = 0;
+
+    // rounding tolerance on the paddle extents, in cm
+    private static final double TOLERANCE = 1e-4;
+    // paddle annulus and azimuth extent of each paddle, from the meshes
+    private double rmin = Double.MAX_VALUE, rmax = 0;
+    private final double[] phiCenter = new double[npaddles];
+    private final double[] phiHalfWidth = new double[npaddles];
     
     public CTOFGeant4Factory(ConstantProvider cp) {
         
@@ -60,6 +73,87 @@ public final class CTOFGeant4Factory extends Geant4Factory {
                 }
             }
         }
+        for (int ipaddle = 1; ipaddle <= npaddles; ipaddle++) {
+            setPaddleExtent(ipaddle);
+        }
+    }
+
+    /**
+     * Azimuth range and radii of the mesh vertices of a paddle: all the
+     * points of its triangles are within that azimuth range and, the range
+     * being less than pi, at a distance from the axis between the vertex
+     * radii, with the smallest one reduced by the cosine of the half range.
+     */
+    private void setPaddleExtent(int ipaddle) {
+        Geant4Basic pad = motherVolume.getChildren().get(ipaddle - 1);
+        double xsum = 0, ysum = 0;
+        for (Polygon polygon : pad.toCSG().getPolygons()) {
+            for (Vertex vertex : polygon.vertices) {
+                xsum += vertex.pos.x;
+                ysum += vertex.pos.y;
+            }
+        }
+        double phi = Math.atan2(ysum, xsum);
+        double halfWidth = 0, rvertex = Double.MAX_VALUE;
+        for (Polygon polygon : pad.toCSG().getPolygons()) {
+            for (Vertex vertex : polygon.vertices) {
+                double r = Math.hypot(vertex.pos.x, vertex.pos.y);
+                double dphi = Math.IEEEremainder(Math.atan2(vertex.pos.y, vertex.pos.x) - phi, 2*Math.PI);
+                halfWidth = Math.max(halfWidth, Math.abs(dphi));
+                rvertex = Math.min(rvertex, r);
+                rmax = Math.max(rmax, r + TOLERANCE);
+            }
+        }
+        rmin = Math.min(rmin, rvertex*Math.cos(halfWidth) - TOLERANCE);
+        phiCenter[ipaddle - 1] = phi;
+        phiHalfWidth[ipaddle - 1] = halfWidth;
+    }
+
+    /**
+     * Same as {@link #getIntersections(Straight)}, but only the paddles
+     * whose azimuth range overlaps the one of the line inside the paddle
+     * annulus, found analytically, are tested for intersections.
+     * @param line track line
+     * @return list of paddle intersections
+     */
+    public List<DetHit> getPaddleIntersections(Straight line) {
+        Vector3d origin = line.origin();
+        Vector3d dir = line.diff();
+        double a = dir.x*dir.x + dir.y*dir.y;
+        if (a < 1e-12 * dir.magnitudeSq()) return this.getIntersections(line);
+
+        // point of closest approach to the axis, in the transverse plane:
+        double tca = -(origin.x*dir.x + origin.y*dir.y) / a;
+        double xca = origin.x + tca*dir.x;
+        double yca = origin.y + tca*dir.y;
+        double bsq = xca*xca + yca*yca;
+        if (bsq > rmax*rmax) return new ArrayList<>();
+
+        // azimuth ranges of the line inside the annulus, on each side of the
+        // closest approach:
+        double dtmin = bsq < rmin*rmin ? Math.sqrt((rmin*rmin - bsq) / a) : 0;
+        double dtmax = Math.sqrt((rmax*rmax - bsq) / a);
+        double[][] arcs = new double[2][];
+        for (int side = 0; side < 2; side++) {
+            double sign = side == 0 ? -1 : 1;
+            double t1 = tca + sign*dtmin;
+            double t2 = tca + sign*dtmax;
+            double phi1 = Math.atan2(origin.y + t1*dir.y, origin.x + t1*dir.x);
+            double phi2 = Math.atan2(origin.y + t2*dir.y, origin.x + t2*dir.x);
+            double dphi = Math.IEEEremainder(phi2 - phi1, 2*Math.PI);
+            arcs[side] = new double[]{phi1 + dphi/2, Math.abs(dphi)/2};
+        }
+
+        List<DetHit> hits = new ArrayList<>();
+        for (int ipaddle = 1; ipaddle <= npaddles; ipaddle++) {
+            boolean candidate = false;
+            for (double[] arc : arcs) {
+                double dphi = Math.abs(Math.IEEEremainder(phiCenter[ipaddle - 1] - arc[0], 2*Math.PI));
+                if (dphi <= arc[1] + phiHalfWidth[ipaddle - 1] + TOLERANCE/rmin) candidate = true;
+            }
+            if (candidate) hits.addAll(motherVolume.getChildren().get(ipaddle - 1).getIntersections(line));
+        }
+        return hits;
     }
 
     public Vector3d getCenter(double radius, double thickness, double angle){
@@ -8,12 +8,14 @@ import java.util.ArrayList;
 import java.util.List;
 import org.jlab.detector.base.DetectorType;
 import org.jlab.detector.base.GeometryFactory;
+import org.jlab.detector.hits.DetHit;
 import static org.jlab.detector.hits.DetId.FTOFID;
 import static org.jlab.detector.units.SystemOfUnits.Length;
 import org.jlab.detector.volume.G4World;
 import org.jlab.geom.base.ConstantProvider;
 import org.jlab.geom.prim.Plane3D;
 import org.jlab.geom.prim.Trap3D;
+import org.jlab.geometry.prim.Straight;
 
 /**
  *
@@ -41,6 +43,8 @@ public final class FTOFGeant4Factory extends Geant4Factory {
     };
 
     private final int[] nPaddles = new int[stringLayers.length];
+
+    private final PanelFrame[] panelFrames = new PanelFrame[18];
     
     public FTOFGeant4Factory(ConstantProvider provider) {
         motherVolume = new G4World("fc");
@@ -64,6 +68,9 @@ public final class FTOFGeant4Factory extends Geant4Factory {
                 layerVolume.setMother(motherVolume);
             }
         }
+        for (int ivolume = 0; ivolume < panelFrames.length; ivolume++) {
+            panelFrames[ivolume] = new PanelFrame(motherVolume.getChildren().get(ivolume), nPaddles[ivolume % 3]);
+        }
         properties.put("email", "carman@jlab.org, jguerra@jlab.org");
         properties.put("author", "carman, guerra");
         properties.put("date", "06/03/13");
@@ -245,6 +252,112 @@ public final class FTOFGeant4Factory extends Geant4Factory {
     public G4World getMother() {
         return motherVolume;
     }
+
+    /**
+     * Same as {@link #getIntersections(Straight)}, but only the paddles
+     * whose boxes the line crosses, found analytically, are tested for
+     * intersections with the line.
+     * @param line track line
+     * @return list of paddle intersections
+     */
+    public List<DetHit> getPaddleIntersections(Straight line) {
+        List<DetHit> hits = new ArrayList<>();
+        for (int ivolume = 0; ivolume < panelFrames.length; ivolume++) {
+            PanelFrame frame = panelFrames[ivolume];
+            Geant4Basic panel = motherVolume.getChildren().get(ivolume);
+            int[] range = frame.getCandidates(line);
+            if (range == null) {
+                hits.addAll(panel.getIntersections(line));
+            }
+            else {
+                for (int ipaddle = range[0]; ipaddle <= range[1]; ipaddle++) {
+                    hits.addAll(panel.getChildren().get(ipaddle).getIntersections(line));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Local frame of a panel, built from its paddles: x along the paddles,
+     * y normal to the panel and z across the paddles, with the origin at
+     * the center of the first paddle, and the paddle boxes in that frame.
+     */
+    private static final class PanelFrame {
+
+        // rounding tolerance on the box faces, in cm
+        private static final double TOLERANCE = 1e-4;
+
+        private final Vector3d origin;
+        private final Vector3d xaxis, yaxis, zaxis;
+        private final double[][] centers;
+        private final double[][] halves;
+        private final boolean aligned;
+
+        PanelFrame(Geant4Basic panel, int npaddles) {
+            G4Box first = (G4Box) panel.getChildren().get(0);
+            origin = first.getLineY().origin().clone().add(first.getLineY().end()).dividedBy(2);
+            xaxis = first.getLineX().diff().normalized();
+            yaxis = first.getLineY().diff().normalized();
+            zaxis = first.getLineZ().diff().normalized();
+            centers = new double[npaddles][];
+            halves = new double[npaddles][];
+            boolean parallel = true;
+            for (int ipaddle = 0; ipaddle < npaddles; ipaddle++) {
+                G4Box paddle = (G4Box) panel.getChildren().get(ipaddle);
+                Vector3d center = paddle.getLineY().origin().clone().add(paddle.getLineY().end()).dividedBy(2);
+                Vector3d rel = center.minus(origin);
+                centers[ipaddle] = new double[]{rel.dot(xaxis), rel.dot(yaxis), rel.dot(zaxis)};
+                halves[ipaddle] = new double[]{paddle.getXHalfLength() + TOLERANCE,
+                    paddle.getYHalfLength() + TOLERANCE, paddle.getZHalfLength() + TOLERANCE};
+                parallel &= paddle.getLineX().diff().normalized().dot(xaxis) > 1 - 1e-12;
+                parallel &= paddle.getLineY().diff().normalized().dot(yaxis) > 1 - 1e-12;
+            }
+            aligned = parallel;
+        }
+
+        /**
+         * @param line
+         * @return first and last index of the paddles whose boxes the line
+         * crosses, an empty range if it crosses none, or null if the paddles
+         * are not all aligned with the panel frame
+         */
+        int[] getCandidates(Straight line) {
+            if (!aligned) return null;
+            // line in the panel frame:
+            Vector3d dir = line.diff();
+            Vector3d rel = line.origin().minus(origin);
+            double[] d = {dir.dot(xaxis), dir.dot(yaxis), dir.dot(zaxis)};
+            double[] p = {rel.dot(xaxis), rel.dot(yaxis), rel.dot(zaxis)};
+            int first = centers.length, last = -1;
+            for (int ipaddle = 0; ipaddle < centers.length; ipaddle++) {
+                if (!crosses(p, d, centers[ipaddle], halves[ipaddle])) continue;
+                first = Math.min(first, ipaddle);
+                last  = Math.max(last, ipaddle);
+            }
+            return new int[]{first, last};
+        }
+
+        /**
+         * Slab test: the line crosses the box if the parameter ranges where
+         * it lies between each pair of faces overlap.
+         */
+        private static boolean crosses(double[] p, double[] d, double[] center, double[] half) {
+            double tmin = Double.NEGATIVE_INFINITY, tmax = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < 3; i++) {
+                double rel = p[i] - center[i];
+                if (d[i] == 0) {
+                    if (Math.abs(rel) > half[i]) return false;
+                    continue;
+                }
+                double t1 = (-half[i] - rel) / d[i];
+                double t2 = ( half[i] - rel) / d[i];
+                tmin = Math.max(tmin, Math.min(t1, t2));
+                tmax = Math.min(tmax, Math.max(t1, t2));
+            }
+            return tmin <= tmax;
+        }
+    }
     
     
     public static void main(String[] args) {
@@ -0,0 +1,122 @@
+package org.jlab.detector.geant4.v2;
+
+import eu.mihosoft.vrl.v3d.Polygon;
+import eu.mihosoft.vrl.v3d.Vector3d;
+import eu.mihosoft.vrl.v3d.Vertex;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jlab.detector.base.DetectorType;
+import org.jlab.detector.base.GeometryFactory;
+import org.jlab.detector.hits.DetHit;
+import org.jlab.detector.volume.Geant4Basic;
+import org.jlab.geometry.prim.Line3d;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CTOFGeant4FactoryTest {
+
+    private static final int NPADDLES = 48;
+
+    private static CTOFGeant4Factory factory;
+
+    @BeforeClass
+    public static void load() {
+        factory = new CTOFGeant4Factory(GeometryFactory.getConstants(DetectorType.CTOF));
+    }
+
+    private static String dump(List<DetHit> hits, Set<String> ids) {
+        StringBuilder str = new StringBuilder();
+        for (DetHit hit : hits) {
+            String id = Arrays.toString(hit.getId());
+            if (ids != null) ids.add(id);
+            str.append(String.format("%s %s %s\n", id, hit.origin(), hit.end()));
+        }
+        return str.toString();
+    }
+
+    private static Vector3d direction(Random random) {
+        return new Vector3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()).normalized();
+    }
+
+    private static void assertSameHits(Line3d line, Set<String> ids) {
+        String expected = dump(factory.getIntersections(line), ids);
+        assertEquals(expected, dump(factory.getPaddleIntersections(line), null));
+    }
+
+    @Test
+    public void testTargetTracks() {
+        Random random = new Random(97);
+        Set<String> ids = new HashSet<>();
+        for (int k = 0; k < 5000; k++) {
+            Vector3d vertex = new Vector3d(random.nextGaussian(), random.nextGaussian(), 10*random.nextGaussian());
+            Vector3d dir = direction(random);
+            // some parallel to the axis:
+            if (k%100 == 0) dir = new Vector3d(0, 0, 1);
+            assertSameHits(new Line3d(vertex, vertex.plus(dir.times(100))), ids);
+        }
+        assertEquals(NPADDLES, ids.size());
+    }
+
+    /**
+     * Lines through the mesh vertices of every paddle in random directions,
+     * lines tangent to the paddle inner faces, and lines tangent to cylinders
+     * around the paddle inner and outer surfaces.
+     */
+    @Test
+    public void testGrazingTracks() {
+        Random random = new Random(101);
+        Set<String> ids = new HashSet<>();
+        double rmin = Double.MAX_VALUE, rmax = 0;
+        int ninner = 0;
+        for (int ipaddle = 1; ipaddle <= NPADDLES; ipaddle++) {
+            Geant4Basic paddle = factory.getPaddle(ipaddle);
+            List<Vector3d> vertices = new ArrayList<>();
+            for (Polygon polygon : paddle.toCSG().getPolygons()) {
+                for (Vertex vertex : polygon.vertices) vertices.add(vertex.pos);
+            }
+            for (Vector3d vertex : vertices) {
+                rmin = Math.min(rmin, Math.hypot(vertex.x, vertex.y));
+                rmax = Math.max(rmax, Math.hypot(vertex.x, vertex.y));
+            }
+            for (int k = 0; k < 50; k++) {
+                Vector3d point = vertices.get(random.nextInt(vertices.size()));
+                Vector3d dir = direction(random);
+                assertSameHits(new Line3d(point.minus(dir.times(100)), point.plus(dir.times(100))), ids);
+            }
+            // tangent to the inner face, closer to the axis than its vertices:
+            double phi = 0, halfWidth = 0, rvertex = Double.MAX_VALUE;
+            for (Vector3d vertex : vertices) phi += Math.atan2(vertex.y, vertex.x);
+            phi /= vertices.size();
+            for (Vector3d vertex : vertices) {
+                halfWidth = Math.max(halfWidth, Math.abs(Math.atan2(vertex.y, vertex.x) - phi));
+                rvertex = Math.min(rvertex, Math.hypot(vertex.x, vertex.y));
+            }
+            for (int k = 0; k < 50; k++) {
+                double r = rvertex*Math.cos(halfWidth) + (rvertex - rvertex*Math.cos(halfWidth))*random.nextDouble();
+                double phik = phi + halfWidth*(2*random.nextDouble() - 1);
+                Vector3d point = new Vector3d(r*Math.cos(phik), r*Math.sin(phik), 40*random.nextDouble() - 20);
+                Vector3d dir = new Vector3d(-Math.sin(phik), Math.cos(phik), 0.2*random.nextGaussian());
+                if (!factory.getIntersections(new Line3d(point, point.plus(dir))).isEmpty()) ninner++;
+                assertSameHits(new Line3d(point, point.plus(dir)), null);
+            }
+        }
+        assertEquals(NPADDLES, ids.size());
+        assertTrue(ninner > 100);
+        int ntangent = 0;
+        for (int k = 0; k < 5000; k++) {
+            double r = rmin - 0.5 + (rmax - rmin + 1)*random.nextDouble();
+            double phi = 2*Math.PI*random.nextDouble();
+            Vector3d point = new Vector3d(r*Math.cos(phi), r*Math.sin(phi), 40*random.nextDouble() - 20);
+            Vector3d dir = new Vector3d(-Math.sin(phi), Math.cos(phi), 0.2*random.nextGaussian());
+            List<DetHit> hits = factory.getIntersections(new Line3d(point, point.plus(dir)));
+            if (!hits.isEmpty()) ntangent++;
+            assertSameHits(new Line3d(point, point.plus(dir)), null);
+        }
+        assertTrue(ntangent > 1000);
+    }
+}
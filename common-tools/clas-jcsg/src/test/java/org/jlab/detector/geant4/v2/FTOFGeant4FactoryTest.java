@@ -0,0 +1,111 @@
+package org.jlab.detector.geant4.v2;
+
+import eu.mihosoft.vrl.v3d.Vector3d;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import org.jlab.detector.base.DetectorType;
+import org.jlab.detector.base.GeometryFactory;
+import org.jlab.detector.hits.DetHit;
+import org.jlab.detector.volume.G4Box;
+import org.jlab.detector.volume.Geant4Basic;
+import org.jlab.geometry.prim.Line3d;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FTOFGeant4FactoryTest {
+
+    private static FTOFGeant4Factory factory;
+    private static final int[][] npaddles = new int[6][3];
+    private static int ntotal;
+
+    @BeforeClass
+    public static void load() {
+        factory = new FTOFGeant4Factory(GeometryFactory.getConstants(DetectorType.FTOF, 11, "default"));
+        for (int ivolume = 0; ivolume < 18; ivolume++) {
+            // paddles, and the lead shield of panels 1a and 2:
+            for (Geant4Basic volume : factory.getMother().getChildren().get(ivolume).getChildren()) {
+                if (volume instanceof G4Box) npaddles[ivolume/3][ivolume%3]++;
+            }
+            ntotal += npaddles[ivolume/3][ivolume%3];
+        }
+    }
+
+    private static String dump(List<DetHit> hits, Set<String> ids) {
+        StringBuilder str = new StringBuilder();
+        for (DetHit hit : hits) {
+            String id = Arrays.toString(hit.getId());
+            if (ids != null) ids.add(id);
+            str.append(String.format("%s %s %s\n", id, hit.origin(), hit.end()));
+        }
+        return str.toString();
+    }
+
+    private static Vector3d direction(Random random) {
+        return new Vector3d(random.nextGaussian(), random.nextGaussian(), random.nextGaussian()).normalized();
+    }
+
+    private static void assertSameHits(Line3d line, Set<String> ids) {
+        String expected = dump(factory.getIntersections(line), ids);
+        assertEquals(expected, dump(factory.getPaddleIntersections(line), null));
+    }
+
+    @Test
+    public void testTargetTracks() {
+        Random random = new Random(83);
+        Set<String> ids = new HashSet<>();
+        for (int k = 0; k < 20000; k++) {
+            Vector3d vertex = new Vector3d(random.nextGaussian(), random.nextGaussian(), 10*random.nextGaussian());
+            double theta = Math.toRadians(50*random.nextDouble());
+            double phi = 2*Math.PI*random.nextDouble();
+            Vector3d dir = new Vector3d(Math.sin(theta)*Math.cos(phi), Math.sin(theta)*Math.sin(phi), Math.cos(theta));
+            assertSameHits(new Line3d(vertex, vertex.plus(dir.times(1000))), ids);
+        }
+        // tracks across many paddles in all the sectors and panels:
+        assertTrue(ids.size() > ntotal/2);
+    }
+
+    /**
+     * Lines through the corners, edges and faces of every paddle, in random
+     * directions or along the paddle faces.
+     */
+    @Test
+    public void testGrazingTracks() {
+        Random random = new Random(89);
+        Set<String> ids = new HashSet<>();
+        int nlines = 0;
+        for (int sector = 1; sector <= 6; sector++) {
+            for (int layer = 1; layer <= 3; layer++) {
+                for (int paddle = 1; paddle <= npaddles[sector-1][layer-1]; paddle++) {
+                    G4Box box = factory.getComponent(sector, layer, paddle);
+                    Vector3d center = box.getLineY().origin().plus(box.getLineY().end()).dividedBy(2);
+                    Vector3d[] axes = {box.getLineX().diff().dividedBy(2), box.getLineY().diff().dividedBy(2),
+                        box.getLineZ().diff().dividedBy(2)};
+                    for (int k = 0; k < 24; k++) {
+                        // corner, edge or face point:
+                        Vector3d point = center.clone();
+                        int nfree = k%3;
+                        for (int i = 0; i < 3; i++) {
+                            double s = i < nfree ? 2*random.nextDouble() - 1 : (random.nextBoolean() ? 1 : -1);
+                            point = point.plus(axes[(i + k/3)%3].times(s));
+                        }
+                        Vector3d dir = direction(random);
+                        if (k%2 == 1) {
+                            // in the plane of a face:
+                            Vector3d normal = axes[random.nextInt(3)].normalized();
+                            dir = dir.minus(normal.times(dir.dot(normal))).normalized();
+                        }
+                        assertSameHits(new Line3d(point.minus(dir.times(500)), point.plus(dir.times(500))), ids);
+                        nlines++;
+                    }
+                }
+            }
+        }
+        assertEquals(24*ntotal, nlines);
+        // every paddle is hit:
+        assertEquals(ntotal, ids.size());
+    }
+}
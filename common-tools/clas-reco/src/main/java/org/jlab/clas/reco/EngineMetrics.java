@@ -0,0 +1,221 @@
+package org.jlab.clas.reco;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processing metrics of a reconstruction engine: event counts, skipped
+ * events, exceptions, a histogram of the processing time and the memory
+ * allocated while processing.
+ *
+ * The counters can be updated from several processing threads at once.
+ * Allocations are measured on the processing thread with the per-thread
+ * counter of the HotSpot ThreadMXBean, if the JVM supports it.
+ */
+public class EngineMetrics implements EngineMetricsMXBean {
+
+    public static final int LATENCY_BINS = 26;
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = getThreadBean();
+
+    private final LongAdder events         = new LongAdder();
+    private final LongAdder processed      = new LongAdder();
+    private final LongAdder skippedTrigger = new LongAdder();
+    private final LongAdder skippedRun     = new LongAdder();
+    private final LongAdder exceptions     = new LongAdder();
+    private final LongAdder nanos          = new LongAdder();
+    private final LongAdder allocated      = new LongAdder();
+    private final AtomicLongArray latency  = new AtomicLongArray(LATENCY_BINS);
+    // wall time span of the processing, in System.nanoTime units:
+    private final LongAccumulator firstStart = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator lastEnd    = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean =
+                        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                if (bean.isThreadAllocatedMemorySupported()) {
+                    if (!bean.isThreadAllocatedMemoryEnabled()) bean.setThreadAllocatedMemoryEnabled(true);
+                    return bean;
+                }
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            // no allocation counting
+        }
+        return null;
+    }
+
+    /**
+     * @return bytes allocated so far by the current thread, or -1 if not
+     * supported
+     */
+    public static long getAllocatedBytes() {
+        return THREAD_BEAN == null ? -1 : THREAD_BEAN.getCurrentThreadAllocatedBytes();
+    }
+
+    /**
+     * @param micros processing time in microseconds
+     * @return latency histogram bin
+     */
+    static int getLatencyBin(long micros) {
+        return Math.min(LATENCY_BINS-1, 64-Long.numberOfLeadingZeros(micros));
+    }
+
+    public void addEvent() {
+        events.increment();
+    }
+
+    public void addSkippedTriggerMask() {
+        skippedTrigger.increment();
+    }
+
+    public void addSkippedRunNumber() {
+        skippedRun.increment();
+    }
+
+    public void addException() {
+        exceptions.increment();
+    }
+
+    /**
+     * Records one processed event.
+     * @param time processing time in nanoseconds
+     * @param bytes bytes allocated during processing, negative if unknown
+     */
+    public void addProcessed(long time, long bytes) {
+        this.addProcessed(System.nanoTime(), time, bytes);
+    }
+
+    /**
+     * @param end end of processing, from System.nanoTime
+     * @param time processing time in nanoseconds
+     * @param bytes bytes allocated during processing, negative if unknown
+     */
+    void addProcessed(long end, long time, long bytes) {
+        firstStart.accumulate(end - time);
+        lastEnd.accumulate(end);
+        processed.increment();
+        nanos.add(time);
+        if (bytes > 0) allocated.add(bytes);
+        latency.incrementAndGet(getLatencyBin(time/1000));
+    }
+
+    @Override
+    public long getEvents() {
+        return events.sum();
+    }
+
+    @Override
+    public long getProcessedEvents() {
+        return processed.sum();
+    }
+
+    @Override
+    public long getSkippedTriggerMask() {
+        return skippedTrigger.sum();
+    }
+
+    @Override
+    public long getSkippedRunNumber() {
+        return skippedRun.sum();
+    }
+
+    @Override
+    public long getExceptions() {
+        return exceptions.sum();
+    }
+
+    @Override
+    public double getMeanLatency() {
+        long n = processed.sum();
+        return n > 0 ? nanos.sum()*1e-6/n : 0;
+    }
+
+    @Override
+    public double getMedianLatency() {
+        return this.getLatencyQuantile(0.5);
+    }
+
+    @Override
+    public double getLatency99() {
+        return this.getLatencyQuantile(0.99);
+    }
+
+    /**
+     * @param q quantile, between 0 and 1
+     * @return upper edge of the histogram bin containing the quantile, in
+     * milliseconds
+     */
+    public double getLatencyQuantile(double q) {
+        long[] h = this.getLatencyHistogram();
+        long n = 0;
+        for (long x : h) n += x;
+        if (n == 0) return 0;
+        long sum = 0;
+        for (int i=0; i<h.length; i++) {
+            sum += h[i];
+            if (sum >= q*n) return (1L<<i)*1e-3;
+        }
+        return (1L<<(h.length-1))*1e-3;
+    }
+
+    @Override
+    public double getEventRate() {
+        long n = processed.sum();
+        if (n == 0) return 0;
+        long t = lastEnd.get() - firstStart.get();
+        return t > 0 ? n*1e9/t : 0;
+    }
+
+    @Override
+    public double getAllocatedBytesPerEvent() {
+        if (THREAD_BEAN == null) return -1;
+        long n = processed.sum();
+        return n > 0 ? (double) allocated.sum()/n : 0;
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] h = new long[LATENCY_BINS];
+        for (int i=0; i<LATENCY_BINS; i++) h[i] = latency.get(i);
+        return h;
+    }
+
+    @Override
+    public void reset() {
+        events.reset();
+        processed.reset();
+        skippedTrigger.reset();
+        skippedRun.reset();
+        exceptions.reset();
+        nanos.reset();
+        allocated.reset();
+        firstStart.reset();
+        lastEnd.reset();
+        for (int i=0; i<LATENCY_BINS; i++) latency.set(i, 0);
+    }
+
+    /**
+     * @return header line for {@link #toString(String)}
+     */
+    public static String getHeader() {
+        return String.format("%-16s %10s %10s %8s %8s %6s %10s %10s %10s %10s %12s",
+                "engine", "events", "processed", "trigger", "run", "error",
+                "mean(ms)", "p50(ms)", "p99(ms)", "events/s", "bytes/event");
+    }
+
+    /**
+     * @param name engine name
+     * @return one line summary of the metrics
+     */
+    public String toString(String name) {
+        return String.format("%-16s %10d %10d %8d %8d %6d %10.3f %10.3f %10.3f %10.1f %12.0f",
+                name, this.getEvents(), this.getProcessedEvents(), this.getSkippedTriggerMask(),
+                this.getSkippedRunNumber(), this.getExceptions(), this.getMeanLatency(),
+                this.getMedianLatency(), this.getLatency99(), this.getEventRate(),
+                this.getAllocatedBytesPerEvent());
+    }
+}
@@ -0,0 +1,71 @@
+package org.jlab.clas.reco;
+
+/**
+ * JMX view of the processing metrics of a reconstruction engine.
+ */
+public interface EngineMetricsMXBean {
+
+    /**
+     * @return number of events passed to the engine
+     */
+    long getEvents();
+
+    /**
+     * @return number of events processed by the engine
+     */
+    long getProcessedEvents();
+
+    /**
+     * @return number of events skipped because of the trigger mask
+     */
+    long getSkippedTriggerMask();
+
+    /**
+     * @return number of events skipped because of an invalid run number
+     */
+    long getSkippedRunNumber();
+
+    /**
+     * @return number of events where the engine threw an exception
+     */
+    long getExceptions();
+
+    /**
+     * @return average processing time per processed event, in milliseconds
+     */
+    double getMeanLatency();
+
+    /**
+     * @return approximate median processing time, in milliseconds
+     */
+    double getMedianLatency();
+
+    /**
+     * @return approximate 99th percentile of the processing time, in milliseconds
+     */
+    double getLatency99();
+
+    /**
+     * @return processed events per second of wall time, from the start of
+     * the first processed event to the end of the last one, over all the
+     * processing threads
+     */
+    double getEventRate();
+
+    /**
+     * @return average number of bytes allocated per processed event, or -1
+     * if allocation counting is not supported by the JVM
+     */
+    double getAllocatedBytesPerEvent();
+
+    /**
+     * @return number of processed events per latency bin, where bin i counts
+     * times between 2^(i-1) and 2^i microseconds
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * Clears all counters.
+     */
+    void reset();
+}
@@ -2,12 +2,16 @@ package org.jlab.clas.reco;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jlab.io.base.DataEvent;
+import org.jlab.io.hipo.HipoBankProjection;
+import org.jlab.io.hipo.HipoDataEvent;
 import org.jlab.io.hipo.HipoDataSource;
 import org.jlab.io.hipo.HipoDataSync;
 import org.jlab.utils.benchmark.ProgressPrintout;
@@ -33,6 +37,10 @@ public class EngineProcessor {
     private static final Logger LOGGER = Logger.getLogger(EngineProcessor.class.getPackage().getName());
     private boolean updateDictionary = true;
     private SchemaFactory banksToKeep = null;
+    private Set<Integer> particlesToKeep = null;
+    private int writeQueueSize = 0;
+    private int readAheadSize = 0;
+    private double metricsInterval = 60.0;
     private final List<String> schemaExempt = Arrays.asList("RUN::config","DC::tdc");
 
     public EngineProcessor(){}
@@ -89,6 +97,36 @@ public class EngineProcessor {
         banksToKeep.initFromDirectory(schemaDirectory);
     }
 
+    /**
+     * Keep only the REC::Particle rows with the given PIDs in the output,
+     * and the rows of the other REC banks referencing them.
+     * @param pids comma-separated list of PIDs
+     */
+    public void setParticlesToKeep(String pids) {
+        particlesToKeep = new HashSet<>();
+        for (String pid : pids.split(",")) {
+            particlesToKeep.add(Integer.parseInt(pid.trim()));
+        }
+        LOGGER.log(Level.INFO, "Keeping particles with PIDs:  "+particlesToKeep);
+    }
+
+    /**
+     * Create the projection of the output banks on the columns of the schema
+     * directory, and rows of the kept particles, and update the output
+     * dictionary accordingly.
+     * @return the projection, or null if there's nothing to project
+     */
+    private HipoBankProjection createProjection(HipoDataSource source, HipoDataSync sync) {
+        SchemaFactory fsrc = source.getReader().getSchemaFactory();
+        HipoBankProjection projection = new HipoBankProjection(fsrc,
+                banksToKeep != null ? banksToKeep : new SchemaFactory());
+        if (particlesToKeep != null)
+            projection.setParticleFilter(fsrc, particlesToKeep);
+        if (projection.isEmpty()) return null;
+        projection.updateSchemas(sync.getWriter().getSchemaFactory());
+        return projection;
+    }
+
     private void removeBanks(DataEvent event) {
         if (banksToKeep != null) {
             for (String bankName : event.getBankList()) {
@@ -288,24 +326,30 @@ public class EngineProcessor {
         if(file.endsWith(".hipo")==true||file.endsWith(".h5")==true
                 ||file.endsWith(".h4")==true){
             HipoDataSource reader = new HipoDataSource();
+            reader.setPrefetch(readAheadSize);
             reader.open(file);
             
             int eventCounter = 0;
             HipoDataSync   writer = new HipoDataSync();
             writer.setCompressionType(2);
+            writer.setAsync(writeQueueSize);
 
             // this doesn't work (before or after "open"):
             //if (this.banksToKeep != null)
             //    writer.getWriter().getSchemaFactory().reduce(banksToKeep.getSchemaKeys());
 
-            writer.open(output);
-
             if(updateDictionary==true)
                 updateDictionary(reader, writer);
+
+            // column and row projection, must be set before opening the output:
+            HipoBankProjection projection = createProjection(reader, writer);
+
+            writer.open(output);
            
             if(nskip>0 && nevents>0) nevents += nskip;
             
             ProgressPrintout  progress = new ProgressPrintout();
+            long metricsTime = System.currentTimeMillis();
             while(reader.hasEvent()==true){
                 DataEvent event = reader.getNextEvent();
                 if(nskip<=0 || eventCounter>nskip) {
@@ -313,16 +357,25 @@ public class EngineProcessor {
 
                     // this works:
                     removeBanks(event);
+                    if(projection!=null)
+                        projection.apply(((HipoDataEvent) event).getHipoEvent());
 
                     writer.writeEvent(event);
                 }
+                reader.releaseEvent(event);
                 eventCounter++;
                 if(nevents>0){
                     if(eventCounter>nevents) break;
                 }
                 progress.updateStatus();
+                if(metricsInterval>0 && System.currentTimeMillis()-metricsTime>=1000*metricsInterval){
+                    metricsTime = System.currentTimeMillis();
+                    showMetrics();
+                }
             }
             progress.showStatus();
+            showMetrics();
+            reader.close();
             writer.close();
         } else {
             LOGGER.info("\n\n>>>> error in file extension (use .hipo,.h4 or .h5)\n>>>> how is this not simple ?\n");
@@ -330,6 +383,44 @@ public class EngineProcessor {
         
     }
 
+    /**
+     * Set the size of the output queue for asynchronous writing, where
+     * compression of output records happens on a background thread.
+     * @param size maximum number of queued events, 0 to write synchronously
+     */
+    public void setWriteQueueSize(int size){
+        this.writeQueueSize = size;
+    }
+
+    /**
+     * Set the number of input events read and decompressed ahead of the
+     * processing on a background thread.
+     * @param size number of events to read ahead, 0 to read synchronously
+     */
+    public void setReadAheadSize(int size){
+        this.readAheadSize = size;
+    }
+
+    /**
+     * Set the interval for printing the engine metrics during processing,
+     * they are always printed at the end.
+     * @param seconds interval in seconds, 0 to print only at the end
+     */
+    public void setMetricsInterval(double seconds){
+        this.metricsInterval = seconds;
+    }
+
+    /**
+     * display the metrics of the engines in the chain.
+     */
+    public void showMetrics(){
+        System.out.println("----->>> Engine metrics:");
+        System.out.println(EngineMetrics.getHeader());
+        for(Map.Entry<String,ReconstructionEngine> entry : this.processorEngines.entrySet()){
+            System.out.println(entry.getValue().getMetrics().toString(entry.getKey()));
+        }
+    }
+
     /**
      * display services registered with the processor.
      */
@@ -354,6 +445,10 @@ public class EngineProcessor {
         parser.addOption("-S",null,"schema directory");
         parser.addOption("-B",null,"background file");
         parser.addOption("-P",null,"preload file for post-processing");
+        parser.addOption("-W","0","output queue size for asynchronous writing [0 - synchronous/default]");
+        parser.addOption("-R","0","number of input events to read ahead [0 - synchronous/default]");
+        parser.addOption("-F",null,"comma-separated PIDs of the REC*::Particle rows to keep in the output");
+        parser.addOption("-M","60","interval in seconds for printing engine metrics [0 - only at the end]");
 
         parser.parse(args);
 
@@ -372,6 +467,10 @@ public class EngineProcessor {
         int nevents = parser.getOption("-n").intValue();
         String yamlFileName = parser.getOption("-y").stringValue();
 
+        proc.setWriteQueueSize(parser.getOption("-W").intValue());
+        proc.setReadAheadSize(parser.getOption("-R").intValue());
+        proc.setMetricsInterval(parser.getOption("-M").doubleValue());
+
         String update = parser.getOption("-u").stringValue();
         if(update.contains("false")==true) proc.updateDictionary = false;
 
@@ -409,6 +508,9 @@ public class EngineProcessor {
         if (parser.getOption("-S").stringValue() != null)
             proc.setBanksToKeep(parser.getOption("-S").stringValue());
 
+        if (parser.getOption("-F").stringValue() != null)
+            proc.setParticlesToKeep(parser.getOption("-F").stringValue());
+
         // command-line filename for background merging overrides YAML:
         if (parser.getOption("-B").stringValue() != null)
             proc.setBackgroundFiles(parser.getOption("-B").stringValue());
@@ -1,5 +1,7 @@
 package org.jlab.clas.reco;
 
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.util.Arrays;
@@ -12,6 +14,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import org.jlab.clara.base.ClaraUtil;
 import org.jlab.clara.engine.Engine;
 import org.jlab.clara.engine.EngineData;
@@ -64,6 +70,11 @@ public abstract class ReconstructionEngine implements Engine {
 
     volatile long triggerMask = 0xFFFFFFFFFFFFFFFFL;
 
+    private final EngineMetrics metrics = new EngineMetrics();
+    private ObjectName metricsName = null;
+    private Cleaner.Cleanable metricsCleanup = null;
+    private static final Cleaner CLEANER = Cleaner.create();
+
     String             engineName        = "UnknownEngine";
     String             engineAuthor      = "N.T.";
     String             engineVersion     = "0.0";
@@ -198,6 +209,7 @@ public abstract class ReconstructionEngine implements Engine {
               this.setTriggerMask(this.getEngineConfigString("triggerMask"));
           }
           this.init();
+          this.registerMetrics();
       } catch (Exception e){
           LOGGER.log(Level.SEVERE,"[Wooops] ---> something went wrong with " + this.getDescription());
           e.printStackTrace();
@@ -359,11 +371,95 @@ public abstract class ReconstructionEngine implements Engine {
         if (this.dropOutputBanks) {
             this.dropBanks(dataEvent);
         }
-        if(this.applyTriggerMask(dataEvent)) {
-            if (this.checkRunNumber(dataEvent)) {
-                this.processDataEvent(dataEvent);
+        metrics.addEvent();
+        if(!this.applyTriggerMask(dataEvent)) {
+            metrics.addSkippedTriggerMask();
+        }
+        else if (!this.checkRunNumber(dataEvent)) {
+            metrics.addSkippedRunNumber();
+        }
+        else {
+            this.processTimed(dataEvent);
+        }
+    }
+
+    /**
+     * Process the event, recording the processing time, allocated memory
+     * and exceptions in the engine metrics.
+     * @param dataEvent
+     */
+    private void processTimed(DataEvent dataEvent) {
+        final long bytes = EngineMetrics.getAllocatedBytes();
+        final long start = System.nanoTime();
+        try {
+            this.processDataEvent(dataEvent);
+        } catch (RuntimeException e) {
+            metrics.addException();
+            throw e;
+        }
+        final long end = System.nanoTime();
+        metrics.addProcessed(end, end - start, bytes<0 ? -1 : EngineMetrics.getAllocatedBytes()-bytes);
+    }
+
+    public EngineMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Register the engine metrics with the platform MBean server, under
+     * org.jlab.clas.reco:type=EngineMetrics,name=engineName, with an
+     * instance number appended if several engines have the same name.
+     * The metrics are unregistered by destroy, or else when this engine
+     * is garbage collected.
+     */
+    public synchronized void registerMetrics() {
+        if (metricsCleanup != null) return;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            String base = "org.jlab.clas.reco:type=EngineMetrics,name=" + ObjectName.quote(this.getName());
+            ObjectName name = null;
+            for (int instance = 1; name == null; instance++) {
+                ObjectName candidate = new ObjectName(instance == 1 ? base : base + ",instance=" + instance);
+                try {
+                    server.registerMBean(metrics, candidate);
+                    name = candidate;
+                } catch (InstanceAlreadyExistsException e) {
+                    LOGGER.log(Level.FINE, "[" + this.getName() + "] engine metrics already registered as " + candidate);
+                }
+            }
+            metricsName = name;
+            metricsCleanup = CLEANER.register(this, unregisterAction(name));
+        } catch (JMException | SecurityException e) {
+            LOGGER.log(Level.WARNING, "[" + this.getName() + "] could not register engine metrics", e);
+        }
+    }
+
+    /**
+     * @return the name the metrics are registered under, or null
+     */
+    public synchronized ObjectName getMetricsName() {
+        return metricsName;
+    }
+
+    public synchronized void unregisterMetrics() {
+        if (metricsCleanup == null) return;
+        metricsCleanup.clean();
+        metricsCleanup = null;
+        metricsName = null;
+    }
+
+    /**
+     * Must not reference the engine, or it would never be garbage collected.
+     */
+    private static Runnable unregisterAction(ObjectName name) {
+        return () -> {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException | SecurityException e) {
+                Logger.getLogger(ReconstructionEngine.class.getName())
+                        .log(Level.WARNING, "could not unregister engine metrics " + name, e);
             }
-        }        
+        };
     }
     
     @Override
@@ -428,7 +524,8 @@ public abstract class ReconstructionEngine implements Engine {
             }
 
             try {
-                this.processDataEvent(dataevent);
+                metrics.addEvent();
+                this.processTimed(dataevent);
                 ByteBuffer  bbo = dataevent.getEventBuffer();
                 //byte[] buffero = bbo.array();
                 output.setData(mt, bbo);
@@ -536,6 +633,7 @@ public abstract class ReconstructionEngine implements Engine {
 
     @Override
     public void destroy() {
+        this.unregisterMetrics();
     }
     
     public void setFatal() {
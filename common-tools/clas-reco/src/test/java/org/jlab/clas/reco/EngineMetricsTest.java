@@ -0,0 +1,176 @@
+package org.jlab.clas.reco;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Random;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.jlab.io.base.DataBank;
+import org.jlab.io.base.DataEvent;
+import org.jlab.io.hipo.HipoDataEvent;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class EngineMetricsTest {
+
+    private static class TestEngine extends ReconstructionEngine {
+        TestEngine() {
+            super("MetricsTest", "test", "1.0");
+        }
+        @Override
+        public boolean processDataEvent(DataEvent event) {
+            if (event.getBank("RUN::config").getInt("event", 0) < 0) throw new IllegalStateException();
+            return true;
+        }
+        @Override
+        public boolean init() {
+            return true;
+        }
+    }
+
+    @Test
+    public void testRegistration() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        TestEngine first = new TestEngine();
+        TestEngine second = new TestEngine();
+        first.registerMetrics();
+        second.registerMetrics();
+        // engines with the same name are both registered, under different names:
+        assertNotNull(first.getMetricsName());
+        assertNotNull(second.getMetricsName());
+        assertNotEquals(first.getMetricsName(), second.getMetricsName());
+        assertTrue(server.isRegistered(first.getMetricsName()));
+        assertTrue(server.isRegistered(second.getMetricsName()));
+
+        ObjectName firstName = first.getMetricsName();
+        first.destroy();
+        assertNull(first.getMetricsName());
+        assertFalse(server.isRegistered(firstName));
+        TestEngine third = new TestEngine();
+        third.registerMetrics();
+        // the name freed by the first engine is reused:
+        assertEquals(firstName, third.getMetricsName());
+        assertTrue(server.isRegistered(third.getMetricsName()));
+        assertFalse(third.getMetricsName().equals(second.getMetricsName()));
+        // registering again keeps the name:
+        third.registerMetrics();
+        assertEquals(firstName, third.getMetricsName());
+
+        second.destroy();
+        third.destroy();
+        assertFalse(server.queryNames(null, null).stream().anyMatch(n -> n.toString().contains("MetricsTest")));
+    }
+
+    private static DataEvent event(SchemaFactory schema, int run, long trigger, int number) {
+        DataEvent event = new HipoDataEvent(new Event(), schema);
+        DataBank config = event.createBank("RUN::config", 1);
+        config.setInt("run", 0, run);
+        config.setInt("event", 0, number);
+        config.setLong("trigger", 0, trigger);
+        event.appendBank(config);
+        return event;
+    }
+
+    @Test
+    public void testCounters() throws JMException {
+        SchemaFactory schema = new SchemaFactory();
+        schema.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        TestEngine engine = new TestEngine();
+        engine.triggerMask = 0x0F;
+        Random random = new Random(107);
+        long[] expected = new long[5];
+        for (int i = 0; i < 2000; i++) {
+            int run = random.nextInt(10) == 0 ? 0 : 5038;
+            long trigger = random.nextInt(5) == 0 ? 0x10 : random.nextInt(0x10);
+            int number = random.nextInt(20) == 0 ? -i : i;
+            expected[0]++;
+            // no trigger word is read as accepted:
+            if (trigger != 0 && (trigger & 0x0F) == 0) expected[1]++;
+            else if (run == 0) expected[2]++;
+            else if (number < 0) expected[3]++;
+            else expected[4]++;
+            try {
+                engine.filterEvent(event(schema, run, trigger, number));
+                assertFalse(number < 0 && run > 0 && (trigger == 0 || (trigger & 0x0F) != 0));
+            } catch (IllegalStateException e) {
+                assertTrue(number < 0);
+            }
+        }
+        EngineMetrics metrics = engine.getMetrics();
+        assertEquals(expected[0], metrics.getEvents());
+        assertEquals(expected[1], metrics.getSkippedTriggerMask());
+        assertEquals(expected[2], metrics.getSkippedRunNumber());
+        assertEquals(expected[3], metrics.getExceptions());
+        assertEquals(expected[4], metrics.getProcessedEvents());
+        for (long n : expected) assertTrue(n > 50);
+        long nhist = 0;
+        for (long n : metrics.getLatencyHistogram()) nhist += n;
+        assertEquals(expected[4], nhist);
+
+        // same values through JMX:
+        engine.registerMetrics();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(expected[4], server.getAttribute(engine.getMetricsName(), "ProcessedEvents"));
+        assertEquals(expected[3], server.getAttribute(engine.getMetricsName(), "Exceptions"));
+        engine.destroy();
+
+        metrics.reset();
+        assertEquals(0, metrics.getEvents());
+        assertEquals(0, metrics.getProcessedEvents());
+        assertEquals(0, metrics.getExceptions());
+        assertEquals(0, metrics.getEventRate(), 0);
+        assertEquals(0, metrics.getLatencyQuantile(0.5), 0);
+    }
+
+    @Test
+    public void testLatency() {
+        EngineMetrics metrics = new EngineMetrics();
+        assertEquals(0, metrics.getMedianLatency(), 0);
+        assertEquals(0, metrics.getMeanLatency(), 0);
+        // 0 and 3 us, 1 ms and 100 s, beyond the last bin:
+        for (int i = 0; i < 49; i++) metrics.addProcessed(0, -1);
+        for (int i = 0; i < 49; i++) metrics.addProcessed(3000, -1);
+        metrics.addProcessed(1000000, -1);
+        metrics.addProcessed(100000000000L, -1);
+        long[] histogram = metrics.getLatencyHistogram();
+        assertEquals(EngineMetrics.LATENCY_BINS, histogram.length);
+        assertEquals(49, histogram[0]);
+        assertEquals(49, histogram[2]);
+        assertEquals(1, histogram[10]);
+        assertEquals(1, histogram[EngineMetrics.LATENCY_BINS-1]);
+        // upper bin edges, in ms:
+        assertEquals(0.001, metrics.getLatencyQuantile(0.49), 1e-12);
+        assertEquals(0.004, metrics.getMedianLatency(), 1e-12);
+        assertEquals(0.004, metrics.getLatencyQuantile(0.98), 1e-12);
+        assertEquals(1.024, metrics.getLatency99(), 1e-12);
+        assertEquals((1L<<(EngineMetrics.LATENCY_BINS-1))*1e-3, metrics.getLatencyQuantile(1), 1e-9);
+        assertEquals((49*3000 + 1000000 + 100000000000L)*1e-6/100, metrics.getMeanLatency(), 1e-9);
+        assertEquals(0, EngineMetrics.getLatencyBin(0));
+        assertEquals(1, EngineMetrics.getLatencyBin(1));
+        assertEquals(2, EngineMetrics.getLatencyBin(2));
+        assertEquals(2, EngineMetrics.getLatencyBin(3));
+        assertEquals(3, EngineMetrics.getLatencyBin(4));
+    }
+
+    @Test
+    public void testEventRate() {
+        EngineMetrics metrics = new EngineMetrics();
+        // two threads, each processing events of 10 ms back to back over
+        // 100 ms:
+        long t0 = 1000000000L;
+        for (int i = 0; i < 10; i++) {
+            metrics.addProcessed(t0 + (i+1)*10000000L, 10000000L, -1);
+            metrics.addProcessed(t0 + 5000000L + (i+1)*10000000L, 10000000L, -1);
+        }
+        assertEquals(20/0.105, metrics.getEventRate(), 1e-6);
+        assertEquals(10, metrics.getMeanLatency(), 1e-9);
+        metrics.reset();
+        metrics.addProcessed(t0, 0, -1);
+        assertEquals(0, metrics.getEventRate(), 0);
+        metrics.addProcessed(t0 + 1000000L, 1000000L, 100);
+        assertEquals(2000, metrics.getEventRate(), 1e-6);
+    }
+}
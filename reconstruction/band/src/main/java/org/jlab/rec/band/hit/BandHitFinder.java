@@ -1,6 +1,7 @@
 package org.jlab.rec.band.hit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -10,6 +11,12 @@ import org.jlab.rec.band.constants.Parameters;
 
 public class BandHitFinder {
 
+	// sorting of the bar PMT hits in findGoodHits, reused for the next events of the finder
+	private long[] barSorted = new long[0];
+	private int[] barHits = new int[0];
+	private int[] barPos  = new int[0];
+	private int[] barEnd  = new int[0];
+
 	public BandHitFinder(){
 		// empty constructor
 	}
@@ -43,6 +50,32 @@ public class BandHitFinder {
 			double yposHitUnc = -1;     // Uncertainty in position in vertical direction, 
 			double zposHitUnc = -1;     // Uncertainty in position along the beam direction
 
+			// Sort the bar PMT hits (no veto) by bar and index, so that the hits of the other side of a bar
+			// are read directly: barHits[barPos[i]+1] ... barHits[barEnd[i]-1] for candidate i.
+			if (barSorted.length < candidates.size()) {
+				barSorted = new long[candidates.size()];
+				barHits = new int[candidates.size()];
+				barPos  = new int[candidates.size()];
+				barEnd  = new int[candidates.size()];
+			}
+			int nbar = 0;
+			for(int i = 0; i < candidates.size(); i++) {
+				BandHitCandidate hit = candidates.get(i);
+				if (hit.GetLayer() == 6) continue;
+				int barKey = hit.GetSector()*100+hit.GetLayer()*10+hit.GetComponent();
+				barSorted[nbar++] = ((long)barKey << 32) | i;
+			}
+			Arrays.sort(barSorted, 0, nbar);
+			for(int k = 0, end = 0; k < nbar; k++) {
+				if (end == k) {
+					end = k+1;
+					while (end < nbar && (barSorted[end] >> 32) == (barSorted[k] >> 32)) end++;
+				}
+				barHits[k] = (int) barSorted[k];
+				barPos[barHits[k]] = k;
+				barEnd[barHits[k]] = end;
+			}
+
 			for(int i = 0; i < (candidates.size()); i++) {	
 
 				BandHitCandidate hit1 = candidates.get(i);
@@ -115,9 +148,10 @@ public class BandHitFinder {
 				int side 		= hit1.GetSide();
 				int barKey 		= sector*100+layer*10+component;
 
-				// Now loop through the candidates again and match any which has same sector,layer,component but
+				// Now loop through the candidates of the same bar and match any which has same sector,layer,component but
 				// different side. Off-set the start of the list to make sure no repeats:
-				for (int j = i+1; j < candidates.size(); j++) {	
+				for (int k = barPos[i]+1; k < barEnd[i]; k++) {	
+					int j = barHits[k];
 					BandHitCandidate hit2 = candidates.get(j);   
 
 					if (hit2.GetLayer() == 6) continue; // skip any veto because cannot pair them
@@ -185,7 +219,13 @@ public class BandHitFinder {
 					// -----------------------------------------------------------------------------------------------
 					// First correction to apply is time-walk on TDC (FADC is assumed to have no TW correction):
 					// 	for the left PMT:
-					double time_walk_paramsL[] = CalibrationConstantsLoader.TIMEWALK_L.get( Integer.valueOf(barKey) );
+					Integer bar = Integer.valueOf(barKey);
+					double tdcTOffset = CalibrationConstantsLoader.TDC_T_OFFSET.get( bar );
+					double fadcTOffset = CalibrationConstantsLoader.FADC_T_OFFSET.get( bar );
+					double tdcVeff = CalibrationConstantsLoader.TDC_VEFF.get( bar );
+					double fadcVeff = CalibrationConstantsLoader.FADC_VEFF.get( bar );
+
+					double time_walk_paramsL[] = CalibrationConstantsLoader.TIMEWALK_L.get( bar );
 					double parA1_L = time_walk_paramsL[0];
 					double parB1_L = time_walk_paramsL[1];
 					double parC1_L = time_walk_paramsL[2];
@@ -196,7 +236,7 @@ public class BandHitFinder {
 					tdcleft = tdcleft - ( parA1_L + parB1_L / Math.pow( amplleft , parC1_L ) ) - ( parA2_L + parB2_L / Math.pow( amplleft , parC2_L ) );
 					//System.out.println("\t\tafter: "+tdcleft);
 					//	for the right PMT:
-					double time_walk_paramsR[] = CalibrationConstantsLoader.TIMEWALK_R.get( Integer.valueOf(barKey) );
+					double time_walk_paramsR[] = CalibrationConstantsLoader.TIMEWALK_R.get( bar );
 					double parA1_R = time_walk_paramsR[0];
 					double parB1_R = time_walk_paramsR[1];
 					double parC1_R = time_walk_paramsR[2];
@@ -224,8 +264,8 @@ public class BandHitFinder {
 					
 					// -----------------------------------------------------------------------------------------------
 					// Next we form (L-R) time and correct for the offset between the two for both TDC and FADC times:
-					double tdiff_tdc  = (tdcleft - tdcright) - CalibrationConstantsLoader.TDC_T_OFFSET.get( Integer.valueOf(barKey) );
-					double tdiff_fadc = (ftdcleft - ftdcright) - CalibrationConstantsLoader.FADC_T_OFFSET.get( Integer.valueOf(barKey) );
+					double tdiff_tdc  = (tdcleft - tdcright) - tdcTOffset;
+					double tdiff_fadc = (ftdcleft - ftdcright) - fadcTOffset;
 					//System.out.println("Offset: "+CalibrationConstantsLoader.TDC_T_OFFSET.get( Integer.valueOf(barKey) ));
 
 
@@ -233,10 +273,8 @@ public class BandHitFinder {
 					// -----------------------------------------------------------------------------------------------
 					// Now we can load effective velocity in the bar and require that the time difference is 
 					// less than the max allowed for the bar length with 10% safety net on the edge of the bar:
-					double maxDiff_tdc = Parameters.barLengthSector[sector-1]/
-						CalibrationConstantsLoader.TDC_VEFF.get( Integer.valueOf(barKey) );
-					double maxDiff_fadc = Parameters.barLengthSector[sector-1]/
-						CalibrationConstantsLoader.FADC_VEFF.get( Integer.valueOf(barKey) );
+					double maxDiff_tdc = Parameters.barLengthSector[sector-1]/tdcVeff;
+					double maxDiff_fadc = Parameters.barLengthSector[sector-1]/fadcVeff;
 					if( Math.abs(tdiff_tdc)  > 1.1*maxDiff_tdc )continue;
 					if( Math.abs(tdiff_fadc) > 1.1*maxDiff_fadc )continue;
 
@@ -247,31 +285,31 @@ public class BandHitFinder {
 					// offset per bar which is a final re-calibration to the photon peak for each bar for each run number
 					double mtime_tdc =
 							( tdcleft + tdcright )/2. 
-							  - Math.abs(CalibrationConstantsLoader.TDC_T_OFFSET.get( Integer.valueOf(barKey) ))/2. 
-							  - CalibrationConstantsLoader.TDC_MT_P2P_OFFSET.get(Integer.valueOf(barKey) ) 
-							  - CalibrationConstantsLoader.TDC_MT_L2L_OFFSET.get(Integer.valueOf(barKey) ) 
-							  - CalibrationConstantsLoader.TDC_GLOB_OFFSET.get(Integer.valueOf(barKey) );
+							  - Math.abs(tdcTOffset)/2. 
+							  - CalibrationConstantsLoader.TDC_MT_P2P_OFFSET.get( bar ) 
+							  - CalibrationConstantsLoader.TDC_MT_L2L_OFFSET.get( bar ) 
+							  - CalibrationConstantsLoader.TDC_GLOB_OFFSET.get( bar );
 					double mtime_fadc = 
 							( ftdcleft + ftdcright )/2.
-							 - Math.abs(CalibrationConstantsLoader.FADC_T_OFFSET.get( Integer.valueOf(barKey) ))/2.
-							 - CalibrationConstantsLoader.FADC_MT_P2P_OFFSET.get(Integer.valueOf(barKey) )
-							 - CalibrationConstantsLoader.FADC_MT_L2L_OFFSET.get(Integer.valueOf(barKey) ) 
-							 - CalibrationConstantsLoader.FADC_GLOB_OFFSET.get(Integer.valueOf(barKey) );
+							 - Math.abs(fadcTOffset)/2.
+							 - CalibrationConstantsLoader.FADC_MT_P2P_OFFSET.get( bar )
+							 - CalibrationConstantsLoader.FADC_MT_L2L_OFFSET.get( bar ) 
+							 - CalibrationConstantsLoader.FADC_GLOB_OFFSET.get( bar );
 					//System.out.println("Global offsets: " + CalibrationConstantsLoader.TDC_GLOB_OFFSET.get(Integer.valueOf(barKey) )+" "+CalibrationConstantsLoader.FADC_GLOB_OFFSET.get(Integer.valueOf(barKey) ));
 
 					// -----------------------------------------------------------------------------------------------
 					// Using the effective velocity for each bar, get the position of the hit in x based on the TDC time
 					// and then form the global position in the lab system:
-					double xpos_tdc =  (-1./2.)* tdiff_tdc * CalibrationConstantsLoader.TDC_VEFF.get( Integer.valueOf(barKey) );
-					double xpos_fadc = (-1./2.)* tdiff_fadc * CalibrationConstantsLoader.FADC_VEFF.get( Integer.valueOf(barKey) );
+					double xpos_tdc =  (-1./2.)* tdiff_tdc * tdcVeff;
+					double xpos_fadc = (-1./2.)* tdiff_fadc * fadcVeff;
 					//OLD xposHit = (xpos_tdc+xpos_fadc)/2.;
 					xposHit = xpos_tdc;
 
-					Double[] globPos = Parameters.barGeo.get( Integer.valueOf(barKey) );
+					Double[] globPos = Parameters.barGeo.get( bar );
 					xposHit += globPos[0];
 					yposHit = globPos[1];
 					zposHit = globPos[2];
-					xposHitUnc = 0.5 * CalibrationConstantsLoader.TDC_VEFF.get( Integer.valueOf(barKey) ) * 0.3; // Estimation of error, not perfect
+					xposHitUnc = 0.5 * tdcVeff * 0.3; // Estimation of error, not perfect
 					yposHitUnc = Parameters.thickness / Math.sqrt(12.);
 					zposHitUnc = Parameters.thickness / Math.sqrt(12.);
 
@@ -280,7 +318,7 @@ public class BandHitFinder {
 					// -----------------------------------------------------------------------------------------------
 					// Correct FADC ADC for attenuation length
 					double sectorLen = Parameters.barLengthSector[sector-1];
-					double mu_cm = CalibrationConstantsLoader.FADC_ATTEN_LENGTH.get( Integer.valueOf(barKey) ); // in [cm]
+					double mu_cm = CalibrationConstantsLoader.FADC_ATTEN_LENGTH.get( bar ); // in [cm]
 					double adcL_corr = adcleft * Math.exp( (sectorLen/2.-xpos_fadc) / mu_cm );
 					double adcR_corr = adcright* Math.exp( (sectorLen/2.+xpos_fadc) / mu_cm );
 				
@@ -33,6 +33,9 @@ public class BANDEngine extends ReconstructionEngine {
 
 	int Run = -1;
 
+	// hit finders reused for the next events of each processing thread
+	private final ThreadLocal<BandHitFinder> hitFinders = ThreadLocal.withInitial(BandHitFinder::new);
+
 
 	@Override
 		public boolean processDataEvent(DataEvent event) {
@@ -50,7 +53,7 @@ public class BANDEngine extends ReconstructionEngine {
 				return true;
 
 			//2) Find the BAND bar hits from the candidates
-			BandHitFinder hitFinder = new BandHitFinder();
+			BandHitFinder hitFinder = hitFinders.get();
 			hits = hitFinder.findGoodHits(candidates);
 
 			//3) Write candidates and hits to the banks. 
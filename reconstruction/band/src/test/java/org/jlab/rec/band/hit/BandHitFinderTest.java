@@ -0,0 +1,126 @@
+package org.jlab.rec.band.hit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.jlab.rec.band.constants.CalibrationConstantsLoader;
+import org.jlab.rec.band.constants.Parameters;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BandHitFinderTest {
+
+    /**
+     * Random constants for all the bars.
+     */
+    @BeforeClass
+    public static void loadConstants() {
+        Random random = new Random(29);
+        Parameters.CreateGeometry();
+        for (int layer = 1; layer <= Parameters.layNum; layer++) {
+            for (int sector = 1; sector <= Parameters.sectNum; sector++) {
+                for (int component = 1; component <= Parameters.compNumSecLay[layer-1][sector-1]; component++) {
+                    Integer bar = sector*100 + layer*10 + component;
+                    CalibrationConstantsLoader.TDC_T_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.FADC_T_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.TDC_VEFF.put(bar, 14 + 2*random.nextDouble());
+                    CalibrationConstantsLoader.FADC_VEFF.put(bar, 14 + 2*random.nextDouble());
+                    CalibrationConstantsLoader.TDC_MT_P2P_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.TDC_MT_L2L_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.TDC_GLOB_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.FADC_MT_P2P_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.FADC_MT_L2L_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.FADC_GLOB_OFFSET.put(bar, random.nextGaussian());
+                    CalibrationConstantsLoader.FADC_ATTEN_LENGTH.put(bar, 150 + 100*random.nextDouble());
+                    CalibrationConstantsLoader.TIMEWALK_L.put(bar, new double[]{0.1, 5, 0.5, 0.05, 2, 0.3});
+                    CalibrationConstantsLoader.TIMEWALK_R.put(bar, new double[]{0.2, 4, 0.4, 0.05, 3, 0.3});
+                }
+            }
+        }
+    }
+
+    /**
+     * The pairing used before: every PMT hit is compared with all the
+     * following ones, and paired with the first one of the other side of the
+     * same bar giving a good hit. The good hit of a single pair, or of a
+     * single veto, is found by the hit finder on a list of these hits.
+     */
+    private static List<BandHit> reference(ArrayList<BandHitCandidate> candidates) {
+        BandHitFinder finder = new BandHitFinder();
+        ArrayList<BandHit> coincidences = new ArrayList<>();
+        boolean hasvetohit = false;
+        for (int i = 0; i < candidates.size(); i++) {
+            BandHitCandidate hit1 = candidates.get(i);
+            if (hit1.GetLayer() == 6) {
+                for (BandHit hit : finder.findGoodHits(new ArrayList<>(Arrays.asList(hit1)))) {
+                    if (hit1.GetSide() == 1) hit.SetIndexLpmt(i);
+                    else hit.SetIndexRpmt(i);
+                    coincidences.add(hit);
+                    hasvetohit = true;
+                }
+                continue;
+            }
+            for (int j = i+1; j < candidates.size(); j++) {
+                BandHitCandidate hit2 = candidates.get(j);
+                if (hit2.GetLayer() == 6) continue;
+                if (hit2.GetSector() != hit1.GetSector()) continue;
+                if (hit2.GetLayer() != hit1.GetLayer()) continue;
+                if (hit2.GetComponent() != hit1.GetComponent()) continue;
+                List<BandHit> hits = finder.findGoodHits(new ArrayList<>(Arrays.asList(hit1, hit2)));
+                if (hits.isEmpty()) continue;
+                // back to the indices of the whole list:
+                BandHit hit = hits.get(0);
+                hit.SetIndexLpmt(hit.GetIndexLpmt() == 0 ? i : j);
+                hit.SetIndexRpmt(hit.GetIndexRpmt() == 0 ? i : j);
+                coincidences.add(hit);
+                break;
+            }
+        }
+        if (coincidences.isEmpty()) return coincidences;
+        return finder.advancedHitFinder(coincidences, hasvetohit);
+    }
+
+    private static String dump(List<BandHit> hits) {
+        StringBuilder str = new StringBuilder();
+        for (BandHit hit : hits) {
+            str.append(String.format("%d/%d/%d %d %d %d %.4f %.4f %.4f %.4f %.4f %.4f %.4f %.4f %.4f %.4f %.4f %.4f %.4f\n",
+                    hit.GetSector(), hit.GetLayer(), hit.GetComponent(), hit.GetStatus(),
+                    hit.GetIndexLpmt(), hit.GetIndexRpmt(),
+                    hit.GetMeanTime_TDC(), hit.GetMeanTime_FADC(), hit.GetDiffTime_TDC(), hit.GetDiffTime_FADC(),
+                    hit.GetAdcLeft(), hit.GetAdcRight(), hit.GetTLeft_FADC(), hit.GetTRight_FADC(),
+                    hit.GetTLeft_TDC(), hit.GetTRight_TDC(), hit.GetX(), hit.GetY(), hit.GetZ()));
+        }
+        return str.toString();
+    }
+
+    @Test
+    public void testFindGoodHits() {
+        Random random = new Random(31);
+        // one finder for all the events, as in the engines, with buffers
+        // sized by the previous events:
+        BandHitFinder finder = new BandHitFinder();
+        int npairs = 0;
+        for (int k = 0; k < 2000; k++) {
+            // few bars, for bars with several hits on each side:
+            ArrayList<BandHitCandidate> candidates = new ArrayList<>();
+            int n = random.nextInt(30);
+            while (candidates.size() < n) {
+                int sector = 1 + random.nextInt(2);
+                int layer = 1 + random.nextInt(6);
+                int component = 1 + random.nextInt(Parameters.compNumSecLay[layer-1][sector-1]);
+                int i = candidates.size();
+                candidates.add(new BandHitCandidate(sector, layer, component, random.nextInt(2),
+                        100 + random.nextInt(4000), 100 + random.nextInt(4000),
+                        100 + 10*random.nextDouble(), (float) (100 + 10*random.nextDouble()), 0, i, i));
+            }
+            List<BandHit> expected = reference(candidates);
+            assertEquals(dump(expected), dump(finder.findGoodHits(candidates)));
+            for (BandHit hit : expected) {
+                if (hit.GetLayer() != 6) npairs++;
+            }
+        }
+        assertTrue(npairs > 1000);
+    }
+}
@@ -7,7 +7,6 @@ import java.util.logging.Logger;
 import org.jlab.analysis.eventmerger.EventMerger;
 import org.jlab.clas.reco.ReconstructionEngine;
 import org.jlab.io.base.DataEvent;
-import org.jlab.io.hipo.HipoDataSource;
 
 /**
  *
@@ -21,13 +20,14 @@ public class BackgroundEngine extends ReconstructionEngine {
     public static final String CONF_SUPPRESS_DOUBLES = "suppressDoubles";
     public static final String CONF_PRESERVE_ORDER = "preserveOrder";
     public static final String CONF_REUSE_EVENTS = "reuseEvents";
+    public static final String CONF_READ_THREADS = "readThreads";
+    public static final String CONF_POOL_SIZE = "poolSize";
 
     static final Logger logger = Logger.getLogger(BackgroundEngine.class.getName());
 
-    int filesUsed = 0;
     boolean reuseEvents = true;
     EventMerger bgmerger = null;
-    HipoDataSource bgreader = null;
+    BackgroundEventPool bgpool = null;
     LinkedList<String> bgfilenames = new LinkedList<>();
 
     public BackgroundEngine() {
@@ -48,6 +48,9 @@ public class BackgroundEngine extends ReconstructionEngine {
         boolean suppressDoubles = Boolean.valueOf(getEngineConfigString(CONF_SUPPRESS_DOUBLES,"true"));
         boolean preserveOrder = Boolean.valueOf(getEngineConfigString(CONF_PRESERVE_ORDER,"true"));
         boolean reuseEvents = Boolean.valueOf(getEngineConfigString(CONF_REUSE_EVENTS,"false"));
+        int readThreads = Integer.parseInt(getEngineConfigString(CONF_READ_THREADS,"1"));
+        int poolSize = Integer.parseInt(getEngineConfigString(CONF_POOL_SIZE,
+                String.valueOf(BackgroundEventPool.DEFAULT_POOL_SIZE)));
         for (String filename : filenames) {
             File f = new File(filename);
             if (!f.exists() || !f.isFile() || !f.canRead()) {
@@ -58,25 +61,19 @@ public class BackgroundEngine extends ReconstructionEngine {
             bgfilenames.add(filename);
         }
         bgmerger = new EventMerger(detectors.split(","), orders.split(","), suppressDoubles, preserveOrder);
-        openNextFile();
+        if (bgpool != null) bgpool.close();
+        bgpool = new BackgroundEventPool(bgfilenames, this.reuseEvents, readThreads, poolSize);
         return true;
     }
 
-    private void openNextFile() {
-        if (filesUsed>0 && filesUsed%bgfilenames.size()==0) {
-            if (reuseEvents) logger.info("BackgroundEngine::  Reopening previously used file.");
-            else throw new RuntimeException("BackgroundEngine::  Ran out of events.");
-        }
-        String filename = bgfilenames.remove();
-        bgfilenames.add(filename);
-        bgreader = new HipoDataSource();
-        bgreader.open(filename);
-        filesUsed++;
+    public DataEvent getBackgroundEvent() {
+        return bgpool.take();
     }
 
-    synchronized public DataEvent getBackgroundEvent() {
-        if (!bgreader.hasEvent()) openNextFile();
-        return bgreader.getNextEvent();
+    @Override
+    public void destroy() {
+        if (bgpool != null) bgpool.close();
+        super.destroy();
     }
 
     @Override
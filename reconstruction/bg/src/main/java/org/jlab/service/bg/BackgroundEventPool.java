@@ -0,0 +1,144 @@
+package org.jlab.service.bg;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jlab.io.base.DataEvent;
+import org.jlab.io.hipo.HipoDataSource;
+
+/**
+ * Bounded pool of background events, filled by reader threads.
+ *
+ * Each reader thread opens the next background file in turn and reads its
+ * events into the pool, so the processing threads only take events from a
+ * queue instead of sharing one reader. When all files have been used once,
+ * they are reopened from the beginning if events are reused, else the pool
+ * is exhausted after its last events have been taken.
+ */
+public class BackgroundEventPool {
+
+    static final Logger logger = Logger.getLogger(BackgroundEventPool.class.getName());
+
+    public static final int DEFAULT_POOL_SIZE = 200;
+
+    private final List<String> filenames;
+    private final boolean reuseEvents;
+    private final BlockingQueue<DataEvent> pool;
+    private final List<Thread> readers = new ArrayList<>();
+
+    private int filesUsed = 0;
+    private int readersRunning = 0;
+    private volatile boolean closed = false;
+    private volatile RuntimeException error = null;
+
+    /**
+     * @param filenames background files, read in turn
+     * @param reuseEvents whether to reopen the files after all were used
+     * @param nreaders number of files read concurrently
+     * @param size maximum number of events waiting in the pool
+     */
+    public BackgroundEventPool(List<String> filenames, boolean reuseEvents, int nreaders, int size) {
+        this.filenames = new ArrayList<>(filenames);
+        this.reuseEvents = reuseEvents;
+        this.pool = new ArrayBlockingQueue<>(Math.max(1, size));
+        // without files, no reader is started and the pool is exhausted:
+        nreaders = filenames.isEmpty() ? 0 : Math.max(1, Math.min(nreaders, filenames.size()));
+        readersRunning = nreaders;
+        for (int i=0; i<nreaders; i++) {
+            Thread t = new Thread(this::read, "BackgroundEventPool-"+i);
+            t.setDaemon(true);
+            readers.add(t);
+        }
+        for (Thread t : readers) t.start();
+    }
+
+    /**
+     * @return name of the next file to read, or null if all files were used
+     * and events are not reused
+     */
+    private synchronized String nextFile() {
+        if (closed || filenames.isEmpty()) return null;
+        if (filesUsed>0 && filesUsed%filenames.size()==0) {
+            if (reuseEvents) logger.info("BackgroundEngine::  Reopening previously used file.");
+            else return null;
+        }
+        String filename = filenames.get(filesUsed%filenames.size());
+        filesUsed++;
+        return filename;
+    }
+
+    private synchronized void readerDone() {
+        readersRunning--;
+    }
+
+    /**
+     * @return whether all reader threads have stopped
+     */
+    synchronized boolean isExhausted() {
+        return readersRunning == 0;
+    }
+
+    private void read() {
+        try {
+            String filename;
+            while ((filename = nextFile()) != null) {
+                HipoDataSource reader = new HipoDataSource();
+                reader.open(filename);
+                while (!closed && reader.hasEvent()) {
+                    pool.put(reader.getNextEvent());
+                }
+                reader.close();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException ex) {
+            // reading may fail when interrupted by close(), which is not an error:
+            if (!closed) {
+                logger.log(Level.SEVERE, "BackgroundEngine::  error reading background events", ex);
+                error = ex;
+            }
+        } finally {
+            readerDone();
+        }
+    }
+
+    /**
+     * Takes the next background event, waiting for the readers if the pool
+     * is empty.
+     * @return background event
+     */
+    public DataEvent take() {
+        try {
+            while (true) {
+                DataEvent event = pool.poll(100, TimeUnit.MILLISECONDS);
+                if (event != null) return event;
+                if (error != null) throw error;
+                if (isExhausted() && pool.isEmpty())
+                    throw new RuntimeException("BackgroundEngine::  Ran out of events.");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("BackgroundEngine::  interrupted waiting for events.", ex);
+        }
+    }
+
+    /**
+     * Stops the reader threads and drops the events left in the pool.
+     * The readers are waited for, so that none of them adds an event after
+     * the pool was cleared.
+     */
+    public void close() {
+        closed = true;
+        for (Thread t : readers) t.interrupt();
+        try {
+            for (Thread t : readers) t.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        pool.clear();
+    }
+}
@@ -0,0 +1,176 @@
+package org.jlab.service.bg;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.jlab.io.base.DataEvent;
+import org.jlab.jnp.hipo4.data.Bank;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.jlab.jnp.hipo4.io.HipoWriterSorted;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class BackgroundEventPoolTest {
+
+    private static final int[] NEVENTS = new int[]{50, 60, 70};
+
+    private static SchemaFactory schema;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void loadSchema() {
+        schema = new SchemaFactory();
+        schema.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+    }
+
+    /**
+     * Background files whose events are numbered file*1000 + event.
+     */
+    private List<String> writeFiles(int[] nevents) throws Exception {
+        List<String> filenames = new ArrayList<>();
+        for (int f = 0; f < nevents.length; f++) {
+            File file = folder.newFile("bg_" + f + ".hipo");
+            HipoWriterSorted writer = new HipoWriterSorted();
+            writer.getSchemaFactory().copy(schema);
+            writer.open(file.getPath());
+            Event event = new Event();
+            for (int i = 0; i < nevents[f]; i++) {
+                Bank bank = new Bank(schema.getSchema("RUN::config"), 1);
+                bank.putInt("event", 0, f*1000 + i);
+                event.reset();
+                event.write(bank);
+                writer.addEvent(event);
+            }
+            writer.close();
+            filenames.add(file.getPath());
+        }
+        return filenames;
+    }
+
+    private static int number(DataEvent event) {
+        return event.getBank("RUN::config").getInt("event", 0);
+    }
+
+    private static Map<Integer, Integer> counts(List<Integer> numbers) {
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int n : numbers) counts.merge(n, 1, Integer::sum);
+        return counts;
+    }
+
+    /**
+     * Takes events until the pool is exhausted.
+     */
+    private static List<Integer> takeAll(BackgroundEventPool pool) {
+        List<Integer> numbers = new ArrayList<>();
+        try {
+            while (true) numbers.add(number(pool.take()));
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("Ran out of events"));
+        }
+        return numbers;
+    }
+
+    private static void assertAllOnce(List<Integer> numbers) {
+        Map<Integer, Integer> counts = counts(numbers);
+        int total = 0;
+        for (int f = 0; f < NEVENTS.length; f++) {
+            for (int i = 0; i < NEVENTS[f]; i++) {
+                assertEquals(Integer.valueOf(1), counts.get(f*1000 + i));
+            }
+            total += NEVENTS[f];
+        }
+        assertEquals(total, numbers.size());
+    }
+
+    @Test(timeout = 10000)
+    public void testNoFiles() {
+        BackgroundEventPool pool = new BackgroundEventPool(new ArrayList<>(), true, 2, 10);
+        try {
+            pool.take();
+            fail("an empty pool returned an event");
+        }
+        catch (RuntimeException ex) {
+            assertTrue(ex.getMessage().contains("Ran out of events"));
+        }
+        pool.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testOneReader() throws Exception {
+        List<String> filenames = this.writeFiles(NEVENTS);
+        BackgroundEventPool pool = new BackgroundEventPool(filenames, false, 1, 10);
+        List<Integer> numbers = takeAll(pool);
+        assertAllOnce(numbers);
+        // files and events in order:
+        for (int i = 1; i < numbers.size(); i++) {
+            assertTrue(numbers.get(i) > numbers.get(i-1));
+        }
+        // and still exhausted:
+        assertTrue(takeAll(pool).isEmpty());
+        pool.close();
+    }
+
+    @Test(timeout = 30000)
+    public void testReaders() throws Exception {
+        List<String> filenames = this.writeFiles(NEVENTS);
+        // more readers than files are limited to one per file:
+        for (int nreaders : new int[]{2, 3, 8}) {
+            BackgroundEventPool pool = new BackgroundEventPool(filenames, false, nreaders, 5);
+            assertAllOnce(takeAll(pool));
+            pool.close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testReuseEvents() throws Exception {
+        List<String> filenames = this.writeFiles(NEVENTS);
+        int total = NEVENTS[0] + NEVENTS[1] + NEVENTS[2];
+
+        // one reader reopens the files in the same order:
+        BackgroundEventPool pool = new BackgroundEventPool(filenames, true, 1, 10);
+        List<Integer> numbers = new ArrayList<>();
+        for (int i = 0; i < 3*total; i++) numbers.add(number(pool.take()));
+        pool.close();
+        for (int i = 0; i < 2*total; i++) {
+            assertEquals(numbers.get(i), numbers.get(i + total));
+        }
+        assertAllOnce(numbers.subList(0, total));
+
+        // several readers share the reopened files:
+        pool = new BackgroundEventPool(filenames, true, 3, 10);
+        numbers.clear();
+        for (int i = 0; i < 3*total; i++) numbers.add(number(pool.take()));
+        pool.close();
+        Map<Integer, Integer> counts = counts(numbers);
+        for (int f = 0; f < NEVENTS.length; f++) {
+            for (int i = 0; i < NEVENTS[f]; i++) {
+                assertTrue(counts.get(f*1000 + i) >= 1);
+            }
+        }
+        assertEquals(total, counts.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testClose() throws Exception {
+        List<String> filenames = this.writeFiles(new int[]{500, 500});
+        for (boolean reuse : new boolean[]{false, true}) {
+            BackgroundEventPool pool = new BackgroundEventPool(filenames, reuse, 2, 3);
+            pool.take();
+            // the readers are blocked on the full pool:
+            Thread.sleep(500);
+            assertFalse(pool.isExhausted());
+            pool.close();
+            assertTrue(pool.isExhausted());
+            assertTrue(takeAll(pool).isEmpty());
+        }
+    }
+}
@@ -55,6 +55,11 @@ public class Parameters {
 	//public static double DeltaZDH = 2;                                                         // in cm, maximum absolute value of difference between hit z and double hit Z
 	//public static double DeltaTDH = 0.5;                                                         //in ns, maximum absolute value between direct hit time of left and right paddle, both should be equal for double hits
 
+	// the parameters are set once, instead of for every event by the hit finder
+	static {
+		SetParameters();
+	}
+
 	public static void SetParameters() {
 
 		for (int l=0; l<LayNum; l++) {
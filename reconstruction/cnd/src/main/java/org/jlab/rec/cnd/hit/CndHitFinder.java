@@ -1,6 +1,7 @@
 package org.jlab.rec.cnd.hit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -16,6 +17,11 @@ import org.jlab.rec.cnd.hit.CvtGetHTrack.CVTTrack;
 
 public class CndHitFinder {
 
+	// buckets of the half-hits by paddle in findHits, reused for the next events of the finder
+	private final int[] cellFirst = new int[Parameters.SectNum*Parameters.LayNum*Parameters.CompNum + 1];
+	private final int[] cellNext = new int[Parameters.SectNum*Parameters.LayNum*Parameters.CompNum];
+	private int[] cellHits = new int[0];
+
 	public CndHitFinder(){
 		// empty constructor
 	}
@@ -28,8 +34,6 @@ public class CndHitFinder {
 	public ArrayList<CndHit> findHits(ArrayList<HalfHit> halfhits,int flag, CalibrationConstantsLoader ccdb) 
 	{
 
-		Parameters.SetParameters();
-
 		ArrayList<CndHit> HitArray = new ArrayList<CndHit>();      // array list of all "good" reconstructed hits in CND
 		ArrayList<CndHit> goodCndHits = new ArrayList<CndHit>();   // array list of unambiguous reconstructed hits in CND
 
@@ -74,6 +78,23 @@ public class CndHitFinder {
 
 			int totrec = 0;      // counter for "good" reconstructions
 
+			// Sort the half-hits by paddle, so that the coupled paddle of a half-hit is read directly:
+			// the half-hits of paddle p are cellHits[cellFirst[p]] ... cellHits[cellFirst[p+1]-1], in list order.
+			Arrays.fill(cellFirst, 0);
+			if (cellHits.length < halfhits.size()) cellHits = new int[halfhits.size()];
+			for(int i = 0; i < halfhits.size(); i++) 
+			{
+				int cell = getCell(halfhits.get(i).Sector(), halfhits.get(i).Layer(), halfhits.get(i).Component());
+				if (cell >= 0) cellFirst[cell+1]++;
+			}
+			for(int cell = 0; cell+1 < cellFirst.length; cell++) cellFirst[cell+1] += cellFirst[cell];
+			System.arraycopy(cellFirst, 0, cellNext, 0, cellNext.length);
+			for(int i = 0; i < halfhits.size(); i++) 
+			{
+				int cell = getCell(halfhits.get(i).Sector(), halfhits.get(i).Layer(), halfhits.get(i).Component());
+				if (cell >= 0) cellHits[cellNext[cell]++] = i;
+			}
+
 			for(int i = 0; i < (halfhits.size()); i++) 
 			{	
 				HalfHit hit1 = halfhits.get(i);   // first, get the half-hit			
@@ -85,17 +106,18 @@ public class CndHitFinder {
 				if (pad == 1) neigh = 2;  // the neighbouring paddle
 				else neigh = 1;
 
-				// Now loop through the half-hits again and match any which can give a physical reconstruction,
-				// but off-set the start of the list to make sure no repeats:
+				// Now loop through the half-hits of the coupled paddle (same sector and layer) and match any which
+				// can give a physical reconstruction, but off-set the start of the list to make sure no repeats:
+
+				int cell = getCell(block, lay, neigh);
+				if (cell < 0) continue;
 
-				for (int j = i+1; j < halfhits.size(); j++) 
+				for (int k = cellFirst[cell]; k < cellFirst[cell+1]; k++) 
 				{	
+					int j = cellHits[k];
+					if (j <= i) continue;
 					HalfHit hit2 = halfhits.get(j);   // get the second half-hit	
 
-					if (block != hit2.Sector()) continue;             // half-hits must be in the same sector
-					if (lay != hit2.Layer()) continue;                // half-hits must be in the same layer					
-					if (hit2.Component() != neigh) continue;             // half-hits must come from coupled paddles
-
 					// Decide which one of the two signals is the direct and which one is indirect on the basis of timing.
 					// Works if effective velocities in the coupled paddles don't differ much.
 
@@ -275,26 +297,19 @@ public class CndHitFinder {
 
 			int ambig_rec[] = new int[totrec];  // to keep track of ambiguous reconstructions in the next loops
 
-			for (int i=0; i<totrec; i++)
-			{
-				ambig_rec[i] = 0;  // set all to zero before you start.
+			// A reconstruction is ambiguous if one of its two half-hits is used by another one:
+			int nrec[] = new int[halfhits.size()];  // number of reconstructions using each half-hit
+			for(int i = 0; i < (HitArray.size()); i++)
+			{		
+				nrec[HitArray.get(i).index_d()]++;
+				nrec[HitArray.get(i).index_n()]++;
 			}
-
 			for(int i = 0; i < (HitArray.size()); i++)
 			{		
 				CndHit cndhit1 = HitArray.get(i);
-
-				for(int j = i+1; j < HitArray.size(); j++) 
+				if (nrec[cndhit1.index_d()] > 1 || nrec[cndhit1.index_n()] > 1)
 				{
-					CndHit cndhit2 = HitArray.get(j);   
-
-					if (i!=j){
-						if ((cndhit1.index_d() == cndhit2.index_d() || cndhit1.index_d() == cndhit2.index_n() || cndhit1.index_n() == cndhit2.index_d() || cndhit1.index_n() == cndhit2.index_n()))	
-						{
-							ambig_rec[i] = 1;  // set the flags for ambiguous reconstructions
-							ambig_rec[j] = 1;
-						}
-					}
+					ambig_rec[i] = 1;  // set the flags for ambiguous reconstructions
 				}
 			}
 
@@ -317,6 +332,13 @@ public class CndHitFinder {
 
 	} // findHits function		
 
+	// index of the paddle (sector, layer, component) in the half-hit buckets of findHits, -1 if not a CND paddle
+	private static int getCell(int sector, int layer, int component)
+	{
+		if (sector < 1 || sector > Parameters.SectNum || layer < 1 || layer > Parameters.LayNum || component < 1 || component > Parameters.CompNum) return -1;
+		return ((sector-1)*Parameters.LayNum + (layer-1))*Parameters.CompNum + (component-1);
+	}
+
 
 	public double findLength(CndHit hit, List<CVTTrack> helices, int flag, CalibrationConstantsLoader ccdb) 
 	{
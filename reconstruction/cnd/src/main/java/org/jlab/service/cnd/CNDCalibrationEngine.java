@@ -56,6 +56,20 @@ public class CNDCalibrationEngine extends ReconstructionEngine {
         private AtomicInteger Run = new AtomicInteger(0);
         private int newRun = 0;
 
+        // constants are read only, so they are loaded when the run changes and shared by the processing threads
+        private CalibrationConstantsLoader constantsLoader = null;
+
+        // hit finders reused for the next events of each processing thread
+        private final ThreadLocal<CndHitFinder> hitFinders = ThreadLocal.withInitial(CndHitFinder::new);
+
+        private synchronized CalibrationConstantsLoader getConstantsLoader(int run) {
+            if (constantsLoader == null || Run.get() != run) {
+                constantsLoader = new CalibrationConstantsLoader(run, this.getConstantsManager());
+                Run.set(run);
+            }
+            return constantsLoader;
+        }
+
 	@Override
 	public boolean processDataEvent(DataEvent event) {
 
@@ -72,11 +86,7 @@ public class CNDCalibrationEngine extends ReconstructionEngine {
             if (newRun == 0)
                return true;
 
-            if (Run.get() == 0 || (Run.get() != 0 && Run.get() != newRun)) {
-                 Run.set(newRun);
-            }
-            
-                CalibrationConstantsLoader constantsLoader = new CalibrationConstantsLoader(newRun, this.getConstantsManager());
+                CalibrationConstantsLoader constantsLoader = this.getConstantsLoader(newRun);
 		//event.show();
 		//System.out.println("in data process ");
             
@@ -92,7 +102,7 @@ public class CNDCalibrationEngine extends ReconstructionEngine {
 		}
 
 		//2) find the CND hits from these half-hits
-		CndHitFinder hitFinder = new CndHitFinder();
+		CndHitFinder hitFinder = hitFinders.get();
 		hits = hitFinder.findHits(halfhits,0, constantsLoader);
 
 		CvtGetHTrack cvttry = new CvtGetHTrack();
@@ -0,0 +1,126 @@
+package org.jlab.rec.cnd.hit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.jlab.detector.calib.utils.ConstantsManager;
+import org.jlab.rec.cnd.constants.CalibrationConstantsLoader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class CndHitFinderTest {
+
+    private static CalibrationConstantsLoader ccdb;
+
+    @BeforeClass
+    public static void loadConstants() {
+        ConstantsManager manager = new ConstantsManager();
+        manager.init(Arrays.asList(CalibrationConstantsLoader.getCndTables()));
+        manager.setVariation("default");
+        ccdb = new CalibrationConstantsLoader(11, manager);
+    }
+
+    /**
+     * The pairing used before: every half-hit is compared with all the
+     * following ones, and every pair of reconstructions is checked for a
+     * shared half-hit. The reconstruction of a single pair is done by the
+     * hit finder on a list of the two half-hits.
+     * @param nambiguous incremented by the number of ambiguous reconstructions
+     */
+    private static List<CndHit> reference(ArrayList<HalfHit> halfhits, int flag, int[] nambiguous) {
+        CndHitFinder finder = new CndHitFinder();
+        List<CndHit> hits = new ArrayList<>();
+        for (int i = 0; i < halfhits.size(); i++) {
+            HalfHit hit1 = halfhits.get(i);
+            int neigh = hit1.Component() == 1 ? 2 : 1;
+            for (int j = i+1; j < halfhits.size(); j++) {
+                HalfHit hit2 = halfhits.get(j);
+                if (hit1.Sector() != hit2.Sector()) continue;
+                if (hit1.Layer() != hit2.Layer()) continue;
+                if (hit2.Component() != neigh) continue;
+                ArrayList<HalfHit> pair = new ArrayList<>(Arrays.asList(hit1, hit2));
+                for (CndHit hit : finder.findHits(pair, flag, ccdb)) {
+                    // back to the indices of the whole list:
+                    CndHit copy = new CndHit(hit.index_d() == 0 ? i : j, hit.index_n() == 0 ? i : j);
+                    copy.set_Time(hit.Time());
+                    copy.set_X(hit.X());
+                    copy.set_Y(hit.Y());
+                    copy.set_Z(hit.Z());
+                    copy.set_Edep(hit.Edep());
+                    copy.set_Theta(hit.Theta());
+                    copy.set_Phi(hit.Phi());
+                    copy.set_Sector(hit.Sector());
+                    copy.set_Layer(hit.Layer());
+                    copy.set_Component(hit.Component());
+                    copy.set_indexLadc((int) hit.indexLadc());
+                    copy.set_indexLtdc((int) hit.indexLtdc());
+                    copy.set_indexRadc((int) hit.indexRadc());
+                    copy.set_indexRtdc((int) hit.indexRtdc());
+                    copy.set_status(hit.get_status());
+                    hits.add(copy);
+                }
+            }
+        }
+        int[] ambig = new int[hits.size()];
+        for (int i = 0; i < hits.size(); i++) {
+            CndHit h1 = hits.get(i);
+            for (int j = i+1; j < hits.size(); j++) {
+                CndHit h2 = hits.get(j);
+                if (h1.index_d() == h2.index_d() || h1.index_d() == h2.index_n()
+                        || h1.index_n() == h2.index_d() || h1.index_n() == h2.index_n()) {
+                    ambig[i] = 1;
+                    ambig[j] = 1;
+                }
+            }
+        }
+        List<CndHit> good = new ArrayList<>();
+        for (int i = 0; i < hits.size(); i++) {
+            if (ambig[i] == 0) good.add(hits.get(i));
+            else nambiguous[0]++;
+        }
+        Collections.sort(good);
+        return good;
+    }
+
+    private static String dump(List<CndHit> hits) {
+        StringBuilder str = new StringBuilder();
+        for (CndHit hit : hits) {
+            str.append(String.format("%d %d %d/%d/%d %.4f %.4f %.4f %.4f %.4f %d %.0f %.0f %.0f %.0f\n",
+                    hit.index_d(), hit.index_n(), hit.Sector(), hit.Layer(), hit.Component(),
+                    hit.Time(), hit.X(), hit.Y(), hit.Z(), hit.Edep(), hit.get_status(),
+                    hit.indexLadc(), hit.indexLtdc(), hit.indexRadc(), hit.indexRtdc()));
+        }
+        return str.toString();
+    }
+
+    @Test
+    public void testFindHits() {
+        Random random = new Random(23);
+        // one finder for all the events, as in the engines, with buffers
+        // sized by the previous events:
+        CndHitFinder finder = new CndHitFinder();
+        int ngood = 0;
+        int[] nambiguous = new int[1];
+        for (int k = 0; k < 2000; k++) {
+            // few sectors, for paddles with several half-hits and ambiguous reconstructions:
+            ArrayList<HalfHit> halfhits = new ArrayList<>();
+            int n = random.nextInt(20);
+            for (int i = 0; i < n; i++) {
+                int sector = 1 + random.nextInt(3);
+                int layer = 1 + random.nextInt(3);
+                int component = 1 + random.nextInt(2);
+                halfhits.add(new HalfHit(sector, layer, component, 0, random.nextInt(4000), random.nextInt(8000), i, i, ccdb));
+            }
+            for (int flag = 0; flag <= 1; flag++) {
+                List<CndHit> expected = reference(halfhits, flag, nambiguous);
+                assertEquals(dump(expected), dump(finder.findHits(halfhits, flag, ccdb)));
+                ngood += expected.size();
+            }
+        }
+        assertTrue(ngood > 1000);
+        assertTrue(nambiguous[0] > 1000);
+    }
+}
@@ -66,6 +66,7 @@ public class Constants {
     private int svtmaxclussize = 30;
     private int bmtcmaxclussize =30;
     private int bmtzmaxclussize =30;
+    private int maxSeedCombinations = 10000;
     public boolean useSVTTimingCuts =  false;
     public boolean removeOverlappingSeeds = false;
     public boolean flagSeeds = true;
@@ -262,6 +263,21 @@ public class Constants {
         this.bmtzmaxclussize = bmtzmaxclussize;
     }
 
+    /**
+     * @return the maximum number of cross combinations tried by the seeder
+     * in each SVT phi bin, and with BMT-C crosses for each seed
+     */
+    public int getMaxSeedCombinations() {
+        return maxSeedCombinations;
+    }
+
+    /**
+     * @param maxSeedCombinations the maxSeedCombinations to set
+     */
+    public void setMaxSeedCombinations(int maxSeedCombinations) {
+        this.maxSeedCombinations = maxSeedCombinations;
+    }
+
     /**
      * @return the RCUT
      */
@@ -570,7 +586,8 @@ public class Constants {
                                         int bmtcmaxclussize,
                                         int bmtzmaxclussize,
                                         double rcut,
-                                        double z0cut) {
+                                        double z0cut,
+                                        int maxSeedCombinations) {
         if (!ConstantsLoaded) {
             this.isCosmics = isCosmics;
             this.svtOnly      = svtOnly;
@@ -600,6 +617,7 @@ public class Constants {
             this.setBmtzmaxclussize(bmtzmaxclussize);
             this.setRCUT(rcut);
             this.setZRANGE(z0cut);
+            this.setMaxSeedCombinations(maxSeedCombinations);
             ConstantsLoaded = true;
         }
     }
@@ -1,7 +1,9 @@
 package org.jlab.rec.cvt.cross;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.jlab.detector.base.DetectorType;
 import org.jlab.rec.cvt.Constants;
 import org.jlab.rec.cvt.Geometry;
@@ -124,53 +126,51 @@ public class CrossMaker {
         // instantiate the list of crosses
         ArrayList<Cross> crosses = new ArrayList<>();
         int rid = 0; // cross id
+        // outer layer clusters grouped by module
+        Map<Integer, OuterModule> modules = new HashMap<>();
+        for (Cluster outlayerclus : svt_outerlayrclus) {
+            if(outlayerclus.getTotalEnergy()<SVTParameters.ETOTCUT)
+                continue;
+            int key = getModuleKey(outlayerclus.getLayer(), outlayerclus.getSector());
+            if(!modules.containsKey(key)) 
+                modules.put(key, new OuterModule());
+            modules.get(key).add(outlayerclus);
+        }
+        modules.values().forEach(m -> m.sort());
         //loop over the clusters
         // inner clusters
         for (Cluster inlayerclus : svt_innerlayrclus) {
            if(inlayerclus.getTotalEnergy()<SVTParameters.ETOTCUT)
                 continue;
-            // outer clusters
-            for (Cluster outlayerclus : svt_outerlayrclus) {
-                if(outlayerclus.getTotalEnergy()<SVTParameters.ETOTCUT)
-                    continue;
-                // the diffence in layers between outer and inner is 1 for a double layer
-                if (outlayerclus.getLayer() - inlayerclus.getLayer() != 1) {
-                    continue;
-                }
-                // the sectors must be the same
-                if (outlayerclus.getSector() != inlayerclus.getSector()) {
-                    continue;
-                }
-                
-                    // define new cross ))
-                // a cut to avoid looping over all strips - from geometry there is a minimum (maximum) strip sum of inner and outer layers that can give a strip intersection
-                if ((inlayerclus.getMinStrip() + outlayerclus.getMinStrip() > SVTParameters.MINSTRIPSUM)
-                        && (inlayerclus.getMaxStrip() + outlayerclus.getMaxStrip() < SVTParameters.MAXSTRIPSUM)) { // the intersection is valid
-
-                    // define new cross 
-                    Cross this_cross = new Cross(DetectorType.BST, BMTType.UNDEFINED, inlayerclus.getSector(), inlayerclus.getRegion(), rid++);
-                    // cluster1 is the inner layer cluster
-                    this_cross.setCluster1(inlayerclus);
-                    // cluster2 is the outer layer cluster
-                    this_cross.setCluster2(outlayerclus);
-                    this_cross.setId(rid);
-                    // sets the cross parameters (point3D and associated error) from the SVT geometry
-                    this_cross.updateSVTCross(null); 
-                    // the uncorrected point obtained from default estimate that the track is at 90 deg wrt the module should not be null
-                    if (this_cross.getPoint0() != null) {
-                        double zo = this_cross.getCluster2().getLine().origin().z();
-                        double ze = this_cross.getCluster2().getLine().end().z();
-                        double z = this_cross.getPoint0().z();
-                        double range = Math.abs(ze-zo)+SVTParameters.CROSSZCUT;
-                        if(Math.abs(z-zo)<range && Math.abs(z-ze)<range ) {
-                            //pass the cross to the arraylist of crosses
-                            this_cross.setId(crosses.size() + 1);
-                            this_cross.setDetector(DetectorType.BST);
-                            calcCentErr(this_cross, this_cross.getCluster1());
-                            calcCentErr(this_cross, this_cross.getCluster2());
+            // the diffence in layers between outer and inner is 1 for a double layer, and the sectors must be the same
+            OuterModule module = modules.get(getModuleKey(inlayerclus.getLayer()+1, inlayerclus.getSector()));
+            if(module==null)
+                continue;
+            // outer clusters passing the strip sum cuts, from the geometry there is a minimum (maximum) strip sum of inner and outer layers that can give a strip intersection
+            for (Cluster outlayerclus : module.getCandidates(inlayerclus)) {
+                // define new cross 
+                Cross this_cross = new Cross(DetectorType.BST, BMTType.UNDEFINED, inlayerclus.getSector(), inlayerclus.getRegion(), rid++);
+                // cluster1 is the inner layer cluster
+                this_cross.setCluster1(inlayerclus);
+                // cluster2 is the outer layer cluster
+                this_cross.setCluster2(outlayerclus);
+                this_cross.setId(rid);
+                // sets the cross parameters (point3D and associated error) from the SVT geometry
+                this_cross.updateSVTCross(null); 
+                // the uncorrected point obtained from default estimate that the track is at 90 deg wrt the module should not be null
+                if (this_cross.getPoint0() != null) {
+                    double zo = this_cross.getCluster2().getLine().origin().z();
+                    double ze = this_cross.getCluster2().getLine().end().z();
+                    double z = this_cross.getPoint0().z();
+                    double range = Math.abs(ze-zo)+SVTParameters.CROSSZCUT;
+                    if(Math.abs(z-zo)<range && Math.abs(z-ze)<range ) {
+                        //pass the cross to the arraylist of crosses
+                        this_cross.setId(crosses.size() + 1);
+                        this_cross.setDetector(DetectorType.BST);
+                        calcCentErr(this_cross, this_cross.getCluster1());
+                        calcCentErr(this_cross, this_cross.getCluster2());
 
-                            crosses.add(this_cross);
-                        }
+                        crosses.add(this_cross);
                     }
                 }
             }
@@ -182,6 +182,48 @@ public class CrossMaker {
         return crosses;
     }
 
+    private static int getModuleKey(int layer, int sector) {
+        return layer*100 + sector;
+    }
+
+    /**
+     * Outer layer clusters of an SVT module: from the geometry, an inner
+     * strip can only cross the outer strips with a strip sum between
+     * SVTParameters.MINSTRIPSUM and SVTParameters.MAXSTRIPSUM, so the
+     * clusters that can cross an inner cluster are found by range queries
+     * on their strips.
+     */
+    private static class OuterModule {
+        private final List<Cluster> clusters = new ArrayList<>();
+        private StripSumIndex index;
+
+        void add(Cluster cluster) {
+            clusters.add(cluster);
+        }
+
+        void sort() {
+            int[] minStrips = new int[clusters.size()];
+            int[] maxStrips = new int[clusters.size()];
+            for (int i = 0; i < minStrips.length; i++) {
+                minStrips[i] = clusters.get(i).getMinStrip();
+                maxStrips[i] = clusters.get(i).getMaxStrip();
+            }
+            index = new StripSumIndex(minStrips, maxStrips);
+        }
+
+        /**
+         * @return the clusters passing the strip sum cuts with the inner
+         * cluster, in their original order, that defines the cross ids
+         */
+        List<Cluster> getCandidates(Cluster inner) {
+            int[] found = index.find(inner.getMinStrip(), inner.getMaxStrip(),
+                    SVTParameters.MINSTRIPSUM, SVTParameters.MAXSTRIPSUM);
+            List<Cluster> candidates = new ArrayList<>(found.length);
+            for (int i : found) candidates.add(clusters.get(i));
+            return candidates;
+        }
+    }
+
     public void calcCentErr(Cross c, Cluster Cluster1) {
         double Z = Geometry.getInstance().getSVT().toLocal(Cluster1.getLayer(),
                                                  Cluster1.getSector(),
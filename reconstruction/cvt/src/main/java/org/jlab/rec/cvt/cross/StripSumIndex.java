@@ -0,0 +1,72 @@
+package org.jlab.rec.cvt.cross;
+
+import java.util.Arrays;
+
+/**
+ * Index of the clusters of an SVT module by min strip, to find the clusters
+ * whose strip sums with a given cluster are in range: the min strip sum
+ * must be above a minimum, and the max strip sum below a maximum.
+ *
+ * Both bounds are binary searched on the min strips, the max strip sum
+ * bound through the min strip of a cluster being at most its max strip, so
+ * only the clusters of the resulting range are checked.
+ */
+class StripSumIndex {
+
+    private final int[] minStrips;
+    private final int[] maxStrips;
+    private final int[] indices;
+
+    /**
+     * @param minStrips min strip of each cluster
+     * @param maxStrips max strip of each cluster
+     */
+    StripSumIndex(int[] minStrips, int[] maxStrips) {
+        // sort by min strip, then index, packed in one primitive key:
+        long[] keys = new long[minStrips.length];
+        for (int i = 0; i < keys.length; i++) keys[i] = ((long) minStrips[i] << 32) | i;
+        Arrays.sort(keys);
+        this.minStrips = new int[keys.length];
+        this.maxStrips = new int[keys.length];
+        this.indices   = new int[keys.length];
+        for (int k = 0; k < keys.length; k++) {
+            int i = (int) keys[k];
+            this.indices[k]   = i;
+            this.minStrips[k] = minStrips[i];
+            this.maxStrips[k] = maxStrips[i];
+        }
+    }
+
+    /**
+     * @return position of the first min strip greater than the value
+     */
+    private int upperBound(int value) {
+        int lo = 0, hi = minStrips.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (minStrips[mid] <= value) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @param minStrip min strip of the other cluster
+     * @param maxStrip max strip of the other cluster
+     * @param minSum the min strip sum must be greater than this
+     * @param maxSum the max strip sum must be less than this
+     * @return indices of the clusters passing both cuts, in increasing order
+     */
+    int[] find(int minStrip, int maxStrip, int minSum, int maxSum) {
+        int first = this.upperBound(minSum - minStrip);
+        int last  = this.upperBound(maxSum - maxStrip - 1);
+        int n = 0;
+        int[] found = new int[Math.max(0, last - first)];
+        for (int k = first; k < last; k++) {
+            if (maxStrip + maxStrips[k] < maxSum) found[n++] = indices[k];
+        }
+        found = Arrays.copyOf(found, n);
+        Arrays.sort(found);
+        return found;
+    }
+}
@@ -88,6 +88,7 @@ public class CVTEngine extends ReconstructionEngine {
     private int bmtzmaxclussize = 100;
     private double rcut = 120.0;
     private double z0cut = 10;
+    private int maxSeedCombinations = 10000;
     
     public CVTEngine(String name) {
         super(name, "ziegler", "6.0");
@@ -129,7 +130,8 @@ public class CVTEngine extends ReconstructionEngine {
                                            bmtcmaxclussize, 
                                            bmtzmaxclussize,
                                            rcut,
-                                           z0cut);
+                                           z0cut,
+                                           maxSeedCombinations);
 
         this.initConstantsTables();
         this.registerBanks();
@@ -454,6 +456,9 @@ public class CVTEngine extends ReconstructionEngine {
         if (this.getEngineConfigString("z0cut")!=null)
             this.z0cut = Double.valueOf(this.getEngineConfigString("z0cut"));
         
+        if (this.getEngineConfigString("maxSeedCombinations")!=null)
+            this.maxSeedCombinations = Integer.valueOf(this.getEngineConfigString("maxSeedCombinations"));
+        
     }
 
 
@@ -605,6 +610,7 @@ public class CVTEngine extends ReconstructionEngine {
         System.out.println("["+this.getName()+"] max btm-z  cluster size "+this.getBmtzmaxclussize());
         System.out.println("["+this.getName()+"] helix radius cut (mm) "+this.rcut);
         System.out.println("["+this.getName()+"] z0 cut (mm from target edges) "+this.z0cut); 
+        System.out.println("["+this.getName()+"] max number of seed combinations "+this.maxSeedCombinations);
         
         
     }
@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import org.jlab.clas.swimtools.Swim;
 import org.jlab.detector.base.DetectorType;
 import org.jlab.geom.prim.Point3D;
@@ -18,6 +20,8 @@ import org.jlab.rec.cvt.svt.SVTParameters;
 
 public class TrackSeeder {
     
+    private final static Logger LOGGER = Logger.getLogger(TrackSeeder.class.getName());
+
     private final BMTGeometry bgeo = Geometry.getInstance().getBMT();
     private  double bfield;
     
@@ -25,7 +29,6 @@ public class TrackSeeder {
     private final double[] phiShift = new double[]{0, 65, 90}; // move the bin edge to handle bin boundaries
     private List<ArrayList<Cross>> scan ;
     private Map<Double, ArrayList<Cross>> seedMap ; // init seeds;
-    private Map<Integer, Map<Integer, ArrayList<Cross>>> sortedCrosses ;
     private List<Seed> seedScan ;
     private List<Double> Xs ;
     private List<Double> Ys ;
@@ -34,14 +37,23 @@ public class TrackSeeder {
     private double ybeam;
     public boolean unUsedHitsOnly = false;
     
+    // tolerance (mm) on the cross positions for the phi compatibility windows
+    private final double WINDOWTOL = SVTParameters.RESIMAX + Constants.getInstance().getBeamRadius();
+    // positions of the crosses relative to the beam spot, indexed as the seeding crosses
+    private double[] crsPhi = new double[0];
+    private double[] crsArc = new double[0];
+    private double[] crsTol = new double[0];
+    // number of phi bins where the maximum number of combinations was reached
+    private int truncatedBins;
+    // number of seeds where the maximum number of BMT-C combinations was reached
+    private int truncatedSeeds;
+    
     public TrackSeeder(Swim swimmer, double xb, double yb) {
         float[] b = new float[3];
         swimmer.BfieldLab(0, 0, 0, b);
         this.bfield = Math.abs(b[2]);
 
         //init lists for scan
-        sortedCrosses = new HashMap<>();
-        
         scan = new ArrayList<>();
         seedMap = new HashMap<>(); // init seeds;
         seedScan = new ArrayList<>();
@@ -133,6 +145,8 @@ public class TrackSeeder {
         for(int si1 = 0; si1<scan.size(); si1++)
             scan.get(si1).clear();
         
+        this.setPhiWindows(crosses);
+        truncatedBins = 0;
         for(int i = 0; i< phiShift.length; i++) {
             findSeedCrossesFixedBin(crosses, phiShift[i]); 
         }
@@ -141,11 +155,50 @@ public class TrackSeeder {
         }
         seedMap.forEach((key,value) -> this.fitSeed(value));
     }
+    
+    /**
+     * @return the number of phi bins where the maximum number of cross
+     * combinations was reached in the last call to findSeedCrossList
+     */
+    int getTruncatedBins() {
+        return truncatedBins;
+    }
+    
+    /**
+     * Computes the azimuth of the crosses around the beam spot, and the
+     * maximum azimuth bending from the beam spot for a helix radius larger 
+     * than the radius cut, asin(r/2R), to select compatible pairs of crosses.
+     */
+    private void setPhiWindows(List<Cross> crosses) {
+        if(crsPhi.length<crosses.size()) {
+            crsPhi = new double[crosses.size()];
+            crsArc = new double[crosses.size()];
+            crsTol = new double[crosses.size()];
+        }
+        for (int i = 0; i < crosses.size(); i++) {
+            double x = crosses.get(i).getPoint().x() - xbeam;
+            double y = crosses.get(i).getPoint().y() - ybeam;
+            double r = Math.max(Math.sqrt(x*x+y*y), WINDOWTOL);
+            crsPhi[i] = Math.atan2(y, x);
+            crsArc[i] = Math.asin(Math.min(1, r/(2*Constants.getRCUT())));
+            crsTol[i] = WINDOWTOL/r;
+        }
+    }
+    
+    /**
+     * @return true if the two crosses can belong to a circle from the beam
+     * spot with a radius larger than the radius cut
+     */
+    private boolean inPhiWindow(int i, int j) {
+        double dphi = Math.abs(Math.IEEEremainder(crsPhi[j]-crsPhi[i], 2*Math.PI));
+        return dphi < Math.abs(crsArc[j]-crsArc[i]) + crsTol[i] + crsTol[j];
+    }
    
     
     private void findSeedCrossesFixedBin(List<Cross> crosses, double phiShift) {
-        sortedCrosses.clear();
+        // indices of the crosses in each phi bin and region
         int[][] LPhi = new int[NBINS][3];
+        int[] crsBin = new int[crosses.size()];
         for (int i = 0; i < crosses.size(); i++) {
             crosses.get(i).reset();
             double phi = Math.toDegrees(crosses.get(i).getPoint().toVector3D().phi());
@@ -158,58 +211,85 @@ public class TrackSeeder {
             int binIdx = (int) (phi / (360./NBINS) );
             if(binIdx>NBINS-1)
                 binIdx = NBINS-1;
-            if(!sortedCrosses.containsKey(binIdx)) {
-                sortedCrosses.put(binIdx, new HashMap<Integer, ArrayList<Cross>>());
-                sortedCrosses.get(binIdx).put(crosses.get(i).getRegion() - 1, new ArrayList<Cross>());
-                sortedCrosses.get(binIdx).get(crosses.get(i).getRegion() - 1).add(crosses.get(i));
-                LPhi[binIdx][crosses.get(i).getRegion() - 1]++; 
-                
-            } else {
-                if(!sortedCrosses.get(binIdx).containsKey(crosses.get(i).getRegion() - 1)) {
-                    sortedCrosses.get(binIdx).put(crosses.get(i).getRegion() - 1, new ArrayList<Cross>());
-                    sortedCrosses.get(binIdx).get(crosses.get(i).getRegion() - 1).add(crosses.get(i));
-                    LPhi[binIdx][crosses.get(i).getRegion() - 1]++; 
-                } else {
-                    sortedCrosses.get(binIdx).get(crosses.get(i).getRegion() - 1).add(crosses.get(i));
-                    LPhi[binIdx][crosses.get(i).getRegion() - 1]++; 
-                }
-            }
+            crsBin[i] = binIdx;
+            LPhi[binIdx][crosses.get(i).getRegion() - 1]++; 
         }
-        
-        
+        int[][][] sortedIdx = new int[NBINS][3][];
         for (int b = 0; b < NBINS; b++) {
             for (int la = 0; la < 3; la++) { 
-                if(LPhi[b][la]==0) {
-                    LPhi[b][la]=1;
-                } 
+                sortedIdx[b][la] = new int[LPhi[b][la]];
+                LPhi[b][la] = 0;
             }
         }
-        List<Cross> hits = new ArrayList<>(); 
+        for (int i = 0; i < crosses.size(); i++) {
+            int la = crosses.get(i).getRegion() - 1;
+            sortedIdx[crsBin[i]][la][LPhi[crsBin[i]][la]++] = i;
+        }
+        
         for (int b = 0; b < NBINS; b++) {
-            if(!sortedCrosses.containsKey(b)) continue;
-            
-            for(int i1 = 0; i1< LPhi[b][0]; i1++) {
-                for(int i2 = 0; i2< LPhi[b][1]; i2++) {
-                    for(int i3 = 0; i3< LPhi[b][2]; i3++) {
-                        hits.clear();
-                        if(sortedCrosses.get(b).containsKey(0))
-                            hits.add(sortedCrosses.get(b).get(0).get(i1));
-                        if(sortedCrosses.get(b).containsKey(1))
-                            hits.add(sortedCrosses.get(b).get(1).get(i2));
-                        if(sortedCrosses.get(b).containsKey(2))
-                            hits.add(sortedCrosses.get(b).get(2).get(i3));
-                        if(hits.size()==3) {
-                            if(this.checkZ((ArrayList<Cross>) hits)) {
-                                this.addToSeedMap((ArrayList<Cross>) hits);
-                            }
-                        } else if(hits.size()==2) {
-                            this.addToSeedMap((ArrayList<Cross>) hits);
+            int[][] idx = sortedIdx[b];
+            // at least two crosses in different regions for a seed
+            int nregions = 0;
+            for(int r = 0; r < 3; r++) 
+                if(idx[r].length>0) nregions++;
+            if(nregions<2) continue;
+            // the combinations compatible with a helix radius above the cut
+            // first, the others after, so that these are the ones dropped if
+            // the bin has too many combinations
+            int ncomb = this.addCombinations(crosses, idx, true, 0);
+            if(ncomb>=0) 
+                ncomb = this.addCombinations(crosses, idx, false, ncomb);
+            if(ncomb<0) 
+                truncatedBins++;
+        }
+    }
+    
+    /**
+     * Adds the triples, or pairs if a region is empty, of the crosses of a 
+     * phi bin to the seed map.
+     * @param crosses crosses
+     * @param idx indices of the crosses of the bin in each region
+     * @param compatible true for the combinations in the phi windows, false
+     * for the others
+     * @param ncomb number of combinations of the bin already tried
+     * @return the number of combinations of the bin tried, or -1 if the 
+     * maximum number of combinations was reached
+     */
+    private int addCombinations(List<Cross> crosses, int[][] idx, boolean compatible, int ncomb) {
+        ArrayList<Cross> hits = new ArrayList<>(); 
+        // a missing region is looped over once, with no cross
+        for(int i1 = 0; i1< Math.max(1, idx[0].length); i1++) {
+            int c1 = idx[0].length>0 ? idx[0][i1] : -1;
+            for(int i2 = 0; i2< Math.max(1, idx[1].length); i2++) {
+                int c2 = idx[1].length>0 ? idx[1][i2] : -1;
+                boolean inWindow = c1<0 || c2<0 || this.inPhiWindow(c1, c2);
+                if(compatible && !inWindow) continue;
+                for(int i3 = 0; i3< Math.max(1, idx[2].length); i3++) {
+                    int c3 = idx[2].length>0 ? idx[2][i3] : -1;
+                    int cin = c2>=0 ? c2 : c1;
+                    boolean inWindows = inWindow && (c3<0 || cin<0 || this.inPhiWindow(cin, c3));
+                    if(inWindows != compatible) continue;
+                    if(ncomb>=Constants.getInstance().getMaxSeedCombinations()) 
+                        return -1;
+                    ncomb++;
+                    hits.clear();
+                    if(c1>=0)
+                        hits.add(crosses.get(c1));
+                    if(c2>=0)
+                        hits.add(crosses.get(c2));
+                    if(c3>=0)
+                        hits.add(crosses.get(c3));
+                    if(hits.size()==3) {
+                        if(this.checkZ(hits)) {
+                            this.addToSeedMap(hits);
                         }
+                    } else if(hits.size()==2) {
+                        this.addToSeedMap(hits);
                     }
                 }
-
             }
         }
+        return ncomb;
     }
 
 
@@ -257,6 +337,7 @@ public class TrackSeeder {
         }
         this.findSeedCrossList(svt_crosses);
         this.matchSeed(crosses);
+        truncatedSeeds = 0;
         
         for(Seed mseed : getSeedScan()) { 
             List<Cross> seedcrs = mseed.getCrosses();
@@ -341,6 +422,10 @@ public class TrackSeeder {
                 if(bestSeed!= null) seedlist.add(bestSeed);
             }
         }
+        if(truncatedBins>0 || truncatedSeeds>0) {
+            LOGGER.log(Level.WARNING, "Too many cross combinations: maximum reached in {0} SVT phi bins, dropping the combinations outside the phi windows first, and for {1} seeds with BMT-C crosses", 
+                    new Object[]{truncatedBins, truncatedSeeds});
+        }
 
         
         if(!seedlist.isEmpty()) {
@@ -389,50 +474,47 @@ public class TrackSeeder {
         List<ArrayList<Cross>> BMTCcrosses = new ArrayList<>();
         
         Map<String, Seed> AllSeeds = new HashMap<>();
-        int[] S = new int[3];
        
         for (int r = 0; r < 3; r++) {
             BMTCcrosses.add(new ArrayList<>());
         }
-        //for (int r = 0; r < 3; r++) {
-        //    BMTCcrosses.get(r).clear();
-        //    BMTZcrosses.get(r).clear();
-        //}
 
         for (Cross bmt_cross : bmt_crosses) { 
             if (bmt_cross.getType()==BMTType.C) // C-detector
                 BMTCcrosses.get(bmt_cross.getRegion() - 1).add(bmt_cross); 
         }
 
+        // the candidates in each region are the crosses compatible with the
+        // seed, and no cross if the region is empty or any cross is not
         for (int r = 0; r < 3; r++) {
-            S[r] = BMTCcrosses.get(r).size();
-            if (S[r] == 0) {
-                S[r] = 1;
+            ArrayList<Cross> passing = new ArrayList<>();
+            boolean none = BMTCcrosses.get(r).isEmpty();
+            for (Cross c : BMTCcrosses.get(r)) {
+                if (this.passCcross(trkCand, c)) {
+                    passing.add(c);
+                } else {
+                    none = true;
+                }
             }
-            
+            if (none) {
+                passing.add(null);
+            }
+            BMTCcrosses.set(r, passing);
         }
 
-        for (int i1 = 0; i1 < S[0]; i1++) {
-            for (int i2 = 0; i2 < S[1]; i2++) {
-                for (int i3 = 0; i3 < S[2]; i3++) {
+        int ncomb = 0;
+        for (Cross c1 : BMTCcrosses.get(0)) {
+            for (Cross c2 : BMTCcrosses.get(1)) {
+                for (Cross c3 : BMTCcrosses.get(2)) {
+                    if (ncomb++ >= Constants.getInstance().getMaxSeedCombinations()) {
+                        truncatedSeeds++;
+                        return new ArrayList<>(AllSeeds.values());
+                    }
 
                     ArrayList<Cross> matches = new ArrayList<>();
-
-                    if (BMTCcrosses.get(0).size() > 0 && i1 < BMTCcrosses.get(0).size()) {
-                        if (this.passCcross(trkCand, BMTCcrosses.get(0).get(i1))) {
-                            matches.add(BMTCcrosses.get(0).get(i1));
-                        }
-                    }
-                    if (BMTCcrosses.get(1).size() > 0 && i2 < BMTCcrosses.get(1).size()) {
-                        if (this.passCcross(trkCand, BMTCcrosses.get(1).get(i2))) {
-                            matches.add(BMTCcrosses.get(1).get(i2));
-                        }
-                    }
-                    if (BMTCcrosses.get(2).size() > 0 && i3 < BMTCcrosses.get(2).size()) {
-                        if (this.passCcross(trkCand, BMTCcrosses.get(2).get(i3))) {
-                            matches.add(BMTCcrosses.get(2).get(i3));
-                        }
-                    }
+                    if (c1 != null) matches.add(c1);
+                    if (c2 != null) matches.add(c2);
+                    if (c3 != null) matches.add(c3);
                     
                     matches.addAll(trkCand.getCrosses());
                     if (matches.size() > 0) {
@@ -443,11 +525,6 @@ public class TrackSeeder {
                         BMTTrkSeed.setHelix(trkCand.getHelix());
                         BMTTrkSeed.setCrosses(matches);
                         AllSeeds.put(st,BMTTrkSeed);
-         
-                        //if (AllSeeds.size() > 200) {
-                        //    AllSeeds.clear();
-                        //    return AllSeeds;
-                        //}
                     }
                 }
             }
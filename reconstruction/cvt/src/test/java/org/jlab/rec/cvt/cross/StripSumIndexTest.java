@@ -0,0 +1,44 @@
+package org.jlab.rec.cvt.cross;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class StripSumIndexTest {
+
+    /**
+     * The cuts of the pair loop of findSVTCrosses before the index was used.
+     */
+    private static int[] findAll(int[] minStrips, int[] maxStrips, int minStrip, int maxStrip, int minSum, int maxSum) {
+        int[] found = new int[minStrips.length];
+        int n = 0;
+        for (int i = 0; i < minStrips.length; i++) {
+            if (minStrip + minStrips[i] > minSum && maxStrip + maxStrips[i] < maxSum) found[n++] = i;
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    @Test
+    public void testFind() {
+        Random random = new Random(3);
+        for (int k = 0; k < 2000; k++) {
+            int n = random.nextInt(20);
+            int[] minStrips = new int[n];
+            int[] maxStrips = new int[n];
+            for (int i = 0; i < n; i++) {
+                minStrips[i] = 1 + random.nextInt(256);
+                maxStrips[i] = minStrips[i] + random.nextInt(6);
+            }
+            StripSumIndex index = new StripSumIndex(minStrips, maxStrips);
+            int minSum = 70 + random.nextInt(150);
+            int maxSum = 200 + random.nextInt(200);
+            for (int q = 0; q < 10; q++) {
+                int minStrip = 1 + random.nextInt(256);
+                int maxStrip = minStrip + random.nextInt(6);
+                assertArrayEquals(findAll(minStrips, maxStrips, minStrip, maxStrip, minSum, maxSum),
+                        index.find(minStrip, maxStrip, minSum, maxSum));
+            }
+        }
+    }
+}
@@ -0,0 +1,323 @@
+package org.jlab.rec.cvt.track;
+
+import cnuphys.magfield.MagneticFields;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.jlab.clas.swimtools.Swim;
+import org.jlab.detector.base.DetectorType;
+import org.jlab.geom.prim.Point3D;
+import org.jlab.rec.cvt.Constants;
+import org.jlab.rec.cvt.cross.Cross;
+import org.jlab.rec.cvt.svt.SVTParameters;
+import org.jlab.utils.CLASResources;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TrackSeederTest {
+
+    private static final int NBINS = 36;
+    private static final double[] PHISHIFTS = new double[]{0, 65, 90};
+    private static final double[] RADII = new double[]{65, 93, 120};
+    private static final double XB = 0.5;
+    private static final double YB = -0.3;
+
+    @BeforeClass
+    public static void loadField() {
+        System.setProperty("CLAS12DIR", "../../");
+        String mapDir = CLASResources.getResourcePath("etc")+"/data/magfield";
+        try {
+            MagneticFields.getInstance().initializeMagneticFields(mapDir,
+                    "Symm_torus_r2501_phi16_z251_24Apr2018.dat","Symm_solenoid_r601_phi1_z1201_13June2018.dat");
+        }
+        catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static int bin(Cross c, double phiShift) {
+        double phi = Math.toDegrees(c.getPoint().toVector3D().phi()) + phiShift;
+        if (phi < 0) phi += 360;
+        return Math.min((int) (phi / (360./NBINS)), NBINS-1);
+    }
+
+    /**
+     * The crosses of each phi bin, by region, for each phi shift.
+     */
+    private static List<Map<Integer, Map<Integer, List<Cross>>>> bins(List<Cross> crosses) {
+        List<Map<Integer, Map<Integer, List<Cross>>>> bins = new ArrayList<>();
+        for (double phiShift : PHISHIFTS) {
+            Map<Integer, Map<Integer, List<Cross>>> sorted = new TreeMap<>();
+            for (Cross c : crosses) {
+                sorted.computeIfAbsent(bin(c, phiShift), k -> new HashMap<>()).computeIfAbsent(c.getRegion()-1, k -> new ArrayList<>()).add(c);
+            }
+            bins.add(sorted);
+        }
+        return bins;
+    }
+
+    private static long combinations(Map<Integer, List<Cross>> regions) {
+        long ncomb = 1;
+        for (List<Cross> region : regions.values()) ncomb *= region.size();
+        return ncomb;
+    }
+
+    /**
+     * The cross combinations used before: all the triples, or pairs if a
+     * region is empty, of the crosses of each phi bin.
+     * @return the combinations passing the z check, by cross ids
+     */
+    private static Map<String, ArrayList<Cross>> reference(List<Cross> crosses) {
+        Map<String, ArrayList<Cross>> combinations = new HashMap<>();
+        List<Cross> none = Collections.singletonList(null);
+        for (Map<Integer, Map<Integer, List<Cross>>> sorted : bins(crosses)) {
+            for (Map<Integer, List<Cross>> regions : sorted.values()) {
+                for (Cross c1 : regions.getOrDefault(0, none)) {
+                    for (Cross c2 : regions.getOrDefault(1, none)) {
+                        for (Cross c3 : regions.getOrDefault(2, none)) {
+                            ArrayList<Cross> hits = new ArrayList<>();
+                            if (c1 != null) hits.add(c1);
+                            if (c2 != null) hits.add(c2);
+                            if (c3 != null) hits.add(c3);
+                            if (hits.size() < 2) continue;
+                            if (hits.size() == 3 && !checkZ(hits)) continue;
+                            combinations.put(key(hits), hits);
+                        }
+                    }
+                }
+            }
+        }
+        return combinations;
+    }
+
+    private static boolean checkZ(List<Cross> hits) {
+        Point3D p1 = hits.get(0).getPoint();
+        Point3D p2 = hits.get(1).getPoint();
+        Point3D p3 = hits.get(2).getPoint();
+        double sl = (p1.z() - p3.z())/(p1.toVector3D().rho() - p3.toVector3D().rho());
+        double in = -sl*p1.toVector3D().rho() + p1.z();
+        return Math.abs(sl*p2.toVector3D().rho() + in - p2.z()) < hits.get(1).getPointErr().z()*20;
+    }
+
+    private static String key(List<Cross> hits) {
+        StringBuilder str = new StringBuilder();
+        for (Cross c : hits) str.append(c.getId()).append(' ');
+        return str.toString();
+    }
+
+    private static String dump(Seed seed) {
+        return String.format("%s%.6f %.8f %.6f", key(seed.getCrosses()), seed.getDoca(), seed.getRho(), seed.getPhi());
+    }
+
+    /**
+     * The number of phi bins with more cross combinations than the maximum,
+     * among the ones with crosses in at least two regions.
+     */
+    private static int truncatedBins(List<Cross> crosses, int max) {
+        int n = 0;
+        for (Map<Integer, Map<Integer, List<Cross>>> sorted : bins(crosses)) {
+            for (Map<Integer, List<Cross>> regions : sorted.values()) {
+                if (regions.size() > 1 && combinations(regions) > max) n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * @return true if the given crosses are all in a phi bin with no more
+     * cross combinations than the maximum, for one of the phi shifts
+     */
+    private static boolean inFullBin(List<Cross> hits, List<Cross> crosses, int max) {
+        List<Map<Integer, Map<Integer, List<Cross>>>> bins = bins(crosses);
+        for (int i = 0; i < PHISHIFTS.length; i++) {
+            int bin = bin(hits.get(0), PHISHIFTS[i]);
+            boolean same = true;
+            for (Cross c : hits) same &= bin(c, PHISHIFTS[i]) == bin;
+            if (same && combinations(bins.get(i).get(bin)) <= max) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The seeds found by a seeder, by cross ids.
+     */
+    private static Map<String, String> seeds(TrackSeeder seeder) {
+        Map<String, String> seeds = new HashMap<>();
+        for (Seed seed : seeder.getSeedScan()) {
+            seeds.put(key(seed.getCrosses()), dump(seed));
+        }
+        return seeds;
+    }
+
+    /**
+     * Crosses of tracks from the beam spot, with helix radius below and above
+     * the radius cut, and of random noise around the tracks.
+     * @param maxNoise maximum number of noise crosses
+     * @param noiseZ spread of the noise crosses in z
+     */
+    private static List<Cross> crosses(Random random, int maxNoise, double noiseZ) {
+        List<Cross> crosses = new ArrayList<>();
+        int ntracks = 1 + random.nextInt(4);
+        double[] phi0s = new double[ntracks];
+        for (int t = 0; t < ntracks; t++) {
+            double radius = 40 + Math.exp(7*random.nextDouble());
+            double phi0 = 2*Math.PI*random.nextDouble();
+            phi0s[t] = phi0;
+            int q = random.nextBoolean() ? 1 : -1;
+            double z0 = 20*random.nextGaussian();
+            double tandip = 2*random.nextDouble() - 1;
+            for (int r = 0; r < 3; r++) {
+                if (RADII[r] > 2*radius || random.nextInt(10) == 0) continue;
+                double phi = phi0 - q*Math.asin(RADII[r]/(2*radius));
+                addCross(crosses, r+1,
+                         XB + RADII[r]*Math.cos(phi) + 0.3*random.nextGaussian(),
+                         YB + RADII[r]*Math.sin(phi) + 0.3*random.nextGaussian(),
+                         z0 + tandip*RADII[r] + random.nextGaussian());
+            }
+        }
+        int nnoise = random.nextInt(maxNoise);
+        for (int n = 0; n < nnoise; n++) {
+            int r = random.nextInt(3);
+            double phi = phi0s[random.nextInt(ntracks)] + 0.3*random.nextGaussian();
+            addCross(crosses, r+1, RADII[r]*Math.cos(phi), RADII[r]*Math.sin(phi), noiseZ*random.nextGaussian());
+        }
+        return crosses;
+    }
+
+    private static void addCross(List<Cross> crosses, int region, double x, double y, double z) {
+        Cross cross = new Cross(DetectorType.BST, null, 1, region, crosses.size()+1);
+        cross.setPoint(new Point3D(x, y, z));
+        cross.setPointErr(new Point3D(0.5, 0.5, 2));
+        crosses.add(cross);
+    }
+
+    @Test
+    public void testFindSeedCrossList() {
+        Random random = new Random(37);
+        Swim swimmer = new Swim();
+        int nabove = 0;
+        int nbelow = 0;
+        for (int k = 0; k < 2000; k++) {
+            List<Cross> crosses = crosses(random, 10, 100);
+
+            TrackSeeder expected = new TrackSeeder(swimmer, XB, YB);
+            for (ArrayList<Cross> hits : reference(crosses).values()) {
+                expected.fitSeed(hits);
+            }
+            TrackSeeder seeder = new TrackSeeder(swimmer, XB, YB);
+            seeder.findSeedCrossList(crosses);
+            assertEquals(0, seeder.getTruncatedBins());
+
+            // the same seeds as the full scan, including the ones below the
+            // radius cut, which can pass it after the BMT refit
+            assertEquals(seeds(expected), seeds(seeder));
+            for (Seed seed : expected.getSeedScan()) {
+                if (1/Math.abs(seed.getRho()) > Constants.getRCUT()) nabove++;
+                else nbelow++;
+            }
+        }
+        assertTrue(nabove > 1000);
+        assertTrue(nbelow > 100);
+    }
+
+    @Test
+    public void testMaxSeedCombinations() {
+        Random random = new Random(41);
+        Swim swimmer = new Swim();
+        int max = Constants.getInstance().getMaxSeedCombinations();
+        Constants.getInstance().setMaxSeedCombinations(50);
+        try {
+            int ntruncated = 0;
+            int nfull = 0;
+            int ndropped = 0;
+            for (int k = 0; k < 600; k++) {
+                List<Cross> crosses = crosses(random, 90, 5);
+
+                TrackSeeder expected = new TrackSeeder(swimmer, XB, YB);
+                for (ArrayList<Cross> hits : reference(crosses).values()) {
+                    expected.fitSeed(hits);
+                }
+                TrackSeeder seeder = new TrackSeeder(swimmer, XB, YB);
+                seeder.findSeedCrossList(crosses);
+
+                // the maximum applies to each phi bin
+                int nbins = truncatedBins(crosses, 50);
+                assertEquals(nbins, seeder.getTruncatedBins());
+                Map<String, String> expectedSeeds = seeds(expected);
+                Map<String, String> seeds = seeds(seeder);
+                for (String key : seeds.keySet()) {
+                    assertEquals(expectedSeeds.get(key), seeds.get(key));
+                }
+                if (nbins == 0) {
+                    assertEquals(expectedSeeds, seeds);
+                    continue;
+                }
+                ntruncated++;
+                // only the seeds of the truncated bins can be lost
+                for (Seed seed : expected.getSeedScan()) {
+                    boolean kept = seeds.containsKey(key(seed.getCrosses()));
+                    if (inFullBin(seed.getCrosses(), crosses, 50)) {
+                        assertTrue(kept);
+                        nfull++;
+                    }
+                    else if (!kept) {
+                        ndropped++;
+                    }
+                }
+            }
+            assertTrue(ntruncated > 100);
+            assertTrue(nfull > 1000);
+            assertTrue(ndropped > 1000);
+        }
+        finally {
+            Constants.getInstance().setMaxSeedCombinations(max);
+        }
+    }
+
+    @Test
+    public void testPhiWindowsFirst() {
+        Swim swimmer = new Swim();
+        int max = Constants.getInstance().getMaxSeedCombinations();
+        double rcut = Constants.getRCUT();
+        double resimax = SVTParameters.RESIMAX;
+        Constants.getInstance().setMaxSeedCombinations(5);
+        // phi windows narrower than the bins
+        Constants.setRCUT(5000);
+        SVTParameters.RESIMAX = 0.5;
+        try {
+            // region 1 crosses out of the phi windows of the track, in the
+            // same bins for all the phi shifts, and tried first
+            List<Cross> crosses = new ArrayList<>();
+            for (int n = 0; n < 10; n++) {
+                double phi = Math.toRadians(4);
+                addCross(crosses, 1, XB + RADII[0]*Math.cos(phi), YB + RADII[0]*Math.sin(phi), n);
+            }
+            // and in a region alone, with no seed
+            for (int n = 0; n < 10; n++) {
+                double phi = Math.toRadians(181);
+                addCross(crosses, 1, XB + RADII[0]*Math.cos(phi), YB + RADII[0]*Math.sin(phi), n);
+            }
+            List<Cross> track = new ArrayList<>();
+            for (int r = 0; r < 3; r++) {
+                double phi = Math.toRadians(1);
+                addCross(crosses, r+1, XB + RADII[r]*Math.cos(phi), YB + RADII[r]*Math.sin(phi), 0);
+                track.add(crosses.get(crosses.size()-1));
+            }
+            TrackSeeder seeder = new TrackSeeder(swimmer, XB, YB);
+            seeder.findSeedCrossList(crosses);
+            assertEquals(PHISHIFTS.length, seeder.getTruncatedBins());
+            assertEquals(truncatedBins(crosses, 5), seeder.getTruncatedBins());
+            assertTrue(seeds(seeder).containsKey(key(track)));
+        }
+        finally {
+            Constants.getInstance().setMaxSeedCombinations(max);
+            Constants.setRCUT(rcut);
+            SVTParameters.RESIMAX = resimax;
+        }
+    }
+}
@@ -19,6 +19,7 @@ import org.jlab.io.task.DataSourceProcessorPane;
 import org.jlab.io.task.IDataEventListener;
 import org.jlab.service.ec.ECCluster;
 import org.jlab.service.ec.ECCommon;
+import org.jlab.service.ec.ECContext;
 import org.jlab.service.ec.ECEngine;
 import org.jlab.service.ec.ECPeak;
 import org.jlab.service.ec.ECStrip;
@@ -32,6 +33,7 @@ public class ECDisplay extends JPanel implements IDataEventListener {
     DetectorPane2D            detectorView        = null;
     DataSourceProcessorPane processorPane = null;
     ECEngine                detectorEngine = new ECEngine();
+    ECContext                      context = new ECContext(detectorEngine.getConfig());
     Detector ecDetector = null;
     
     public ECDisplay(){
@@ -59,9 +61,9 @@ public class ECDisplay extends JPanel implements IDataEventListener {
 
 
 
-        List<ECStrip>  ecStrips = ECCommon.initEC(de, detectorEngine.getConstantsManager());
+        List<ECStrip>  ecStrips = ECCommon.initEC(context, de, detectorEngine.getConstantsManager());
         List<ECPeak> ecPeaksALL = ECCommon.createPeaks(ecStrips);
-        List<ECPeak> ecPeaks    = ECCommon.processPeaks(ecPeaksALL);
+        List<ECPeak> ecPeaks    = ECCommon.processPeaks(context, ecPeaksALL);
         
         DetectorShape2D shapeP = new DetectorShape2D(DetectorType.ECAL,0,0,0);
         
@@ -85,7 +87,7 @@ public class ECDisplay extends JPanel implements IDataEventListener {
             
         }
         System.out.println("*****************  CLUSTERS ");
-        List<ECCluster> cPCAL  = ECCommon.createClusters(ecPeaks,1);
+        List<ECCluster> cPCAL  = ECCommon.createClusters(context, ecPeaks,1);
         for(ECCluster c : cPCAL){
             System.out.println(c);
         }
@@ -60,6 +60,10 @@ public class ECCluster implements Comparable {
         return desc;
     }
     
+    public ECContext getContext(){
+        return clusterPeaks.get(0).getContext();
+    }
+    
     public ECPeak getPeak(int view){
         return clusterPeaks.get(view);
     }
@@ -121,7 +125,7 @@ public class ECCluster implements Comparable {
     }  
     
     public double getTime() {
-    	return ECCommon.useUnsharedTime ? getUnsharedRawADCTime():getRawADCTime();
+    	return getContext().config.useUnsharedTime ? getUnsharedRawADCTime():getRawADCTime();
     } 
  
     public double getTime(int view) {
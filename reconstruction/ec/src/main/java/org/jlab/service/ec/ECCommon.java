@@ -8,11 +8,9 @@ import org.jlab.detector.banks.RawDataBank;
 import org.jlab.detector.base.DetectorCollection;
 import org.jlab.detector.base.DetectorLayer;
 import org.jlab.detector.calib.utils.ConstantsManager;
-import org.jlab.geom.base.Detector;
 import org.jlab.geom.base.Layer;
 import org.jlab.geom.component.ScintillatorPaddle;
 import org.jlab.groot.data.H1F;
-import org.jlab.groot.data.H2F;
 import org.jlab.io.base.DataBank;
 import org.jlab.io.base.DataEvent;
 import org.jlab.utils.groups.IndexedList;
@@ -25,136 +23,25 @@ import org.jlab.utils.groups.IndexedTable;
 
 public class ECCommon {
 	
-    public static Detector        ecDetector = null; 
-        
-    public static List<ECStrip>     myStrips = new ArrayList<ECStrip>();
-    public static List<ECPeak>       myPeaks = new ArrayList<ECPeak>();
-    public static List<ECCluster> myClusters = new ArrayList<ECCluster>();
-    
-    public static int[]      stripThreshold = new int[3];
-    public static int[]       peakThreshold = new int[3]; 
-    public static int[]    clusterThreshold = new int[3];
-    public static float[]       clusterSize = new float[3];
-    public static float[]     clusterDeltaT = new float[3];
-    
-    public static int               touchID = 1;
-    public static int           splitMethod = 0;
-    public static int       stripSortMethod = 0;
-    public static int[]         splitThresh = new int[3];
-    
-    public static Boolean              isMC = false;
-    public static Boolean             debug = false;
-    public static Boolean        debugSplit = false;
-    public static Boolean  isSingleThreaded = false;
-    public static Boolean       singleEvent = false;
-    public static Boolean     useNewTimeCal = true;
-    public static Boolean useUnsharedEnergy = true;
-    public static Boolean  useTWCorrections = true;
-    public static Boolean  useDTCorrections = true;
-    
-    public static Boolean     usePass2Recon = false;
-    public static Boolean    usePass2Timing = true;
-    public static Boolean    usePass2Energy = true;
-    public static int     UnsharedEnergyCut = 6;
-    public static Boolean   useUnsharedTime = true;
-    public static Boolean       useFADCTime = false;
-    public static Boolean         useFTpcal = true;
-    public static Boolean       useCCDBGain = true;
-    public static double           logParam = 3.0;
-    public static String             config = "";
-    public static String          variation = "default";
-    public static String      geomVariation = "default";
-    public static int       pcTrackingPlane = -1;
-    public static int       ecTrackingPlane = -1;
-    
-    public static int           eventNumber = 0;
-   
     private static double[] AtoE  = {15,10,10};   // SCALED ADC to Energy in MeV
     private static double[] AtoE5 = {15,5,5};     // For Sector 5 ECAL
     
-    public static DetectorCollection<H1F> H1_ecEng = new DetectorCollection<H1F>();
-    public static DetectorCollection<H2F> H2_ecEng = new DetectorCollection<H2F>();
-    
     static int ind[]  = {0,0,0,1,1,1,2,2,2}; 
     static float               tps = 0.02345f;
-    public static float       veff = 18.1f;
-    static int nclus, slast;
-    static float maxerr;
-    
-    public  static void initHistos() {
-    	int[] bins = {480,240,120};       
-        for (int is=1; is<7; is++){
-            for (int il=1; il<4; il++) {             
-                H1_ecEng.add(is,il, 0, new H1F("Cluster Errors",bins[il-1],-2,30));
-                H1_ecEng.add(is,il, 1, new H1F("Cluster Errors",bins[il-1],-2,30));
-                if(il==1) {
-                H1_ecEng.add(is,il,10, new H1F("Cluster Errors",bins[il-1],-2,30));
-                H1_ecEng.add(is,il,11, new H1F("Cluster Errors",bins[il-1],-2,30));
-                H1_ecEng.add(is,il,12, new H1F("Cluster Errors",bins[il-1],-2,30));
-                H1_ecEng.add(is,il,13, new H1F("Cluster Errors",bins[il-1],-2,30));
-                }
-                H2_ecEng.add(is,il, 1, new H2F("Cluster Errors",11,1,12,40,0,20));
-            }
-//            for (int il=1; il<10; il++) {
-//                H1_ecEng.add(is,il,14, new H1F("Split Ratio",100,0,10));           	
-//            }
-        }
-    }
-    
-    public static void resetHistos() {       
-        for (int is=1; is<7; is++){
-            for (int il=1; il<4; il++) {             
-                H1_ecEng.get(is,il,0).reset();
-                H1_ecEng.get(is,il,1).reset();
-                H2_ecEng.get(is,il,1).reset();
-                if(il==1) for (int i=10; i<14; i++) H1_ecEng.get(is,il,i).reset();
-           }
-        }       
-    }
-    
-    public static void setDebug(boolean val) {
-    	debug = val;
-    }
-    
-    public static void setisSingleThreaded(boolean val) {
-        isSingleThreaded = val;
-    }
-    
-    public static void setSingleEvent(boolean val) {
-    	singleEvent = val;
-    }
-    
-    public static void clearMyStructures() {
-    	getMyStrips().clear();
-    	getMyPeaks().clear();
-    	getMyClusters().clear();
-    }
-    
-    public static List<ECStrip> getMyStrips() {
-    	return myStrips;
-    }
-    
-    public static List<ECPeak> getMyPeaks() {
-    	return myPeaks;
-    }
-    
-    public static List<ECCluster> getMyClusters() {
-    	return myClusters;
-    }
     
     public static int  getRunNumber(DataEvent de) {
     	return (de.hasBank("RUN::config") ? (int) de.getBank("RUN::config").getInt("run", 0) : 10);
     }
     
-    public static List<ECStrip>  initEC(DataEvent event,  ConstantsManager manager){
+    public static List<ECStrip>  initEC(ECContext ctx, DataEvent event,  ConstantsManager manager){
     	
         int run = getRunNumber(event);
         
-        isMC = run<=100;
+        ctx.reset(run); //MC runs use pass1 timing, see ECContext
         
-        if(isMC) {usePass2Timing = false; useDTCorrections = false; useFTpcal = false;}
+        ECConfig config = ctx.config;
         
-        manager.setVariation(variation);
+        manager.setVariation(config.variation);
 
         IndexedTable   atten1 = manager.getConstants(run, "/calibration/ec/attenuation");
         IndexedTable   atten2 = manager.getConstants(run, "/calibration/ec/atten");    //pass2
@@ -171,15 +58,11 @@ public class ECCommon {
         IndexedTable      tgo = manager.getConstants(run, "/calibration/ec/tdc_global_offset");		
         IndexedTable   r2gain = manager.getConstants(2,   "/calibration/ec/gain");
     
-        if(singleEvent) resetHistos();        
-        
-        List<ECStrip>  ecStrips = null;
-        
-        ecStrips = ECCommon.readStripsHipo(event, run, manager);  
+        if(config.singleEvent) config.resetHistos();        
         
-        if(ecStrips==null) return new ArrayList<ECStrip>();
+        List<ECStrip>  ecStrips = ECCommon.readStripsHipo(ctx, event, run, manager);  
         
-        stripSortMethod=0; Collections.sort(ecStrips); //sort by sector, layer, component
+        Collections.sort(ecStrips); //sort by sector, layer, component
         
         for(ECStrip strip : ecStrips){
             int sector    = strip.getDescriptor().getSector();
@@ -188,13 +71,13 @@ public class ECCommon {
             int superlayer = (int) ((layer-1)/3);                 //0=PCAL 1=ECIN 2=ECOU
             int localLayer = (layer-1)%3;                         //0=U 1=V 2=W
            
-            int pcalz = pcTrackingPlane!=-1 ? pcTrackingPlane:DetectorLayer.PCAL_Z;
-            int ecinz = ecTrackingPlane!=-1 ? ecTrackingPlane:DetectorLayer.EC_INNER_Z;
-            int ecouz = ecTrackingPlane!=-1 ? ecTrackingPlane:DetectorLayer.EC_OUTER_Z;
+            int pcalz = config.pcTrackingPlane!=-1 ? config.pcTrackingPlane:DetectorLayer.PCAL_Z;
+            int ecinz = config.ecTrackingPlane!=-1 ? config.ecTrackingPlane:DetectorLayer.EC_INNER_Z;
+            int ecouz = config.ecTrackingPlane!=-1 ? config.ecTrackingPlane:DetectorLayer.EC_OUTER_Z;
             
             int off = superlayer==0 ? pcalz : (superlayer==1 ? ecinz : ecouz);
             
-            Layer detLayer = ecDetector.getSector(sector-1).getSuperlayer(superlayer).getLayer(localLayer+off); //localLayer+off=9,10,11 for U,V,W planes
+            Layer detLayer = config.ecDetector.getSector(sector-1).getSuperlayer(superlayer).getLayer(localLayer+off); //localLayer+off=9,10,11 for U,V,W planes
             
             ScintillatorPaddle      paddle = (ScintillatorPaddle) detLayer.getComponent(component-1);
             ScintillatorPaddle firstPaddle = (ScintillatorPaddle) detLayer.getComponent(0);
@@ -219,7 +102,7 @@ public class ECCommon {
             }
             // End of the edit.
             
-            if(!usePass2Energy) { 
+            if(!config.usePass2Energy) { 
             strip.setAttenuation(atten1.getDoubleValue("A", sector,layer,component),
                                  atten1.getDoubleValue("B", sector,layer,component),
                                  atten1.getDoubleValue("C", sector,layer,component),
@@ -227,7 +110,7 @@ public class ECCommon {
                                100);
             }
             
-            if(usePass2Energy) { 
+            if(config.usePass2Energy) { 
             strip.setAttenuation(atten2.getDoubleValue("A", sector,layer,component),
                                  atten2.getDoubleValue("B", sector,layer,component),
                                  atten2.getDoubleValue("C", sector,layer,component),
@@ -238,14 +121,14 @@ public class ECCommon {
             double ccdbGain =   gain.getDoubleValue("gain", sector,layer,component)*ggs.getDoubleValue("gain_shift",sector,layer,0);
             double run2Gain = r2gain.getDoubleValue("gain", sector,layer,component);  
             
-            strip.setGain(useCCDBGain ? ccdbGain : run2Gain);             
+            strip.setGain(config.useCCDBGain ? ccdbGain : run2Gain);             
             strip.setDtimeGlobalTimeWalk(gtw.getDoubleValue("time_walk",sector,layer,0)); 
             
             strip.setVeff(veff.getDoubleValue("veff",sector,layer,component));            
             strip.setDVeff(dev.getDoubleValue("veff",sector,layer,component));
             strip.setFVeff(fev.getDoubleValue("veff",sector,layer,component));
 
-            if(!useTWCorrections) { //For TWC calibration must start from scratch as corrections cannot be iterated
+            if(!config.useTWCorrections) { //For TWC calibration must start from scratch as corrections cannot be iterated
                   strip.setITime(itime.getDoubleValue("a0", sector, layer, component),
                 		         itime.getDoubleValue("a1", sector, layer, component),
                                  0,
@@ -271,7 +154,7 @@ public class ECCommon {
                 		         0);
             }
             
-            if(useTWCorrections) {    
+            if(config.useTWCorrections) {    
                   strip.setITime(itime.getDoubleValue("a0", sector, layer, component),
                 		         itime.getDoubleValue("a1", sector, layer, component),
                 		         itime.getDoubleValue("a2", sector, layer, component),
@@ -307,11 +190,11 @@ public class ECCommon {
         return ecStrips;
     }
         
-    public static List<ECStrip>  readStripsHipo(DataEvent event, int run, ConstantsManager manager){ 
+    public static List<ECStrip>  readStripsHipo(ECContext ctx, DataEvent event, int run, ConstantsManager manager){ 
     	
-        IndexedList<List<Integer>>  tdcs = new IndexedList<List<Integer>>(3);          
+        IndexedList<List<Integer>>  tdcs = ctx.tdcs;          
 
-    	List<ECStrip>  strips = new ArrayList<ECStrip>();
+    	List<ECStrip>  strips = ctx.strips;
       	
         IndexedTable    jitter = manager.getConstants(run, "/calibration/ec/time_jitter");
         IndexedTable        fo = manager.getConstants(run, "/calibration/ec/fadc_offset");        // TDC-FADC offset (sector, layer) 
@@ -368,7 +251,7 @@ public class ECCommon {
                 
                 if (status.getIntValue("status",is,il,ip)==3) continue; //for MC use only
                 
-                ECStrip  strip = new ECStrip(is, il, ip); 
+                ECStrip  strip = new ECStrip(ctx, is, il, ip); 
                 
                 strip.setStatus(status.getIntValue("status",is,il,ip));                
                 strip.setADC(adc);
@@ -422,11 +305,12 @@ public class ECCommon {
         return peakList;
     } 
        
-    public static List<ECPeak>  processPeaks(List<ECPeak> peaks){
+    public static List<ECPeak>  processPeaks(ECContext ctx, List<ECPeak> peaks){
     	
         //System.out.println("processing peaks");
         
-        List<ECPeak> peakList = new ArrayList<ECPeak>();
+        List<ECPeak> peakList = ctx.peaks;
+        peakList.clear();
         
         for(ECPeak p : peaks) if(isGoodPeak(p)) peakList.add(p);
         //ECPeakAnalysis.splitPeaks(peakList);       //Split peak if strip members have an adc valley   
@@ -448,8 +332,8 @@ public class ECCommon {
         return peakList;
     }
     
-    public static List<ECCluster>  createClusters(List<ECPeak>  peaks, int layer){ 
-       return filterClusters(processClusters(getClusters(peaks,layer)));       
+    public static List<ECCluster>  createClusters(ECContext ctx, List<ECPeak>  peaks, int layer){ 
+       return filterClusters(processClusters(getClusters(ctx,peaks,layer)));       
     }
     
     public static boolean goodPeaks(int sector, int layer, List<ECPeak> peaks) {
@@ -459,24 +343,26 @@ public class ECCommon {
         return pU.size()>0 && pV.size()>0 && pW.size()>0;
     }
     
-    public static List<ECCluster> getClusters(List<ECPeak> peaks, int layer) {
+    public static List<ECCluster> getClusters(ECContext ctx, List<ECPeak> peaks, int layer) {
     	
         List<ECCluster> clusters = new ArrayList<ECCluster>();
         
+        boolean isSingleThreaded = ctx.config.isSingleThreaded;
+        
         for(int p = 0; p < peaks.size(); p++) peaks.get(p).setOrder(p+1);
         
         for(int sector = 1; sector <= 6; sector++){ 
         	if(!goodPeaks(sector,layer,peaks)) continue;
-            nclus=0; maxerr=0;
+            ctx.nclus=0; ctx.maxerr=0;
             for (ECPeak pu : getPeaks(sector,layer,peaks)) {
                 for (ECPeak pv : getPeaks(sector,layer+1,peaks)) {
                     for (ECPeak pw : getPeaks(sector,layer+2,peaks)) {
                     	ECCluster c = new ECCluster(pu,pv,pw);
-                        clusters.add(c); if(isSingleThreaded) processSingleThreaded(c);
+                        clusters.add(c); if(isSingleThreaded) processSingleThreaded(ctx,c);
                     }
                 }
             }
-            if(isSingleThreaded) H2_ecEng.get(sector,ind[layer-1]+1,1).fill(nclus,maxerr);
+            if(isSingleThreaded) ctx.config.H2_ecEng.get(sector,ind[layer-1]+1,1).fill(ctx.nclus,ctx.maxerr);
         }        
         return clusters;        
     }
@@ -485,7 +371,7 @@ public class ECCommon {
     	
     	for (ECCluster c : clusters) {
     		int l = c.getDescriptor().getLayer();
-    		c.setError(c.getClusterSize()>clusterSize[ind[l-1]]); //flag clusters that exceed the size limit
+    		c.setError(c.getClusterSize()>c.getContext().config.clusterSize[ind[l-1]]); //flag clusters that exceed the size limit
     	}
 
     	return clusters;   	
@@ -501,20 +387,24 @@ public class ECCommon {
         return filtClusters;   
     }
     
-    public static void processSingleThreaded(ECCluster c) {  //not used in clara  
+    public static void processSingleThreaded(ECContext ctx, ECCluster c) {  //not used in clara  
+    	DetectorCollection<H1F> H1_ecEng = ctx.config.H1_ecEng;
     	int s = c.getDescriptor().getSector(); 
     	int l = c.getDescriptor().getLayer();
     	List<ECPeak> p = c.getPeaks();
     	float err = (float) c.getClusterSize();
-    	boolean gc = err < clusterSize[ind[l-1]];
+    	boolean gc = err < ctx.config.clusterSize[ind[l-1]];
         int zone = getZone(ind[l-1],p.get(0).getMaxStrip(),p.get(1).getMaxStrip(),p.get(2).getMaxStrip());
     	if(l==1 && zone<2) H1_ecEng.get(s,1,10+zone).fill(err);
     	if(l==1 && zone>1) H1_ecEng.get(s,1,12).fill(err); 
     	                          H1_ecEng.get(s,ind[l-1]+1,0).fill(err); 
-    	if(gc&&isGoodCluster(c)) {H1_ecEng.get(s,ind[l-1]+1,1).fill(err); nclus++; if(err>maxerr) maxerr=err;} 
+    	if(gc&&isGoodCluster(c)) {H1_ecEng.get(s,ind[l-1]+1,1).fill(err); ctx.nclus++; if(err>ctx.maxerr) ctx.maxerr=err;} 
     }    
 
-    public static void shareClustersEnergy(List<ECCluster> clusters){
+    public static void shareClustersEnergy(ECContext ctx, List<ECCluster> clusters){
+        
+        int UnsharedEnergyCut = ctx.config.UnsharedEnergyCut;
+        boolean useUnsharedEnergy = ctx.config.useUnsharedEnergy;
         
         for(int i = 0; i < clusters.size() - 1; i++){
             for(int k = i+1 ; k < clusters.size(); k++){
@@ -533,7 +423,7 @@ public class ECCommon {
         int lay = s.getDescriptor().getLayer(); 
         int sec = s.getDescriptor().getSector();
         double sca = (sec==5)?AtoE5[ind[lay-1]]:AtoE[ind[lay-1]];
-        return adc>sca*stripThreshold[ind[lay-1]];	
+        return adc>sca*s.getContext().config.stripThreshold[ind[lay-1]];	
     }
        
     public static boolean isGoodPeak(ECPeak p) {
@@ -541,14 +431,15 @@ public class ECCommon {
         int lay = p.getDescriptor().getLayer();
         int sec = p.getDescriptor().getSector();
         double sca = (sec==5)?AtoE5[ind[lay-1]]:AtoE[ind[lay-1]];
-    	return adc>sca*peakThreshold[ind[lay-1]]; //adc threshold (uncorrected energy MeV*10)
+    	return adc>sca*p.getContext().config.peakThreshold[ind[lay-1]]; //adc threshold (uncorrected energy MeV*10)
     }  
     
     public static boolean isGoodCluster(ECCluster c) {    	
+    	ECConfig config = c.getContext().config;
     	int l = c.getDescriptor().getLayer();    	     	
     	for (int i=0; i<3; i++) {   		
-    		if(clusterThreshold[ind[l-1]]==0) return true;
-    		double thr = 0.1*clusterThreshold[ind[l-1]]*peakThreshold[ind[l-1]]; //cluster thrsh. fraction of peak
+    		if(config.clusterThreshold[ind[l-1]]==0) return true;
+    		double thr = 0.1*config.clusterThreshold[ind[l-1]]*config.peakThreshold[ind[l-1]]; //cluster thrsh. fraction of peak
     		if(c.getEnergy(i)*1e3<thr) return false;  
     	}       
     	return true;
@@ -563,10 +454,14 @@ public class ECCommon {
         return 0;
     }
     
-    public static List<ECCluster>  OldcreateClusters(List<ECPeak>  peaks, int startLayer){
+    public static List<ECCluster>  OldcreateClusters(ECContext ctx, List<ECPeak>  peaks, int startLayer){
 
         List<ECCluster>   clusters = new ArrayList<ECCluster>();
         
+        boolean isSingleThreaded = ctx.config.isSingleThreaded;
+        DetectorCollection<H1F> H1_ecEng = ctx.config.H1_ecEng;
+        int nclus; float maxerr;
+        
         for(int p = 0; p < peaks.size(); p++) peaks.get(p).setOrder(p+1);
 
         for(int sector = 1; sector <= 6; sector++){
@@ -600,7 +495,7 @@ public class ECCommon {
                             	if(startLayer==1 && zone<2) H1_ecEng.get(sector,1,10+zone).fill(err);
                             	if(startLayer==1 && zone>1) H1_ecEng.get(sector,1,12).fill(err);
                             }
-                            if(err<clusterSize[ind[startLayer-1]]) {
+                            if(err<ctx.config.clusterSize[ind[startLayer-1]]) {
                             	if(err>maxerr) maxerr=err;
                                 if(isSingleThreaded)H1_ecEng.get(sector,ind[startLayer-1]+1,1).fill(err);                               
 								if(isGoodCluster(cluster)) {clusters.add(cluster);nclus++;}
@@ -609,7 +504,7 @@ public class ECCommon {
                     }
                 }
             }           
-            if(isSingleThreaded) H2_ecEng.get(sector,ind[startLayer-1]+1,1).fill(nclus,maxerr);             
+            if(isSingleThreaded) ctx.config.H2_ecEng.get(sector,ind[startLayer-1]+1,1).fill(nclus,maxerr);             
         }
 
         for (ECCluster c : clusters) c.setEnergy();
@@ -0,0 +1,87 @@
+package org.jlab.service.ec;
+
+import org.jlab.detector.base.DetectorCollection;
+import org.jlab.geom.base.Detector;
+import org.jlab.groot.data.H1F;
+import org.jlab.groot.data.H2F;
+
+/**
+ * Reconstruction settings of one EC engine, set at configuration and only
+ * read while events are processed, so that it can be shared by all the
+ * processing threads of the engine.
+ */
+
+public class ECConfig {
+
+    public Detector        ecDetector = null;
+
+    public int[]       stripThreshold = new int[3];
+    public int[]        peakThreshold = new int[3];
+    public int[]     clusterThreshold = new int[3];
+    public float[]        clusterSize = new float[3];
+    public float[]      clusterDeltaT = new float[3];
+
+    public int                touchID = 1;
+    public int            splitMethod = 0;
+    public int[]          splitThresh = new int[3];
+
+    public boolean               isMC = false;
+    public boolean              debug = false;
+    public boolean         debugSplit = false;
+    public boolean   isSingleThreaded = false;
+    public boolean        singleEvent = false;
+    public boolean      useNewTimeCal = true;
+    public boolean  useUnsharedEnergy = true;
+    public boolean   useTWCorrections = true;
+    public boolean   useDTCorrections = true;
+
+    public boolean      usePass2Recon = false;
+    public boolean     usePass2Timing = true;
+    public boolean     usePass2Energy = true;
+    public int      UnsharedEnergyCut = 6;
+    public boolean    useUnsharedTime = true;
+    public boolean        useFADCTime = false;
+    public boolean          useFTpcal = true;
+    public boolean        useCCDBGain = true;
+    public double            logParam = 3.0;
+    public String              config = "";
+    public String           variation = "default";
+    public String       geomVariation = "default";
+    public int        pcTrackingPlane = -1;
+    public int        ecTrackingPlane = -1;
+    public float                 veff = 18.1f;
+
+    public int            eventNumber = 0;
+
+    // filled only in single-threaded mode:
+    public DetectorCollection<H1F> H1_ecEng = new DetectorCollection<H1F>();
+    public DetectorCollection<H2F> H2_ecEng = new DetectorCollection<H2F>();
+
+    public void initHistos() {
+    	int[] bins = {480,240,120};
+        for (int is=1; is<7; is++){
+            for (int il=1; il<4; il++) {
+                H1_ecEng.add(is,il, 0, new H1F("Cluster Errors",bins[il-1],-2,30));
+                H1_ecEng.add(is,il, 1, new H1F("Cluster Errors",bins[il-1],-2,30));
+                if(il==1) {
+                H1_ecEng.add(is,il,10, new H1F("Cluster Errors",bins[il-1],-2,30));
+                H1_ecEng.add(is,il,11, new H1F("Cluster Errors",bins[il-1],-2,30));
+                H1_ecEng.add(is,il,12, new H1F("Cluster Errors",bins[il-1],-2,30));
+                H1_ecEng.add(is,il,13, new H1F("Cluster Errors",bins[il-1],-2,30));
+                }
+                H2_ecEng.add(is,il, 1, new H2F("Cluster Errors",11,1,12,40,0,20));
+            }
+        }
+    }
+
+    public void resetHistos() {
+        for (int is=1; is<7; is++){
+            for (int il=1; il<4; il++) {
+                H1_ecEng.get(is,il,0).reset();
+                H1_ecEng.get(is,il,1).reset();
+                H2_ecEng.get(is,il,1).reset();
+                if(il==1) for (int i=10; i<14; i++) H1_ecEng.get(is,il,i).reset();
+           }
+        }
+    }
+}
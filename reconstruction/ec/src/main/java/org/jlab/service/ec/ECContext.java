@@ -0,0 +1,65 @@
+package org.jlab.service.ec;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jlab.utils.groups.IndexedList;
+
+/**
+ * State of the reconstruction of one event: the strips, peaks and clusters
+ * found and the settings that depend on the run. A context is used by one
+ * thread at a time and is reused for its next events, see {@link #reset}.
+ */
+
+public class ECContext {
+
+    public final ECConfig config;
+
+    public final List<ECStrip>     strips = new ArrayList<ECStrip>();
+    public final List<ECPeak>       peaks = new ArrayList<ECPeak>();
+    public final List<ECCluster> clusters = new ArrayList<ECCluster>();
+
+    final IndexedList<List<Integer>> tdcs = new IndexedList<List<Integer>>(3);
+
+    private int     run  = 0;
+    private boolean isMC = false;
+
+    int   nclus;
+    float maxerr;
+
+    public ECContext(ECConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * Clears the results of the previous event.
+     * @param run run number of the new event
+     */
+    public void reset(int run) {
+        this.run  = run;
+        this.isMC = config.isMC || run<=100;
+        strips.clear();
+        peaks.clear();
+        clusters.clear();
+        tdcs.clear();
+    }
+
+    public int getRun() {
+        return run;
+    }
+
+    public boolean isMC() {
+        return isMC;
+    }
+
+    public boolean usePass2Timing() {
+        return config.usePass2Timing && !isMC;
+    }
+
+    public boolean useDTCorrections() {
+        return config.useDTCorrections && !isMC;
+    }
+
+    public boolean useFTpcal() {
+        return config.useFTpcal && !isMC;
+    }
+}
@@ -25,20 +25,31 @@ public class ECEngine extends ReconstructionEngine {
 
     public static Logger LOGGER = Logger.getLogger(ECEngine.class.getName());
     
+    private final ECConfig config = new ECConfig();
+    
+    // one context per processing thread, reused from one event to the next:
+    private final ThreadLocal<ECContext> contexts = ThreadLocal.withInitial(() -> new ECContext(config));
+    
+    private final List<ECStrip>     myStrips = new ArrayList<ECStrip>();
+    private final List<ECPeak>       myPeaks = new ArrayList<ECPeak>();
+    private final List<ECCluster> myClusters = new ArrayList<ECCluster>();
+    
     public ECEngine(){
         super("EC","gavalian","1.0");
     }
     
     @Override
     public boolean processDataEvent(DataEvent de) {
+        
+        ECContext ctx = contexts.get();
                            
-        List<ECStrip>     ecStrips = ECCommon.initEC(de, this.getConstantsManager()); // thresholds, ADC/TDC match        
-        List<ECPeak>       ecPeaks = ECCommon.processPeaks(ECCommon.createPeaks(ecStrips)); // thresholds, split peaks -> update peak-lines          
-        List<ECCluster> ecClusters = new ArrayList<ECCluster>();  
+        List<ECStrip>     ecStrips = ECCommon.initEC(ctx, de, this.getConstantsManager()); // thresholds, ADC/TDC match        
+        List<ECPeak>       ecPeaks = ECCommon.processPeaks(ctx, ECCommon.createPeaks(ecStrips)); // thresholds, split peaks -> update peak-lines          
+        List<ECCluster> ecClusters = ctx.clusters;  
         
-        List<ECCluster> tmpPCAL  = ECCommon.createClusters(ecPeaks,1);
-        List<ECCluster> tmpECIN  = ECCommon.createClusters(ecPeaks,4);
-        List<ECCluster> tmpECOUT = ECCommon.createClusters(ecPeaks,7);
+        List<ECCluster> tmpPCAL  = ECCommon.createClusters(ctx,ecPeaks,1);
+        List<ECCluster> tmpECIN  = ECCommon.createClusters(ctx,ecPeaks,4);
+        List<ECCluster> tmpECOUT = ECCommon.createClusters(ctx,ecPeaks,7);
         
         // - Thsi is the part that identifies clusters with 2 views shared,
         // - and picks the one with best cluster size.
@@ -63,7 +74,7 @@ public class ECEngine extends ReconstructionEngine {
         ecClusters.addAll(tmpECIN); //ECinner 
         ecClusters.addAll(tmpECOUT); //ECouter
         
-        ECCommon.shareClustersEnergy(ecClusters);  // Repair 2 clusters which share the same peaks
+        ECCommon.shareClustersEnergy(ctx, ecClusters);  // Repair 2 clusters which share the same peaks
         
         for (int iCl = 0; iCl < ecClusters.size(); iCl++) {
             // As clusters are already defined at this point, we can fill the clusterID of ECStrips belonging to the given cluster
@@ -83,13 +94,12 @@ public class ECEngine extends ReconstructionEngine {
 	    
         this.writeHipoBanks(de,ecStrips,ecPeaks,ecClusters);  
         
-        if (ECCommon.debug) printDebug(ecStrips,ecPeaks,ecClusters);  
+        if (config.debug) printDebug(ecStrips,ecPeaks,ecClusters);  
         
-        if (ECCommon.isSingleThreaded) {
-        	ECCommon.clearMyStructures();
-        	getStrips().addAll(ecStrips);
-        	getPeaks().addAll(ecPeaks);
-        	getClusters().addAll(ecClusters);
+        if (config.isSingleThreaded) {
+        	myStrips.clear();   myStrips.addAll(ecStrips);
+        	myPeaks.clear();    myPeaks.addAll(ecPeaks);
+        	myClusters.clear(); myClusters.addAll(ecClusters);
         }
         
         return true;
@@ -113,16 +123,20 @@ public class ECEngine extends ReconstructionEngine {
     }
         
     public List<ECStrip> getStrips() {
-	    return ECCommon.getMyStrips();    		
+	    return myStrips;    		
     }
     
     public List<ECPeak> getPeaks() {
-	    return ECCommon.getMyPeaks();    
+	    return myPeaks;    
     }
     
     public List<ECCluster> getClusters() {
-	    return ECCommon.getMyClusters();    
+	    return myClusters;    
     }    
+    
+    public ECConfig getConfig() {
+        return config;
+    }
         
     private void writeHipoBanks(DataEvent de, 
                                 List<ECStrip>   strips, 
@@ -224,175 +238,175 @@ public class ECEngine extends ReconstructionEngine {
     }
     
     public void setEventNumber(int val) {
-    	ECCommon.eventNumber = val;
+    	config.eventNumber = val;
     } 
     
     public void setDebug(boolean val) {
-    	ECCommon.debug = val;
+    	config.debug = val;
     }
     
     public void setDebugSplit(boolean val) {
-    	ECCommon.debugSplit = val;
+    	config.debugSplit = val;
     }
     
     public void setIsSingleThreaded(boolean val) {
-    	ECCommon.isSingleThreaded = val;
+    	config.isSingleThreaded = val;
     }
     
     public void setSingleEvent(boolean val) {
-    	ECCommon.setSingleEvent(val);
+    	config.singleEvent = val;
     }
         
     public void setIsMC(boolean val) {
-    	ECCommon.isMC = val;
+    	config.isMC = val;
     }
     
     public void setConfig(String val) {
     	LOGGER.log(Level.INFO,"ECEngine: Configuration = "+val);
-        ECCommon.config = val;    	
+        config.config = val;    	
     } 
     
     public void setVariation(String val) {
         LOGGER.log(Level.INFO,"ECEngine: Calibration Variation = "+val);
-        ECCommon.variation = val;
+        config.variation = val;
     } 
     
     public void setGeomVariation(String val) {
         LOGGER.log(Level.INFO,"ECEngine: Geometry Variation = "+val);
-        ECCommon.geomVariation = val;
+        config.geomVariation = val;
     }  
     
     public void setVeff(float val) {
         LOGGER.log(Level.INFO,"ECEngine: Veff = "+val+" CM/NS");
-        ECCommon.veff = val;
+        config.veff = val;
     }
     
     public void setPCTrackingPlane(int val) {
     	LOGGER.log(Level.INFO,"ECEngine: PC tracking plane = "+val);
-    	ECCommon.pcTrackingPlane = val;
+    	config.pcTrackingPlane = val;
     }
     
     public void setECTrackingPlane(int val) {
     	LOGGER.log(Level.INFO,"ECEngine: EC tracking plane = "+val);
-    	ECCommon.ecTrackingPlane = val;
+    	config.ecTrackingPlane = val;
     } 
     
     public void setNewTimeCal(boolean val) {
         LOGGER.log(Level.INFO,"ECEngine: useNewTimeCal = "+val);
-    	ECCommon.useNewTimeCal = val;
+    	config.useNewTimeCal = val;
     }
     
     public void setUseUnsharedEnergy(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: UseUnsharedEnergy = "+val);   	
-    	ECCommon.useUnsharedEnergy = val;
+    	config.useUnsharedEnergy = val;
     } 
     
     public void setUnsharedEnergyCut(int val) {
     	LOGGER.log(Level.INFO,"ECengine: UnsharedEnergyCut = "+val);   	
-    	ECCommon.UnsharedEnergyCut = val;
+    	config.UnsharedEnergyCut = val;
     } 
     
     public void setUseUnsharedTime(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: useUnsharedTime = "+val);
-    	ECCommon.useUnsharedTime = val;
+    	config.useUnsharedTime = val;
     } 
     
     public void setTWCorrections(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: useTWCorrections = "+val);
-    	ECCommon.useTWCorrections = val;
+    	config.useTWCorrections = val;
     }
     
     public void setDTCorrections(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: useDTCorrections = "+val);
-    	ECCommon.useDTCorrections = val;
+    	config.useDTCorrections = val;
     }
     
     public void setUsePass2Timing(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: usePass2Timing = "+val);
-    	ECCommon.usePass2Timing = val;
+    	config.usePass2Timing = val;
     }
     
     public void setUsePass2Energy(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: usePass2Energy = "+val);
-    	ECCommon.usePass2Energy = val;
+    	config.usePass2Energy = val;
     }
     
     public void setUsePass2Recon(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: usePass2Recon = "+val);
-    	ECCommon.usePass2Recon = val;
+    	config.usePass2Recon = val;
     }
     
     public void setUseFADCTime(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: UseFADCTime = "+val);   	
-    	ECCommon.useFADCTime = val;
+    	config.useFADCTime = val;
     } 
     
     public void setUseFTpcal(boolean val) {
     	LOGGER.log(Level.INFO,"ECengine: useFTpcal = "+val);   	
-    	ECCommon.useFTpcal = val;
+    	config.useFTpcal = val;
     } 
     
     public void setCCDBGain(boolean val) {
         LOGGER.log(Level.INFO,"ECEngine: useCCDBGain = "+val);
-        ECCommon.useCCDBGain = val;    	
+        config.useCCDBGain = val;    	
     }  
     
     public void setLogParam(double val) {
         LOGGER.log(Level.INFO,"ECEngine: logParam = "+val);
-    	ECCommon.logParam = val;
+    	config.logParam = val;
     }
     
     public void setSplitMethod(int val) {
     	LOGGER.log(Level.INFO,"ECEngine: splitMethod = "+val);
-        ECCommon.splitMethod = val;    	
+        config.splitMethod = val;    	
     }
     
     public void setSplitThresh(int thr0, int thr1, int thr2) {
     	LOGGER.log(Level.INFO,"ECEngine: Peak Split thresholds = "+thr0+" "+thr1+" "+thr2);
-        ECCommon.splitThresh[0] = thr0;
-        ECCommon.splitThresh[1] = thr1;
-        ECCommon.splitThresh[2] = thr2;   	
+        config.splitThresh[0] = thr0;
+        config.splitThresh[1] = thr1;
+        config.splitThresh[2] = thr2;   	
     }
     
     public void setTouchID(int val) {
     	LOGGER.log(Level.INFO,"ECEngine: touchID = "+val);
-        ECCommon.touchID = val;    	
+        config.touchID = val;    	
     } 
     
     public void setStripThresholds(int thr0, int thr1, int thr2) {
         LOGGER.log(Level.INFO,"ECEngine: Strip ADC thresholds = "+thr0+" "+thr1+" "+thr2+" MeV*10");
-        ECCommon.stripThreshold[0] = thr0;
-        ECCommon.stripThreshold[1] = thr1;
-        ECCommon.stripThreshold[2] = thr2;
+        config.stripThreshold[0] = thr0;
+        config.stripThreshold[1] = thr1;
+        config.stripThreshold[2] = thr2;
     }
     
     public void setPeakThresholds(int thr0, int thr1, int thr2) {
         LOGGER.log(Level.INFO,"ECEngine: Peak ADC thresholds = "+thr0+" "+thr1+" "+thr2+" MeV*10");
-        ECCommon.peakThreshold[0] = thr0;
-        ECCommon.peakThreshold[1] = thr1;
-        ECCommon.peakThreshold[2] = thr2;
+        config.peakThreshold[0] = thr0;
+        config.peakThreshold[1] = thr1;
+        config.peakThreshold[2] = thr2;
     }   
     
     public void setClusterCuts(float err0, float err1, float err2) {
         LOGGER.log(Level.INFO,"ECEngine: Cluster Size Cuts = "+err0+" "+err1+" "+err2+" CM");
-        ECCommon.clusterSize[0] = err0;
-        ECCommon.clusterSize[1] = err1;
-        ECCommon.clusterSize[2] = err2;
+        config.clusterSize[0] = err0;
+        config.clusterSize[1] = err1;
+        config.clusterSize[2] = err2;
     }
     
     public void setClusterThresholds(int thr0, int thr1, int thr2) {
         LOGGER.log(Level.INFO,"ECEngine: Cluster peak energy threshold scale factors = "+thr0+" "+thr1+" "+thr2);  
-        ECCommon.clusterThreshold[0] = thr0;
-        ECCommon.clusterThreshold[1] = thr1;
-        ECCommon.clusterThreshold[2] = thr2;    	
+        config.clusterThreshold[0] = thr0;
+        config.clusterThreshold[1] = thr1;
+        config.clusterThreshold[2] = thr2;    	
     }
     
     public DetectorCollection<H1F>  getHist() {
-        return ECCommon.H1_ecEng;
+        return config.H1_ecEng;
     }
     
     public DetectorCollection<H2F>  getHist2() {
-        return ECCommon.H2_ecEng;
+        return config.H2_ecEng;
     }
     
     @Override
@@ -424,15 +438,15 @@ public class ECEngine extends ReconstructionEngine {
         
         requireConstants(Arrays.asList(ecTables));
         
-        getConstantsManager().setVariation(ECCommon.variation);
+        getConstantsManager().setVariation(config.variation);
         String variationName = Optional.ofNullable(this.getEngineConfigString("variation")).orElse("default");
-        if(!(ECCommon.geomVariation.equals("default"))) variationName = ECCommon.geomVariation;
+        if(!(config.geomVariation.equals("default"))) variationName = config.geomVariation;
         LOGGER.log(Level.INFO,"GEOMETRY VARIATION IS "+variationName);
-        ECCommon.ecDetector =  GeometryFactory.getDetector(DetectorType.ECAL,11,variationName);
+        config.ecDetector =  GeometryFactory.getDetector(DetectorType.ECAL,11,variationName);
 
         setConfig("test");
         
-        if(ECCommon.usePass2Recon) {  //for testing pass2 recon peak splitting methods
+        if(config.usePass2Recon) {  //for testing pass2 recon peak splitting methods
         setStripThresholds(10,9,8);   //pass1 10,9,8
         setPeakThresholds(18,20,15);  //pass1 18,20,15
         setClusterThresholds(0,0,0);
@@ -442,15 +456,15 @@ public class ECEngine extends ReconstructionEngine {
         setTouchID(2);                //pass1 1
         }
         
-        if(!ECCommon.usePass2Recon) { //use pass1 recon but pass2 timing 
+        if(!config.usePass2Recon) { //use pass1 recon but pass2 timing 
         setStripThresholds(10,9,8);   //pass1 10,9,8
         setPeakThresholds(18,20,15);  //pass1 18,20,15
         setClusterThresholds(0,0,0);
         setClusterCuts(7,15,20);      //pass1 7,15,20
-        setDTCorrections(ECCommon.useDTCorrections); //replace missing TDC time with FADC time
-        setUsePass2Energy(ECCommon.usePass2Energy);  //use pass2 CCDB tables for attenuation  
-        setUsePass2Timing(ECCommon.usePass2Timing);  //use pass2 CCDB tables for FADC/TDC calibrations        
-        setUseFTpcal(ECCommon.useFTpcal);            //use FADC time for all PCAL channels
+        setDTCorrections(config.useDTCorrections); //replace missing TDC time with FADC time
+        setUsePass2Energy(config.usePass2Energy);  //use pass2 CCDB tables for attenuation  
+        setUsePass2Timing(config.usePass2Timing);  //use pass2 CCDB tables for FADC/TDC calibrations        
+        setUseFTpcal(config.useFTpcal);            //use FADC time for all PCAL channels
         setSplitMethod(0);            //pass1 0=gagik method
         setSplitThresh(3,3,3);        //pass1 3,3,3
         setTouchID(1);                //pass1 1
@@ -462,7 +476,7 @@ public class ECEngine extends ReconstructionEngine {
         this.registerOutputBank("ECAL::calib");
         this.registerOutputBank("ECAL::moments"); 
 
-        if (ECCommon.isSingleThreaded) ECCommon.initHistos();
+        if (config.isSingleThreaded) config.initHistos();
         
         return true;
     }
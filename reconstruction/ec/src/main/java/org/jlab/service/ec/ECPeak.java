@@ -36,8 +36,10 @@ public class ECPeak implements Comparable {
     private Map<Integer,Integer>      imap       = new HashMap<>();
     //private int                 peakID        = -1;
     static int ind[]  = {0,0,0,1,1,1,2,2,2}; 
+    private final ECContext     context;
     
     public ECPeak(ECStrip strip){
+        context = strip.getContext();
         desc.setSectorLayerComponent(strip.getDescriptor().getSector(), 
                                      strip.getDescriptor().getLayer(), 0);
         peakStrips.add(strip);
@@ -58,6 +60,7 @@ public class ECPeak implements Comparable {
     public double getSplitRatio() {return splitRatio;}    
     public int    getSplitStrip() {return splitStrip;}
     public Line3D getLine()       {return peakLine;}
+    public ECContext getContext() {return context;}
     
   
     public String getString(){
@@ -177,13 +180,13 @@ public class ECPeak implements Comparable {
         peakMoment3      = 0.0;
         
         double logSumm = 0.0;       
-        double peakEnergy = (ECCommon.logParam==1.0)?1.0:getEnergy()*1000; 
+        double peakEnergy = (context.config.logParam==1.0)?1.0:getEnergy()*1000; 
         
         for(int i = 0; i < peakStrips.size(); i++){
             Line3D line = peakStrips.get(i).getLine();
 
             double energyMev = peakStrips.get(i).getEnergy()*1000.0; //raw strip energy, no attenuation correction           
-            double le = Math.max(0.,ECCommon.logParam + Math.log(energyMev/peakEnergy)); //logParam==0 used in pass1
+            double le = Math.max(0.,context.config.logParam + Math.log(energyMev/peakEnergy)); //logParam==0 used in pass1
             //NaN for energyMeV<=1 MeV le=0 !!!
             peakDistanceEdge += peakStrips.get(i).getDistanceEdge()*le; //used for lu, lv, lw fiducials
             
@@ -292,12 +295,12 @@ public class ECPeak implements Comparable {
         int     split = -1;
         double  ratio = 0.0;
         
-        if(peakStrips.size()>ECCommon.splitThresh[ind[getDescriptor().getLayer()-1]]){
+        if(peakStrips.size()>context.config.splitThresh[ind[getDescriptor().getLayer()-1]]){
             for(int i = 1; i < peakStrips.size()-1; i++){
                 double left  = integral(i, false);
                 double right = integral(i, true);
                 double lf_ratio = left/right;
-                if(ECCommon.debugSplit) {
+                if(context.config.debugSplit) {
                 	int  s = peakStrips.get(i).getDescriptor().getSector();
                 	int il = peakStrips.get(i).getDescriptor().getLayer(); 
                     double oleft  = integral_old(i, false);
@@ -318,12 +321,12 @@ public class ECPeak implements Comparable {
         double  ratio_lo = 0.05, ratio_hi = 1e7;
         int splitStripLast=-100, splitEnergyLast=0;
         
-        if(!peakSplit && peakStrips.size()>ECCommon.splitThresh[ind[getDescriptor().getLayer()-1]]){
+        if(!peakSplit && peakStrips.size()>context.config.splitThresh[ind[getDescriptor().getLayer()-1]]){
             for(int i = 1; i < peakStrips.size()-1; i++){
                 double right = integral_old(i, false);
                 double  left = integral_old(i, true);
                 double rl_ratio = right/left;
-                if(ECCommon.debugSplit) {
+                if(context.config.debugSplit) {
                 	int  s = peakStrips.get(i).getDescriptor().getSector();
                 	int il = peakStrips.get(i).getDescriptor().getLayer(); 
                 	int ip = peakStrips.get(i).getDescriptor().getComponent();
@@ -350,14 +353,18 @@ public class ECPeak implements Comparable {
     
     int new_getSplitIndex() { //split2: lcsmith method sorts striplist by energy + dipfinder.  Peaklist split only once.
     	int split = -1;   	
-        if(!peakSplit && peakStrips.size()>ECCommon.splitThresh[ind[getDescriptor().getLayer()-1]]){
-        	ECCommon.stripSortMethod=ECCommon.splitMethod; 
-         	List<ECStrip> sortStrips = new ArrayList<ECStrip>(); sortStrips.addAll(peakStrips); Collections.sort(sortStrips);          	
+        if(!peakSplit && peakStrips.size()>context.config.splitThresh[ind[getDescriptor().getLayer()-1]]){
+         	List<ECStrip> sortStrips = new ArrayList<ECStrip>(); sortStrips.addAll(peakStrips); sortStrips(sortStrips);          	
         	return setSplitStrip(getDipIndex(sortpair(sortStrips,0,1)));
         }    	
     	return split;
     }
         
+    void sortStrips(List<ECStrip> list) { //by decreasing energy, except for splitMethod 0
+    	if(context.config.splitMethod==0) Collections.sort(list);
+    	else list.sort(ECStrip.ENERGY_ORDER);
+    }
+    
     int[] sortpair(List<ECStrip> list, int i0, int i1) {
     	int[] out = {0,0};
    	    out[0] = Math.min(list.get(i0).getStripID(),list.get(i1).getStripID());
@@ -418,14 +425,14 @@ public class ECPeak implements Comparable {
         List<Integer> mns = new ArrayList<Integer>();
         List<ECStrip>  sl = new ArrayList<ECStrip>(); sl.addAll(peakStrips);  
         
-        if(!peakSplit && peakStrips.size()>ECCommon.splitThresh[ind[getDescriptor().getLayer()-1]]){
+        if(!peakSplit && peakStrips.size()>context.config.splitThresh[ind[getDescriptor().getLayer()-1]]){
         	
         	for (int i = 0; i < sl.size(); i++) if (isMax(sl, sl.size(), sl.get(i).getEnergy(), i-1, i+1)) mxs.add(sl.get(i)); 
         	for (int i = 0; i < sl.size(); i++) if (isMin(sl, sl.size(), sl.get(i).getEnergy(), i-1, i+1)) mns.add(i); 
         	      
-        	ECCommon.stripSortMethod=ECCommon.splitMethod; Collections.sort(mxs); 
+        	sortStrips(mxs); 
         	
-        	if(ECCommon.debugSplit) {        	
+        	if(context.config.debugSplit) {        	
         		System.out.println(" ");
         		for (ECStrip s : mxs) System.out.println("Max1: "+peakStrips.get(s.getStripID()).toString());
         		for (Integer i : mns) System.out.println("Min1: "+peakStrips.get(i).toString());
@@ -452,7 +459,7 @@ public class ECPeak implements Comparable {
         List<Integer> MaxInd = new ArrayList<Integer>();
         List<Integer> MinInd = new ArrayList<Integer>();  	
         List<ECStrip> s = new ArrayList<ECStrip>(); s.addAll(peakStrips);
-        if(!peakSplit && peakStrips.size()>ECCommon.splitThresh[ind[getDescriptor().getLayer()-1]]){
+        if(!peakSplit && peakStrips.size()>context.config.splitThresh[ind[getDescriptor().getLayer()-1]]){
             boolean directionUp = peakStrips.get(0).getEnergy() <= peakStrips.get(1).getEnergy(); 
             
         	for (int i = 0; i < s.size()-1; i++) {
@@ -512,7 +519,7 @@ public class ECPeak implements Comparable {
         
         double norm = ((double) intg) - ((double) splitEnergy)*count; 
         
-        if(ECCommon.debugSplit) System.out.println(right+" "+count+" "+intg+" "+splitEnergy+" "+norm);
+        if(context.config.debugSplit) System.out.println(right+" "+count+" "+intg+" "+splitEnergy+" "+norm);
 
         return norm;
     }
@@ -1,5 +1,6 @@
 package org.jlab.service.ec;
 
+import java.util.Comparator;
 import org.jlab.detector.base.DetectorDescriptor;
 import org.jlab.detector.base.DetectorType;
 import org.jlab.geom.prim.Line3D;
@@ -65,12 +66,21 @@ public class ECStrip implements Comparable {
     private EnergyCorrection          ecc = null;
     private TimeCorrection     tc,ftc,dtc = null; 
     
-    public ECStrip(int sector, int layer, int component){
+    private final ECContext       context;
+    
+    public static final Comparator<ECStrip> ENERGY_ORDER = (a,b) -> Double.compare(b.getEnergy(), a.getEnergy());
+    
+    public ECStrip(ECContext ctx, int sector, int layer, int component){
+        context = ctx;
         desc.setSectorLayerComponent(sector, layer, component);
         ecc = new corrEnergy(); 
-        ftc = ECCommon.usePass2Timing ? new ExtendedTWCFTime() : new ExtendedTWCTime(); //FADC timing pass2:pass1
-        dtc = ECCommon.usePass2Timing ? new ExtendedTWCDTime() : new ExtendedTWCTime(); //TDC  timing pass2:pass1
-        tc  = ECCommon.useFADCTime ? ftc : dtc; //user selected for FADC:TDC timing calibration 
+        ftc = ctx.usePass2Timing() ? new ExtendedTWCFTime() : new ExtendedTWCTime(); //FADC timing pass2:pass1
+        dtc = ctx.usePass2Timing() ? new ExtendedTWCDTime() : new ExtendedTWCTime(); //TDC  timing pass2:pass1
+        tc  = ctx.config.useFADCTime ? ftc : dtc; //user selected for FADC:TDC timing calibration 
+    }
+    
+    public ECContext getContext() {
+        return context;
     }
     
     abstract class EnergyCorrection {
@@ -227,7 +237,7 @@ public class ECStrip implements Comparable {
     }
 
     public int getTDC(){
-        return ECCommon.useFADCTime ? (int) (iTADC/iTimA1) : iTDC;
+        return context.config.useFADCTime ? (int) (iTADC/iTimA1) : iTDC;
     }
     
     public double getRawTime(){
@@ -247,9 +257,9 @@ public class ECStrip implements Comparable {
     }
     
     public boolean useFT() {
-    	boolean test1 = ECCommon.useFADCTime;
-    	boolean test2 = ECCommon.useFTpcal && desc.getLayer()==1;
-    	boolean test3 = ECCommon.useDTCorrections && getDTime()<=0;
+    	boolean test1 = context.config.useFADCTime;
+    	boolean test2 = context.useFTpcal() && desc.getLayer()==1;
+    	boolean test3 = context.useDTCorrections() && getDTime()<=0;
     	return test1 || test2 || test3;
     }
     
@@ -342,7 +352,7 @@ public class ECStrip implements Comparable {
     } 
     
     public double getVeff() {
-        return (useFT() ? fveff : (ECCommon.usePass2Timing ? dveff:veff));
+        return (useFT() ? fveff : (context.usePass2Timing() ? dveff:veff));
     }
            
     public void setGain(double val){
@@ -468,7 +478,7 @@ public class ECStrip implements Comparable {
     public boolean isNeighbour(ECStrip strip){
         if(strip.getDescriptor().getSector() == desc.getSector() &&
            strip.getDescriptor().getLayer()  == desc.getLayer()){
-           if(Math.abs(strip.getDescriptor().getComponent()-desc.getComponent())<=ECCommon.touchID) return true;
+           if(Math.abs(strip.getDescriptor().getComponent()-desc.getComponent())<=context.config.touchID) return true;
         }
         return false;
     }
@@ -478,19 +488,14 @@ public class ECStrip implements Comparable {
         return false;
     } 
     
-    public int compareTo(Object o) {
+    public int compareTo(Object o) { //sort by sector, layer, component, see ENERGY_ORDER for decreasing energy
         ECStrip ob = (ECStrip) o;
-        if (ECCommon.stripSortMethod==0) {
-            if(ob.getDescriptor().getSector()     < desc.getSector())    return  1;
-            if(ob.getDescriptor().getSector()     > desc.getSector())    return -1;
-            if(ob.getDescriptor().getLayer()      < desc.getLayer())     return  1;
-            if(ob.getDescriptor().getLayer()      > desc.getLayer())     return -1;
-            if(ob.getDescriptor().getComponent() <  desc.getComponent()) return  1;
-            if(ob.getDescriptor().getComponent() == desc.getComponent()) return  0;
-        } else {
-        	if(ob.getEnergy()                       > getEnergy())            return  1;
-        	if(ob.getEnergy()                       < getEnergy())            return -1;
-        }
+        if(ob.getDescriptor().getSector()     < desc.getSector())    return  1;
+        if(ob.getDescriptor().getSector()     > desc.getSector())    return -1;
+        if(ob.getDescriptor().getLayer()      < desc.getLayer())     return  1;
+        if(ob.getDescriptor().getLayer()      > desc.getLayer())     return -1;
+        if(ob.getDescriptor().getComponent() <  desc.getComponent()) return  1;
+        if(ob.getDescriptor().getComponent() == desc.getComponent()) return  0;
         return -1;
     }
     
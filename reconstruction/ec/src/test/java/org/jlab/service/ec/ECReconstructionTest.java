@@ -1,8 +1,14 @@
 package org.jlab.service.ec;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import org.jlab.io.base.DataBank;
 import org.jlab.io.base.DataEvent;
 
 import org.jlab.analysis.physics.TestEvent;
@@ -41,4 +47,69 @@ public class ECReconstructionTest {
     assertEquals(testEvent.getBank("ECAL::clusters").rows(), 3);    
   }
 
+  private static String dump(DataEvent event) {
+    StringBuilder str = new StringBuilder();
+    String[][] banks = {{"ECAL::hits",     "id:S clusterId:S status:S sector:B layer:B strip:B peakid:B energy:F time:F"},
+                        {"ECAL::peaks",    "id:S status:S sector:B layer:B energy:F time:F xo:F yo:F zo:F xe:F ye:F ze:F width:F"},
+                        {"ECAL::clusters", "id:S status:S sector:B layer:B x:F y:F z:F energy:F time:F widthU:F widthV:F widthW:F idU:B idV:B idW:B coordU:I coordV:I coordW:I"}};
+    for (String[] bank : banks) {
+      DataBank b = event.getBank(bank[0]);
+      str.append(bank[0]).append('\n');
+      for (int row = 0; row < b.rows(); row++) {
+        for (String column : bank[1].split(" ")) {
+          String name = column.substring(0, column.length()-2);
+          switch (column.charAt(column.length()-1)) {
+            case 'B': str.append(b.getByte(name, row)); break;
+            case 'S': str.append(b.getShort(name, row)); break;
+            case 'I': str.append(b.getInt(name, row)); break;
+            default:  str.append(b.getFloat(name, row));
+          }
+          str.append(' ');
+        }
+        str.append('\n');
+      }
+    }
+    return str.toString();
+  }
+
+  /**
+   * The results of an event do not depend on the events processed before,
+   * by the same thread or by other threads of the same engine.
+   */
+  @Test
+  public void testECContexts() throws Exception {
+    System.setProperty("CLAS12DIR", "../../");
+
+    String dir = ClasUtilsFile.getResourceDir("CLAS12DIR", "etc/bankdefs/hipo4");
+    SchemaFactory schemaFactory = new SchemaFactory();
+    schemaFactory.initFromDirectory(dir);
+
+    ECEngine engineEC = new ECEngine();
+    engineEC.init();
+    DataEvent first = TestEvent.getECSector1PhotonEvent(schemaFactory);
+    engineEC.processDataEvent(first);
+    String expected = dump(first);
+    assertEquals(first.getBank("ECAL::clusters").rows(), 3);
+
+    for (int i = 0; i < 5; i++) {
+      DataEvent event = TestEvent.getECSector1PhotonEvent(schemaFactory);
+      engineEC.processDataEvent(event);
+      assertEquals(expected, dump(event));
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<String>> results = new ArrayList<>();
+    for (int i = 0; i < 40; i++) {
+      results.add(executor.submit(() -> {
+        DataEvent event = TestEvent.getECSector1PhotonEvent(schemaFactory);
+        engineEC.processDataEvent(event);
+        return dump(event);
+      }));
+    }
+    for (Future<String> result : results) {
+      assertEquals(expected, result.get());
+    }
+    executor.shutdown();
+  }
+
 }
@@ -1,6 +1,7 @@
 package org.jlab.rec.ft.trk;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import org.jlab.detector.banks.RawDataBank;
 import org.jlab.detector.base.DetectorLayer;
@@ -72,22 +73,13 @@ public class FTTRKReconstruction {
 
         int Nlayers = FTTRKConstantsLoader.Nlayers;
         int Nstrips = FTTRKConstantsLoader.Nstrips;
-        boolean[][] checked;
-        FTTRKHit[][] HitArray;
         ArrayList<FTTRKCluster> clusters = new ArrayList<FTTRKCluster>();
 
-        // a boolean array to avoid double counting at the numbering discontinuities
-        checked = new boolean[Nstrips][Nlayers];
-        for (int l = 0; l < Nlayers; l++) {
-            for (int s = 0; s < Nstrips; s++) {  // init all strips to false
-                checked[s][l] = false;
-            }
-        }
-
-        // a Hit Array is used to identify clusters
-        HitArray = new FTTRKHit[Nstrips][Nlayers];
+        // per-layer bitmaps of the fired strips, and the corresponding hits,
+        // indexed by strip number - 1
+        long[][] fired = new long[Nlayers][(Nstrips + 63) / 64];
+        FTTRKHit[][] HitArray = new FTTRKHit[Nlayers][Nstrips];
 
-        // initializing non-zero Hit Array entries
         // fill with valid hits
         for (FTTRKHit hit : hits) {
             if (hit.get_Strip() == -1) {
@@ -97,115 +89,55 @@ public class FTTRKReconstruction {
             int l = hit.get_Layer();
 
             if (w > 0 && w <= Nstrips) {
-                HitArray[w - 1][l - 1] = hit;
+                HitArray[l - 1][w - 1] = hit;
+                fired[l - 1][(w - 1) >> 6] |= 1L << ((w - 1) & 63);
                 if (debugMode >= 1) {
-                    System.out.println(w + " " + l + " " + HitArray[w - 1][l - 1].printInfo());
+                    System.out.println(w + " " + l + " " + HitArray[l - 1][w - 1].printInfo());
                 }
             }
 
         }
         int cid = -1;  // cluster id, will increment with each new good cluster
 
-        // for each layer and sector, loop over the strips:
-        // once one is selected for the first time, loop over the remainder
-        // clusters are delimited by strips with no hits
-        int[] indR = new int[sequentialStrips];
-        int[] indL = new int[sequentialStrips];
-        // strip index: from 0 to 512 (full right hand side, left hand side fired only in the interval 384-639)
-        // strip number: from 1 to 768
-        for (int i = 0; i < sequentialStrips; i++) {
-            if (i < FTTRKConstantsLoader.Longstrips) {
-                indR[i] = indL[i] = i;
-            } else if (i >= FTTRKConstantsLoader.Longstrips && i < (FTTRKConstantsLoader.Longstrips + sideShortStrips)) { //384
-                indR[i] = i;
-                indL[i] = i + sideShortStrips; //256
-            } else if (i >= (FTTRKConstantsLoader.Longstrips + sideShortStrips)) { // 384
-                indR[i] = indL[i] = i + sideShortStrips; // 256    
-            }
-        }
+        // for each layer, clusters are runs of consecutive fired strips,
+        // found on the bitmaps.
+        // strip index: from 0 to 767, strip number: from 1 to 768
+        // RHS (complete, including top and bottom long strips): strip index
+        // 0-383 followed by 640-767; LHS (only lateral strips): 384-639
+        final int rhsEnd1 = FTTRKConstantsLoader.Longstrips + sideShortStrips;      // 384
+        final int rhsStart2 = rhsEnd1 + sideShortStrips;                              // 640
+        final int rhsEnd2 = sequentialStrips + sideShortStrips;                       // 768
 
         boolean needsReordering = false;
         // loop on layers
         for (int il = 0; il < Nlayers; il++) {
-            int is = 0;
-            // first loop on RHS strips (complete, including top and bottom long strips)
-            while (is < sequentialStrips) {
-                int nst = 0;
-                int ris = indR[is];
-                if (HitArray[ris][il] != null && !checked[ris][il]) {
-                    ArrayList<FTTRKHit> clusterHits = new ArrayList<FTTRKHit>();
-                    checked[ris][il] = true;
-                    // if fired this is the first strip of the cluster
-                    clusterHits.add(new FTTRKHit(HitArray[ris][il].get_Sector(), HitArray[ris][il].get_Layer(), HitArray[ris][il].get_Strip(),
-                            HitArray[ris][il].get_Edep(), HitArray[ris][il].get_Time(), HitArray[ris][il].get_Id()));
-                    // look for a consecutive strip in the stack and stick it to the cluster
-                    int isnext = is + 1;
-                    while (isnext < sequentialStrips && HitArray[indR[isnext]][il] != null && !checked[indR[isnext]][il]) {
-                        int nris = indR[isnext];
-                        checked[nris][il] = true;
-                        clusterHits.add(new FTTRKHit(HitArray[nris][il].get_Sector(), HitArray[nris][il].get_Layer(), HitArray[nris][il].get_Strip(),
-                                HitArray[nris][il].get_Edep(), HitArray[ris][il].get_Time(), HitArray[nris][il].get_Id()));
-                        nst++;
-                        isnext++;
-                    }
-                    is = isnext - 1;
-                    FTTRKCluster this_cluster = new FTTRKCluster(1, il + 1, ++cid);
-                    // modify clusterIndex for all the hits belonging to the cluster
-                    ArrayList<FTTRKHit> cloneHitsWNewID = new ArrayList<>();
-                    for (FTTRKHit clHit : clusterHits) {
-                        clHit.set_DGTZIndex(clHit.get_Id());
-                        clHit.set_ClusterIndex(cid);
-                        cloneHitsWNewID.add(clHit);
-                    }
-                    this_cluster.addAll(cloneHitsWNewID);
-                    this_cluster.calc_CentroidParams();
-                    clusters.add(this_cluster);
-
-                    if (debugMode >= 1) {
-                        System.out.println("xxxxxxxxxxxxxxx cluster properties " + this_cluster.get_CId() + " cluster size " + this_cluster.size());
-                        for (int k = 0; k < this_cluster.size(); k++) {
-                            System.out.println("hit n " + k + " strip " + this_cluster.get(k).get_Strip() + " stripId " + this_cluster.get(k).get_Id());
-                        }
-                    }
+            long[] bits = fired[il];
+            // first loop on RHS strips
+            int next2 = rhsStart2;
+            int is = nextSetBit(bits, 0, rhsEnd1);
+            while (is < rhsEnd1) {
+                int end = nextClearBit(bits, is, rhsEnd1);
+                int end2 = rhsStart2;
+                // the run continues on the top long strips
+                if (end == rhsEnd1 && nextSetBit(bits, rhsStart2, rhsEnd2) == rhsStart2) {
+                    end2 = nextClearBit(bits, rhsStart2, rhsEnd2);
+                    next2 = end2;
                 }
-                is++;
-            }
-            // second loop on LHS strips (only lateral strips)
-            is = FTTRKConstantsLoader.Longstrips;
-            while (is < (FTTRKConstantsLoader.Longstrips + sideShortStrips)) {  //384
-                int nst = 0;
-                int lis = indL[is];
-                if (HitArray[lis][il] != null && !checked[lis][il]) {
-                    ArrayList<FTTRKHit> clusterHits = new ArrayList<>();
-                    checked[lis][il] = true;
-                    // if fired this is the first strip of the cluster
-                    clusterHits.add(new FTTRKHit(HitArray[lis][il].get_Sector(), HitArray[lis][il].get_Layer(), HitArray[lis][il].get_Strip(),
-                            HitArray[lis][il].get_Edep(), HitArray[lis][il].get_Time(), HitArray[lis][il].get_Id()));
-                    // look for a consecutive strip in the stack and stick it to the cluster
-                    int isnext = is + 1;
-                    while (isnext < (sequentialStrips + FTTRKConstantsLoader.SideHalfstrips)
-                            && // 640 
-                            HitArray[indL[isnext]][il] != null && !checked[indL[isnext]][il]) {
-                        int nlis = indL[isnext];
-                        checked[nlis][il] = true;
-                        clusterHits.add(new FTTRKHit(HitArray[nlis][il].get_Sector(), HitArray[nlis][il].get_Layer(), HitArray[nlis][il].get_Strip(),
-                                HitArray[nlis][il].get_Edep(), HitArray[lis][il].get_Time(), HitArray[nlis][il].get_Id()));
-                        nst++;
-                        isnext++;
-                    }
-                    is = isnext - 1;
-                    FTTRKCluster this_cluster = new FTTRKCluster(1, il + 1, ++cid);
-                    ArrayList<FTTRKHit> cloneHitsWNewID = new ArrayList<>();
-                    for (FTTRKHit clHit : clusterHits) {
-                        clHit.set_DGTZIndex(clHit.get_Id());
-                        clHit.set_ClusterIndex(cid);
-                        cloneHitsWNewID.add(clHit);
-                    }
-                    this_cluster.addAll(cloneHitsWNewID);
-                    this_cluster.calc_CentroidParams();
-                    clusters.add(this_cluster);
-                }
-                is++;
+                clusters.add(this.newCluster(HitArray[il], il + 1, ++cid, is, end, rhsStart2, end2));
+                is = nextSetBit(bits, end, rhsEnd1);
+            }
+            is = nextSetBit(bits, next2, rhsEnd2);
+            while (is < rhsEnd2) {
+                int end = nextClearBit(bits, is, rhsEnd2);
+                clusters.add(this.newCluster(HitArray[il], il + 1, ++cid, is, end, 0, 0));
+                is = nextSetBit(bits, end, rhsEnd2);
+            }
+            // second loop on LHS strips
+            is = nextSetBit(bits, rhsEnd1, rhsStart2);
+            while (is < rhsStart2) {
+                int end = nextClearBit(bits, is, rhsStart2);
+                clusters.add(this.newCluster(HitArray[il], il + 1, ++cid, is, end, 0, 0));
+                is = nextSetBit(bits, end, rhsStart2);
             }
             // check if in any cluster there is a limiting strip. If two consecutive limiting strips are found, merge the clusters and
             // delete the second one
@@ -323,6 +255,71 @@ public class FTTRKReconstruction {
         return clusters;
     }
 
+    /**
+     * Creates a cluster from consecutive fired strips, given as one or two
+     * ranges of strip indices.
+     * @param layerHits hits of the layer, by strip index
+     * @param layer layer (1-4)
+     * @param cid cluster id
+     * @param from first strip index of the first range
+     * @param to last strip index + 1 of the first range
+     * @param from2 first strip index of the second range
+     * @param to2 last strip index + 1 of the second range, from2 if empty
+     * @return the cluster
+     */
+    private FTTRKCluster newCluster(FTTRKHit[] layerHits, int layer, int cid, int from, int to, int from2, int to2) {
+        ArrayList<FTTRKHit> clusterHits = new ArrayList<>();
+        // the first strip is the seed, whose time is given to all the strips
+        FTTRKHit seed = layerHits[from];
+        for (int i = from; i < to + (to2 - from2); i++) {
+            FTTRKHit h = layerHits[i < to ? i : from2 + i - to];
+            FTTRKHit clHit = new FTTRKHit(h.get_Sector(), h.get_Layer(), h.get_Strip(),
+                    h.get_Edep(), seed.get_Time(), h.get_Id());
+            clHit.set_DGTZIndex(clHit.get_Id());
+            clHit.set_ClusterIndex(cid);
+            clusterHits.add(clHit);
+        }
+        FTTRKCluster this_cluster = new FTTRKCluster(1, layer, cid);
+        this_cluster.addAll(clusterHits);
+        this_cluster.calc_CentroidParams();
+
+        if (debugMode >= 1) {
+            System.out.println("xxxxxxxxxxxxxxx cluster properties " + this_cluster.get_CId() + " cluster size " + this_cluster.size());
+            for (int k = 0; k < this_cluster.size(); k++) {
+                System.out.println("hit n " + k + " strip " + this_cluster.get(k).get_Strip() + " stripId " + this_cluster.get(k).get_Id());
+            }
+        }
+        return this_cluster;
+    }
+
+    /**
+     * @return index of the first set bit in [from,to), or to if none
+     */
+    private static int nextSetBit(long[] bits, int from, int to) {
+        if (from >= to) return to;
+        int w = from >> 6;
+        long word = bits[w] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) return Math.min(to, (w << 6) + Long.numberOfTrailingZeros(word));
+            if (++w >= bits.length || (w << 6) >= to) return to;
+            word = bits[w];
+        }
+    }
+
+    /**
+     * @return index of the first clear bit in [from,to), or to if none
+     */
+    private static int nextClearBit(long[] bits, int from, int to) {
+        if (from >= to) return to;
+        int w = from >> 6;
+        long word = ~bits[w] & (-1L << (from & 63));
+        while (true) {
+            if (word != 0) return Math.min(to, (w << 6) + Long.numberOfTrailingZeros(word));
+            if (++w >= bits.length || (w << 6) >= to) return to;
+            word = ~bits[w];
+        }
+    }
+
     public ArrayList<FTTRKCross> findCrosses(List<FTTRKCluster> clusters) {
 
         int debugMode = FTTRKReconstruction.debugMode;
@@ -342,12 +339,26 @@ public class FTTRKReconstruction {
 
         ArrayList<FTTRKCross> crosses = new ArrayList<>();
 
+        // bounding boxes of the centroid segments, enlarged by the centroid
+        // errors: the cross point has to be inside both segments, within the
+        // errors, so clusters whose boxes don't overlap can't make a cross
+        double[][] innerBoxes = new double[allinnerlayrclus.size()][];
+        double[][] outerBoxes = new double[allouterlayrclus.size()][];
+        for (int i = 0; i < innerBoxes.length; i++) {
+            innerBoxes[i] = getSegmentBox(allinnerlayrclus.get(i));
+        }
+        for (int i = 0; i < outerBoxes.length; i++) {
+            outerBoxes[i] = getSegmentBox(allouterlayrclus.get(i));
+        }
+
         int rid = -1;
-        for (FTTRKCluster inlayerclus : allinnerlayrclus) {
+        for (int iin = 0; iin < allinnerlayrclus.size(); iin++) {
+            FTTRKCluster inlayerclus = allinnerlayrclus.get(iin);
             if (inlayerclus.size() < FTConstants.TRK_MIN_CLUS_SIZE) {
                 continue;
             }
-            for (FTTRKCluster outlayerclus : allouterlayrclus) {
+            for (int iout = 0; iout < allouterlayrclus.size(); iout++) {
+                FTTRKCluster outlayerclus = allouterlayrclus.get(iout);
                 if (outlayerclus.size() < FTConstants.TRK_MIN_CLUS_SIZE) {
                     continue;
                 }
@@ -362,8 +373,13 @@ public class FTTRKReconstruction {
                 }
                 if ((inlayerclus.get_MinStrip() + outlayerclus.get_MinStrip() > 0)
                         && (inlayerclus.get_MaxStrip() + outlayerclus.get_MaxStrip() < FTTRKConstantsLoader.Nstrips * 2)) {
+                    // the cross id is incremented for all candidates, as before the pre-selection
+                    ++rid;
+                    if (!overlap(innerBoxes[iin], outerBoxes[iout])) {
+                        continue;
+                    }
                     // define new cross 
-                    FTTRKCross this_cross = new FTTRKCross(inlayerclus.get_Sector(), inlayerclus.get_Region(), ++rid);
+                    FTTRKCross this_cross = new FTTRKCross(inlayerclus.get_Sector(), inlayerclus.get_Region(), rid);
                     this_cross.set_Cluster1(inlayerclus);
                     this_cross.set_Cluster2(outlayerclus);
                     int dummy = this_cross.get_Cluster1().get_CId();
@@ -390,6 +406,31 @@ public class FTTRKReconstruction {
         return crosses;
     }
 
+    /**
+     * @param cluster
+     * @return xmin, xmax, ymin, ymax of the cluster centroid segment, enlarged
+     * by the centroid error, or null if the segment is not defined
+     */
+    private static double[] getSegmentBox(FTTRKCluster cluster) {
+        if (cluster.get_StripSegment() == null) {
+            return null;
+        }
+        double tol = cluster.get_CentroidError();
+        double x0 = cluster.get_StripSegment().origin().x();
+        double x1 = cluster.get_StripSegment().end().x();
+        double y0 = cluster.get_StripSegment().origin().y();
+        double y1 = cluster.get_StripSegment().end().y();
+        return new double[]{Math.min(x0, x1) - tol, Math.max(x0, x1) + tol,
+                            Math.min(y0, y1) - tol, Math.max(y0, y1) + tol};
+    }
+
+    private static boolean overlap(double[] box1, double[] box2) {
+        if (box1 == null || box2 == null) {
+            return true;
+        }
+        return box1[0] <= box2[1] && box2[0] <= box1[1] && box1[2] <= box2[3] && box2[2] <= box1[3];
+    }
+
     public List<FTTRKHit> readRawHits(DataEvent event, int run) {
         // getting raw data bank
         if (debugMode >= 1) {
@@ -447,31 +488,17 @@ public class FTTRKReconstruction {
                 }
             }
         }
-        // order hits list by component
-        List<FTTRKHit> hitsOrderedByLay = new ArrayList<>();
-
-        // order by layers
+        // order hits list by layer and strip, keeping the original order for
+        // equal strips and dropping hits outside the valid layers and strips
         int Nlayers = FTTRKConstantsLoader.Nlayers;
         int Nstrips = FTTRKConstantsLoader.Nstrips;
-        for (int nlayer = 1; nlayer <= Nlayers; nlayer++) {
-            for (FTTRKHit h : hits) {
-                if (h.get_Layer() == nlayer) {
-                    hitsOrderedByLay.add(h);
-                }
-            }
-        }
-
-        // order by strip
         List<FTTRKHit> hitsOrderedByStrip = new ArrayList<>();
-        for (int nlayer = 1; nlayer <= Nlayers; nlayer++) {
-            for (int nstrip = 1; nstrip <= Nstrips; nstrip++) {
-                for (FTTRKHit h : hitsOrderedByLay) {
-                    if (nlayer == h.get_Layer() && nstrip == h.get_Strip()) {
-                        hitsOrderedByStrip.add(h);
-                    }
-                }
+        for (FTTRKHit h : hits) {
+            if (h.get_Layer() >= 1 && h.get_Layer() <= Nlayers && h.get_Strip() >= 1 && h.get_Strip() <= Nstrips) {
+                hitsOrderedByStrip.add(h);
             }
         }
+        hitsOrderedByStrip.sort(Comparator.comparingInt(FTTRKHit::get_Layer).thenComparingInt(FTTRKHit::get_Strip));
 
         return hitsOrderedByStrip;
     }
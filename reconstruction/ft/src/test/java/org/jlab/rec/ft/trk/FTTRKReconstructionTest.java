@@ -0,0 +1,256 @@
+package org.jlab.rec.ft.trk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.jlab.rec.ft.FTConstants;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FTTRKReconstructionTest {
+
+    @BeforeClass
+    public static void setUp() {
+        FTTRKConstantsLoader.Load(11, "default");
+        // strip numbering limits, as set by FTTRKReconstruction.initFTTRK
+        FTTRKReconstruction.sideShortStrips = 2 * FTTRKConstantsLoader.SideHalfstrips;
+        FTTRKReconstruction.sequentialStrips = FTTRKConstantsLoader.Longstrips + FTTRKConstantsLoader.SideHalfstrips + FTTRKReconstruction.sideShortStrips;
+        FTTRKReconstruction.stripDiscontinuity1 = FTTRKConstantsLoader.Longstrips;
+        FTTRKReconstruction.stripDiscontinuity2 = FTTRKConstantsLoader.Longstrips + FTTRKReconstruction.sideShortStrips + 1;
+        FTTRKReconstruction.stripDiscontinuity3 = FTTRKReconstruction.sequentialStrips + FTTRKConstantsLoader.SideHalfstrips;
+        FTTRKReconstruction.stripDiscontinuity4 = FTTRKReconstruction.stripDiscontinuity3 + 1;
+    }
+
+    /**
+     * The cluster finding before the strip bitmaps: the strips of each
+     * layer are followed one by one, in the RHS and then the LHS sequence.
+     */
+    private static ArrayList<FTTRKCluster> findClusters(List<FTTRKHit> hits) {
+        int Nlayers = FTTRKConstantsLoader.Nlayers;
+        int Nstrips = FTTRKConstantsLoader.Nstrips;
+        int Longstrips = FTTRKConstantsLoader.Longstrips;
+        int sideShortStrips = FTTRKReconstruction.sideShortStrips;
+        int sequentialStrips = FTTRKReconstruction.sequentialStrips;
+        boolean[][] checked = new boolean[Nstrips][Nlayers];
+        FTTRKHit[][] HitArray = new FTTRKHit[Nstrips][Nlayers];
+        ArrayList<FTTRKCluster> clusters = new ArrayList<>();
+        for (FTTRKHit hit : hits) {
+            int w = hit.get_Strip();
+            if (w > 0 && w <= Nstrips) {
+                HitArray[w - 1][hit.get_Layer() - 1] = hit;
+            }
+        }
+        int cid = -1;
+        int[] indR = new int[sequentialStrips];
+        int[] indL = new int[sequentialStrips];
+        for (int i = 0; i < sequentialStrips; i++) {
+            if (i < Longstrips) {
+                indR[i] = indL[i] = i;
+            } else if (i < Longstrips + sideShortStrips) {
+                indR[i] = i;
+                indL[i] = i + sideShortStrips;
+            } else {
+                indR[i] = indL[i] = i + sideShortStrips;
+            }
+        }
+        boolean needsReordering = false;
+        for (int il = 0; il < Nlayers; il++) {
+            // RHS strips, then LHS strips
+            for (int side = 0; side < 2; side++) {
+                int[] ind = side == 0 ? indR : indL;
+                int start = side == 0 ? 0 : Longstrips;
+                int stop = side == 0 ? sequentialStrips : Longstrips + sideShortStrips;
+                int limit = side == 0 ? sequentialStrips : sequentialStrips + FTTRKConstantsLoader.SideHalfstrips;
+                for (int is = start; is < stop; is++) {
+                    int ris = ind[is];
+                    if (HitArray[ris][il] == null || checked[ris][il]) {
+                        continue;
+                    }
+                    ArrayList<FTTRKHit> clusterHits = new ArrayList<>();
+                    checked[ris][il] = true;
+                    FTTRKHit seed = HitArray[ris][il];
+                    clusterHits.add(new FTTRKHit(seed.get_Sector(), seed.get_Layer(), seed.get_Strip(), seed.get_Edep(), seed.get_Time(), seed.get_Id()));
+                    int isnext = is + 1;
+                    while (isnext < limit && HitArray[ind[isnext]][il] != null && !checked[ind[isnext]][il]) {
+                        FTTRKHit h = HitArray[ind[isnext]][il];
+                        checked[ind[isnext]][il] = true;
+                        clusterHits.add(new FTTRKHit(h.get_Sector(), h.get_Layer(), h.get_Strip(), h.get_Edep(), seed.get_Time(), h.get_Id()));
+                        isnext++;
+                    }
+                    is = isnext - 1;
+                    FTTRKCluster this_cluster = new FTTRKCluster(1, il + 1, ++cid);
+                    for (FTTRKHit clHit : clusterHits) {
+                        clHit.set_DGTZIndex(clHit.get_Id());
+                        clHit.set_ClusterIndex(cid);
+                    }
+                    this_cluster.addAll(clusterHits);
+                    this_cluster.calc_CentroidParams();
+                    clusters.add(this_cluster);
+                }
+            }
+            // join the clusters with consecutive limiting strips
+            int[] limits = {FTTRKReconstruction.stripDiscontinuity1, FTTRKReconstruction.stripDiscontinuity2,
+                            FTTRKReconstruction.stripDiscontinuity3, FTTRKReconstruction.stripDiscontinuity4};
+            int[] ids = {-1, -1, -1, -1};
+            for (FTTRKCluster clust : clusters) {
+                if (clust.get_Layer() != il + 1) {
+                    continue;
+                }
+                for (FTTRKHit hit : clust) {
+                    for (int k = 0; k < 4; k++) {
+                        if (hit.get_Strip() == limits[k]) {
+                            needsReordering = true;
+                            ids[k] = clust.get_CId();
+                        }
+                    }
+                }
+            }
+            int clustersize = clusters.size();
+            for (int k = 0; k < 4; k += 2) {
+                if (ids[k] >= 0 && ids[k + 1] >= 0 && ids[k] != ids[k + 1]) {
+                    ArrayList<FTTRKHit> twoClusterHits = new ArrayList<>();
+                    twoClusterHits.addAll(clusters.get(ids[k]));
+                    twoClusterHits.addAll(clusters.get(ids[k + 1]));
+                    FTTRKCluster joinedClusters = new FTTRKCluster(1, il + 1, ++clustersize);
+                    for (FTTRKHit clHit : twoClusterHits) {
+                        clHit.set_DGTZIndex(clHit.get_Id());
+                        if (k == 2) {
+                            clHit.set_ClusterIndex(Math.min(ids[k], ids[k + 1]));
+                        }
+                    }
+                    joinedClusters.addAll(twoClusterHits);
+                    joinedClusters.calc_CentroidParams();
+                    clusters.add(joinedClusters);
+                }
+            }
+            for (int k = 0; k < 4; k += 2) {
+                if (ids[k] >= 0 && ids[k + 1] >= 0) {
+                    clusters.remove(Math.max(ids[k], ids[k + 1]));
+                    clusters.remove(Math.min(ids[k], ids[k + 1]));
+                    cid--;
+                }
+            }
+        }
+        if (needsReordering) {
+            int newClusterID = -1;
+            for (FTTRKCluster aCluster : clusters) {
+                aCluster.calc_CentroidParams();
+                aCluster.set_CId(++newClusterID);
+            }
+        }
+        return clusters;
+    }
+
+    /**
+     * The cross finding before the pre-selection of the cluster pairs.
+     */
+    private static ArrayList<FTTRKCross> findCrosses(List<FTTRKCluster> clusters) {
+        ArrayList<FTTRKCluster> allinnerlayrclus = new ArrayList<>();
+        ArrayList<FTTRKCluster> allouterlayrclus = new ArrayList<>();
+        for (FTTRKCluster theclus : clusters) {
+            if (theclus.get_Layer() % 2 == 0) {
+                allouterlayrclus.add(theclus);
+            } else {
+                allinnerlayrclus.add(theclus);
+            }
+        }
+        ArrayList<FTTRKCross> crosses = new ArrayList<>();
+        int rid = -1;
+        for (FTTRKCluster inlayerclus : allinnerlayrclus) {
+            if (inlayerclus.size() < FTConstants.TRK_MIN_CLUS_SIZE) {
+                continue;
+            }
+            for (FTTRKCluster outlayerclus : allouterlayrclus) {
+                if (outlayerclus.size() < FTConstants.TRK_MIN_CLUS_SIZE
+                        || outlayerclus.get_Layer() - inlayerclus.get_Layer() != 1
+                        || outlayerclus.get_Sector() != inlayerclus.get_Sector()) {
+                    continue;
+                }
+                if ((inlayerclus.get_MinStrip() + outlayerclus.get_MinStrip() > 0)
+                        && (inlayerclus.get_MaxStrip() + outlayerclus.get_MaxStrip() < FTTRKConstantsLoader.Nstrips * 2)) {
+                    FTTRKCross this_cross = new FTTRKCross(inlayerclus.get_Sector(), inlayerclus.get_Region(), ++rid);
+                    this_cross.set_Cluster1(inlayerclus);
+                    this_cross.set_Cluster2(outlayerclus);
+                    this_cross.set_CrossParams();
+                    double radXCenter = Math.hypot(this_cross.get_Point().x(), this_cross.get_Point().y());
+                    if (radXCenter > FTTRKConstantsLoader.InnerHole && radXCenter < FTTRKConstantsLoader.Rmax) {
+                        crosses.add(this_cross);
+                    }
+                }
+            }
+        }
+        return crosses;
+    }
+
+    private static String toString(List<FTTRKCluster> clusters, List<FTTRKCross> crosses) {
+        StringBuilder str = new StringBuilder();
+        for (FTTRKCluster cluster : clusters) {
+            str.append(String.format("cluster %d layer %d strips %d-%d seed %d centroid %.6f error %.6f:",
+                    cluster.get_CId(), cluster.get_Layer(), cluster.get_MinStrip(), cluster.get_MaxStrip(),
+                    cluster.get_SeedStrip(), cluster.get_Centroid(), cluster.get_CentroidError()));
+            for (FTTRKHit hit : cluster) {
+                str.append(String.format(" (%d %d %.3f %d %d)", hit.get_Strip(), hit.get_Id(), hit.get_Time(),
+                        hit.get_DGTZIndex(), hit.get_ClusterIndex()));
+            }
+            str.append('\n');
+        }
+        for (FTTRKCross cross : crosses) {
+            str.append(cross.printInfo()).append(' ').append(cross.get_Cluster1().get_CId())
+               .append(' ').append(cross.get_Cluster2().get_CId()).append('\n');
+        }
+        return str.toString();
+    }
+
+    /**
+     * @return random hits, in runs of consecutive strips often placed at the
+     * discontinuities of the strip numbering, sorted by layer and strip
+     */
+    private static List<FTTRKHit> hits(Random random) {
+        int[] edges = {1, 128, 129, 383, 384, 385, 386, 512, 513, 639, 640, 641, 642, 768};
+        List<FTTRKHit> hits = new ArrayList<>();
+        boolean[][] fired = new boolean[FTTRKConstantsLoader.Nlayers][FTTRKConstantsLoader.Nstrips + 1];
+        for (int layer = 1; layer <= FTTRKConstantsLoader.Nlayers; layer++) {
+            for (int run = random.nextInt(6); run > 0; run--) {
+                int length = 1 + random.nextInt(5);
+                int start = random.nextBoolean() ? edges[random.nextInt(edges.length)] - random.nextInt(length)
+                                                 : 1 + random.nextInt(FTTRKConstantsLoader.Nstrips);
+                for (int strip = Math.max(1, start); strip < start + length && strip <= FTTRKConstantsLoader.Nstrips; strip++) {
+                    if (fired[layer - 1][strip]) {
+                        continue;
+                    }
+                    fired[layer - 1][strip] = true;
+                    hits.add(new FTTRKHit(1, layer, strip, 10 * random.nextDouble(), 100 * random.nextDouble(), hits.size()));
+                }
+            }
+        }
+        hits.sort((h1, h2) -> h1.get_Layer() != h2.get_Layer() ? h1.get_Layer() - h2.get_Layer() : h1.get_Strip() - h2.get_Strip());
+        return hits;
+    }
+
+    @Test
+    public void testSameClustersAndCrosses() {
+        FTTRKReconstruction reco = new FTTRKReconstruction();
+        Random random = new Random(3);
+        int ncrosses = 0;
+        for (int event = 0; event < 2000; event++) {
+            List<FTTRKHit> hits = hits(random);
+            ArrayList<FTTRKCluster> clusters = findClusters(hits);
+            // the centroids of clusters larger than this are randomized
+            boolean large = false;
+            for (FTTRKCluster cluster : clusters) {
+                large |= cluster.size() > FTConstants.TRK_MAX_STRIPS_FOR_TRUNCATED_MEAN;
+            }
+            if (large) {
+                continue;
+            }
+            ArrayList<FTTRKCross> crosses = findCrosses(clusters);
+            ncrosses += crosses.size();
+            String expected = toString(clusters, crosses);
+            ArrayList<FTTRKCluster> clusters2 = reco.findClusters(hits);
+            assertEquals("event " + event, expected, toString(clusters2, reco.findCrosses(clusters2)));
+        }
+        assertTrue(ncrosses > 0);
+    }
+}
@@ -1,7 +1,9 @@
 package org.jlab.rec.htcc;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.PriorityQueue;
 import org.jlab.detector.banks.RawDataBank;
 import org.jlab.io.base.DataBank;
 import org.jlab.io.base.DataEvent;
@@ -36,10 +38,21 @@ public class HTCCReconstruction {
     private int[] iphiArray;
     private int numHits;
 
+    // Number of theta and phi indices of the hit grid
+    private static final int NUM_PHI = 12;
+    private int minTheta;
+    private int numTheta;
+
+    // Remaining hits by grid cell, see getCell(), in increasing
+    // index order: cellHits[cellFirst[cell]] to cellHits[cellFirst[cell+1]-1].
+    // Hits added to a cluster are marked in usedHits.
+    private int[] cellFirst;
+    private int[] cellHits;
+    private boolean[] usedHits;
+
     // Data about the hit in the remaining hit list with the greatest number of
     // photoelections. See findMaximumHit().
     private double maxHitNumPhotoelectrons;
-    private int maxHitRemainingIndex;
     private int maxHitRawDataIndex;
 
     /**
@@ -58,11 +71,25 @@ public class HTCCReconstruction {
         readBankInput(event);
         // Initialize the remaining hits list
         List<Integer> remainingHits = intiRemainingHitList();
+        fillHitGrid(remainingHits);
+
+        // Cluster seeds, by decreasing number of photoelectrons
+        PriorityQueue<Integer> seeds = new PriorityQueue<>(Math.max(1, remainingHits.size()), (a, b) -> {
+            if (npheArray[a] != npheArray[b]) {
+                return npheArray[a] > npheArray[b] ? -1 : 1;
+            }
+            return Integer.compare(a, b);
+        });
+        for (int hit : remainingHits) {
+            if (!Double.isNaN(npheArray[hit])) {
+                seeds.add(hit);
+            }
+        }
 
         // Place all of the hits into clusters
         List<HTCCCluster> clusters = new ArrayList();
         HTCCCluster cluster;
-        while (!remainingHits.isEmpty() && (cluster = findCluster(remainingHits)) != null) {
+        while (!remainingHits.isEmpty() && (cluster = findCluster(seeds)) != null) {
             clusters.add(cluster);
         }
 
@@ -148,27 +175,69 @@ public class HTCCReconstruction {
     }
 
     /**
-     * Returns the next cluster or null if no clusters are left.
+     * Sorts the remaining hits into the (ring, sector and half) grid of the
+     * detector, so that the neighbours of a hit are found without scanning
+     * all the remaining hits.
      *
      * @param remainingHits the list of remaining hits
+     */
+    void fillHitGrid(List<Integer> remainingHits) {
+        minTheta = 0;
+        numTheta = 0;
+        for (int hit : remainingHits) {
+            minTheta = Math.min(minTheta, ithetaArray[hit]);
+        }
+        for (int hit : remainingHits) {
+            numTheta = Math.max(numTheta, ithetaArray[hit] - minTheta + 1);
+        }
+        int numCells = numTheta * NUM_PHI;
+        cellFirst = new int[numCells + 1];
+        cellHits = new int[remainingHits.size()];
+        usedHits = new boolean[numHits];
+        for (int hit : remainingHits) {
+            cellFirst[getCell(ithetaArray[hit], iphiArray[hit]) + 1]++;
+        }
+        for (int cell = 0; cell < numCells; ++cell) {
+            cellFirst[cell + 1] += cellFirst[cell];
+        }
+        int[] next = Arrays.copyOf(cellFirst, numCells);
+        for (int hit : remainingHits) {
+            cellHits[next[getCell(ithetaArray[hit], iphiArray[hit])]++] = hit;
+        }
+    }
+
+    /**
+     * Returns the grid cell of the given theta and phi indices, or -1 if
+     * outside the grid.
+     */
+    private int getCell(int itheta, int iphi) {
+        if (itheta < minTheta || itheta - minTheta >= numTheta) {
+            return -1;
+        }
+        return (itheta - minTheta) * NUM_PHI + Math.floorMod(iphi, NUM_PHI);
+    }
+
+    /**
+     * Returns the next cluster or null if no clusters are left.
+     *
+     * @param seeds the remaining hits by decreasing number of photoelectrons
      * @return the next cluster or null if no clusters are left
      */
-    HTCCCluster findCluster(List<Integer> remainingHits) {
+    HTCCCluster findCluster(PriorityQueue<Integer> seeds) {
         // Note:
         // maxHitNumPhotoelectrons : the number of photoelectrons for the maximum hit
         // maxHitRawDataIndex : the index of the hit in the raw data
-        // maxHitRemainingIndex : the index of the hit in the remaining hits list
 
         // Find the hit from the list of remaining hits with the largest number 
         // of photoelectrons that also meets the threshold for the minimum 
         // number of photoelectrons specified by cluster_par.npheminmax
-        findMaximumHit(remainingHits);
+        findMaximumHit(seeds);
 
         // If a maximum hit was found:
         if (maxHitNumPhotoelectrons > -1) {
 
             // Remove the maximum hit from the list of remaining hits
-            remainingHits.remove(maxHitRemainingIndex);
+            usedHits[maxHitRawDataIndex] = true;
 
             // Get Hit Data:
             // Detector Indicies
@@ -189,7 +258,7 @@ public class HTCCReconstruction {
             HTCCCluster cluster = new HTCCCluster();
             cluster.addHit(itheta, iphi, nphe, time, theta, phi, dtheta, dphi);
             // Recursively grow the cluster by adding nearby hits
-            growCluster(cluster, remainingHits);
+            growCluster(cluster);
 
             //Check whether this cluster has nphe above threshold, size along theta and phi and total number of hits less than maximum:
             if (cluster.getNPheTot() >= cluster_par.getDoubleValue("npheminclst", 0,0,0)
@@ -209,32 +278,32 @@ public class HTCCReconstruction {
     /**
      * Finds the hit from the list of remaining hits with the largest number of
      * photoelectrons that also meets the threshold for the minimum number of
-     * photoelectrons specified in <code>parameters</code>.
+     * photoelectrons specified in <code>parameters</code>. Among hits with
+     * the same number of photoelectrons, the first one in the bank is taken.
      * <p>
-     * Side effects: If a maximum hit was found with a number of photo electrons
+     * Side effects: Hits already added to a cluster are dropped from the
+     * seeds. If a maximum hit was found with a number of photo electrons
      * greater than or equal to <code>cluster_par.npheminmax</code>, then:
      * maxHitNumPhotoelectrons = the number of photoelectrons for the max hit
      * maxHitRawDataIndex = the index of the max hit in the bank data
-     * maxHitRemainingIndex = the index of the max hit in the remaining hits
-     * list
      * <p>
      * If no remaining hit has a number of photoelectrons greater than or equal
      * to <code>cluster_par.npheminmax</code>, then: maxHitNumPhotoelectrons = -1
-     * maxHitRawDataIndex = -1 maxHitRemainingIndex = -1
+     * maxHitRawDataIndex = -1
      *
-     * @param remainingHits the list of remaining hits
+     * @param seeds the remaining hits by decreasing number of photoelectrons
      */
-    void findMaximumHit(List<Integer> remainingHits) {
+    void findMaximumHit(PriorityQueue<Integer> seeds) {
         maxHitNumPhotoelectrons = -100;
-        maxHitRemainingIndex = -100;
         maxHitRawDataIndex = -100;
-        for (int hit = 0; hit < remainingHits.size(); ++hit) {
-            int hitIndex = remainingHits.get(hit);
+        while (!seeds.isEmpty() && usedHits[seeds.peek()]) {
+            seeds.poll();
+        }
+        if (!seeds.isEmpty()) {
+            int hitIndex = seeds.peek();
             double numPhotoElectrons = npheArray[hitIndex];
-            if (numPhotoElectrons >= cluster_par.getDoubleValue("npheminmax", 0,0,0)
-                    && numPhotoElectrons > maxHitNumPhotoelectrons) {
+            if (numPhotoElectrons >= cluster_par.getDoubleValue("npheminmax", 0,0,0)) {
                 maxHitNumPhotoelectrons = numPhotoElectrons;
-                maxHitRemainingIndex = hit;
                 maxHitRawDataIndex = hitIndex;
             }
         }
@@ -243,12 +312,15 @@ public class HTCCReconstruction {
     /**
      * Grows the given cluster by adding nearby hits from the remaining hits
      * list. As hits are added to the cluster they are removed from the
-     * remaining hits list.
+     * remaining hits list. The hits next to a cluster hit are read from the
+     * hit grid and tested in the order of the bank, since each added hit
+     * changes the cluster time.
      *
      * @param cluster the cluster to grow
-     * @param remainingHits the list of indexes of the remaining hits
      */
-    void growCluster(HTCCCluster cluster, List<Integer> remainingHits) {
+    void growCluster(HTCCCluster cluster) {
+        double maxTimeDiff = cluster_par.getDoubleValue("maxtimediff", 0,0,0);
+        int[] neighbours = new int[cellHits.length];
         // Get the average time of the cluster
         double clusterTime = cluster.getTime();
         // For each hit in the cluster:
@@ -257,29 +329,39 @@ public class HTCCReconstruction {
             int ithetaCurr = cluster.getHitITheta(currHit);
             int iphiCurr = cluster.getHitIPhi(currHit);
 
-            // For each of the remaining hits:
-            int hit = 0;
-            while (hit < remainingHits.size()) {
+            // Collect the remaining hits of the neighbouring cells
+            int numNeighbours = 0;
+            for (int ithetaTest = ithetaCurr - 1; ithetaTest <= ithetaCurr + 1; ++ithetaTest) {
+                for (int iphiTest = iphiCurr - 1; iphiTest <= iphiCurr + 1; ++iphiTest) {
+                    int cell = getCell(ithetaTest, iphiTest);
+                    if (cell < 0 || (ithetaTest == ithetaCurr && iphiTest == iphiCurr)) {
+                        continue;
+                    }
+                    for (int i = cellFirst[cell]; i < cellFirst[cell + 1]; ++i) {
+                        if (!usedHits[cellHits[i]]) {
+                            neighbours[numNeighbours++] = cellHits[i];
+                        }
+                    }
+                }
+            }
+            Arrays.sort(neighbours, 0, numNeighbours);
+
+            // For each of the neighbouring hits:
+            for (int i = 0; i < numNeighbours; ++i) {
                 // Get the index of the remaining hit (and call it a test hit)
-                int testHit = remainingHits.get(hit);
+                int testHit = neighbours[i];
                 // Get the coordinates of the test hit
                 int ithetaTest = ithetaArray[testHit];
                 int iphiTest = iphiArray[testHit];
 
-                // Find the distance
-                int ithetaDiff = Math.abs(ithetaTest - ithetaCurr);
-                int iphiDiff = Math.min((12 + iphiTest - iphiCurr) % 12, (12 + iphiCurr - iphiTest) % 12);
-
                 // Find the difference in time
                 double time = timeArray[testHit] - ring_time.getDoubleValue("offset", 0,0,ithetaTest+1);
                 double timeDiff = Math.abs(time - clusterTime);
 
-                // If the test hit is close enough in space and time
-                if ((ithetaDiff == 1 || iphiDiff == 1)
-                        && (ithetaDiff + iphiDiff <= 2)
-                        && (timeDiff <= cluster_par.getDoubleValue("maxtimediff", 0,0,0))) {
+                // If the test hit is close enough in time
+                if (timeDiff <= maxTimeDiff) {
                     // Remove the hit from the remaining hits list
-                    remainingHits.remove(hit);
+                    usedHits[testHit] = true;
                     // Get the Numeber of Photoelectrons
                     double npheTest = npheArray[testHit];
                     // Get the Detector Coordinates (polar)
@@ -292,9 +374,6 @@ public class HTCCReconstruction {
                     cluster.addHit(ithetaTest, iphiTest, npheTest, time, thetaTest, phiTest, dthetaTest, dphiTest);
                     // Get the new average time of the cluster
                     clusterTime = cluster.getTime();
-                } else {
-                    // Go to the next hit in the remaining hits list
-                    hit++;
                 }
             }
         }
@@ -0,0 +1,249 @@
+package org.jlab.rec.htcc;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jlab.io.base.DataBank;
+import org.jlab.io.base.DataEvent;
+import org.jlab.io.hipo.HipoDataEvent;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.jlab.utils.groups.IndexedTable;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HTCCReconstructionTest {
+
+    /**
+     * The clustering before the hit grid: the seed and the neighbours of
+     * each cluster hit are searched in the whole remaining hit list.
+     */
+    private static class Reference {
+        private final HTCCReconstruction reco;
+        private final double[] npheArray;
+        private final double[] timeArray;
+        private final int[] ithetaArray;
+        private final int[] iphiArray;
+        private double maxHitNumPhotoelectrons;
+        private int maxHitRemainingIndex;
+        private int maxHitRawDataIndex;
+
+        Reference(HTCCReconstruction reco, int[] sector, int[] layer, int[] ring, int[] adc, float[] time) {
+            this.reco = reco;
+            int n = sector.length;
+            npheArray = new double[n];
+            timeArray = new double[n];
+            ithetaArray = new int[n];
+            iphiArray = new int[n];
+            for (int i = 0; i < n; i++) {
+                npheArray[i] = adc[i] / reco.gain.getDoubleValue("gain", sector[i], layer[i], ring[i]);
+                timeArray[i] = time[i] - reco.time.getDoubleValue("shift", sector[i], layer[i], ring[i]);
+                ithetaArray[i] = Math.abs(ring[i]) - 1;
+                int iphi = 2 * Math.abs(sector[i]) + Math.abs(layer[i]) - 3;
+                iphiArray[i] = (iphi == 0 ? iphi + 12 : iphi) - 1;
+            }
+        }
+
+        List<HTCCCluster> findClusters(int[] sector, int[] layer, int[] ring) {
+            List<Integer> remainingHits = new ArrayList<>();
+            for (int hit = 0; hit < sector.length; ++hit) {
+                if (npheArray[hit] > reco.cluster_par.getDoubleValue("npheminhit", 0,0,0)
+                        && reco.status.getIntValue("status", sector[hit], layer[hit], ring[hit]) == 0) {
+                    remainingHits.add(hit);
+                }
+            }
+            List<HTCCCluster> clusters = new ArrayList<>();
+            HTCCCluster cluster;
+            while (!remainingHits.isEmpty() && (cluster = findCluster(remainingHits)) != null) {
+                clusters.add(cluster);
+            }
+            return clusters;
+        }
+
+        private HTCCCluster findCluster(List<Integer> remainingHits) {
+            findMaximumHit(remainingHits);
+            if (maxHitNumPhotoelectrons > -1) {
+                remainingHits.remove(maxHitRemainingIndex);
+                int itheta = ithetaArray[maxHitRawDataIndex];
+                int iphi = iphiArray[maxHitRawDataIndex];
+                HTCCCluster cluster = new HTCCCluster();
+                addHit(cluster, itheta, iphi, maxHitNumPhotoelectrons,
+                       timeArray[maxHitRawDataIndex] - reco.ring_time.getDoubleValue("offset", 0,0,itheta+1));
+                growCluster(cluster, remainingHits);
+                if (cluster.getNPheTot() >= reco.cluster_par.getDoubleValue("npheminclst", 0,0,0)
+                        && cluster.getNThetaClust() <= reco.cluster_par.getDoubleValue("nthetamaxclst", 0,0,0)
+                        && cluster.getNPhiClust() <= reco.cluster_par.getDoubleValue("nphimaxclst", 0,0,0)
+                        && cluster.getNHitClust() <= reco.cluster_par.getDoubleValue("nhitmaxclst", 0,0,0)) {
+                    return cluster;
+                }
+            }
+            return null;
+        }
+
+        private void findMaximumHit(List<Integer> remainingHits) {
+            maxHitNumPhotoelectrons = -100;
+            maxHitRemainingIndex = -100;
+            maxHitRawDataIndex = -100;
+            for (int hit = 0; hit < remainingHits.size(); ++hit) {
+                int hitIndex = remainingHits.get(hit);
+                double numPhotoElectrons = npheArray[hitIndex];
+                if (numPhotoElectrons >= reco.cluster_par.getDoubleValue("npheminmax", 0,0,0)
+                        && numPhotoElectrons > maxHitNumPhotoelectrons) {
+                    maxHitNumPhotoelectrons = numPhotoElectrons;
+                    maxHitRemainingIndex = hit;
+                    maxHitRawDataIndex = hitIndex;
+                }
+            }
+        }
+
+        private void growCluster(HTCCCluster cluster, List<Integer> remainingHits) {
+            double clusterTime = cluster.getTime();
+            for (int currHit = 0; currHit < cluster.getNHitClust(); ++currHit) {
+                int ithetaCurr = cluster.getHitITheta(currHit);
+                int iphiCurr = cluster.getHitIPhi(currHit);
+                int hit = 0;
+                while (hit < remainingHits.size()) {
+                    int testHit = remainingHits.get(hit);
+                    int ithetaTest = ithetaArray[testHit];
+                    int iphiTest = iphiArray[testHit];
+                    int ithetaDiff = Math.abs(ithetaTest - ithetaCurr);
+                    int iphiDiff = Math.min((12 + iphiTest - iphiCurr) % 12, (12 + iphiCurr - iphiTest) % 12);
+                    double time = timeArray[testHit] - reco.ring_time.getDoubleValue("offset", 0,0,ithetaTest+1);
+                    double timeDiff = Math.abs(time - clusterTime);
+                    if ((ithetaDiff == 1 || iphiDiff == 1)
+                            && (ithetaDiff + iphiDiff <= 2)
+                            && (timeDiff <= reco.cluster_par.getDoubleValue("maxtimediff", 0,0,0))) {
+                        remainingHits.remove(hit);
+                        addHit(cluster, ithetaTest, iphiTest, npheArray[testHit], time);
+                        clusterTime = cluster.getTime();
+                    } else {
+                        hit++;
+                    }
+                }
+            }
+        }
+
+        private void addHit(HTCCCluster cluster, int itheta, int iphi, double nphe, double time) {
+            IndexedTable geometry = reco.geometry;
+            double theta = Math.toRadians(geometry.getDoubleValue("theta0", 0,0,0)+2*geometry.getDoubleValue("dtheta", 0,0,0)*itheta);
+            double phi   = Math.toRadians(geometry.getDoubleValue("phi0", 0,0,0)  +2*geometry.getDoubleValue("dphi", 0,0,0)*iphi);
+            double dtheta = Math.toRadians(geometry.getDoubleValue("dtheta", 0,0,0));
+            double dphi   = Math.toRadians(geometry.getDoubleValue("dphi", 0,0,0));
+            cluster.addHit(itheta, iphi, nphe, time, theta, phi, dtheta, dphi);
+        }
+    }
+
+    private static IndexedTable table(String format) {
+        return new IndexedTable(3, format);
+    }
+
+    private static void set(IndexedTable table, String item, double value, int... index) {
+        if (!table.hasEntry(index)) table.addEntry(index);
+        table.setDoubleValue(value, item, index);
+    }
+
+    /**
+     * Constants of the 48 channels, with some channels off and the
+     * clustering parameters small enough for the cluster limits to matter.
+     */
+    private static HTCCReconstruction reconstruction(Random random) {
+        HTCCReconstruction reco = new HTCCReconstruction();
+        reco.gain = table("gain/D");
+        reco.time = table("shift/D");
+        reco.status = table("status/I");
+        reco.ring_time = table("offset/D");
+        reco.cluster_par = table("npheminhit/D:npheminmax/D:npheminclst/D:nthetamaxclst/D:nphimaxclst/D:nhitmaxclst/D:maxtimediff/D");
+        reco.geometry = table("theta0/D:dtheta/D:phi0/D:dphi/D");
+        for (int sector = 1; sector <= 6; sector++) {
+            for (int layer = 1; layer <= 2; layer++) {
+                for (int ring = 1; ring <= 4; ring++) {
+                    set(reco.gain, "gain", 100, sector, layer, ring);
+                    set(reco.time, "shift", random.nextDouble(), sector, layer, ring);
+                    reco.status.addEntry(sector, layer, ring);
+                    reco.status.setIntValue(random.nextInt(20) == 0 ? 1 : 0, "status", sector, layer, ring);
+                }
+            }
+        }
+        for (int ring = 1; ring <= 4; ring++) {
+            set(reco.ring_time, "offset", random.nextDouble(), 0, 0, ring);
+        }
+        set(reco.cluster_par, "npheminhit", 0.5, 0, 0, 0);
+        set(reco.cluster_par, "npheminmax", 2, 0, 0, 0);
+        set(reco.cluster_par, "npheminclst", 3, 0, 0, 0);
+        set(reco.cluster_par, "nthetamaxclst", 3, 0, 0, 0);
+        set(reco.cluster_par, "nphimaxclst", 3, 0, 0, 0);
+        set(reco.cluster_par, "nhitmaxclst", 6, 0, 0, 0);
+        set(reco.cluster_par, "maxtimediff", 2, 0, 0, 0);
+        set(reco.geometry, "theta0", 8.75, 0, 0, 0);
+        set(reco.geometry, "dtheta", 3.75, 0, 0, 0);
+        set(reco.geometry, "phi0", 15, 0, 0, 0);
+        set(reco.geometry, "dphi", 15, 0, 0, 0);
+        return reco;
+    }
+
+    private static String dump(DataEvent event) {
+        StringBuilder str = new StringBuilder();
+        if (!event.hasBank("HTCC::rec")) return str.toString();
+        DataBank bank = event.getBank("HTCC::rec");
+        for (int row = 0; row < bank.rows(); row++) {
+            for (String var : new String[]{"nhits", "ntheta", "nphi", "mintheta", "maxtheta", "minphi", "maxphi"}) {
+                str.append(bank.getShort(var, row)).append(' ');
+            }
+            for (String var : new String[]{"nphe", "time", "theta", "phi", "dtheta", "dphi", "x", "y", "z"}) {
+                str.append(bank.getFloat(var, row)).append(' ');
+            }
+            str.append('\n');
+        }
+        return str.toString();
+    }
+
+    @Test
+    public void testClusters() {
+        SchemaFactory factory = new SchemaFactory();
+        factory.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        Random random = new Random(21);
+        int nclusters = 0;
+        int nlarge = 0;
+        for (int k = 0; k < 2000; k++) {
+            HTCCReconstruction reco = reconstruction(random);
+            int n = random.nextInt(30);
+            int[] sector = new int[n];
+            int[] layer = new int[n];
+            int[] ring = new int[n];
+            int[] adc = new int[n];
+            float[] time = new float[n];
+            DataEvent event = new HipoDataEvent(new Event(), factory);
+            DataBank adcBank = event.createBank("HTCC::adc", n);
+            for (int i = 0; i < n; i++) {
+                sector[i] = 1 + random.nextInt(6);
+                layer[i] = 1 + random.nextInt(2);
+                ring[i] = 1 + random.nextInt(4);
+                // integer numbers of photoelectrons, for seeds with the same number:
+                adc[i] = 100 * random.nextInt(8);
+                time[i] = (float) (5 * random.nextDouble());
+                adcBank.setByte("sector", i, (byte) sector[i]);
+                adcBank.setByte("layer", i, (byte) layer[i]);
+                adcBank.setShort("component", i, (short) ring[i]);
+                adcBank.setByte("order", i, (byte) 0);
+                adcBank.setInt("ADC", i, adc[i]);
+                adcBank.setFloat("time", i, time[i]);
+            }
+            event.appendBank(adcBank);
+            reco.processEvent(event);
+
+            // the clusters of the old clustering, in the same bank format:
+            List<HTCCCluster> clusters = new Reference(reco, sector, layer, ring, adc, time).findClusters(sector, layer, ring);
+            DataEvent expected = new HipoDataEvent(new Event(), factory);
+            reco.fillBankResults(clusters, expected);
+            assertEquals(dump(expected), dump(event));
+
+            nclusters += clusters.size();
+            for (HTCCCluster cluster : clusters) {
+                if (cluster.getNHitClust() > 2) nlarge++;
+            }
+        }
+        assertTrue(nclusters > 1000);
+        assertTrue(nlarge > 100);
+    }
+}
@@ -76,8 +76,8 @@ public class TruthMatch extends ReconstructionEngine {
          * Now let's get True hits from the MC::True bank
          * ********************************************************
          */
-        // <Detector, <hitn, MCHit>>
-        Map<Byte, Map<Integer, MCHit>> mchits = getMCHits(event.getBank("MC::True"), mcp);
+        // [detector] <hitn, MCHit>
+        MCHitIndex[] mchits = getMCHits(event.getBank("MC::True"), mcp);
 
         /**
          * We need a conversion from trkID to the index of a track in the
@@ -95,59 +95,59 @@ public class TruthMatch extends ReconstructionEngine {
          * that the current cluster belongs to.
          */
         // <clID, List of RecHits> 
-        Map<Short, List<RecHit>> ecalHits = getECalHits(event, mchits.get((byte) DetectorType.ECAL.getDetectorId()), mcp, recp);
+        Map<Short, List<RecHit>> ecalHits = getECalHits(event, mchits[DetectorType.ECAL.getDetectorId()], mcp, recp);
         List<RecCluster> ecalClusters = getECalClusters(event);
 
         /**
          * Getting FT Hits and clusters
          */
-        Map< Short, List<RecHit>> ftCalHits = getFTCalHits(event, mchits.get((byte) DetectorType.FTCAL.getDetectorId()), mcp, recp);
+        Map< Short, List<RecHit>> ftCalHits = getFTCalHits(event, mchits[DetectorType.FTCAL.getDetectorId()], mcp, recp);
         List<RecCluster> ftCalClusters = getFTCalClusters(event);
 
-        Map< Short, List<RecHit>> ftHodoHits = getFTHodoHits(event, mchits.get((byte) DetectorType.FTHODO.getDetectorId()), mcp, recp);
+        Map< Short, List<RecHit>> ftHodoHits = getFTHodoHits(event, mchits[DetectorType.FTHODO.getDetectorId()], mcp, recp);
         List<RecCluster> ftHodoClusters = getFTHodoClusters(event);
 
         /**
          * Getting CND Hits and Clusters
          */
-        Map<Short, List<RecHit>> cndHits = getCNDHits(event, mchits.get((byte) DetectorType.CND.getDetectorId()), mcp, recp);
+        Map<Short, List<RecHit>> cndHits = getCNDHits(event, mchits[DetectorType.CND.getDetectorId()], mcp, recp);
         List<RecCluster> cndClusters = getCNDClusters(event);
 
         /**
          * Getting CTOF Hits and Clusters
          */
-        Map<Short, List<RecHit>> ctofHits = getCTOFHits(event, mchits.get((byte) DetectorType.CTOF.getDetectorId()), mcp, recp);
+        Map<Short, List<RecHit>> ctofHits = getCTOFHits(event, mchits[DetectorType.CTOF.getDetectorId()], mcp, recp);
         List<RecCluster> ctofClusters = getCTOFClusters(event);
 
         /**
          * Getting BST Hits and Clusters
          */
-        Map<Short, List<RecHit>> bstHits = getBSTHits(event, mchits.get((byte) DetectorType.BST.getDetectorId()), trkID2TrackIndex, mcp, recp);
+        Map<Short, List<RecHit>> bstHits = getBSTHits(event, mchits[DetectorType.BST.getDetectorId()], trkID2TrackIndex, mcp, recp);
         List<RecCluster> bstClusters = getBSTClusters(event, trkID2TrackIndex);
 
         /**
          * Getting BMT Hits and Clusters
          */
-        Map<Short, List<RecHit>> bmtHits = getBMTHits(event, mchits.get((byte) DetectorType.BMT.getDetectorId()), trkID2TrackIndex, mcp, recp);
+        Map<Short, List<RecHit>> bmtHits = getBMTHits(event, mchits[DetectorType.BMT.getDetectorId()], trkID2TrackIndex, mcp, recp);
         List<RecCluster> bmtClusters = getBMTClusters(event, trkID2TrackIndex);
 
         /**
          * Getting DC Hits and Clusters
          */
-        Map<Short, List<RecHit>> DCHits = getDCHits(event, mchits.get((byte) DetectorType.DC.getDetectorId()), mcp, recp);
+        Map<Short, List<RecHit>> DCHits = getDCHits(event, mchits[DetectorType.DC.getDetectorId()], mcp, recp);
         List<RecCluster> dcClusters = getDCClusters(event);
 
         /**
          * Matchingg clusters to MCParticles
          */
-        MatchClasters(ecalClusters, ecalHits, mchits.get((byte) DetectorType.ECAL.getDetectorId()));
-        MatchClasters(ftCalClusters, ftCalHits, mchits.get((byte) DetectorType.FTCAL.getDetectorId()));
-        MatchClasters(ftHodoClusters, ftHodoHits, mchits.get((byte) DetectorType.FTHODO.getDetectorId()));
-        MatchClasters(cndClusters, cndHits, mchits.get((byte) DetectorType.CND.getDetectorId()));
-        MatchClasters(ctofClusters, ctofHits, mchits.get((byte) DetectorType.CTOF.getDetectorId()));
-        MatchClasters(bstClusters, bstHits, mchits.get((byte) DetectorType.BST.getDetectorId()));
-        MatchClasters(bmtClusters, bmtHits, mchits.get((byte) DetectorType.BMT.getDetectorId()));
-        MatchClasters(dcClusters, DCHits, mchits.get((byte) DetectorType.DC.getDetectorId()));
+        MatchClasters(ecalClusters, ecalHits, mchits[DetectorType.ECAL.getDetectorId()]);
+        MatchClasters(ftCalClusters, ftCalHits, mchits[DetectorType.FTCAL.getDetectorId()]);
+        MatchClasters(ftHodoClusters, ftHodoHits, mchits[DetectorType.FTHODO.getDetectorId()]);
+        MatchClasters(cndClusters, cndHits, mchits[DetectorType.CND.getDetectorId()]);
+        MatchClasters(ctofClusters, ctofHits, mchits[DetectorType.CTOF.getDetectorId()]);
+        MatchClasters(bstClusters, bstHits, mchits[DetectorType.BST.getDetectorId()]);
+        MatchClasters(bmtClusters, bmtHits, mchits[DetectorType.BMT.getDetectorId()]);
+        MatchClasters(dcClusters, DCHits, mchits[DetectorType.DC.getDetectorId()]);
 
         /**
          * Adding all clusters together
@@ -314,6 +314,30 @@ public class TruthMatch extends ReconstructionEngine {
         }
     }
 
+// MC hits of one detector, indexed by hitn
+    class MCHitIndex {
+
+        private MCHit[] hits = new MCHit[64];
+
+        public void put(MCHit hit) {
+            if (hit.hitn < 0) {
+                return;
+            }
+            if (hit.hitn >= hits.length) {
+                hits = Arrays.copyOf(hits, Math.max(2 * hits.length, hit.hitn + 1));
+            }
+            hits[hit.hitn] = hit;
+        }
+
+        public boolean containsKey(int hitn) {
+            return hitn >= 0 && hitn < hits.length && hits[hitn] != null;
+        }
+
+        public MCHit get(int hitn) {
+            return containsKey(hitn) ? hits[hitn] : null;
+        }
+    }
+
 // RecHit object
     class RecHit {
 
@@ -412,6 +436,8 @@ public class TruthMatch extends ReconstructionEngine {
     private final int CTOFID = 4;
     private final int FTCALID = 10;
 
+    static final short NO_PINDEX = Short.MIN_VALUE;
+
     private final int PHOTON_ID = 22;
     private final int NEUTRON_ID = 2112;
 
@@ -501,12 +527,12 @@ public class TruthMatch extends ReconstructionEngine {
         return recp;
     }
 
-    Map<Byte, Map<Integer, MCHit>> getMCHits(DataBank mctrue, Map<Short, MCPart> mcp) {
+    MCHitIndex[] getMCHits(DataBank mctrue, Map<Short, MCPart> mcp) {
 
         /**
          * TODO: The 2nd argument is not needed anymore, should be cleaned up
          */
-        Map<Byte, Map<Integer, MCHit>> dmchits = new HashMap<>();
+        MCHitIndex[] dmchits = new MCHitIndex[Byte.MAX_VALUE + 1];
 
         for (int i = 0; i < mctrue.rows(); i++) {
             MCHit hit = new MCHit();
@@ -548,10 +574,13 @@ public class TruthMatch extends ReconstructionEngine {
              * studies... if( mcp.get( (short) tid ) == null && mcp.get( (short)
              * mtid ) == null ) continue;
              */
-            if (dmchits.get(hit.detector) == null) {
-                dmchits.put(hit.detector, new HashMap<>());
+            if (hit.detector < 0) {
+                continue;
             }
-            dmchits.get(hit.detector).put(hit.hitn, hit);
+            if (dmchits[hit.detector] == null) {
+                dmchits[hit.detector] = new MCHitIndex();
+            }
+            dmchits[hit.detector].put(hit);
 
         }
         return dmchits;
@@ -569,29 +598,70 @@ public class TruthMatch extends ReconstructionEngine {
             return trkID2TrInd;
         }
         
-        
-        Map<Short, Integer> trkID2Index = new HashMap<>();
+        /**
+         * ID of the track in each row of CVTRec::Tracks, the last row wins if
+         * an ID is repeated
+         */
         DataBank CVTtrkBank = event.getBank("CVTRec::Tracks");
+        Map<Short, Integer> trkID2Index = new HashMap<>();
         for( int icvtTr = 0; icvtTr < CVTtrkBank.rows(); icvtTr++ ){
-            Short ID = CVTtrkBank.getShort("ID", icvtTr);
-            trkID2Index.put(ID, icvtTr);
+            trkID2Index.put(CVTtrkBank.getShort("ID", icvtTr), icvtTr);
+        }
+        int[] index2trkID = new int[CVTtrkBank.rows()];
+        Arrays.fill(index2trkID, Integer.MIN_VALUE);
+        for( Map.Entry<Short, Integer> entry : trkID2Index.entrySet() ){
+            index2trkID[entry.getValue()] = entry.getKey();
         }
         
         DataBank trkBank = event.getBank("REC::Track");
         for( int itr = 0; itr < trkBank.rows(); itr++ ){
-            Short index = trkBank.getShort("index", itr);
-            
-            for( Map.Entry<Short, Integer> entry : trkID2Index.entrySet() ){
-               if( (int)entry.getValue() == index ){
-                   trkID2TrInd.put( (int)entry.getKey(), itr );
-               }
+            int index = trkBank.getShort("index", itr);
+            if( index >= 0 && index < index2trkID.length && index2trkID[index] != Integer.MIN_VALUE ){
+                trkID2TrInd.put( index2trkID[index], itr );
             }
-            
         }
         
         return trkID2TrInd;
     }
 
+    /**
+     *
+     * @param response detector response bank, e.g. REC::Calorimeter
+     * @param detector detector id of the rows to use, -1 for all rows
+     * @return pindex for each cluster index of the detector, NO_PINDEX if the
+     * cluster is not associated to a particle
+     */
+    short[] getClusterPindex(DataBank response, int detector) {
+        int size = 0;
+        for (int irow = 0; irow < response.rows(); irow++) {
+            size = Math.max(size, response.getShort("index", irow) + 1);
+        }
+        short[] clId2Pindex = new short[size];
+        Arrays.fill(clId2Pindex, NO_PINDEX);
+        for (int irow = 0; irow < response.rows(); irow++) {
+            if (detector >= 0 && response.getByte("detector", irow) != (byte) detector) {
+                continue;
+            }
+            short index = response.getShort("index", irow);
+            if (index >= 0) {
+                clId2Pindex[index] = response.getShort("pindex", irow);
+            }
+        }
+        return clId2Pindex;
+    }
+
+    static short getPindex(short[] clId2Pindex, short cid) {
+        return cid >= 0 && cid < clId2Pindex.length ? clId2Pindex[cid] : NO_PINDEX;
+    }
+
+    /**
+     * Adds layer bits to the word of the given particle in a map of layer
+     * words
+     */
+    static void addLayerBits(Map<Integer, Long> layers, int key, long bits) {
+        layers.merge(key, bits, (a, b) -> a | b);
+    }
+
     /**
      *
      * @param event DataEvent
@@ -599,7 +669,7 @@ public class TruthMatch extends ReconstructionEngine {
      * @return Map<clusterID, List<RecHit>>, Map, where the Key is the
      * clusterID, and the value is a list of hits having the same clusterID
      */
-    Map< Short, List<RecHit>> getECalHits(DataEvent event, Map<Integer, MCHit> mchitsInECal, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getECalHits(DataEvent event, MCHitIndex mchitsInECal, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
 
         /**
          * We need two banks to be present in the event: ECAL::hits and
@@ -632,16 +702,7 @@ public class TruthMatch extends ReconstructionEngine {
             return null;
         }
 
-        Map<Short, Short> clId2Pindex = new HashMap<>();
-        DataBank RecCalBank = event.getBank("REC::Calorimeter");
-
-        for (int ical = 0; ical < RecCalBank.rows(); ical++) {
-
-            Short pindex = RecCalBank.getShort("pindex", ical);
-            Short index = RecCalBank.getShort("index", ical);
-
-            clId2Pindex.put(index, pindex);
-        }
+        short[] clId2Pindex = getClusterPindex(event.getBank("REC::Calorimeter"), -1);
 
         DataBank adcBank = event.getBank("ECAL::adc");
         DataBank hitsBank = event.getBank("ECAL::hits");
@@ -666,28 +727,16 @@ public class TruthMatch extends ReconstructionEngine {
             if (curHit.cid == -2 || !mchitsInECal.containsKey(curHit.id)) {
                 continue; // The hit is not part of any cluster, or the hit it's corresponding MC hit is ignored
             }
-            curHit.pindex = clId2Pindex.get(curHit.cid);
+            curHit.pindex = getPindex(clId2Pindex, curHit.cid);
             curHit.detector = (byte) DetectorType.ECAL.getDetectorId();
 
             if (curHit.pindex >= 0) {
 
                 recp.get(curHit.pindex).RecLayersNeut |= 1L << ECalLayerBit;
 
-                if (!recp.get(curHit.pindex).MCLayersNeut.containsKey(mchitsInECal.get(curHit.id).otid)) {
-                    recp.get(curHit.pindex).MCLayersNeut.put(mchitsInECal.get(curHit.id).otid, 0L);
-                }
-
-                Long tmpMCWord = recp.get(curHit.pindex).MCLayersNeut.get(mchitsInECal.get(curHit.id).otid);
-                tmpMCWord |= 1L << ECalLayerBit;
-                recp.get(curHit.pindex).MCLayersNeut.put(mchitsInECal.get(curHit.id).otid, tmpMCWord);
-
-                if (!mcp.get((short) mchitsInECal.get(curHit.id).otid).RecLayersNeut.containsKey((int) curHit.pindex)) {
-                    mcp.get((short) mchitsInECal.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, 0L);
-                }
+                addLayerBits(recp.get(curHit.pindex).MCLayersNeut, mchitsInECal.get(curHit.id).otid, 1L << ECalLayerBit);
 
-                Long tmp = mcp.get((short) mchitsInECal.get(curHit.id).otid).RecLayersNeut.get((int) curHit.pindex);
-                tmp |= 1L << ECalLayerBit;
-                mcp.get((short) mchitsInECal.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, tmp);
+                addLayerBits(mcp.get((short) mchitsInECal.get(curHit.id).otid).RecLayersNeut, (int) curHit.pindex, 1L << ECalLayerBit);
             }
 
             if (recHits.get(curHit.cid) == null) {
@@ -700,7 +749,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getFTCalHits(DataEvent event, Map<Integer, MCHit> mchitsInFTCal, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getFTCalHits(DataEvent event, MCHitIndex mchitsInFTCal, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
         if (mchitsInFTCal == null) {
@@ -726,19 +775,7 @@ public class TruthMatch extends ReconstructionEngine {
             return null;
         }
 
-        Map<Short, Short> clId2Pindex = new HashMap<>();
-        DataBank RecFTBank = event.getBank("REC::ForwardTagger");
-
-        for (int iFT = 0; iFT < RecFTBank.rows(); iFT++) {
-
-            Short pindex = RecFTBank.getShort("pindex", iFT);
-            Short index = RecFTBank.getShort("index", iFT);
-            Byte detector = RecFTBank.getByte("detector", iFT);
-
-            if (detector == (byte) DetectorType.FTCAL.getDetectorId()) {
-                clId2Pindex.put(index, pindex);
-            }
-        }
+        short[] clId2Pindex = getClusterPindex(event.getBank("REC::ForwardTagger"), DetectorType.FTCAL.getDetectorId());
 
         DataBank adcBank = event.getBank("FTCAL::adc");
         DataBank hitsBank = event.getBank("FTCAL::hits");
@@ -765,11 +802,11 @@ public class TruthMatch extends ReconstructionEngine {
              * particle, that is why we will check, if the clId2Pindex contains
              * the given cluster
              */
-            if (!clId2Pindex.containsKey(curHit.cid)) {
+            if (getPindex(clId2Pindex, curHit.cid) == NO_PINDEX) {
                 continue;
             }
 
-            curHit.pindex = clId2Pindex.get(curHit.cid);
+            curHit.pindex = getPindex(clId2Pindex, curHit.cid);
             //curHit.detector = (byte) DetectorType.ECAL.getDetectorId(); // Seems Wrong 10/03/2020, Should be looked at
             curHit.detector = (byte) DetectorType.FTCAL.getDetectorId();
 
@@ -778,21 +815,9 @@ public class TruthMatch extends ReconstructionEngine {
 
                 recp.get(curHit.pindex).RecLayersNeut |= 1L << FTCalBit;
 
-                if (!recp.get(curHit.pindex).MCLayersNeut.containsKey(mchitsInFTCal.get(curHit.id).otid)) {
-                    recp.get(curHit.pindex).MCLayersNeut.put(mchitsInFTCal.get(curHit.id).otid, 0L);
-                }
-
-                Long tmpMCWord = recp.get(curHit.pindex).MCLayersNeut.get(mchitsInFTCal.get(curHit.id).otid);
-                tmpMCWord |= 1L << FTCalBit;
-                recp.get(curHit.pindex).MCLayersNeut.put(mchitsInFTCal.get(curHit.id).otid, tmpMCWord);
+                addLayerBits(recp.get(curHit.pindex).MCLayersNeut, mchitsInFTCal.get(curHit.id).otid, 1L << FTCalBit);
 
-                if (!mcp.get((short) mchitsInFTCal.get(curHit.id).otid).RecLayersNeut.containsKey((int) curHit.pindex)) {
-                    mcp.get((short) mchitsInFTCal.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, 0L);
-                }
-
-                Long tmp = mcp.get((short) mchitsInFTCal.get(curHit.id).otid).RecLayersNeut.get((int) curHit.pindex);
-                tmp |= 1L << FTCalBit;
-                mcp.get((short) mchitsInFTCal.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, tmp);
+                addLayerBits(mcp.get((short) mchitsInFTCal.get(curHit.id).otid).RecLayersNeut, (int) curHit.pindex, 1L << FTCalBit);
             }
 
             if (recHits.get(curHit.cid) == null) {
@@ -805,7 +830,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getFTHodoHits(DataEvent event, Map<Integer, MCHit> mchitsInFTHodo, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getFTHodoHits(DataEvent event, MCHitIndex mchitsInFTHodo, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
         if (mchitsInFTHodo == null) {
@@ -830,19 +855,7 @@ public class TruthMatch extends ReconstructionEngine {
             return null;
         }
 
-        Map<Short, Short> clId2Pindex = new HashMap<>();
-        DataBank RecFTBank = event.getBank("REC::ForwardTagger");
-
-        for (int iFT = 0; iFT < RecFTBank.rows(); iFT++) {
-
-            Short pindex = RecFTBank.getShort("pindex", iFT);
-            Short index = RecFTBank.getShort("index", iFT);
-            Byte detector = RecFTBank.getByte("detector", iFT);
-
-            if (detector == (byte) DetectorType.FTHODO.getDetectorId()) {
-                clId2Pindex.put(index, pindex);
-            }
-        }
+        short[] clId2Pindex = getClusterPindex(event.getBank("REC::ForwardTagger"), DetectorType.FTHODO.getDetectorId());
 
         DataBank adcBank = event.getBank("FTHODO::adc");
         DataBank hitsBank = event.getBank("FTHODO::hits");
@@ -872,11 +885,11 @@ public class TruthMatch extends ReconstructionEngine {
              * particle, that is why we will check, if the clId2Pindex contains
              * the given cluster
              */
-            if (!clId2Pindex.containsKey(curHit.cid)) {
+            if (getPindex(clId2Pindex, curHit.cid) == NO_PINDEX) {
                 continue;
             }
 
-            curHit.pindex = clId2Pindex.get(curHit.cid);
+            curHit.pindex = getPindex(clId2Pindex, curHit.cid);
             //curHit.detector = (byte) DetectorType.ECAL.getDetectorId(); // Seems Wrong 10/03/2020, Should be looked at
             curHit.detector = (byte) DetectorType.FTHODO.getDetectorId();
 
@@ -885,21 +898,9 @@ public class TruthMatch extends ReconstructionEngine {
 
                 recp.get(curHit.pindex).RecLayersNeut |= 1L << HodoLayerBit;
 
-                if (!recp.get(curHit.pindex).MCLayersNeut.containsKey(mchitsInFTHodo.get(curHit.id).otid)) {
-                    recp.get(curHit.pindex).MCLayersNeut.put(mchitsInFTHodo.get(curHit.id).otid, 0L);
-                }
+                addLayerBits(recp.get(curHit.pindex).MCLayersNeut, mchitsInFTHodo.get(curHit.id).otid, 1L << HodoLayerBit);
 
-                Long tmpMCWord = recp.get(curHit.pindex).MCLayersNeut.get(mchitsInFTHodo.get(curHit.id).otid);
-                tmpMCWord |= 1L << HodoLayerBit;
-                recp.get(curHit.pindex).MCLayersNeut.put(mchitsInFTHodo.get(curHit.id).otid, tmpMCWord);
-
-                if (!mcp.get((short) mchitsInFTHodo.get(curHit.id).otid).RecLayersNeut.containsKey((int) curHit.pindex)) {
-                    mcp.get((short) mchitsInFTHodo.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, 0L);
-                }
-
-                Long tmp = mcp.get((short) mchitsInFTHodo.get(curHit.id).otid).RecLayersNeut.get((int) curHit.pindex);
-                tmp |= 1L << HodoLayerBit;
-                mcp.get((short) mchitsInFTHodo.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, tmp);
+                addLayerBits(mcp.get((short) mchitsInFTHodo.get(curHit.id).otid).RecLayersNeut, (int) curHit.pindex, 1L << HodoLayerBit);
             }
 
             if (recHits.get(curHit.cid) == null) {
@@ -912,7 +913,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getCNDHits(DataEvent event, Map<Integer, MCHit> mchitsInCND, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getCNDHits(DataEvent event, MCHitIndex mchitsInCND, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
         if (mchitsInCND == null) {
@@ -933,21 +934,7 @@ public class TruthMatch extends ReconstructionEngine {
             return null;
         }
 
-        Map<Short, Short> clId2Pindex = new HashMap<>();
-        DataBank RecScintil = event.getBank("REC::Scintillator");
-
-        for (int iSC = 0; iSC < RecScintil.rows(); iSC++) {
-
-            // Rec scintillator has different detectors in it, so we want only CND responces in this case
-            if (RecScintil.getByte("detector", iSC) != (byte) DetectorType.CND.getDetectorId()) {
-                continue;
-            }
-
-            Short pindex = RecScintil.getShort("pindex", iSC);
-            Short index = RecScintil.getShort("index", iSC);
-
-            clId2Pindex.put(index, pindex);
-        }
+        short[] clId2Pindex = getClusterPindex(event.getBank("REC::Scintillator"), DetectorType.CND.getDetectorId());
 
         DataBank tdcBank = event.getBank("CND::tdc");
         DataBank hitsBank = event.getBank("CND::hits");
@@ -978,27 +965,15 @@ public class TruthMatch extends ReconstructionEngine {
                 continue; // The hit is not part of any cluster, or the hit it's corresponding MC hit is ignored
             }
 
-            curHit.pindex = clId2Pindex.get(curHit.cid);
+            curHit.pindex = getPindex(clId2Pindex, curHit.cid);
             curHit.detector = (byte) DetectorType.CND.getDetectorId();
 
             if (curHit.pindex >= 0) {
                 recp.get(curHit.pindex).RecLayersNeut |= 1L << CNDLayerBit;
 
-                if (!recp.get(curHit.pindex).MCLayersNeut.containsKey(mchitsInCND.get(curHit.id).otid)) {
-                    recp.get(curHit.pindex).MCLayersNeut.put(mchitsInCND.get(curHit.id).otid, 0L);
-                }
-
-                Long tmpMCWord = recp.get(curHit.pindex).MCLayersNeut.get(mchitsInCND.get(curHit.id).otid);
-                tmpMCWord |= 1L << CNDLayerBit;
-                recp.get(curHit.pindex).MCLayersNeut.put(mchitsInCND.get(curHit.id).otid, tmpMCWord);
+                addLayerBits(recp.get(curHit.pindex).MCLayersNeut, mchitsInCND.get(curHit.id).otid, 1L << CNDLayerBit);
 
-                if (!mcp.get((short) mchitsInCND.get(curHit.id).otid).RecLayersNeut.containsKey((int) curHit.pindex)) {
-                    mcp.get((short) mchitsInCND.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, 0L);
-                }
-
-                Long tmp = mcp.get((short) mchitsInCND.get(curHit.id).otid).RecLayersNeut.get((int) curHit.pindex);
-                tmp |= 1L << CNDLayerBit;
-                mcp.get((short) mchitsInCND.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, tmp);
+                addLayerBits(mcp.get((short) mchitsInCND.get(curHit.id).otid).RecLayersNeut, (int) curHit.pindex, 1L << CNDLayerBit);
 
             }
 
@@ -1013,7 +988,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getCTOFHits(DataEvent event, Map<Integer, MCHit> mchitsInCTOF, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getCTOFHits(DataEvent event, MCHitIndex mchitsInCTOF, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
         if (mchitsInCTOF == null) {
@@ -1033,21 +1008,7 @@ public class TruthMatch extends ReconstructionEngine {
             return null;
         }
 
-        Map<Short, Short> clId2Pindex = new HashMap<>();
-        DataBank RecScintil = event.getBank("REC::Scintillator");
-
-        for (int iSC = 0; iSC < RecScintil.rows(); iSC++) {
-
-            // Rec scintillator has different detectors in it, so we want only CTOF responces in this case
-            if (RecScintil.getByte("detector", iSC) != (byte) DetectorType.CTOF.getDetectorId()) {
-                continue;
-            }
-
-            Short pindex = RecScintil.getShort("pindex", iSC);
-            Short index = RecScintil.getShort("index", iSC);
-
-            clId2Pindex.put(index, pindex);
-        }
+        short[] clId2Pindex = getClusterPindex(event.getBank("REC::Scintillator"), DetectorType.CTOF.getDetectorId());
 
         DataBank hitsBank = event.getBank("CTOF::hits");
         DataBank tdcBank = event.getBank("CTOF::tdc");
@@ -1069,28 +1030,16 @@ public class TruthMatch extends ReconstructionEngine {
                 continue; // The hit is not part of any cluster, or the hit it's corresponding MC hit is ignored
             }
 
-            curHit.pindex = clId2Pindex.get(curHit.cid);
+            curHit.pindex = getPindex(clId2Pindex, curHit.cid);
             curHit.detector = (byte) DetectorType.CTOF.getDetectorId();
 
             if (curHit.pindex >= 0) {
 
                 recp.get(curHit.pindex).RecLayersNeut |= 1L << CTOFBit;
 
-                if (!recp.get(curHit.pindex).MCLayersNeut.containsKey(mchitsInCTOF.get(curHit.id).otid)) {
-                    recp.get(curHit.pindex).MCLayersNeut.put(mchitsInCTOF.get(curHit.id).otid, 0L);
-                }
-
-                Long tmpMCWord = recp.get(curHit.pindex).MCLayersNeut.get(mchitsInCTOF.get(curHit.id).otid);
-                tmpMCWord |= 1L << CTOFBit;
-                recp.get(curHit.pindex).MCLayersNeut.put(mchitsInCTOF.get(curHit.id).otid, tmpMCWord);
-
-                if (!mcp.get((short) mchitsInCTOF.get(curHit.id).otid).RecLayersNeut.containsKey((int) curHit.pindex)) {
-                    mcp.get((short) mchitsInCTOF.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, 0L);
-                }
+                addLayerBits(recp.get(curHit.pindex).MCLayersNeut, mchitsInCTOF.get(curHit.id).otid, 1L << CTOFBit);
 
-                Long tmp = mcp.get((short) mchitsInCTOF.get(curHit.id).otid).RecLayersNeut.get((int) curHit.pindex);
-                tmp |= 1L << CTOFBit;
-                mcp.get((short) mchitsInCTOF.get(curHit.id).otid).RecLayersNeut.put((int) curHit.pindex, tmp);
+                addLayerBits(mcp.get((short) mchitsInCTOF.get(curHit.id).otid).RecLayersNeut, (int) curHit.pindex, 1L << CTOFBit);
             }
 
             if (recHits.get(curHit.cid) == null) {
@@ -1103,7 +1052,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getBSTHits(DataEvent event, Map<Integer, MCHit> mchitsInBST, Map<Integer, Integer> trkID2Index, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getBSTHits(DataEvent event, MCHitIndex mchitsInBST, Map<Integer, Integer> trkID2Index, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
 
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
@@ -1158,21 +1107,9 @@ public class TruthMatch extends ReconstructionEngine {
 
                     recp.get(pindex).RecLayersTrk |= 1L << layerBit;
 
-                    if (!recp.get(pindex).MCLayersTrk.containsKey(mchitsInBST.get(hitID).otid)) {
-                        recp.get(pindex).MCLayersTrk.put(mchitsInBST.get(hitID).otid, 0L);
-                    }
-
-                    Long tmpMCWord = recp.get(pindex).MCLayersTrk.get(mchitsInBST.get(hitID).otid);
-                    tmpMCWord |= 1L << layerBit;
-                    recp.get(pindex).MCLayersTrk.put(mchitsInBST.get(hitID).otid, tmpMCWord);
-
-                    if (!mcp.get((short) mchitsInBST.get(hitID).otid).RecLayersTrk.containsKey((int) pindex)) {
-                        mcp.get((short) mchitsInBST.get(hitID).otid).RecLayersTrk.put((int) pindex, 0L);
-                    }
+                    addLayerBits(recp.get(pindex).MCLayersTrk, mchitsInBST.get(hitID).otid, 1L << layerBit);
 
-                    Long tmp = mcp.get((short) mchitsInBST.get(hitID).otid).RecLayersTrk.get((int) pindex);
-                    tmp |= 1L << layerBit;
-                    mcp.get((short) mchitsInBST.get(hitID).otid).RecLayersTrk.put((int) pindex, tmp);
+                    addLayerBits(mcp.get((short) mchitsInBST.get(hitID).otid).RecLayersTrk, (int) pindex, 1L << layerBit);
                 }
                 if (!mchitsInBST.containsKey(hitID)) {
                     // We need only hits that correspond to an MCHit
@@ -1199,7 +1136,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getBMTHits(DataEvent event, Map<Integer, MCHit> mchitsInBMT, Map<Integer, Integer> trkID2Index, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getBMTHits(DataEvent event, MCHitIndex mchitsInBMT, Map<Integer, Integer> trkID2Index, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
         if( mchitsInBMT == null) {
@@ -1248,21 +1185,9 @@ public class TruthMatch extends ReconstructionEngine {
 
                     recp.get(pindex).RecLayersTrk |= 1L << layerBit;
 
-                    if (!recp.get(pindex).MCLayersTrk.containsKey(mchitsInBMT.get(hitID).otid)) {
-                        recp.get(pindex).MCLayersTrk.put(mchitsInBMT.get(hitID).otid, 0L);
-                    }
-
-                    Long tmpMCWord = recp.get(pindex).MCLayersTrk.get(mchitsInBMT.get(hitID).otid);
-                    tmpMCWord |= 1L << layerBit;
-                    recp.get(pindex).MCLayersTrk.put(mchitsInBMT.get(hitID).otid, tmpMCWord);
+                    addLayerBits(recp.get(pindex).MCLayersTrk, mchitsInBMT.get(hitID).otid, 1L << layerBit);
 
-                    if (!mcp.get((short) mchitsInBMT.get(hitID).otid).RecLayersTrk.containsKey((int) pindex)) {
-                        mcp.get((short) mchitsInBMT.get(hitID).otid).RecLayersTrk.put((int) pindex, 0L);
-                    }
-
-                    Long tmp = mcp.get((short) mchitsInBMT.get(hitID).otid).RecLayersTrk.get((int) pindex);
-                    tmp |= 1L << layerBit;
-                    mcp.get((short) mchitsInBMT.get(hitID).otid).RecLayersTrk.put((int) pindex, tmp);
+                    addLayerBits(mcp.get((short) mchitsInBMT.get(hitID).otid).RecLayersTrk, (int) pindex, 1L << layerBit);
                 }
 
                 if (!mchitsInBMT.containsKey(hitID)) {
@@ -1293,7 +1218,7 @@ public class TruthMatch extends ReconstructionEngine {
         return recHits;
     }
 
-    Map< Short, List<RecHit>> getDCHits(DataEvent event, Map<Integer, MCHit> mchitsInDC, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
+    Map< Short, List<RecHit>> getDCHits(DataEvent event, MCHitIndex mchitsInDC, Map<Short, MCPart> mcp, Map<Short, RecPart> recp) {
         Map< Short, List<RecHit>> recHits = new HashMap<>();
 
         /**
@@ -1315,21 +1240,28 @@ public class TruthMatch extends ReconstructionEngine {
          * part of any track
          */
         //List<Integer> tbHitIDs = new ArrayList<>();
-        Map<Short, Short> tbTrkID2RecTrInd = new HashMap();
+        short[] tbTrkID2RecTrInd = new short[Byte.MAX_VALUE + 1];
+        Arrays.fill(tbTrkID2RecTrInd, (short) -1);
         for (short iRec = 0; iRec < trkBank.rows(); iRec++) {
-            Byte det = trkBank.getByte("detector", iRec);
-            Short index = trkBank.getShort("index", iRec);
+            byte det = trkBank.getByte("detector", iRec);
+            short index = trkBank.getShort("index", iRec);
 
             if (det == DetectorType.DC.getDetectorId()) {
-                tbTrkID2RecTrInd.put(tbtrkBank.getShort("id", index), iRec);
+                short id = tbtrkBank.getShort("id", index);
+                if (id >= 0 && id < tbTrkID2RecTrInd.length) {
+                    tbTrkID2RecTrInd[id] = iRec;
+                }
             }
         }
 
-        Map<Integer, Short> tbHitIDs = new HashMap<>();
+        // REC::Track index of the track of each DC::tdc hit, -1 if none
+        short[] tbHitIDs = new short[tdcBank.rows()];
+        Arrays.fill(tbHitIDs, (short) -1);
         for (int itbHit = 0; itbHit < tbHitsBank.rows(); itbHit++) {
-
-            if (tbTrkID2RecTrInd.containsKey((short) tbHitsBank.getByte("trkID", itbHit))) {
-                tbHitIDs.put(tbHitsBank.getInt("id", itbHit) - 1, (short) tbTrkID2RecTrInd.get((short) tbHitsBank.getByte("trkID", itbHit)));
+            byte trkID = tbHitsBank.getByte("trkID", itbHit);
+            int hitID = tbHitsBank.getInt("id", itbHit) - 1;
+            if (trkID >= 0 && tbTrkID2RecTrInd[trkID] >= 0 && hitID >= 0 && hitID < tbHitIDs.length) {
+                tbHitIDs[hitID] = tbTrkID2RecTrInd[trkID];
             }
         }
 
@@ -1353,10 +1285,10 @@ public class TruthMatch extends ReconstructionEngine {
             curHit.detector = (byte) DetectorType.DC.getDetectorId();
             curHit.cid = (short) iHit;
 
-            if (tbHitIDs.containsKey(curHit.id)) {
-                //System.out.println("======== siz of trkBanks is " + trkBank.rows() + "  hitid is " + curHit.id + "   tbHitIDs.get(curHit.id) is " + tbHitIDs.get(curHit.id) + "   the Pindex is " + trkBank.getShort("pindex", tbHitIDs.get(curHit.id)));
+            if (tbHitIDs[curHit.id] >= 0) {
+                //System.out.println("======== siz of trkBanks is " + trkBank.rows() + "  hitid is " + curHit.id + "   tbHitIDs[curHit.id] is " + tbHitIDs[curHit.id] + "   the Pindex is " + trkBank.getShort("pindex", tbHitIDs[curHit.id]));
 
-                curHit.pindex = trkBank.getShort("pindex", tbHitIDs.get(curHit.id));
+                curHit.pindex = trkBank.getShort("pindex", tbHitIDs[curHit.id]);
                 //System.out.println( "iHit = " + iHit + "   pindex = " + curHit.pindex);
             } else {
                 curHit.pindex = -1;
@@ -1369,21 +1301,9 @@ public class TruthMatch extends ReconstructionEngine {
                 //System.out.println("N_Rec_Part = " + recp.size() + "    pindex = " + curHit.pindex);
                 recp.get(curHit.pindex).RecLayersTrk |= 1L << layerBit;
 
-                if (!recp.get(curHit.pindex).MCLayersTrk.containsKey(mchitsInDC.get(curHit.id).otid)) {
-                    recp.get(curHit.pindex).MCLayersTrk.put(mchitsInDC.get(curHit.id).otid, 0L);
-                }
-
-                Long tmpMCWord = recp.get(curHit.pindex).MCLayersTrk.get(mchitsInDC.get(curHit.id).otid);
-                tmpMCWord |= 1L << layerBit;
-                recp.get(curHit.pindex).MCLayersTrk.put(mchitsInDC.get(curHit.id).otid, tmpMCWord);
-
-                if (!mcp.get((short) mchitsInDC.get(curHit.id).otid).RecLayersTrk.containsKey((int) curHit.pindex)) {
-                    mcp.get((short) mchitsInDC.get(curHit.id).otid).RecLayersTrk.put((int) curHit.pindex, 0L);
-                }
+                addLayerBits(recp.get(curHit.pindex).MCLayersTrk, mchitsInDC.get(curHit.id).otid, 1L << layerBit);
 
-                Long tmp = mcp.get((short) mchitsInDC.get(curHit.id).otid).RecLayersTrk.get((int) curHit.pindex);
-                tmp |= 1L << layerBit;
-                mcp.get((short) mchitsInDC.get(curHit.id).otid).RecLayersTrk.put((int) curHit.pindex, tmp);
+                addLayerBits(mcp.get((short) mchitsInDC.get(curHit.id).otid).RecLayersTrk, (int) curHit.pindex, 1L << layerBit);
             }
 
             recHits.put(curHit.cid, new ArrayList<>());
@@ -1739,7 +1659,7 @@ public class TruthMatch extends ReconstructionEngine {
      * @param mchits : Map<hitn, mchit>, map of mc hits, where the Key is the
      * "hitn"
      */
-    void MatchClasters(List<RecCluster> cls, Map< Short, List<RecHit>> Rechits_a, Map<Integer, MCHit> mchits) {
+    void MatchClasters(List<RecCluster> cls, Map< Short, List<RecHit>> Rechits_a, MCHitIndex mchits) {
 
         if (cls == null) {
             return;
@@ -0,0 +1,89 @@
+package org.jlab.service.mc;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.jlab.detector.base.DetectorType;
+import org.jlab.io.base.DataBank;
+import org.jlab.io.base.DataEvent;
+import org.jlab.io.hipo.HipoDataEvent;
+import org.jlab.jnp.hipo4.data.Event;
+import org.jlab.jnp.hipo4.data.SchemaFactory;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TruthMatchTest {
+
+    private static SchemaFactory factory() {
+        SchemaFactory factory = new SchemaFactory();
+        factory.initFromDirectory(new File("../../etc/bankdefs/hipo4").getAbsolutePath());
+        return factory;
+    }
+
+    @Test
+    public void testClusterPindex() {
+        SchemaFactory factory = factory();
+        TruthMatch engine = new TruthMatch();
+        Random random = new Random(5);
+        int[] detectors = {DetectorType.FTCAL.getDetectorId(), DetectorType.FTHODO.getDetectorId()};
+        for (int k = 0; k < 500; k++) {
+            DataEvent event = new HipoDataEvent(new Event(), factory);
+            DataBank bank = event.createBank("REC::ForwardTagger", random.nextInt(20));
+            for (int row = 0; row < bank.rows(); row++) {
+                bank.setShort("index", row, (short) random.nextInt(15));
+                bank.setShort("pindex", row, (short) random.nextInt(30));
+                bank.setByte("detector", row, (byte) detectors[random.nextInt(2)]);
+            }
+            for (int detector : new int[]{-1, detectors[0], detectors[1]}) {
+                // the map used before, where the last row of a cluster wins
+                Map<Short, Short> clId2Pindex = new HashMap<>();
+                for (int row = 0; row < bank.rows(); row++) {
+                    if (detector < 0 || bank.getByte("detector", row) == (byte) detector) {
+                        clId2Pindex.put(bank.getShort("index", row), bank.getShort("pindex", row));
+                    }
+                }
+                short[] pindex = engine.getClusterPindex(bank, detector);
+                for (short cid = -1; cid < 20; cid++) {
+                    assertEquals((short) clId2Pindex.getOrDefault(cid, TruthMatch.NO_PINDEX), TruthMatch.getPindex(pindex, cid));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testTrackIndex() {
+        SchemaFactory factory = factory();
+        TruthMatch engine = new TruthMatch();
+        Random random = new Random(9);
+        for (int k = 0; k < 500; k++) {
+            DataEvent event = new HipoDataEvent(new Event(), factory);
+            DataBank cvtTracks = event.createBank("CVTRec::Tracks", random.nextInt(10));
+            for (int row = 0; row < cvtTracks.rows(); row++) {
+                cvtTracks.setShort("ID", row, (short) (1 + random.nextInt(8)));
+            }
+            DataBank recTracks = event.createBank("REC::Track", random.nextInt(10));
+            for (int row = 0; row < recTracks.rows(); row++) {
+                recTracks.setShort("index", row, (short) (random.nextInt(cvtTracks.rows() + 2) - 1));
+            }
+            event.appendBank(cvtTracks);
+            event.appendBank(recTracks);
+
+            // the scan used before, over the track IDs for each REC::Track row
+            Map<Short, Integer> trkID2Index = new HashMap<>();
+            for (int row = 0; row < cvtTracks.rows(); row++) {
+                trkID2Index.put(cvtTracks.getShort("ID", row), row);
+            }
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int itr = 0; itr < recTracks.rows(); itr++) {
+                short index = recTracks.getShort("index", itr);
+                for (Map.Entry<Short, Integer> entry : trkID2Index.entrySet()) {
+                    if ((int) entry.getValue() == index) {
+                        expected.put((int) entry.getKey(), itr);
+                    }
+                }
+            }
+            assertEquals(expected, engine.MaketrkID2IndexMap(event));
+        }
+    }
+}
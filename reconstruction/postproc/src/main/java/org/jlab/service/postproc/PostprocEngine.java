@@ -17,6 +17,7 @@ public class PostprocEngine extends ReconstructionEngine {
     public static final String CONF_PRELOAD_GLOB = "preloadGlob";
     public static final String CONF_RESTREAM_HELICITY = "restream";
     public static final String CONF_REBUILD_SCALERS = "rebuild";
+    public static final String CONF_SEQUENCE_CACHE = "sequenceCache";
 
     static final Logger logger = Logger.getLogger(PostprocEngine.class.getName());
 
@@ -33,13 +34,15 @@ public class PostprocEngine extends ReconstructionEngine {
             if (getEngineConfigString(CONF_PRELOAD_DIR) != null)
                 logger.warning("PostprocEngine::  Using preloadFile, ignoring preloadDir.");
             processor = new Processor(new File(getEngineConfigString(CONF_PRELOAD_FILE)),
-                Boolean.parseBoolean(getEngineConfigString(CONF_RESTREAM_HELICITY,"false")));
+                Boolean.parseBoolean(getEngineConfigString(CONF_RESTREAM_HELICITY,"false")),
+                getEngineConfigString(CONF_SEQUENCE_CACHE));
         }
         if (getEngineConfigString(CONF_PRELOAD_DIR) != null) {
             processor = new Processor(
                 getEngineConfigString(CONF_PRELOAD_DIR),
                 getEngineConfigString(CONF_PRELOAD_GLOB, Processor.DEF_PRELOAD_GLOB),
-                Boolean.parseBoolean(getEngineConfigString(CONF_RESTREAM_HELICITY,"false")));
+                Boolean.parseBoolean(getEngineConfigString(CONF_RESTREAM_HELICITY,"false")),
+                getEngineConfigString(CONF_SEQUENCE_CACHE));
         }
         if (null != getEngineConfigString(CONF_REBUILD_SCALERS)) {
             if (Boolean.getBoolean(getEngineConfigString(CONF_REBUILD_SCALERS))) {
@@ -222,6 +222,10 @@ public class HitParameters {
     public void set_trackmap(TrackMap _trackmap) {this._trackmap = _trackmap;}
     public void set_rtrackmap(ReducedTrackMap _rtrackmap) {this._rtrackmap = _rtrackmap;}
     public void set_finaltrackinfomap(HashMap<Integer, FinalTrackInfo> _finaltrackinfomap) {this._finaltrackinfomap = _finaltrackinfomap;}
+    public void set_c0(double _c0){this._c0 = _c0;}
+    public void set_c1(double _c1){this._c1 = _c1;}
+    public void set_c2(double _c2){this._c2 = _c2;}
+    public void set_c3(double _c3){this._c3 = _c3;}
 
     
     public HitParameters() {}
@@ -35,11 +35,7 @@ public class ReducedTrackMap {
 	}
 	
 	public List<Integer> getAllTrackIDs() {
-		List<Integer> l = new ArrayList<Integer>();
-		for(int i : _map.keySet()) {
-			if(!l.contains(i)) { l.add(i);}
-		}
-		return l; 
+		return new ArrayList<Integer>(_map.keySet());
 	}
 	
 	public int getLastTrackID() {
@@ -6,6 +6,8 @@
 package org.jlab.rec.rtpc.hit;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
@@ -19,6 +21,7 @@ import java.io.FileWriter;
 public class TrackDisentangler {
     private ReducedTrackMap RTIDMap = new ReducedTrackMap();
     private ReducedTrackMap NewTrackMap = new ReducedTrackMap();
+    private List<Integer> ActiveTIDs = new ArrayList<>(); //tracklets that can still get hits, in track ID order
     private ReducedTrack rtrack; 
     private int maxdeltat = 300;
     private int maxdeltatgap = 300;
@@ -31,6 +34,8 @@ public class TrackDisentangler {
     private double c2;       
     private double c3;         
     private double TFtotaltracktimeflag = 3700; //SEK: lowered value from 5000 - max drift time = 3458 ns
+    private double maxdeltatall = 300; //largest time and z differences passing compareHitsTime
+    private double maxdeltazall = 10;
 
     public TrackDisentangler(HitParameters params, boolean disentangle, int eventnum){       
         
@@ -46,6 +51,8 @@ public class TrackDisentangler {
             c1 = params.get_c1();
             c2 = params.get_c2();
             c3 = params.get_c3();
+            maxdeltatall = Math.max(maxdeltat, maxdeltatgap);
+            maxdeltazall = Math.max(maxdeltaz, maxdeltazgap);
           
             List<Integer> origtidlist = RTIDMap.getAllTrackIDs();
             for(int tid : origtidlist){ // Loop over all originally found tracks in an event
@@ -54,6 +61,7 @@ public class TrackDisentangler {
                     //  BEGIN disentangling/recombining a single existing track
                     //          FIRST: Create a map of new tracks to collect the pieces
                     NewTrackMap = new ReducedTrackMap();
+                    ActiveTIDs.clear();
                     rtrack.sortHits(); //hits are sorted in DEcreasing order of time
                     List<HitVector> hits = rtrack.getAllHits();
                     //BEGIN disentangling: Sort all hits in existing track into a set of new tracks 
@@ -74,68 +82,58 @@ public class TrackDisentangler {
                     List<Integer> newtidlist = NewTrackMap.getAllTrackIDs();  //Final list after bad tracklets have been removed
 
                     //BEGIN RECOMBINER - remove tracks that have been added to existing ones
-                    List<Integer> removedtracks = new ArrayList<>();
-
-                     for(int tid1 : newtidlist){ // SEKNEW: FIRST, find all "Forward tracks" (last to first):
-                        for(int tid2 : newtidlist){
-                            if(tid1 != tid2 && !removedtracks.contains(tid1) && !removedtracks.contains(tid2)){
-                                boolean merged = false; 
-                                ReducedTrack t1 = NewTrackMap.getTrack(tid1);
-                                ReducedTrack t2 = NewTrackMap.getTrack(tid2);
-                                List<HitVector> h2listfirst = new ArrayList<>();
-                                List<HitVector> h1listlast = new ArrayList<>();
-                                h1listlast.addAll(t1.getLastNHits(2));
-                                h2listfirst.addAll(t2.getFirstNHits(2));
-                                
-                                FIRSTLAST:
-                                    for(HitVector h1 : h1listlast){
-                                        for(HitVector h2 : h2listfirst){
-                                            if(compareHitsTime(h1,h2)){
-                                                if(PredictHit(t1, h2, c0, c1, c2, c3)){ //NEW Implement PredictHit
-                                                    NewTrackMap.mergeTracks(tid1, tid2); 
-                                                    NewTrackMap.getTrack(tid1).sortHits();
-                                                    removedtracks.add(tid2);
-                                                    break FIRSTLAST;
-                                                } // Endif PredictHit
-                                            } // Endif compareHitsTime
-                                        } // End for loop over h2listfirst
-                                    } // End for loop over h1listlast and hence FIRSTLAST
-                            } //Endif tid1 != tid2 and neither tid1 nor tid2 are removed
-                        } // end the for loop of for(int tid2 : newtidlist)
-                    } // end the for loop of for(int tid1 : newtidlist)
-    
-                    for(int tid1 : newtidlist){ // SEKNEW: Now combine backbenders
-                    BACKBENDER: // SEKNEW: once we find a suitable match for tid1 to form a backbender, don't look for any additional ones!
-                      for(int tid2 : newtidlist){
-                           if(tid1 < tid2 && !removedtracks.contains(tid1) && !removedtracks.contains(tid2)){ // SEKNEW: each pairing should be tested only once!
-                               boolean merged = false;
-                               ReducedTrack t1 = NewTrackMap.getTrack(tid1);
-                               ReducedTrack t2 = NewTrackMap.getTrack(tid2);
-                               if(t2.getAllHits().size() > 10) { //SEKNEW: Only look for "serious" backbenders with lots of extra hits
-                               List<HitVector> h1listlast = new ArrayList<>();
-                               List<HitVector> h2listlast = new ArrayList<>();
-                               h1listlast.addAll(t1.getLastNHits(2));
-                               h2listlast.addAll(t2.getLastNHits(2));
-                               
-                               //  BACKBENDER SEKNEW: Moved up
-                               for(HitVector h1 : h1listlast){
-                                   for(HitVector h2: h2listlast){
-                                       if(compareHitsTime(h1,h2)){
-                                           if(PredictHit(t1, h2, c0, c1, c2, c3)){ //NEW Implement PredictHit
-                                               NewTrackMap.mergeTracksBackbend(tid1, tid2);
-                                               NewTrackMap.getTrack(tid1).sortHits();
-                                               removedtracks.add(tid2);
-                                               merged = true;
-                                               break BACKBENDER;
-                                               } // Endif PredictHit
-                                           } // Endif compareHitsTime
-                                       } // End for loop over h2listlast
-                                   } // End for loop over h1listlast
-                                } // End if t2 has at least 11 entries
-                            } //Endif tid1 != tid2 and neither tid1 nor tid2 are removed
-                       } // end the for loop of for(int tid2 : newtidlist)  and hence BACKBENDER
-                   } // end the for loop of for(int tid1 : newtidlist)
-                
+                    //Only the tracklets with an endpoint hit close in time and z are compared, see EndpointIndex
+                    boolean[] removedtracks = new boolean[newtidlist.size()];
+
+                    EndpointIndex firsts = new EndpointIndex();
+                    for(int i = 0; i < newtidlist.size(); i++) firsts.add(i, NewTrackMap.getTrack(newtidlist.get(i)).getFirstNHits(2));
+
+                    for(int i = 0; i < newtidlist.size(); i++){ // SEKNEW: FIRST, find all "Forward tracks" (last to first):
+                        if(removedtracks[i]) continue;
+                        int tid1 = newtidlist.get(i);
+                        ReducedTrack t1 = NewTrackMap.getTrack(tid1);
+                        int[] candidates = firsts.find(t1.getLastNHits(2), 0);
+                        for(int c = 0; c < candidates.length; c++){
+                            int j = candidates[c];
+                            if(j == i || removedtracks[j]) continue;
+                            int tid2 = newtidlist.get(j);
+                            ReducedTrack t2 = NewTrackMap.getTrack(tid2);
+                            if(matchEnds(t1, t1.getLastNHits(2), t2.getFirstNHits(2))){
+                                NewTrackMap.mergeTracks(tid1, tid2);
+                                t1.sortHits();
+                                removedtracks[j] = true;
+                                firsts.add(i, t1.getFirstNHits(2));
+                                // the endpoints of t1 changed, the next candidates too
+                                candidates = firsts.find(t1.getLastNHits(2), j+1);
+                                c = -1;
+                            }
+                        } // end the loop over the tid2 candidates
+                    } // end the loop over tid1
+
+                    EndpointIndex lasts = new EndpointIndex();
+                    for(int i = 0; i < newtidlist.size(); i++){
+                        if(!removedtracks[i]) lasts.add(i, NewTrackMap.getTrack(newtidlist.get(i)).getLastNHits(2));
+                    }
+
+                    for(int i = 0; i < newtidlist.size(); i++){ // SEKNEW: Now combine backbenders
+                        if(removedtracks[i]) continue;
+                        int tid1 = newtidlist.get(i);
+                        ReducedTrack t1 = NewTrackMap.getTrack(tid1);
+                        for(int j : lasts.find(t1.getLastNHits(2), 0)){
+                            int tid2 = newtidlist.get(j);
+                            if(tid1 >= tid2 || removedtracks[j]) continue; // SEKNEW: each pairing should be tested only once!
+                            ReducedTrack t2 = NewTrackMap.getTrack(tid2);
+                            //SEKNEW: Only look for "serious" backbenders with lots of extra hits
+                            if(t2.getAllHits().size() > 10 && matchEnds(t1, t1.getLastNHits(2), t2.getLastNHits(2))){
+                                NewTrackMap.mergeTracksBackbend(tid1, tid2);
+                                t1.sortHits();
+                                removedtracks[j] = true;
+                                lasts.add(i, t1.getLastNHits(2));
+                                break; // SEKNEW: once we find a suitable match for tid1 to form a backbender, don't look for any additional ones!
+                            }
+                        } // end the loop over the tid2 candidates
+                    } // end the loop over tid1
+
                     //END Recombiner - now initial old track is removed and new tracks are added to RTIDMap
                     RTIDMap.removeTrack(tid);
                     newtidlist = NewTrackMap.getAllTrackIDs();
@@ -180,11 +178,14 @@ public class TrackDisentangler {
     } // End of Disentangler script (line 36)
     
     private void sortHit(HitVector hit){
-        List<Integer> TIDList = NewTrackMap.getAllTrackIDs();
         boolean hitsorted = false;
-        for(int tidsub : TIDList){ // SEK: Changed "tid" to "tidsub" to not confuse with Parent ID
+        int nactive = 0;
+        for(int tidsub : ActiveTIDs){ // SEK: Changed "tid" to "tidsub" to not confuse with Parent ID
             ReducedTrack t = NewTrackMap.getTrack(tidsub);
             HitVector comphit = t.getLastHit();
+            // hits come in decreasing time, a tracklet ending too late for this hit is too late for the next ones
+            if(comphit.time() - hit.time() >= maxdeltatall) continue;
+            ActiveTIDs.set(nactive++, tidsub);
             if(compareHitsTime(hit,comphit)){
                 if(t.getAllHits().size() < c0 && hitsorted){ // SEKNEW: Prevent short stubs from acquiring more hits if they are already sorted
                     hitsorted = true;
@@ -194,12 +195,82 @@ public class TrackDisentangler {
                 } // SEKNEW: End of 2 possibilities for a potential hit to be added to existing subtrack
             } // End if compareHitsTime
         } // End of loop over all existing tracks
+        ActiveTIDs.subList(nactive, ActiveTIDs.size()).clear();
         if(!hitsorted){
             ReducedTrack newt = new ReducedTrack();
             newt.addHit(hit);
             NewTrackMap.addTrack(newt);
+            ActiveTIDs.add(NewTrackMap.getLastTrackID());
         }
     } //End sortHit
+
+    /**
+     * @return true if a hit of h2list is close to one of h1list and predicted by t1
+     */
+    private boolean matchEnds(ReducedTrack t1, List<HitVector> h1list, List<HitVector> h2list){
+        for(HitVector h1 : h1list){
+            for(HitVector h2 : h2list){
+                if(compareHitsTime(h1,h2) && PredictHit(t1, h2, c0, c1, c2, c3)) return true;
+            }
+        }
+        return false;
+    } //End matchEnds
+
+    /**
+     * Tracklets (by index in the tracklet list) binned by the time and z of
+     * their endpoint hits, with bins as wide as the largest differences
+     * passing compareHitsTime: only tracklets in the neighbouring bins of a
+     * hit can pass it. Phi is not binned since PredictHit can shift the hit
+     * phi by 2 pi. A tracklet whose endpoints change is added again, its old
+     * entries only cost an extra comparison. The candidates of a tracklet
+     * are found once, and again only after a merge changes its endpoints.
+     */
+    private class EndpointIndex {
+        private final HashMap<Long,List<Integer>> bins = new HashMap<>();
+
+        private long key(long tbin, long zbin){
+            return (tbin << 32) + zbin;
+        }
+
+        public void add(int index, List<HitVector> hits){
+            if(maxdeltatall <= 0 || maxdeltazall <= 0) return; // nothing passes compareHitsTime
+            for(HitVector h : hits){
+                long tbin = (long) Math.floor(h.time()/maxdeltatall);
+                long zbin = (long) Math.floor(h.z()/maxdeltazall);
+                bins.computeIfAbsent(key(tbin,zbin), k -> new ArrayList<>()).add(index);
+            }
+        }
+
+        /**
+         * @return the indices from the given one of the tracklets with an
+         * endpoint close to one of the hits, in increasing order
+         */
+        public int[] find(List<HitVector> hits, int from){
+            int[] found = new int[8];
+            int n = 0;
+            for(HitVector h : hits){
+                long tbin = (long) Math.floor(h.time()/maxdeltatall);
+                long zbin = (long) Math.floor(h.z()/maxdeltazall);
+                for(long tb = tbin-1; tb <= tbin+1; tb++){
+                    for(long zb = zbin-1; zb <= zbin+1; zb++){
+                        List<Integer> l = bins.get(key(tb,zb));
+                        if(l == null) continue;
+                        for(int index : l){
+                            if(index < from) continue;
+                            if(n == found.length) found = Arrays.copyOf(found, 2*n);
+                            found[n++] = index;
+                        }
+                    }
+                }
+            }
+            Arrays.sort(found, 0, n);
+            int unique = 0;
+            for(int k = 0; k < n; k++){
+                if(unique == 0 || found[k] != found[unique-1]) found[unique++] = found[k];
+            }
+            return Arrays.copyOf(found, unique);
+        }
+    } //End EndpointIndex
     
     private boolean compareHits(HitVector a, HitVector b){
         double phi1 = a.phi();
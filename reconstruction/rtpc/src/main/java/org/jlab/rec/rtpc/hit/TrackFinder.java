@@ -6,47 +6,61 @@
 
 package org.jlab.rec.rtpc.hit;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Set;
-import org.jlab.detector.calib.utils.ConstantsManager;
 
 
 public class TrackFinder {
-    
+
     private TrackUtils tutil = new TrackUtils();
     private TrackMap TIDMap = new TrackMap();
-    private List<Integer> TIDList;
-    private Track track;
-    private ADCMap ADCMap;
-    private List<Integer> PadList;
     private int TrigWindSize;
     private int StepSize = 120;//Bin Size of Dream Electronics Output
-    private double adcthresh = 0; 
-    private int padloopsize;// = PadList.size();
-    private boolean padSorted = false; 
-    private List<Integer> padTIDlist = new ArrayList<>();
-    private List<Integer> padlist; 
-    private int pad = 0;
-    private double adc = 0; 
-    private int timeadjlimit = 4; 
-    private int parenttid = -1;
+    private double adcthresh = 0;
+    private int timeadjlimit = 4;
     private String method = "phiz";
-    private int minhitcount = 5; 
+    private int minhitcount = 5;
     private double zthresh = 16;
     private double phithresh = 0.16;
     private double zthreshgap = 20;
     private double phithreshgap = 0.20;
     private double TFtotaltracktimeflag = 5000;
     private double TFtotalpadtimeflag = 1000;
-    
+
+    /*
+     * Pad/time cells above threshold, indexed by pad (index in the pad list)
+     * and by time step: the cells of pad i are padFirst[i]..padFirst[i+1]-1,
+     * in increasing time, and stepCells[stepFirst[k]..stepFirst[k+1]-1] are
+     * the cells of step k, in pad list order
+     */
+    private int[] cellPad;
+    private int[] cellStep;
+    private int[] padFirst;
+    private int[] stepFirst;
+    private int[] stepCells;
+
+    /*
+     * Pads (with cells) passing the pad comparison with pad i, including
+     * itself: nbPads[nbFirst[i]..nbFirst[i+1]-1]
+     */
+    private int[] nbFirst;
+    private int[] nbPads;
+
+    /*
+     * Per cell, the track it was assigned to, -1 until the cell is reached.
+     * Per track ID, the track it was merged into (itself if not merged) and
+     * the lowest time of its time slices, see below
+     */
+    private int[] cellTrack;
+    private int[] merged;
+    private int[] tlow;
+
 
     public TrackFinder(HitParameters params, boolean cosmic) {
-        /*	
-         *Initializations 
+        /*
+         *Initializations
          */
         timeadjlimit = params.get_timeadjlimit();
         adcthresh = params.get_adcthresh();
@@ -55,85 +69,107 @@ public class TrackFinder {
         phithresh = params.get_phithreshTF();
         zthreshgap = params.get_zthreshTFgap();
         phithreshgap = params.get_phithreshTFgap();
-        ADCMap = params.get_ADCMap();
-        PadList = params.get_PadList();
         TFtotaltracktimeflag = params.get_TFtotaltracktimeflag();
         TFtotalpadtimeflag = params.get_TFtotalpadtimeflag();
-        
+
         TrigWindSize = params.get_TrigWindSize();
-        padloopsize = PadList.size();
-        
+
+        List<Integer> PadList = params.get_PadList();
+        fillCells(params.get_ADCMap(), PadList);
+        fillNeighbours(params, PadList, cosmic);
+
         /*
          * Main Algorithm
+         *
+         * Pads are assigned to the tracks with a neighbouring pad (or the same
+         * pad) in the current or one of the timeadjlimit previous time slices,
+         * except the slice at time 0. Looking up the cells of the neighbouring
+         * pads, instead of comparing against every pad of every track, gives
+         * the same tracks, track IDs and merges.
          */
-        TIMELOOP: //Loop over all times
-        for(int time = 0; time < TrigWindSize; time += StepSize) { //Steps of 120 up to TrigWindSize = 10000
-
-            PADLOOP: //Loop over all pads
-            for(int padindex = 0; padindex < padloopsize; padindex++) {
-                padSorted = false;  //Flag to be set when the pad is assigned to a track
-                padTIDlist.clear(); //List of all TIDs assigned to the pad starts empty
-                pad = PadList.get(padindex);	
-                adc = ADCMap.getADC(pad,time);
-                
-                
-
-                if(adc > adcthresh) { //pad adc threshold check
-
-                    PadVector PadVec = params.get_padvector(pad); //initializes the x,y,z,phi for pad
-                    TIDList = TIDMap.getAllTrackIDs(); //Retrieve list of all available TIDs
-
-                    TIDLOOP: //Loop over all Track IDs 
-                    for(int tid : TIDList) {
-                        track = TIDMap.getTrack(tid); //Get track with current tid
-
-                        TIMECHECKLOOP: //Loop over current and former times
-                        for(int timecheck = time; timecheck > 0 && timecheck >= time - timeadjlimit*StepSize; timecheck -= StepSize) {
-                            padlist = track.getTimeSlice(timecheck); //Get pads assigned to current time slice
-                            if(!padlist.contains(pad)) { //Ensures pad isn't already assigned here
-                                PADCHECKLOOP: //Loop over pads 
-                                for(int checkpad : padlist) {		
-                                    PadVector checkpadvec = params.get_padvector(checkpad);	
-                                    if(tutil.comparePads(PadVec, checkpadvec, method, cosmic, zthresh, zthreshgap, phithresh, phithreshgap)) { //compares the position of two pads
-                                        track.addPad(time, pad);			//assign pad to track
-                                        padSorted = true;				//flag set
-                                        padTIDlist.add(tid);				//track the TID assigned
-                                        break TIMECHECKLOOP;                            //no need to continue checking previous times
-                                    } //END PAD COMPARE
-
-                                } //END PADCHECKLOOP
-
-                            } else {//pad is somehow in this time slice already so lets go ahead and add it to the current time slice
-                                    track.addPad(time, pad);
-                                    padSorted = true;
-                                    padTIDlist.add(tid);
-                                    break TIMECHECKLOOP;
-                            }
+        final int ncells = cellPad.length;
+        cellTrack = new int[ncells];
+        Arrays.fill(cellTrack, -1);
+        merged = new int[ncells+1];
+        tlow = new int[ncells+1];
+        int[] tids = new int[ncells+1];
+        int[] pending = new int[ncells+1];
+        int[] rank = new int[ncells+1];
+        int npending = 0;
+        int lastTime = 0;
 
-                        } //END TIMECHECKLOOP 
+        for(int step = 0; step+1 < stepFirst.length; step++) {
+            final int time = step*StepSize;
+            final int lowstep = Math.max(step - timeadjlimit, 1);
 
-                    } //END TIDLOOP 
+            for(int s = stepFirst[step]; s < stepFirst[step+1]; s++) {
+                final int cell = stepCells[s];
+                final int padindex = cellPad[cell];
+                final int pad = PadList.get(padindex);
+                int ntids = 0;
 
-                    if(!padSorted) { //we need a new TID if we get here, the pad was never assigned an ID
-                            TIDMap.addTrack(new Track(time,pad));
+                if(step > 0) {
+                    for(int n = nbFirst[padindex]; n < nbFirst[padindex+1]; n++) {
+                        final int checkpad = nbPads[n];
+                        for(int c = padFirst[checkpad]; c < padFirst[checkpad+1] && cellStep[c] <= step; c++) {
+                            if(cellStep[c] < lowstep || cellTrack[c] < 0) continue;
+                            final int tid = findTrack(cellTrack[c]);
+                            if(!contains(tids, ntids, tid)) tids[ntids++] = tid;
+                        }
                     }
-
-                    if(padTIDlist.size()>1) { //if a pad gets more than 1 ID let's merge the IDs	
-                        for(int tidtemp : padTIDlist) {
-                            if(tidtemp == padTIDlist.get(0)) {
-                                parenttid = padTIDlist.get(0);
-                            } else {
-                                TIDMap.mergeTracks(parenttid, tidtemp); 
-                            }
-                        }						
+                    /*
+                     * Looking for the pad in a track fills it with (empty) time
+                     * slices from the current time back to the first match, or
+                     * down to lowstep if there is none. Only the first miss of
+                     * each track can lower its earliest time slice, which is
+                     * kept for the track time flag.
+                     */
+                    int npend = 0;
+                    for(int p = 0; p < npending; p++) {
+                        final int tid = pending[p];
+                        if(merged[tid] != tid) continue;
+                        if(contains(tids, ntids, tid)) {
+                            pending[npend++] = tid;
+                        } else {
+                            tlow[tid] = Math.min(tlow[tid], lowstep*StepSize);
+                        }
                     }
+                    npending = npend;
+                    lastTime = time;
+                }
 
-                } //END ADC THRESH CHECK
+                if(ntids == 0) { //we need a new TID if we get here, the pad was never assigned an ID
+                    TIDMap.addTrack(new Track(time,pad));
+                    final int tid = TIDMap.getLastTrackID();
+                    merged[tid] = tid;
+                    tlow[tid] = time;
+                    pending[npending++] = tid;
+                    cellTrack[cell] = tid;
+                    continue;
+                }
 
-            } //END PADLOOP
+                if(ntids > 1) { //tracks are matched in the map order, the first one is the parent
+                    TIDMap.fillTrackRanks(rank);
+                    for(int t = 1; t < ntids; t++) {
+                        final int tid = tids[t];
+                        int u = t;
+                        for(; u > 0 && rank[tids[u-1]] > rank[tid]; u--) tids[u] = tids[u-1];
+                        tids[u] = tid;
+                    }
+                }
+                for(int t = 0; t < ntids; t++) {
+                    TIDMap.getTrack(tids[t]).getTimeSlice(time).add(pad);
+                }
+                final int parenttid = tids[0];
+                for(int t = 1; t < ntids; t++) { //if a pad gets more than 1 ID let's merge the IDs
+                    TIDMap.mergeTracks(parenttid, tids[t]);
+                    merged[tids[t]] = parenttid;
+                    tlow[parenttid] = Math.min(tlow[parenttid], tlow[tids[t]]);
+                }
+                cellTrack[cell] = parenttid;
+            }
+        }
 
-        } //END TIMELOOP
-        
         //END MAIN ALGORITHM
 
         /*
@@ -146,14 +182,14 @@ public class TrackFinder {
                     TIDMap.removeTrack(tid);
             }
         }
-              
-        
+
+
         if(!cosmic){
             //Flag crossing tracks
             int tmax = 0;
             int tmin = 0;
-            for(int tid : TIDMap.getAllTrackIDs()) {          
-                Track t = TIDMap.getTrack(tid); 
+            for(int tid : TIDMap.getAllTrackIDs()) {
+                Track t = TIDMap.getTrack(tid);
                 for(int pad : t.uniquePadList()){
                     tmax = 0;
                     tmin = 1000000;
@@ -166,16 +202,17 @@ public class TrackFinder {
                         break;
                     }
                 }
+                //every track was searched at the last time, see the main loop for the earliest
+                if(lastTime - tlow[tid] > TFtotaltracktimeflag) t.flagTrack();
                 List<Integer> times = t.getAllTimeSlices();
                 Collections.sort(times);
-                if(times.get(times.size()-1) - times.get(0) > TFtotaltracktimeflag) t.flagTrack();
 		TRACKTIMELOOP:
                 for(int tx : times){
                     List<Integer> pads = t.getTimeSlice(tx);
                     if(pads.size() > 1){
-                        
+
                         Collections.sort(pads, new Comparator<Integer>(){
-                            @Override 
+                            @Override
 				public int compare(Integer p1, Integer p2){
                                 PadVector pv1 = params.get_padvector(p1);
                                 PadVector pv2 = params.get_padvector(p2);
@@ -195,15 +232,121 @@ public class TrackFinder {
                 }
             }
         }
-        
-        
+
+
         /*
          * Output
          */
-       
+
 
         params.set_trackmap(TIDMap);
 
-    }       
-	
+    }
+
+    /**
+     * Reads the ADC of each pad once and indexes the cells above threshold
+     * by pad and by time step.
+     */
+    private void fillCells(ADCMap ADCMap, List<Integer> PadList) {
+        final int npads = PadList.size();
+        final int nsteps = (TrigWindSize + StepSize - 1)/StepSize; //Steps of 120 up to TrigWindSize
+        padFirst = new int[npads+1];
+        stepFirst = new int[Math.max(nsteps,0)+1];
+        cellPad = new int[Math.max(npads,16)];
+        cellStep = new int[cellPad.length];
+        int ncells = 0;
+        for(int padindex = 0; padindex < npads; padindex++) {
+            padFirst[padindex] = ncells;
+            final double[] adc = ADCMap.getADCMap().get(PadList.get(padindex));
+            for(int step = 0; step < nsteps; step++) {
+                if(adc[step*StepSize] > adcthresh) { //pad adc threshold check
+                    if(ncells == cellPad.length) {
+                        cellPad = Arrays.copyOf(cellPad, 2*ncells);
+                        cellStep = Arrays.copyOf(cellStep, 2*ncells);
+                    }
+                    cellPad[ncells] = padindex;
+                    cellStep[ncells] = step;
+                    stepFirst[step+1]++;
+                    ncells++;
+                }
+            }
+        }
+        padFirst[npads] = ncells;
+        cellPad = Arrays.copyOf(cellPad, ncells);
+        cellStep = Arrays.copyOf(cellStep, ncells);
+        for(int step = 0; step < nsteps; step++) stepFirst[step+1] += stepFirst[step];
+        stepCells = new int[ncells];
+        int[] next = Arrays.copyOf(stepFirst, stepFirst.length);
+        for(int cell = 0; cell < ncells; cell++) stepCells[next[cellStep[cell]]++] = cell;
+    }
+
+    /**
+     * Compares each pad with cells to the pads with cells within the largest
+     * z distance allowed by the pad comparison.
+     */
+    private void fillNeighbours(HitParameters params, List<Integer> PadList, boolean cosmic) {
+        final int npads = PadList.size();
+        int nfired = 0;
+        for(int padindex = 0; padindex < npads; padindex++) {
+            if(padFirst[padindex+1] > padFirst[padindex]) nfired++;
+        }
+        Integer[] fired = new Integer[nfired];
+        PadVector[] vec = new PadVector[npads];
+        nfired = 0;
+        for(int padindex = 0; padindex < npads; padindex++) {
+            if(padFirst[padindex+1] > padFirst[padindex]) {
+                fired[nfired++] = padindex;
+                vec[padindex] = params.get_padvector(PadList.get(padindex));
+            }
+        }
+        Arrays.sort(fired, Comparator.comparingDouble(i -> vec[i].z()));
+        final double dzmax = tutil.maxDeltaZ(method, cosmic, zthresh, zthreshgap);
+
+        int[] count = new int[npads+1];
+        int[] pairs = new int[2*Math.max(nfired,8)];
+        int npairs = 0;
+        for(int a = 0; a < nfired; a++) {
+            final int i = fired[a];
+            count[i]++;
+            for(int b = a+1; b < nfired && vec[fired[b]].z() - vec[i].z() <= dzmax; b++) {
+                final int j = fired[b];
+                if(!tutil.comparePads(vec[i], vec[j], method, cosmic, zthresh, zthreshgap, phithresh, phithreshgap)) continue;
+                if(2*npairs+2 > pairs.length) pairs = Arrays.copyOf(pairs, 2*pairs.length);
+                pairs[2*npairs] = i;
+                pairs[2*npairs+1] = j;
+                npairs++;
+                count[i]++;
+                count[j]++;
+            }
+        }
+        nbFirst = new int[npads+1];
+        for(int padindex = 0; padindex < npads; padindex++) nbFirst[padindex+1] = nbFirst[padindex] + count[padindex];
+        nbPads = new int[nbFirst[npads]];
+        int[] next = Arrays.copyOf(nbFirst, npads);
+        for(int a = 0; a < nfired; a++) nbPads[next[fired[a]]++] = fired[a];
+        for(int p = 0; p < npairs; p++) {
+            nbPads[next[pairs[2*p]]++] = pairs[2*p+1];
+            nbPads[next[pairs[2*p+1]]++] = pairs[2*p];
+        }
+    }
+
+    /**
+     * @return the track a track ID was merged into
+     */
+    private int findTrack(int tid) {
+        int root = tid;
+        while(merged[root] != root) root = merged[root];
+        while(merged[tid] != root) {
+            int next = merged[tid];
+            merged[tid] = root;
+            tid = next;
+        }
+        return root;
+    }
+
+    private static boolean contains(int[] l, int n, int x) {
+        for(int i = 0; i < n; i++) if(l[i] == x) return true;
+        return false;
+    }
+
 }
@@ -42,6 +42,16 @@ public class TrackMap {
         return l; 
     }
 
+    /**
+     * Fills the position of each track ID in the list of getAllTrackIDs,
+     * in one pass over the map.
+     * @param rank array indexed by track ID, up to getLastTrackID()
+     */
+    public void fillTrackRanks(int[] rank) {
+        int n = 0;
+        for(int i : _map.keySet()) rank[i] = n++;
+    }
+
     public int getLastTrackID() {
         return _trackID;
     }
@@ -28,7 +28,16 @@ public class TrackUtils {
         if(Method == "ellipse") {return ellipseMethod(p1, p2);}
         if(Method == "phiz")    {return phizMethod(p1,p2);}
         else return false;
-    }	
+    }
+
+    /**
+     * @return the z distance beyond which comparePads is false for the same arguments
+     */
+    public double maxDeltaZ(String Method, boolean cosmic, double dz, double dzgap) {
+        if(Method == "ellipse") {return Math.sqrt(adjthresh*ZDelta);}
+        if(cosmic) {return 200;}
+        return Math.max(dz, dzgap);
+    }
 
     private boolean ellipseMethod(PadVector p1, PadVector p2) {
         double p1x = p1.x(); 
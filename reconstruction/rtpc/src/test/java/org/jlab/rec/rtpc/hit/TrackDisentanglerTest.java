@@ -0,0 +1,287 @@
+package org.jlab.rec.rtpc.hit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TrackDisentanglerTest {
+
+    /**
+     * The TrackDisentangler before the tracklet endpoints were indexed: each
+     * hit is compared with every tracklet, and every pair of tracklets is
+     * compared in the recombiner.
+     */
+    private static class Reference {
+        private final HitParameters params;
+        private ReducedTrackMap NewTrackMap;
+
+        Reference(HitParameters params) {
+            this.params = params;
+            ReducedTrackMap RTIDMap = params.get_rtrackmap();
+            for(int tid : RTIDMap.getAllTrackIDs()) {
+                ReducedTrack rtrack = RTIDMap.getTrack(tid);
+                if(!rtrack.isTrackFlagged()) continue;
+                NewTrackMap = new ReducedTrackMap();
+                rtrack.sortHits();
+                for(HitVector hit : rtrack.getAllHits()) {
+                    hit.flagHit(0);
+                    sortHit(hit);
+                }
+                for(int tid1 : NewTrackMap.getAllTrackIDs()) {
+                    ReducedTrack t1 = NewTrackMap.getTrack(tid1);
+                    if(Math.abs(t1.getLargeT()-t1.getSmallT()) > 3700) NewTrackMap.removeTrack(tid1);
+                }
+                List<Integer> newtidlist = NewTrackMap.getAllTrackIDs();
+                List<Integer> removedtracks = new ArrayList<>();
+                for(int tid1 : newtidlist) {
+                    for(int tid2 : newtidlist) {
+                        if(tid1 == tid2 || removedtracks.contains(tid1) || removedtracks.contains(tid2)) continue;
+                        ReducedTrack t1 = NewTrackMap.getTrack(tid1);
+                        ReducedTrack t2 = NewTrackMap.getTrack(tid2);
+                        if(matchEnds(t1, t1.getLastNHits(2), t2.getFirstNHits(2))) {
+                            NewTrackMap.mergeTracks(tid1, tid2);
+                            NewTrackMap.getTrack(tid1).sortHits();
+                            removedtracks.add(tid2);
+                        }
+                    }
+                }
+                for(int tid1 : newtidlist) {
+                    for(int tid2 : newtidlist) {
+                        if(tid1 >= tid2 || removedtracks.contains(tid1) || removedtracks.contains(tid2)) continue;
+                        ReducedTrack t1 = NewTrackMap.getTrack(tid1);
+                        ReducedTrack t2 = NewTrackMap.getTrack(tid2);
+                        if(t2.getAllHits().size() > 10 && matchEnds(t1, t1.getLastNHits(2), t2.getLastNHits(2))) {
+                            NewTrackMap.mergeTracksBackbend(tid1, tid2);
+                            NewTrackMap.getTrack(tid1).sortHits();
+                            removedtracks.add(tid2);
+                            break;
+                        }
+                    }
+                }
+                RTIDMap.removeTrack(tid);
+                for(int tidfinal : NewTrackMap.getAllTrackIDs()) {
+                    if(NewTrackMap.getTrack(tidfinal).getAllHits().size() <= 6) continue;
+                    ReducedTrack purged = new ReducedTrack();
+                    List<HitVector> hlist = NewTrackMap.getTrack(tidfinal).getAllHits();
+                    for(HitVector a : hlist) {
+                        if(a.phi() > Math.PI) a.setphi(a.phi() - 2*Math.PI);
+                        else if(a.phi() < -Math.PI) a.setphi(a.phi() + 2*Math.PI);
+                        if(hlist.indexOf(a) == 0) {
+                            purged.addHit(a);
+                        } else {
+                            HitVector comphit = purged.getLastHit();
+                            if(Math.abs(a.time() - comphit.time()) > 0.1
+                                    || Math.abs(a.z() - comphit.z()) > 0.5
+                                    || Math.abs(a.phi() - comphit.phi()) > 0.017) purged.addHit(a);
+                        }
+                    }
+                    RTIDMap.addTrack(purged);
+                }
+            }
+            params.set_rtrackmap(RTIDMap);
+        }
+
+        private void sortHit(HitVector hit) {
+            boolean hitsorted = false;
+            for(int tidsub : NewTrackMap.getAllTrackIDs()) {
+                ReducedTrack t = NewTrackMap.getTrack(tidsub);
+                if(compareHitsTime(hit, t.getLastHit())) {
+                    if(t.getAllHits().size() < params.get_c0() && hitsorted) {
+                        hitsorted = true;
+                    } else if(predictHit(t, hit)) {
+                        t.addHit(hit);
+                        hitsorted = true;
+                    }
+                }
+            }
+            if(!hitsorted) {
+                ReducedTrack newt = new ReducedTrack();
+                newt.addHit(hit);
+                NewTrackMap.addTrack(newt);
+            }
+        }
+
+        private boolean matchEnds(ReducedTrack t1, List<HitVector> h1list, List<HitVector> h2list) {
+            for(HitVector h1 : h1list) {
+                for(HitVector h2 : h2list) {
+                    if(compareHitsTime(h1, h2) && predictHit(t1, h2)) return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean compareHitsTime(HitVector a, HitVector b) {
+            double phi1 = a.phi();
+            double phi2 = b.phi();
+            if(phi1 < 0) phi1 += 2*Math.PI;
+            if(phi2 < 0) phi2 += 2*Math.PI;
+            double zdiff = Math.abs(a.z() - b.z());
+            double phidiff = Math.abs(phi1 - phi2);
+            double timediff = Math.abs(b.time() - a.time());
+            if(phidiff > Math.PI) {
+                return timediff < params.get_tthreshTDgap() && Math.abs(phidiff - 2*Math.PI) < params.get_phithreshTDgap()
+                        && zdiff < params.get_zthreshTDgap();
+            }
+            return timediff < params.get_tthreshTD() && phidiff < params.get_phithreshTD() && zdiff < params.get_zthreshTD();
+        }
+
+        private boolean predictHit(ReducedTrack t, HitVector hit) {
+            double c0 = params.get_c0(), c1 = params.get_c1(), c2 = params.get_c2(), c3 = params.get_c3();
+            if(t.getAllHits().size() < c0) return true;
+            List<HitVector> hlist = new ArrayList<>(t.getLastNHits((int) c0));
+            double taver = 0, phiaver = 0, zaver = 0;
+            for(HitVector a : hlist) {
+                taver += a.time();
+                int i = hlist.indexOf(a);
+                if(i > 0) {
+                    // the track hits are moved to the phi branch of the previous one
+                    if(a.phi() > hlist.get(i-1).phi() + Math.PI) a.setphi(a.phi() - 2*Math.PI);
+                    else if(a.phi() < hlist.get(i-1).phi() - Math.PI) a.setphi(a.phi() + 2*Math.PI);
+                }
+                phiaver += a.phi();
+                zaver += a.z();
+            }
+            taver /= hlist.size();
+            phiaver /= hlist.size();
+            zaver /= hlist.size();
+            double ttest = 0, phitest = 0, ztest = 0;
+            for(HitVector a : hlist) {
+                ttest += (a.time() - taver)*(a.time() - taver)/120/120;
+                phitest += (a.phi() - phiaver)*(a.phi() - phiaver)/0.034/0.034;
+                ztest += (a.z() - zaver)*(a.z() - zaver)/4/4;
+            }
+            double var = 0, tcovar = 0, phicovar = 0, zcovar = 0;
+            double tslope = 0, phislope = 0, zslope = 0;
+            if(ttest > phitest && ttest > ztest) {
+                for(HitVector a : hlist) {
+                    var += (a.time() - taver)*(a.time() - taver);
+                    phicovar += (a.phi() - phiaver)*(a.time() - taver);
+                    zcovar += (a.z() - zaver)*(a.time() - taver);
+                }
+                if(var != 0) {
+                    phislope = phicovar/var;
+                    zslope = zcovar/var;
+                }
+                double phidiff = Math.abs(hit.phi() - (phiaver + phislope*(hit.time() - taver)));
+                if(phidiff > Math.PI) phidiff = Math.abs(phidiff - 2*Math.PI);
+                double zdiff = Math.abs(hit.z() - (zaver + zslope*(hit.time() - taver)));
+                return phidiff < c1 && zdiff < c2;
+            } else if(phitest > ttest && phitest > ztest) {
+                for(HitVector a : hlist) {
+                    var += (a.phi() - phiaver)*(a.phi() - phiaver);
+                    tcovar += (a.time() - taver)*(a.phi() - phiaver);
+                    zcovar += (a.z() - zaver)*(a.phi() - phiaver);
+                }
+                if(var != 0) {
+                    tslope = tcovar/var;
+                    zslope = zcovar/var;
+                }
+                double phi1 = hit.phi();
+                if(phi1 > phiaver + Math.PI) phi1 -= 2*Math.PI;
+                else if(phi1 < phiaver - Math.PI) phi1 += 2*Math.PI;
+                double tdiff = Math.abs(hit.time() - (taver + tslope*(phi1 - phiaver)));
+                double zdiff = Math.abs(hit.z() - (zaver + zslope*(phi1 - phiaver)));
+                return tdiff < c3 && zdiff < c2;
+            } else {
+                for(HitVector a : hlist) {
+                    var += (a.z() - zaver)*(a.z() - zaver);
+                    tcovar += (a.time() - taver)*(a.z() - zaver);
+                    phicovar += (a.phi() - phiaver)*(a.z() - zaver);
+                }
+                if(var != 0) {
+                    tslope = tcovar/var;
+                    phislope = phicovar/var;
+                }
+                double tdiff = Math.abs(hit.time() - (taver + tslope*(hit.z() - zaver)));
+                double phidiff = Math.abs(hit.phi() - (phiaver + phislope*(hit.z() - zaver)));
+                if(phidiff > Math.PI) phidiff = Math.abs(phidiff - 2*Math.PI);
+                return tdiff < c3 && phidiff < c1;
+            }
+        }
+    }
+
+    /**
+     * @return the tracks by ID, with their hits in order
+     */
+    private static String toString(ReducedTrackMap map) {
+        StringBuilder str = new StringBuilder();
+        List<Integer> tids = map.getAllTrackIDs();
+        Collections.sort(tids);
+        for(int tid : tids) {
+            str.append(tid).append(':');
+            for(HitVector h : map.getTrack(tid).getAllHits()) {
+                str.append(String.format(" (%d %.3f %.3f %.6f %d)", h.pad(), h.time(), h.z(), h.phi(), h.flag()));
+            }
+            str.append('\n');
+        }
+        return str.toString();
+    }
+
+    /**
+     * Fills the same random tracks in two track maps. Each track is made
+     * of straight segments with hits every time step, so that tracklets
+     * cross and continue each other, and most tracks are flagged.
+     */
+    private static void fill(Random random, HitParameters params1, HitParameters params2) {
+        double c0 = 2 + random.nextInt(5);
+        double c1 = 0.05 + 0.2*random.nextDouble();
+        double c2 = 2 + 8*random.nextDouble();
+        double c3 = 100 + 400*random.nextDouble();
+        for(HitParameters params : new HitParameters[]{params1, params2}) {
+            params.set_c0(c0);
+            params.set_c1(c1);
+            params.set_c2(c2);
+            params.set_c3(c3);
+        }
+        int ntracks = 1 + random.nextInt(4);
+        for(int t = 0; t < ntracks; t++) {
+            ReducedTrack track1 = new ReducedTrack();
+            ReducedTrack track2 = new ReducedTrack();
+            for(int nsegments = 20 + random.nextInt(30); nsegments > 0; nsegments--) {
+                double time0 = 6000*random.nextDouble();
+                double z0 = -190 + 380*random.nextDouble();
+                double phi0 = -Math.PI + 2*Math.PI*random.nextDouble();
+                double dz = 2*random.nextGaussian();
+                double dphi = 0.03*random.nextGaussian();
+                for(int i = 3 + random.nextInt(30); i > 0; i--) {
+                    double time = time0 - i*120 + 20*random.nextGaussian();
+                    double z = z0 + dz*i + random.nextGaussian();
+                    double phi = phi0 + dphi*i + 0.01*random.nextGaussian();
+                    if(phi > Math.PI) phi -= 2*Math.PI;
+                    if(phi < -Math.PI) phi += 2*Math.PI;
+                    int pad = random.nextInt(180*96);
+                    track1.addHit(new HitVector(pad, z, phi, time, 100));
+                    track2.addHit(new HitVector(pad, z, phi, time, 100));
+                }
+            }
+            if(random.nextInt(5) > 0) {
+                track1.flagTrack();
+                track2.flagTrack();
+            }
+            params1.get_rtrackmap().addTrack(track1);
+            params2.get_rtrackmap().addTrack(track2);
+        }
+    }
+
+    @Test
+    public void testSameTracks() {
+        Random random = new Random(11);
+        int changed = 0;
+        for(int event = 0; event < 200; event++) {
+            HitParameters params1 = new HitParameters();
+            HitParameters params2 = new HitParameters();
+            fill(random, params1, params2);
+            String before = toString(params1.get_rtrackmap());
+            new Reference(params1);
+            new TrackDisentangler(params2, true, event);
+            String expected = toString(params1.get_rtrackmap());
+            if(!expected.equals(before)) changed++;
+            assertEquals("event " + event, expected, toString(params2.get_rtrackmap()));
+        }
+        // the events must exercise the disentangler:
+        assertTrue(changed > 100);
+    }
+}
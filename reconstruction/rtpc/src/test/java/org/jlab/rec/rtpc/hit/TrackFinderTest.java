@@ -0,0 +1,168 @@
+package org.jlab.rec.rtpc.hit;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TrackFinderTest {
+
+    /**
+     * The track search of the TrackFinder before pads and time steps were
+     * indexed: every fired pad is compared with the pads of every track in
+     * the previous time slices.
+     */
+    private static TrackMap findTracks(HitParameters params, boolean cosmic) {
+        TrackUtils tutil = new TrackUtils();
+        TrackMap TIDMap = new TrackMap();
+        List<Integer> PadList = params.get_PadList();
+        List<Integer> padTIDlist = new ArrayList<>();
+        final int StepSize = 120;
+        final int timeadjlimit = params.get_timeadjlimit();
+        for(int time = 0; time < params.get_TrigWindSize(); time += StepSize) {
+            for(int padindex = 0; padindex < PadList.size(); padindex++) {
+                boolean padSorted = false;
+                padTIDlist.clear();
+                int pad = PadList.get(padindex);
+                if(params.get_ADCMap().getADC(pad,time) <= params.get_adcthresh()) continue;
+                PadVector PadVec = params.get_padvector(pad);
+                for(int tid : TIDMap.getAllTrackIDs()) {
+                    Track track = TIDMap.getTrack(tid);
+                    TIMECHECKLOOP:
+                    for(int timecheck = time; timecheck > 0 && timecheck >= time - timeadjlimit*StepSize; timecheck -= StepSize) {
+                        List<Integer> padlist = track.getTimeSlice(timecheck);
+                        if(!padlist.contains(pad)) {
+                            for(int checkpad : padlist) {
+                                if(tutil.comparePads(PadVec, params.get_padvector(checkpad), "phiz", cosmic,
+                                        params.get_zthreshTF(), params.get_zthreshTFgap(),
+                                        params.get_phithreshTF(), params.get_phithreshTFgap())) {
+                                    track.addPad(time, pad);
+                                    padSorted = true;
+                                    padTIDlist.add(tid);
+                                    break TIMECHECKLOOP;
+                                }
+                            }
+                        } else {
+                            track.addPad(time, pad);
+                            padSorted = true;
+                            padTIDlist.add(tid);
+                            break TIMECHECKLOOP;
+                        }
+                    }
+                }
+                if(!padSorted) TIDMap.addTrack(new Track(time,pad));
+                for(int t = 1; t < padTIDlist.size(); t++) TIDMap.mergeTracks(padTIDlist.get(0), padTIDlist.get(t));
+            }
+        }
+        for(int tid : TIDMap.getAllTrackIDs()) {
+            if(TIDMap.getTrack(tid).uniquePadCountTotal() < params.get_minhitspertrack()) TIDMap.removeTrack(tid);
+        }
+        if(!cosmic) {
+            for(int tid : TIDMap.getAllTrackIDs()) {
+                Track t = TIDMap.getTrack(tid);
+                for(int pad : t.uniquePadList()) {
+                    Set<Integer> times = t.PadTimeList(pad);
+                    if(Collections.max(times) - Collections.min(times) > params.get_TFtotalpadtimeflag()) {
+                        t.flagTrack();
+                        break;
+                    }
+                }
+                // the empty time slices created by the search count here:
+                List<Integer> times = t.getAllTimeSlices();
+                Collections.sort(times);
+                if(times.get(times.size()-1) - times.get(0) > params.get_TFtotaltracktimeflag()) t.flagTrack();
+                TRACKTIMELOOP:
+                for(int time : times) {
+                    List<Integer> pads = t.getTimeSlice(time);
+                    pads.sort((p1, p2) -> Double.compare(params.get_padvector(p2).z(), params.get_padvector(p1).z()));
+                    for(int index = 1; index < pads.size(); index++) {
+                        if(!tutil.comparePads(params.get_padvector(pads.get(index-1)), params.get_padvector(pads.get(index)),
+                                "phiz", cosmic, params.get_zthreshTF(), params.get_zthreshTFgap(),
+                                params.get_phithreshTF(), params.get_phithreshTFgap())) {
+                            t.flagTrack();
+                            break TRACKTIMELOOP;
+                        }
+                    }
+                }
+            }
+        }
+        return TIDMap;
+    }
+
+    /**
+     * @return the tracks by ID, with their flag and non-empty time slices
+     */
+    private static String toString(TrackMap map) {
+        StringBuilder str = new StringBuilder();
+        List<Integer> tids = map.getAllTrackIDs();
+        Collections.sort(tids);
+        for(int tid : tids) {
+            Track track = map.getTrack(tid);
+            str.append(tid).append(track.isTrackFlagged() ? " flagged:" : ":");
+            List<Integer> times = track.getAllTimeSlices();
+            Collections.sort(times);
+            for(int time : times) {
+                List<Integer> pads = new ArrayList<>(track.getTimeSlice(time));
+                if(pads.isEmpty()) continue;
+                Collections.sort(pads);
+                str.append(' ').append(time).append(pads);
+            }
+            str.append('\n');
+        }
+        return str.toString();
+    }
+
+    /**
+     * Fills the pads of random tracks, crossing ones included, and noise.
+     */
+    private static void fill(Random random, HitParameters params) {
+        LinkedHashSet<Integer> pads = new LinkedHashSet<>();
+        Map<Integer,Double>[] signals = new Map[params.get_TrigWindSize()/120];
+        for(int s = 0; s < signals.length; s++) signals[s] = new HashMap<>();
+        int ntracks = 1 + random.nextInt(8);
+        for(int t = 0; t < ntracks; t++) {
+            double row = random.nextInt(180), col = random.nextInt(96);
+            double drow = random.nextGaussian(), dcol = 2*random.nextGaussian();
+            int step0 = random.nextInt(40), length = 5 + random.nextInt(40);
+            for(int s = 0; s < length; s++) {
+                int r = ((int) Math.floor(row + drow*s/3) % 180 + 180) % 180;
+                int c = (int) (col + dcol*s/3);
+                int step = step0 + s/3 + random.nextInt(3);
+                if(c < 0 || c >= 96 || step >= signals.length) continue;
+                int pad = r*96 + c + 1;
+                pads.add(pad);
+                signals[step].merge(pad, 1000., Double::sum);
+            }
+        }
+        for(int n = random.nextInt(30); n > 0; n--) {
+            int pad = 1 + random.nextInt(180*96);
+            pads.add(pad);
+            signals[random.nextInt(signals.length)].merge(pad, 500., Double::sum);
+        }
+        for(int s = 0; s < signals.length; s++) {
+            for(Map.Entry<Integer,Double> signal : signals[s].entrySet()) {
+                params.get_ADCMap().addSignal(signal.getKey(), s*120, signal.getValue());
+            }
+        }
+        params.get_PadList().addAll(pads);
+    }
+
+    @Test
+    public void testSameTracks() {
+        Random random = new Random(7);
+        for(int event = 0; event < 500; event++) {
+            boolean cosmic = random.nextInt(10) == 0;
+            HitParameters params = new HitParameters();
+            fill(random, params);
+            String expected = toString(findTracks(params, cosmic));
+            new TrackFinder(params, cosmic);
+            assertEquals("event " + event, expected, toString(params.get_trackmap()));
+        }
+    }
+}
@@ -23,19 +23,6 @@ public class SwapEngine extends ReconstructionEngine {
         super("SwapEngine","baltzell","1.0");
     }
 
-    private void updateBank(int run,DataBank bank) {
-        for (int irow=0; irow<bank.rows(); irow++) {
-            final int[] slco = swapman.get(run,bank,irow);
-            bank.setByte("sector",irow,(byte)slco[0]);
-            bank.setByte("layer",irow,(byte)slco[1]);
-            bank.setShort("component",irow,(short)slco[2]);
-            // Restore the original order decade to the new unswapped, true order:
-            final byte decade = (byte) (bank.getByte("order", irow)/10);
-            final byte order = (byte) (10*decade + (byte)slco[3]);
-            bank.setByte("order",irow, order);
-        }
-    }
-
     @Override
     public boolean processDataEvent(DataEvent event) {
         DataBank bank = event.getBank("RUN::config");
@@ -44,7 +31,7 @@ public class SwapEngine extends ReconstructionEngine {
             for (String bankName : this.swapman.getBanks(detectorName)) {
                 bank = event.getBank(bankName);
                 event.removeBank(bankName);
-                this.updateBank(run,bank);
+                this.swapman.update(run,bank);
                 event.appendBank(bank);
             }
         }
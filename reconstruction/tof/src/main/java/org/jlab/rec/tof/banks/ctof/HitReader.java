@@ -185,7 +185,7 @@ public class HitReader implements IMatchedHit {
         for (int i = 0; i < tracks.size(); i++) {
             Track trk = tracks.get(i);
 //            System.out.println(tracks.size() + " " + i + trk.toString());
-            List<DetHit> trkHits = ctofDetector.getIntersections(trk.getLine());
+            List<DetHit> trkHits = ctofDetector.getPaddleIntersections(trk.getLine());
             if (trkHits != null && !trkHits.isEmpty()) {
                 for (DetHit hit : trkHits) {
                     CTOFDetHit trkHit = new CTOFDetHit(hit);
@@ -271,7 +271,7 @@ public class HitReader implements IMatchedHit {
                 Line3d trk = trks.get(i); //System.out.println(" trk line "+trk.toString());
 
 //                CTOFDetHit[] HitArray = new CTOFDetHit[48];
-                List<DetHit> detHits = ctofDetector.getIntersections(trk);
+                List<DetHit> detHits = ctofDetector.getPaddleIntersections(trk);
 
                 if (detHits != null && detHits.size() > 0) {
                     for (DetHit detHit : detHits) {
@@ -278,7 +278,7 @@ public class HitReader implements IMatchedHit {
         for (int i = 0; i < tracks.size(); i++) {
             Track trk = tracks.get(i);
 //            System.out.println(tracks.size() + " " + i + trk.toString());
-            List<DetHit> trkHits = ftofDetector.getIntersections(trk.getLine());
+            List<DetHit> trkHits = ftofDetector.getPaddleIntersections(trk.getLine());
             if (trkHits != null && !trkHits.isEmpty()) {
                 for (DetHit hit : trkHits) {
                     FTOFDetHit trkHit = new FTOFDetHit(hit);
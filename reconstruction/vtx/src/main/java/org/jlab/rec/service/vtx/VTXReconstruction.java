@@ -34,6 +34,7 @@ public class VTXReconstruction extends ReconstructionEngine {
 
     String FieldsConfig = "";
     private int Run = -1;
+    private double maxDoca = Double.POSITIVE_INFINITY;
   
  
 
@@ -82,6 +83,7 @@ public class VTXReconstruction extends ReconstructionEngine {
     	List<Vertex> verteces = new ArrayList<Vertex>();
         // find helix pairs
     	VertexFinder vertexFinder = new VertexFinder();
+    	vertexFinder.set_MaxDoca(maxDoca);
     	vertexFinder.FindHelixPairs(trkList);
     	List<ArrayList<TrackParsHelix>> hxPairs = vertexFinder.get_HelixPairs();    
     	
@@ -101,6 +103,10 @@ public class VTXReconstruction extends ReconstructionEngine {
     public boolean init() {
         this.initConstantsTables();
         String variation = Optional.ofNullable(this.getEngineConfigString("variation")).orElse("default");
+        // pairs of tracks further apart than this (cm) are skipped, no cut by default
+        if (this.getEngineConfigString("maxDoca") != null) {
+            maxDoca = Double.parseDouble(this.getEngineConfigString("maxDoca"));
+        }
         //beam offset table
         DatabaseConstantProvider dbprovider = new DatabaseConstantProvider(11, variation);
         dbprovider.loadTable("/geometry/beam/position");
@@ -43,6 +43,12 @@ public class TrackParsHelix extends Helix {
     private double _y0;  // 
     private double _z0;  // 
 
+    private double _R;      // signed radius, 1/omega
+    private double _xc;     // center of the helix circle in xy
+    private double _yc;     // 
+    private double _zref;   // z at phi=0
+    private double _dzdphi; // 
+
     public void setHelixParams(double x0, double y0, double z0,
                                        double px0, double py0, double pz0, 
                                        int q, double Bf, double xb, double yb) { 
@@ -64,6 +70,12 @@ public class TrackParsHelix extends Helix {
         _cosphidca = Math.cos(this._phi_dca);
         _sinphidca = Math.sin(this._phi_dca);
 
+        this._R      = 1./this._helix.getOmega();
+        this._xc     = _x0 + (this._helix.getD0() + _R)*_cosphidca;
+        this._yc     = _y0 + (this._helix.getD0() + _R)*_sinphidca;
+        this._zref   = _z0 + this._helix.getZ0();
+        this._dzdphi = -_R*this._helix.getTanL();
+
     } // end setHelixParams()
 
 
@@ -86,5 +98,30 @@ public class TrackParsHelix extends Helix {
         return new Vector3D(px,py,pz).asUnit();
     }
 
+    // helix parameters used for the analytic doca calculation:
+    // x = xc - R*cos(phidca+phi), y = yc - R*sin(phidca+phi), z = zref + dzdphi*phi
+    public double getCircleR() {
+        return _R;
+    }
+
+    public double getCircleXc() {
+        return _xc;
+    }
+
+    public double getCircleYc() {
+        return _yc;
+    }
+
+    public double getPhiDca() {
+        return _phi_dca;
+    }
+
+    public double getZref() {
+        return _zref;
+    }
+
+    public double getDzDphi() {
+        return _dzdphi;
+    }
 
 }
@@ -7,7 +7,6 @@ import java.util.List;
 
 import org.jlab.geom.prim.Line3D;
 import org.jlab.geom.prim.Point3D;
-import org.jlab.geom.prim.Vector3D;
 
 public class VertexFinder {
 	
@@ -25,99 +24,200 @@ public class VertexFinder {
 		this._HelixPairs = _HelixPairs;
 	}
 	
-	static void combinations2(int[] arr, List<int[]> list){
-		
-        for(int i = 0; i<arr.length; i++)
-            for(int j = i+1; j<arr.length; j++)
-                list.add(new int[]{arr[i],arr[j]});
-    }	
-	
-	
+	/**
+	 * maximum distance between the tracks of a pair for a vertex, in cm
+	 */
+	private double _MaxDoca = Double.POSITIVE_INFINITY;
+
+	public double get_MaxDoca() {
+		return _MaxDoca;
+	}
+	public void set_MaxDoca(double _MaxDoca) {
+		this._MaxDoca = _MaxDoca;
+	}
+
+	// range of the helix parameter phi around the reference point used to look for the doca
+	private static final double PHIRANGE = 0.25;
+	private static final int    MAXITER  = 20;
+	private static final double PHITOL   = 1E-10;
+
 	public void FindHelixPairs(List<TrackParsHelix> allHelices) {
 		
 		List<ArrayList<TrackParsHelix>> allHelixPairs = new ArrayList<ArrayList<TrackParsHelix>>();	
-		List<int[]> list = new ArrayList<int[]>();
-		int[] arr = new int[allHelices.size()];
-		for(int i =0; i< allHelices.size(); i++) {
-			arr[i] = i;
-		}
-		combinations2(arr,list);	
-
-		for(int i=0; i< list.size(); i++) {
-			int h1Idx = list.get(i)[0];
-			int h2Idx = list.get(i)[1];
-			ArrayList<TrackParsHelix> helixPair = new ArrayList<TrackParsHelix>(2);
-			helixPair.add(allHelices.get(h1Idx));
-			helixPair.add(allHelices.get(h2Idx));
-			allHelixPairs.add(helixPair);
+		for(int i=0; i<allHelices.size(); i++) {
+			for(int j=i+1; j<allHelices.size(); j++) {
+				if(this.getMinDistance(allHelices.get(i), allHelices.get(j))>_MaxDoca) continue;
+				ArrayList<TrackParsHelix> helixPair = new ArrayList<TrackParsHelix>(2);
+				helixPair.add(allHelices.get(i));
+				helixPair.add(allHelices.get(j));
+				allHelixPairs.add(helixPair);
+			}
 		}
 		this.set_HelixPairs(allHelixPairs);
 	}
 	
+	/**
+	 * Lower bound of the distance between two helices in the phi range: the
+	 * distance between their circles in xy, and between their z ranges.
+	 */
+	private double getMinDistance(TrackParsHelix h1, TrackParsHelix h2) {
+		double r1 = Math.abs(h1.getCircleR());
+		double r2 = Math.abs(h2.getCircleR());
+		double d  = Math.hypot(h2.getCircleXc()-h1.getCircleXc(), h2.getCircleYc()-h1.getCircleYc());
+		double dxy = Math.max(0, Math.max(d-r1-r2, Math.abs(r1-r2)-d));
+		double dz1 = Math.abs(h1.getDzDphi())*PHIRANGE;
+		double dz2 = Math.abs(h2.getDzDphi())*PHIRANGE;
+		double dz = Math.max(0, Math.abs(h2.getZref()-h1.getZref())-dz1-dz2);
+		return Math.hypot(dxy, dz);
+	}
 	
-	public Vertex FindVertex(ArrayList<TrackParsHelix> helixPair) {
-		
-	    TrackParsHelix h1 = helixPair.get(0);
-	    TrackParsHelix h2 = helixPair.get(1);
-           
-	    int nsteps=50;
-	    double step = 0.005;    		
-	    double minD = 9999.;
-	    double phiMin1 = 9999.;
-	    double phiMin2 = 9999.;	    
-	    Point3D pMin1 = null;
-            Point3D pMin2 = null;
-            Vector3D uMin1 = null;
-            Vector3D uMin2 = null;
-	    // loop through the points of both helix curves 
-	    // and find two points with the minimal distance between them.
-		for(double phi1=-(nsteps*step) ; phi1<(nsteps*step); phi1+=step) {
-                    for(double phi2=-(nsteps*step) ; phi2<(nsteps*step); phi2+=step) {
-                    double d = h1.calcPoint(phi1).distance(h2.calcPoint(phi2)); 
-
-                    if(d<minD) { minD = d; phiMin1=phi1; phiMin2=phi2; }
-                    }
+	/**
+	 * @return the phi of the point of the helix closest to (x,y) in xy
+	 */
+	private static double getPhi(TrackParsHelix h, double x, double y) {
+		double s = Math.signum(h.getCircleR());
+		double phi = Math.atan2(s*(h.getCircleYc()-y), s*(h.getCircleXc()-x)) - h.getPhiDca();
+		return Math.IEEEremainder(phi, 2*Math.PI);
+	}
+	
+	/**
+	 * Starting values of (phi1, phi2) for the doca search: the intersections
+	 * of the two circles in xy, or their closest points if they don't
+	 * intersect, and the reference points.
+	 */
+	private static double[][] getSeeds(TrackParsHelix h1, TrackParsHelix h2) {
+		double x1 = h1.getCircleXc();
+		double y1 = h1.getCircleYc();
+		double r1 = Math.abs(h1.getCircleR());
+		double r2 = Math.abs(h2.getCircleR());
+		double dx = h2.getCircleXc()-x1;
+		double dy = h2.getCircleYc()-y1;
+		double d  = Math.hypot(dx, dy);
+		if(d==0) return new double[][]{{0, 0}};
+		double ux = dx/d;
+		double uy = dy/d;
+		if(d>r1+r2 || d<Math.abs(r1-r2)) {
+			// closest points along the line connecting the centers
+			double s1 = d>r1+r2 || r1>r2 ?  1 : -1;
+			double s2 = d>r1+r2 || r2>r1 ? -1 :  1;
+			double phi1 = getPhi(h1, x1+s1*r1*ux, y1+s1*r1*uy);
+			double phi2 = getPhi(h2, h2.getCircleXc()+s2*r2*ux, h2.getCircleYc()+s2*r2*uy);
+			return new double[][]{{phi1, phi2}, {0, 0}};
 		}
-		
-		// repeat previous loops around phiMin1 and phiMin2 with smaller step
-		nsteps=15;
-		step = step/10.;
-		for(double phi1=phiMin1-(nsteps*step) ; phi1<phiMin1+(nsteps*step); phi1+=step) {
-                    for(double phi2=phiMin2-(nsteps*step) ; phi2<phiMin2+(nsteps*step); phi2+=step) {
-                        double d = h1.calcPoint(phi1).distance(h2.calcPoint(phi2));
-                        if(d<minD) { minD = d; phiMin1=phi1; phiMin2=phi2; 
-                        uMin1 =  h1.calcDir(phi1); uMin2 =  h2.calcDir(phi2);}
-                    }
+		double a = (r1*r1-r2*r2+d*d)/(2*d);
+		double h = Math.sqrt(Math.max(0, r1*r1-a*a));
+		double[][] seeds = new double[3][];
+		for(int i=0; i<2; i++) {
+			double sign = i==0 ? 1 : -1;
+			double x = x1+a*ux-sign*h*uy;
+			double y = y1+a*uy+sign*h*ux;
+			seeds[i] = new double[]{getPhi(h1, x, y), getPhi(h2, x, y)};
 		}
-
-		// one more iteration
-		nsteps=15;
-		step = step/10.;
-		for(double phi1=phiMin1-(nsteps*step) ; phi1<phiMin1+(nsteps*step); phi1+=step) {
-                    for(double phi2=phiMin2-(nsteps*step) ; phi2<phiMin2+(nsteps*step); phi2+=step) {
-                        double d = h1.calcPoint(phi1).distance(h2.calcPoint(phi2));
-                        if(d<minD) { minD = d; phiMin1=phi1; phiMin2=phi2; 
-                        pMin1 =  h1.calcPoint(phi1);pMin2 =  h2.calcPoint(phi2);
-                        uMin1 =  h1.calcDir(phi1); uMin2 =  h2.calcDir(phi2);}
-                    }
+		seeds[2] = new double[]{0, 0};
+		return seeds;
+	}
+	
+	private static double clamp(double phi) {
+		return Math.max(-PHIRANGE, Math.min(PHIRANGE, phi));
+	}
+	
+	/**
+	 * Minimizes the distance between the two helices with Newton iterations
+	 * on (phi1, phi2), starting from the given values, within the phi range.
+	 * @param phi values of (phi1, phi2), updated with the result
+	 * @return the distance
+	 */
+	private static double minimize(TrackParsHelix h1, TrackParsHelix h2, double[] phi) {
+		double R1 = h1.getCircleR(), R2 = h2.getCircleR();
+		double t1 = h1.getDzDphi(),  t2 = h2.getDzDphi();
+		double phi1 = clamp(phi[0]);
+		double phi2 = clamp(phi[1]);
+		double d2 = 0;
+		for(int iter=0; iter<=MAXITER; iter++) {
+			double c1 = Math.cos(h1.getPhiDca()+phi1), s1 = Math.sin(h1.getPhiDca()+phi1);
+			double c2 = Math.cos(h2.getPhiDca()+phi2), s2 = Math.sin(h2.getPhiDca()+phi2);
+			// distance between the points and derivatives of the helices
+			double dx = h1.getCircleXc()-R1*c1 - h2.getCircleXc()+R2*c2;
+			double dy = h1.getCircleYc()-R1*s1 - h2.getCircleYc()+R2*s2;
+			double dz = h1.getZref()+t1*phi1 - h2.getZref()-t2*phi2;
+			d2 = dx*dx+dy*dy+dz*dz;
+			if(iter==MAXITER) break;
+			double g1 =   dx*R1*s1 - dy*R1*c1 + dz*t1;
+			double g2 = -(dx*R2*s2 - dy*R2*c2 + dz*t2);
+			double a11 = R1*R1+t1*t1;
+			double a22 = R2*R2+t2*t2;
+			double h12 = -(R1*R2*(s1*s2+c1*c2) + t1*t2);
+			double h11 = a11 + R1*(dx*c1+dy*s1);
+			double h22 = a22 - R2*(dx*c2+dy*s2);
+			double det = h11*h22-h12*h12;
+			if(h11<=0 || det<=0) {
+				// not a minimum locally, use the Gauss-Newton approximation
+				h11 = a11;
+				h22 = a22;
+				det = h11*h22-h12*h12;
+			}
+			double step1, step2;
+			if(det>1E-12*a11*a22) {
+				step1 = ( h22*g1-h12*g2)/det;
+				step2 = (-h12*g1+h11*g2)/det;
+			}
+			else {
+				// parallel tracks: move along the first one only
+				step1 = g1/h11;
+				step2 = 0;
+			}
+			double new1 = clamp(phi1-step1);
+			double new2 = clamp(phi2-step2);
+			if(new1!=phi1-step1 && new2==phi2-step2) {
+				// first one at the limit of the range
+				new2 = clamp(phi2-(g2+h12*(new1-phi1))/h22);
+			}
+			else if(new2!=phi2-step2 && new1==phi1-step1) {
+				new1 = clamp(phi1-(g1+h12*(new2-phi2))/h11);
+			}
+			boolean converged = Math.abs(new1-phi1)<PHITOL && Math.abs(new2-phi2)<PHITOL;
+			phi1 = new1;
+			phi2 = new2;
+			if(converged) break;
 		}
-				
-		// the line connecting the points of two helixes with minimal distance between them
-		Line3D intrxLine = new Line3D(h1.calcPoint(phiMin1), h2.calcPoint(phiMin2));
-		Point3D intrxPoint = intrxLine.midpoint();		
+		phi[0] = phi1;
+		phi[1] = phi2;
+		return Math.sqrt(d2);
+	}
+	
+	public Vertex FindVertex(ArrayList<TrackParsHelix> helixPair) {
 		
-                Vertex v = null;
-                if(pMin1!=null && pMin2!=null && uMin1!=null && uMin2!=null) {
-                    v = new Vertex();
-                    v.set_HelixPair(helixPair);
-                    v.set_Vertex(intrxPoint);
-                    v.setDoca(minD);
-                    v.setTrack1POCA(pMin1);
-                    v.setTrack2POCA(pMin2);
-                    v.setTrack1POCADir(uMin1);
-                    v.setTrack2POCADir(uMin2);
-                }
-                
+	    TrackParsHelix h1 = helixPair.get(0);
+	    TrackParsHelix h2 = helixPair.get(1);
+	    
+	    double minD = Double.POSITIVE_INFINITY;
+	    double phiMin1 = 0;
+	    double phiMin2 = 0;
+	    double[] phi = new double[2];
+	    for(double[] seed : getSeeds(h1, h2)) {
+	        phi[0] = seed[0];
+	        phi[1] = seed[1];
+	        double d = minimize(h1, h2, phi);
+	        if(d<minD) { minD = d; phiMin1 = phi[0]; phiMin2 = phi[1]; }
+	    }
+	    if(minD>_MaxDoca) return null;
+	    
+	    Point3D pMin1 = h1.calcPoint(phiMin1);
+	    Point3D pMin2 = h2.calcPoint(phiMin2);
+	    
+	    // the line connecting the points of two helixes with minimal distance between them
+	    Line3D intrxLine = new Line3D(pMin1, pMin2);
+	    Point3D intrxPoint = intrxLine.midpoint();
+	    
+	    Vertex v = new Vertex();
+	    v.set_HelixPair(helixPair);
+	    v.set_Vertex(intrxPoint);
+	    v.setDoca(pMin1.distance(pMin2));
+	    v.setTrack1POCA(pMin1);
+	    v.setTrack2POCA(pMin2);
+	    v.setTrack1POCADir(h1.calcDir(phiMin1));
+	    v.setTrack2POCADir(h2.calcDir(phiMin2));
+	    
 	    return v;
 	
 	} // end FindVertex()
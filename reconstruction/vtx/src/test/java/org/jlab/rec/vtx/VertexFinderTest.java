@@ -0,0 +1,95 @@
+package org.jlab.rec.vtx;
+
+import java.util.ArrayList;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class VertexFinderTest {
+
+    private static final double BFIELD = 50;
+
+    /**
+     * The grid scan used before: a 100x100 scan of (phi1, phi2) in the phi
+     * range, refined twice around the minimum with 10 times smaller steps.
+     * @return the doca and the phi of the two points, or null if the last
+     * refinement didn't improve the minimum
+     */
+    private static double[] gridScan(TrackParsHelix h1, TrackParsHelix h2) {
+        int nsteps = 50;
+        double step = 0.005;
+        double minD = 9999.;
+        double phiMin1 = 9999.;
+        double phiMin2 = 9999.;
+        for (double phi1 = -(nsteps*step); phi1 < (nsteps*step); phi1 += step) {
+            for (double phi2 = -(nsteps*step); phi2 < (nsteps*step); phi2 += step) {
+                double d = h1.calcPoint(phi1).distance(h2.calcPoint(phi2));
+                if (d < minD) { minD = d; phiMin1 = phi1; phiMin2 = phi2; }
+            }
+        }
+        boolean found = false;
+        for (int iter = 0; iter < 2; iter++) {
+            nsteps = 15;
+            step = step/10.;
+            found = false;
+            double phi1Center = phiMin1;
+            double phi2Center = phiMin2;
+            for (double phi1 = phi1Center-(nsteps*step); phi1 < phi1Center+(nsteps*step); phi1 += step) {
+                for (double phi2 = phi2Center-(nsteps*step); phi2 < phi2Center+(nsteps*step); phi2 += step) {
+                    double d = h1.calcPoint(phi1).distance(h2.calcPoint(phi2));
+                    if (d < minD) { minD = d; phiMin1 = phi1; phiMin2 = phi2; found = true; }
+                }
+            }
+        }
+        return found ? new double[]{minD, phiMin1, phiMin2} : null;
+    }
+
+    private static TrackParsHelix helix(Random random, int id, double x, double y, double z) {
+        double pt  = 0.2 + 1.8*random.nextDouble();
+        double phi = 2*Math.PI*random.nextDouble();
+        double pz  = 2*random.nextDouble() - 1;
+        int q = random.nextBoolean() ? 1 : -1;
+        return new TrackParsHelix(id, x, y, z, pt*Math.cos(phi), pt*Math.sin(phi), pz, q, BFIELD, 0, 0);
+    }
+
+    @Test
+    public void testFindVertex() {
+        Random random = new Random(3);
+        VertexFinder finder = new VertexFinder();
+        int ncommon = 0;
+        for (int k = 0; k < 400; k++) {
+            ArrayList<TrackParsHelix> pair = new ArrayList<>(2);
+            boolean common = k%2 == 0;
+            // pairs from the beam line and displaced vertices
+            double r = k%4 < 2 ? 0.2 : 5;
+            double x = r*random.nextGaussian();
+            double y = r*random.nextGaussian();
+            double z = 5*random.nextGaussian();
+            pair.add(helix(random, 1, x, y, z));
+            if (common) {
+                pair.add(helix(random, 2, x, y, z));
+            }
+            else {
+                pair.add(helix(random, 2, r*random.nextGaussian(), r*random.nextGaussian(), 5*random.nextGaussian()));
+            }
+
+            double[] expected = gridScan(pair.get(0), pair.get(1));
+            if (expected == null) continue;
+            // the grid scan can step slightly outside the phi range
+            if (Math.abs(expected[1]) > 0.25 || Math.abs(expected[2]) > 0.25) continue;
+
+            Vertex v = finder.FindVertex(pair);
+            assertNotNull(v);
+            // never worse than the scan
+            assertTrue(v.getDoca() <= expected[0] + 1E-9);
+            assertEquals(v.getDoca(), v.getTrack1POCA().distance(v.getTrack2POCA()), 1E-9);
+            if (expected[0] - v.getDoca() < 0.01) {
+                // same minimum, up to the precision of the scan
+                assertEquals(0, v.getTrack1POCA().distance(pair.get(0).calcPoint(expected[1])), 0.2);
+                assertEquals(0, v.getTrack2POCA().distance(pair.get(1).calcPoint(expected[2])), 0.2);
+            }
+            if (common) ncommon++;
+        }
+        assertTrue(ncommon > 100);
+    }
+}